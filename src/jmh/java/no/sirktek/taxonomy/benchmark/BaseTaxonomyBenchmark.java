@@ -0,0 +1,48 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm load times of the bundled base taxonomy, from its snapshot and from Turtle
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BaseTaxonomyBenchmark {
+
+    private final RdfsTaxonomyLoader snapshotLoader = new RdfsTaxonomyLoader(true);
+    private final RdfsTaxonomyLoader turtleLoader = new RdfsTaxonomyLoader(false);
+
+    /**
+     * Load the base taxonomy through the precompiled snapshot
+     * @return the tree
+     */
+    @Benchmark
+    public TaxonomyTree loadBaseTaxonomyFromSnapshot() {
+        return snapshotLoader.loadBaseTaxonomy();
+    }
+
+    /**
+     * Load the base taxonomy by parsing its Turtle file
+     * @return the tree
+     */
+    @Benchmark
+    public TaxonomyTree loadBaseTaxonomyFromTurtle() {
+        return turtleLoader.loadBaseTaxonomy();
+    }
+}
@@ -0,0 +1,84 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import no.sirktek.taxonomy.stats.CategoryCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent category counter updates from 64 threads on the base taxonomy, against the map of atomic counters
+ * that is updated for every ancestor on each increment
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(64)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CategoryCountersBenchmark {
+
+    private TaxonomyTree tree;
+    private String[] classNames;
+    private CategoryCounters counters;
+    private final ConcurrentHashMap<String, AtomicLong> perAncestor = new ConcurrentHashMap<>();
+
+    /**
+     * Load the base taxonomy and bind the counters to it
+     */
+    @Setup
+    public void setUp() {
+        tree = new RdfsTaxonomyLoader(false).loadBaseTaxonomy();
+        counters = CategoryCounters.of(tree);
+        classNames = new String[tree.index().size()];
+        for (int id = 0; id < classNames.length; id++) {
+            classNames[id] = tree.index().node(id).className();
+        }
+    }
+
+    /**
+     * Count one item of a random category by node id
+     */
+    @Benchmark
+    public void incrementById() {
+        counters.increment(ThreadLocalRandom.current().nextInt(classNames.length));
+    }
+
+    /**
+     * Count one item of a random category by class name
+     * @return whether the class was found
+     */
+    @Benchmark
+    public boolean incrementByClassName() {
+        return counters.add(classNames[ThreadLocalRandom.current().nextInt(classNames.length)], 1);
+    }
+
+    /**
+     * Count one item of a random category in a map, walking its parents to update every ancestor
+     */
+    @Benchmark
+    public void incrementWalkingParents() {
+        String className = classNames[ThreadLocalRandom.current().nextInt(classNames.length)];
+        while (className != null) {
+            perAncestor.computeIfAbsent(className, key -> new AtomicLong()).incrementAndGet();
+            CategoryInfo category = tree.findByClassName(className);
+            className = category.parentClassName();
+        }
+    }
+}
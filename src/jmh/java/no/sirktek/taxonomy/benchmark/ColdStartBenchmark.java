@@ -0,0 +1,43 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First call in a fresh JVM, including class loading and an unwarmed JIT. Each fork measures one call.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ColdStartBenchmark {
+
+    /**
+     * First lookup through a new service, which loads the base taxonomy snapshot
+     * @return whether the lookup succeeded
+     */
+    @Benchmark
+    public boolean firstServiceLookup() {
+        return new TaxonomyService().isBaseTaxonomyClass("OfficeChair");
+    }
+
+    /**
+     * First parse of the base taxonomy from Turtle, which loads Jena
+     * @return the tree
+     */
+    @Benchmark
+    public TaxonomyTree firstTurtleLoad() {
+        return new RdfsTaxonomyLoader(false).loadBaseTaxonomy();
+    }
+}
@@ -0,0 +1,119 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.http.TaxonomyHttpServer;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second against the taxonomy HTTP server over loopback, with client and server in one JVM. Runs one
+ * client thread per core, so dividing the score by the core count gives throughput per core.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class HttpServerBenchmark {
+
+    private TaxonomyHttpServer server;
+    private HttpClient client;
+    private HttpRequest category;
+    private HttpRequest categoryIfNoneMatch;
+    private HttpRequest tree;
+    private HttpRequest treeGzip;
+
+    /**
+     * Start the server on a free port and fetch the entity tag to revalidate against
+     * @throws IOException if the server cannot start or the first request fails
+     * @throws InterruptedException if interrupted during the first request
+     */
+    @Setup(Level.Trial)
+    public void start() throws IOException, InterruptedException {
+        server = new TaxonomyHttpServer(new TaxonomyService(new RdfsTaxonomyLoader(false)),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        URI base = URI.create("http://localhost:" + server.start().getPort());
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        category = HttpRequest.newBuilder(base.resolve("/categories/OfficeChair/properties")).build();
+        tree = HttpRequest.newBuilder(base.resolve("/taxonomy")).build();
+        treeGzip = HttpRequest.newBuilder(tree.uri()).header("Accept-Encoding", "gzip").build();
+        String etag = client.send(category, HttpResponse.BodyHandlers.discarding())
+                .headers().firstValue("ETag").orElseThrow();
+        categoryIfNoneMatch = HttpRequest.newBuilder(category.uri()).header("If-None-Match", etag).build();
+    }
+
+    /**
+     * Stop the server
+     */
+    @TearDown(Level.Trial)
+    public void stop() {
+        server.close();
+    }
+
+    /**
+     * Fetch the effective properties of a category
+     * @return the response body
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted
+     */
+    @Benchmark
+    public byte[] properties() throws IOException, InterruptedException {
+        return client.send(category, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    /**
+     * Revalidate the effective properties of a category, answered with 304 Not Modified
+     * @return the status code
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted
+     */
+    @Benchmark
+    public int propertiesNotModified() throws IOException, InterruptedException {
+        return client.send(categoryIfNoneMatch, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Fetch the whole taxonomy
+     * @return the response body
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted
+     */
+    @Benchmark
+    public byte[] taxonomy() throws IOException, InterruptedException {
+        return client.send(tree, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    /**
+     * Fetch the whole taxonomy gzip-compressed, without decompressing it
+     * @return the response body
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted
+     */
+    @Benchmark
+    public byte[] taxonomyGzip() throws IOException, InterruptedException {
+        return client.send(treeGzip, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+}
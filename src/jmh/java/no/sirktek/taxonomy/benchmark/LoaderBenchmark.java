@@ -0,0 +1,76 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.loader.TaxonomyPatch;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse and build synthetic taxonomies from Turtle, and to patch a loaded one
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoaderBenchmark {
+
+    @Param({"WIDE", "DEEP", "PROPERTIES"})
+    private SyntheticTaxonomy.Shape shape;
+
+    @Param({"1000", "100000"})
+    private int classes;
+
+    private final RdfsTaxonomyLoader loader = new RdfsTaxonomyLoader(false);
+    private byte[] turtle;
+    private TaxonomyTree loaded;
+    private TaxonomyPatch patch;
+
+    /**
+     * Generate the Turtle data, and a patch adding one class below the last one, once per trial
+     */
+    @Setup
+    public void generate() {
+        turtle = SyntheticTaxonomy.turtle(shape, classes);
+        loaded = loader.loadTaxonomy(new ByteArrayInputStream(turtle));
+        String patchTurtle = """
+                @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+                @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+                furniture:Added a rdfs:Class ; rdfs:subClassOf furniture:%s ; rdfs:label "Added"@en .
+                """.formatted(SyntheticTaxonomy.className(classes - 1));
+        patch = loader.parsePatch(new ByteArrayInputStream(patchTurtle.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Parse and build the whole tree, including its index
+     * @return the tree
+     */
+    @Benchmark
+    public TaxonomyTree loadTurtle() {
+        return loader.loadTaxonomy(new ByteArrayInputStream(turtle));
+    }
+
+    /**
+     * Add one class to the loaded tree by path copying, including the index of the new tree
+     * @return the patched tree
+     */
+    @Benchmark
+    public TaxonomyTree applyPatch() {
+        return loader.applyPatch(loaded, patch);
+    }
+}
@@ -0,0 +1,143 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import no.sirktek.taxonomy.query.TaxonomyQuery;
+import no.sirktek.taxonomy.stats.SubtreeStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of lookups on a loaded taxonomy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LookupBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"WIDE", "DEEP", "PROPERTIES"})
+    private SyntheticTaxonomy.Shape shape;
+
+    @Param({"1000", "100000"})
+    private int classes;
+
+    private TaxonomyTree tree;
+    private TaxonomyService service;
+    private String[] classNames;
+    private PropertyDefinition[] properties;
+    private TaxonomyQuery[] queries;
+    private int next;
+
+    /**
+     * Load the taxonomy and pick random lookup keys once per trial
+     */
+    @Setup
+    public void load() {
+        tree = SyntheticTaxonomy.tree(shape, classes);
+        service = new TaxonomyService(new RdfsTaxonomyLoader(false));
+        service.publish(tree);
+
+        Random random = new Random(42);
+        classNames = new String[SAMPLES];
+        List<PropertyDefinition> sampled = new ArrayList<>(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            classNames[i] = SyntheticTaxonomy.className(random.nextInt(classes));
+            CategoryInfo category = tree.findByClassName(classNames[i]);
+            sampled.add(category.properties().get(random.nextInt(category.properties().size())));
+        }
+        properties = sampled.toArray(PropertyDefinition[]::new);
+        queries = new TaxonomyQuery[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            queries[i] = TaxonomyQuery.builder()
+                    .descendantOf(SyntheticTaxonomy.className(random.nextInt(Math.max(1, classes / 100))))
+                    .leaf(true)
+                    .propertyName(properties[i].name())
+                    .limit(20)
+                    .build();
+        }
+        service.query(queries[0]);
+        service.getStats();
+    }
+
+    private int nextSample() {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+
+    /**
+     * Look up a category by class name
+     * @return the category
+     */
+    @Benchmark
+    public CategoryInfo findByClassName() {
+        return tree.findByClassName(classNames[nextSample()]);
+    }
+
+    /**
+     * Look up a class name that does not exist
+     * @return null
+     */
+    @Benchmark
+    public CategoryInfo findByClassNameMiss() {
+        return tree.findByClassName("Missing");
+    }
+
+    /**
+     * Compute statistics for the published taxonomy
+     * @return the statistics
+     */
+    @Benchmark
+    public TaxonomyService.TaxonomyStats getStats() {
+        return service.getStats();
+    }
+
+    /**
+     * Aggregate the subtree of a category
+     * @return the subtree aggregates
+     */
+    @Benchmark
+    public Optional<SubtreeStats> getSubtreeStats() {
+        return service.getSubtreeStats(classNames[nextSample()]);
+    }
+
+    /**
+     * Resolve the type of a property
+     * @return the property type
+     */
+    @Benchmark
+    public PropertyDefinition.PropertyType getPropertyType() {
+        return properties[nextSample()].getPropertyType();
+    }
+
+    /**
+     * Find up to 20 leaves under a category that have a given property
+     * @return the matching categories
+     */
+    @Benchmark
+    public List<CategoryInfo> query() {
+        return service.query(queries[nextSample()]);
+    }
+}
@@ -0,0 +1,100 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.search.Suggestion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of type-ahead suggestions, reported with percentiles up to p99.99. Synthetic classes are
+ * labelled "Class i" in English and "Klasse i" in Norwegian.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SuggestBenchmark {
+
+    private static final int SAMPLES = 1024;
+    private static final int LIMIT = 10;
+    private static final Locale NORWEGIAN = Locale.forLanguageTag("no");
+
+    @Param({"WIDE", "DEEP", "PROPERTIES"})
+    private SyntheticTaxonomy.Shape shape;
+
+    @Param({"100000"})
+    private int classes;
+
+    private TaxonomyService service;
+    private String[] prefixes;
+    private String[] typos;
+    private Locale[] locales;
+    private int next;
+
+    /**
+     * Load the taxonomy, build its suggest index and pick random queries once per trial
+     */
+    @Setup
+    public void load() {
+        service = new TaxonomyService(new RdfsTaxonomyLoader(false));
+        service.publish(SyntheticTaxonomy.tree(shape, classes));
+
+        Random random = new Random(42);
+        prefixes = new String[SAMPLES];
+        typos = new String[SAMPLES];
+        locales = new Locale[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            String number = Integer.toString(random.nextInt(classes));
+            boolean english = random.nextBoolean();
+            locales[i] = english ? Locale.ENGLISH : NORWEGIAN;
+            // Partially typed labels, from the first word alone to most of the number
+            String label = (english ? "Class " : "Klasse ") + number;
+            prefixes[i] = label.substring(0, Math.min(label.length(), 3 + random.nextInt(label.length() - 2)));
+            // Complete labels with one letter dropped, which no prefix matches
+            typos[i] = (english ? "Clas " : "Klase ") + number;
+        }
+        service.suggest(prefixes[0], locales[0], LIMIT);
+    }
+
+    private int nextSample() {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+
+    /**
+     * Suggest categories for a partially typed label
+     * @return the suggestions
+     */
+    @Benchmark
+    public List<Suggestion> prefix() {
+        int sample = nextSample();
+        return service.suggest(prefixes[sample], locales[sample], LIMIT);
+    }
+
+    /**
+     * Suggest categories for a label with a typo, answered by the fuzzy candidates
+     * @return the suggestions
+     */
+    @Benchmark
+    public List<Suggestion> fuzzy() {
+        int sample = nextSample();
+        return service.suggest(typos[sample], locales[sample], LIMIT);
+    }
+}
@@ -0,0 +1,94 @@
+package no.sirktek.taxonomy.benchmark;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates synthetic RDF-S taxonomies of a given shape and size for benchmarks
+ */
+public final class SyntheticTaxonomy {
+
+    /** Children per class in the wide and property-heavy shapes */
+    public static final int FAN_OUT = 10;
+    /** Own properties per class in the property-heavy shape */
+    public static final int PROPERTIES_PER_CLASS = 8;
+
+    private static final String PREFIXES = """
+            @prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .
+            @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+            @prefix xsd: <http://www.w3.org/2001/XMLSchema#> .
+            @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+            """;
+
+    private static final String[] RANGES = {
+            "xsd:string", "xsd:decimal", "xsd:integer", "xsd:date", "xsd:boolean", "xsd:anyURI"
+    };
+    private static final String[] PROPERTY_NAMES = {
+            "weight", "volume", "length", "emission", "unit", "resourceType", "material", "color"
+    };
+
+    /**
+     * Shapes of generated taxonomies
+     */
+    public enum Shape {
+        /** A balanced tree with {@link #FAN_OUT} children per class and one property per class */
+        WIDE,
+        /** A single chain of subclasses with one property per class */
+        DEEP,
+        /** A wide tree where every class declares {@link #PROPERTIES_PER_CLASS} properties */
+        PROPERTIES
+    }
+
+    private SyntheticTaxonomy() {
+    }
+
+    /**
+     * Class name of the i-th generated class
+     * @param i class number, from 0
+     * @return the class name
+     */
+    public static String className(int i) {
+        return "C" + i;
+    }
+
+    /**
+     * Generate Turtle data for a taxonomy
+     * @param shape   the shape of the hierarchy
+     * @param classes number of classes
+     * @return UTF-8 Turtle data
+     */
+    public static byte[] turtle(Shape shape, int classes) {
+        int propertiesPerClass = shape == Shape.PROPERTIES ? PROPERTIES_PER_CLASS : 1;
+        StringBuilder turtle = new StringBuilder(classes * (120 + propertiesPerClass * 140)).append(PREFIXES);
+        for (int i = 0; i < classes; i++) {
+            turtle.append("furniture:").append(className(i)).append(" a rdfs:Class ; rdfs:label \"Class ")
+                    .append(i).append("\"@en , \"Klasse ").append(i).append("\"@no");
+            if (i > 0) {
+                int parent = shape == Shape.DEEP ? i - 1 : (i - 1) / FAN_OUT;
+                turtle.append(" ; rdfs:subClassOf furniture:").append(className(parent));
+            }
+            turtle.append(" .\n");
+
+            for (int p = 0; p < propertiesPerClass; p++) {
+                String name = PROPERTY_NAMES[p % PROPERTY_NAMES.length] + i + "_" + p;
+                turtle.append("furniture:").append(name).append(" a rdf:Property ; rdfs:label \"")
+                        .append(name).append("\"@en ; rdfs:domain furniture:").append(className(i))
+                        .append(" ; rdfs:range ").append(RANGES[(i + p) % RANGES.length]).append(" .\n");
+            }
+        }
+        return turtle.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generate and load a taxonomy
+     * @param shape   the shape of the hierarchy
+     * @param classes number of classes
+     * @return the loaded taxonomy tree
+     */
+    public static TaxonomyTree tree(Shape shape, int classes) {
+        return new RdfsTaxonomyLoader(false).loadTaxonomy(new ByteArrayInputStream(turtle(shape, classes)));
+    }
+}
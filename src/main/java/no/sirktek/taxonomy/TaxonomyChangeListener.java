@@ -0,0 +1,15 @@
+package no.sirktek.taxonomy;
+
+/**
+ * Callback for taxonomy publications in {@link TaxonomyService}
+ */
+@FunctionalInterface
+public interface TaxonomyChangeListener {
+
+    /**
+     * Called after a new taxonomy version has been published and is visible to readers
+     * @param previous the version that was replaced, or null for the first publication
+     * @param current  the newly published version
+     */
+    void taxonomyChanged(TaxonomyVersion previous, TaxonomyVersion current);
+}
@@ -2,26 +2,63 @@ package no.sirktek.taxonomy;
 
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
+import no.sirktek.taxonomy.batch.BatchClassification;
+import no.sirktek.taxonomy.batch.KeyType;
+import no.sirktek.taxonomy.json.TaxonomyJson;
 import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.loader.TaxonomyPatch;
+import no.sirktek.taxonomy.metrics.TaxonomyMetrics;
 import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
 import no.sirktek.taxonomy.model.TaxonomyTree;
+import no.sirktek.taxonomy.query.QueryIndex;
+import no.sirktek.taxonomy.query.TaxonomyQuery;
+import no.sirktek.taxonomy.search.SuggestIndex;
+import no.sirktek.taxonomy.search.Suggestion;
+import no.sirktek.taxonomy.stats.StatsIndex;
+import no.sirktek.taxonomy.stats.SubtreeStats;
+import no.sirktek.taxonomy.validation.AttributeValidator;
+import no.sirktek.taxonomy.validation.AttributeValidators;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Main service for accessing furniture taxonomy data
+ * <p>
+ * Reads never take a lock: the published {@link TaxonomyVersion} sits in an atomic reference, and reloads,
+ * patches and {@link #publish(TaxonomyTree)} build the next tree on the calling thread before swapping it in
+ * with a compare-and-set, so readers keep using the previous version meanwhile.
  */
 @Slf4j
 public class TaxonomyService {
 
     private final RdfsTaxonomyLoader loader;
-    private volatile TaxonomyTree cachedTaxonomy;
+    private final TaxonomyMetrics metrics;
+    private final AtomicReference<TaxonomyVersion> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<TaxonomyVersion>> firstLoad = new AtomicReference<>();
+    private final List<TaxonomyChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Default constructor using default RdfsTaxonomyLoader
      */
     public TaxonomyService() {
-        this.loader = new RdfsTaxonomyLoader();
+        this(new RdfsTaxonomyLoader());
     }
 
     /**
@@ -29,7 +66,26 @@ public class TaxonomyService {
      * @param loader custom RDF taxonomy loader
      */
     public TaxonomyService(RdfsTaxonomyLoader loader) {
+        this(loader, TaxonomyMetrics.NOOP);
+    }
+
+    /**
+     * Constructor reporting category lookups and reload latency. Pass the same metrics to the loader to also
+     * measure the loads themselves.
+     * @param loader  custom RDF taxonomy loader
+     * @param metrics receives lookup and reload measurements
+     */
+    public TaxonomyService(RdfsTaxonomyLoader loader, TaxonomyMetrics metrics) {
         this.loader = loader;
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+    }
+
+    /**
+     * Get the metrics this service reports to, for components that reload on its behalf
+     * @return the metrics, {@link TaxonomyMetrics#NOOP} if none were configured
+     */
+    public TaxonomyMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -37,29 +93,139 @@ public class TaxonomyService {
      * @return the taxonomy tree
      */
     public TaxonomyTree loadBaseTaxonomy() {
-        if (cachedTaxonomy == null) {
-            synchronized (this) {
-                if (cachedTaxonomy == null) {
+        return getCurrentVersion().tree();
+    }
+
+    /**
+     * Get the currently published taxonomy together with its version, loading the base taxonomy on first use.
+     * Once a version is published this is a single volatile read; only callers arriving before the first version
+     * exists wait, for the one load they all share.
+     * @return the current taxonomy version
+     */
+    public TaxonomyVersion getCurrentVersion() {
+        TaxonomyVersion version = current.get();
+        return version != null ? version : loadFirstVersion();
+    }
+
+    /**
+     * Load and publish the base taxonomy once. The first caller to install its future loads on its own thread;
+     * concurrent callers wait on that future. A failed load is forgotten so the next caller tries again, and a
+     * version published by someone else in the meantime wins over the loaded tree.
+     */
+    private TaxonomyVersion loadFirstVersion() {
+        CompletableFuture<TaxonomyVersion> load = firstLoad.get();
+        if (load == null) {
+            CompletableFuture<TaxonomyVersion> mine = new CompletableFuture<>();
+            load = firstLoad.compareAndExchange(null, mine);
+            if (load == null) {
+                load = mine;
+                try {
                     log.info("Loading base taxonomy from RDF-S for the first time");
-                    cachedTaxonomy = loader.loadBaseTaxonomy();
+                    TaxonomyTree tree = loader.loadBaseTaxonomy();
+                    TaxonomyVersion first = new TaxonomyVersion(1, tree);
+                    if (current.compareAndSet(null, first)) {
+                        log.debug("Published taxonomy version {}", first.version());
+                        notifyListeners(null, first);
+                    }
+                    mine.complete(current.get());
+                } catch (RuntimeException | Error e) {
+                    firstLoad.compareAndSet(mine, null);
+                    mine.completeExceptionally(e);
+                    throw e;
                 }
             }
         }
-        return cachedTaxonomy;
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     /**
-     * Force reload of the taxonomy (clears cache)
+     * Force reload of the taxonomy. The new tree is built while readers keep using the current one,
+     * and is then published with an atomic swap.
      * @return the reloaded taxonomy tree
      */
     public TaxonomyTree reloadBaseTaxonomy() {
-        synchronized (this) {
-            log.info("Forcing reload of base taxonomy");
-            cachedTaxonomy = null;
-            return loadBaseTaxonomy();
+        log.info("Forcing reload of base taxonomy");
+        long started = System.nanoTime();
+        TaxonomyVersion version = publish(loader.loadBaseTaxonomy());
+        metrics.taxonomyReloaded(version.version(), Duration.ofNanos(System.nanoTime() - started));
+        return version.tree();
+    }
+
+    /**
+     * Publish a taxonomy tree built elsewhere, e.g. by a {@link no.sirktek.taxonomy.reload.TaxonomyDirectoryWatcher}.
+     * Readers switch to the new tree atomically and never observe a partially built one.
+     * Registered listeners are notified after the swap.
+     * @param tree the tree to publish
+     * @return the published version
+     */
+    public TaxonomyVersion publish(TaxonomyTree tree) {
+        Objects.requireNonNull(tree, "tree");
+        return publish(previous -> tree);
+    }
+
+    /**
+     * Apply a Turtle patch of added, updated and removed classes and properties to the current taxonomy and
+     * publish the result. Unchanged subtrees are shared with the current version instead of being reparsed and
+     * rebuilt. If another version is published concurrently, the patch is applied again to that version.
+     * @param turtlePatch stream of Turtle data in the taxonomy vocabulary; it is not closed
+     * @return the published version
+     * @see no.sirktek.taxonomy.loader.TaxonomyPatch
+     */
+    public TaxonomyVersion applyPatch(InputStream turtlePatch) {
+        long started = System.nanoTime();
+        TaxonomyPatch patch = loader.parsePatch(turtlePatch);
+        getCurrentVersion();
+        TaxonomyVersion version = publish(previous -> loader.applyPatch(previous.tree(), patch));
+        metrics.taxonomyReloaded(version.version(), Duration.ofNanos(System.nanoTime() - started));
+        return version;
+    }
+
+    private TaxonomyVersion publish(Function<TaxonomyVersion, TaxonomyTree> nextTree) {
+        TaxonomyVersion previous;
+        TaxonomyVersion next;
+        do {
+            previous = current.get();
+            next = new TaxonomyVersion(previous == null ? 1 : previous.version() + 1, nextTree.apply(previous));
+        } while (!current.compareAndSet(previous, next));
+
+        log.debug("Published taxonomy version {}", next.version());
+        notifyListeners(previous, next);
+        return next;
+    }
+
+    private void notifyListeners(TaxonomyVersion previous, TaxonomyVersion next) {
+        for (TaxonomyChangeListener listener : listeners) {
+            try {
+                listener.taxonomyChanged(previous, next);
+            } catch (RuntimeException e) {
+                log.warn("Taxonomy change listener failed for version {}", next.version(), e);
+            }
         }
     }
 
+    /**
+     * Register a listener that is notified whenever a new taxonomy version is published
+     * @param listener the listener to add
+     */
+    public void addChangeListener(TaxonomyChangeListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Remove a previously registered change listener
+     * @param listener the listener to remove
+     */
+    public void removeChangeListener(TaxonomyChangeListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Find category information by English class name
      * @param className the English class name to search for
@@ -72,51 +238,251 @@ public class TaxonomyService {
 
         TaxonomyTree taxonomy = loadBaseTaxonomy();
         CategoryInfo found = taxonomy.findByClassName(className);
+        metrics.categoryLookup(found != null);
         return Optional.ofNullable(found);
     }
 
+    /**
+     * Find category information by its complete URI
+     * @param uri the class URI to search for
+     * @return optional category information if found
+     */
+    public Optional<CategoryInfo> getCategoryByUri(String uri) {
+        if (uri == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(loadBaseTaxonomy().findByUri(uri));
+    }
+
+    /**
+     * Find category information by its exact label in any language
+     * @param label the label to search for
+     * @return optional category information if found
+     */
+    public Optional<CategoryInfo> getCategoryByLabel(String label) {
+        if (label == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(loadBaseTaxonomy().findByLabel(label));
+    }
+
     /**
      * Check if an English class name exists in the base taxonomy
      * @param className the English class name to check
      * @return true if the class exists in the taxonomy
      */
     public boolean isBaseTaxonomyClass(String className) {
-        return getCategoryByClassName(className).isPresent();
+        return className != null && loadBaseTaxonomy().containsClassName(className);
+    }
+
+    /**
+     * Get the properties that apply to a category, including those inherited from its ancestors.
+     * The lists are computed once per loaded taxonomy.
+     * @param className the class name of the category
+     * @return inherited properties, root first, followed by the category's own; empty for unknown classes
+     */
+    public List<PropertyDefinition> getEffectiveProperties(String className) {
+        TaxonomyIndex index = loadBaseTaxonomy().index();
+        int id = index.idOf(className);
+        return id == TaxonomyIndex.NOT_FOUND ? List.of() : index.effectiveProperties(id);
+    }
+
+    /**
+     * Check whether a category is a kind of another category. Every category is a subclass of itself.
+     * @param className         the candidate subclass
+     * @param ancestorClassName the candidate superclass
+     * @return true if both classes exist and the first is the second or one of its descendants
+     */
+    public boolean isSubclassOf(String className, String ancestorClassName) {
+        TaxonomyIndex index = loadBaseTaxonomy().index();
+        int id = index.idOf(className);
+        int ancestorId = index.idOf(ancestorClassName);
+        return id != TaxonomyIndex.NOT_FOUND && ancestorId != TaxonomyIndex.NOT_FOUND
+                && index.isSubclassOf(id, ancestorId);
     }
 
     /**
-     * Get statistics about the loaded taxonomy
+     * Get the ancestors of a category, nearest first
+     * @param className the class name of the category
+     * @return the parent, grandparent and so on up to the root; empty for roots and unknown classes
+     */
+    public List<CategoryInfo> getAncestors(String className) {
+        TaxonomyIndex index = loadBaseTaxonomy().index();
+        int id = index.idOf(className);
+        return id == TaxonomyIndex.NOT_FOUND ? List.of() : index.ancestors(id);
+    }
+
+    /**
+     * Get all descendants of a category in pre-order
+     * @param className the class name of the category
+     * @return every category below the given one; empty for leaves and unknown classes
+     */
+    public List<CategoryInfo> getDescendants(String className) {
+        TaxonomyIndex index = loadBaseTaxonomy().index();
+        int id = index.idOf(className);
+        return id == TaxonomyIndex.NOT_FOUND ? List.of() : index.descendants(id);
+    }
+
+    /**
+     * Find the most specific category that two categories both belong to
+     * @param className      the class name of the first category
+     * @param otherClassName the class name of the second category
+     * @return the lowest common ancestor, which may be one of the two categories itself;
+     *         empty if either class is unknown or they share no root
+     */
+    public Optional<CategoryInfo> getLowestCommonAncestor(String className, String otherClassName) {
+        TaxonomyIndex index = loadBaseTaxonomy().index();
+        int id = index.idOf(className);
+        int otherId = index.idOf(otherClassName);
+        if (id == TaxonomyIndex.NOT_FOUND || otherId == TaxonomyIndex.NOT_FOUND) {
+            return Optional.empty();
+        }
+        int ancestorId = index.lowestCommonAncestor(id, otherId);
+        return ancestorId == TaxonomyIndex.NOT_FOUND ? Optional.empty() : Optional.of(index.node(ancestorId));
+    }
+
+    /**
+     * Resolve a batch of keys in one go, in parallel, against the current taxonomy version
+     * @param keys    class names, URIs or labels; may contain nulls and repeats
+     * @param keyType what the keys identify categories by
+     * @return categories, effective properties and ancestor paths by key position
+     */
+    public BatchClassification classify(String[] keys, KeyType keyType) {
+        return BatchClassification.classify(loadBaseTaxonomy().index(), keys, keyType);
+    }
+
+    /**
+     * Resolve a stream of keys in one go, in parallel, against the current taxonomy version
+     * @param keys    class names, URIs or labels; may contain nulls and repeats
+     * @param keyType what the keys identify categories by
+     * @return categories, effective properties and ancestor paths in stream encounter order
+     */
+    public BatchClassification classify(Stream<String> keys, KeyType keyType) {
+        return classify(keys.toArray(String[]::new), keyType);
+    }
+
+    /**
+     * Get the compiled attribute validator of a category. Validators are compiled once per category and
+     * taxonomy version.
+     * @param className the class name of the category
+     * @return the validator, or empty for unknown classes
+     */
+    public Optional<AttributeValidator> getAttributeValidator(String className) {
+        AttributeValidators validators = getCurrentVersion()
+                .derived(AttributeValidators.class, tree -> new AttributeValidators(tree.index()));
+        return Optional.ofNullable(validators.forClassName(className));
+    }
+
+    /**
+     * Suggest categories whose English or Norwegian labels match partially typed text, tolerating small typos.
+     * The search index is built once per taxonomy version.
+     * @param query  the text typed so far
+     * @param locale the label language to search, or null for both
+     * @param limit  maximum number of suggestions
+     * @return ranked suggestions, best first
+     * @see SuggestIndex#suggest(String, Locale, int)
+     */
+    public List<Suggestion> suggest(String query, Locale locale, int limit) {
+        return getCurrentVersion()
+                .derived(SuggestIndex.class, tree -> SuggestIndex.of(tree.index()))
+                .suggest(query, locale, limit);
+    }
+
+    /**
+     * Get the JSON serialization of the current taxonomy version. The tree is serialized, and compressed, once
+     * per version.
+     * @return the serialized taxonomy
+     */
+    public TaxonomyJson getJson() {
+        return getCurrentVersion().derived(TaxonomyJson.class, tree -> TaxonomyJson.of(tree.index()));
+    }
+
+    /**
+     * Find the categories matching a query. The query columns are built once per taxonomy version.
+     * @param query the filter criteria and limit
+     * @return matching categories in pre-order
+     * @see QueryIndex#find(TaxonomyQuery)
+     */
+    public List<CategoryInfo> query(TaxonomyQuery query) {
+        return getCurrentVersion()
+                .derived(QueryIndex.class, tree -> QueryIndex.of(tree.index()))
+                .find(query);
+    }
+
+    /**
+     * Get statistics about the loaded taxonomy. They are computed once per taxonomy version, in one parallel
+     * traversal, so polling them is cheap.
      * @return taxonomy statistics
+     * @see StatsIndex
      */
     public TaxonomyStats getStats() {
-        TaxonomyTree taxonomy = loadBaseTaxonomy();
-        int totalCategories = countCategoriesRecursively(taxonomy.rootCategories());
-        int rootCategories = taxonomy.rootCategories().size();
+        StatsIndex stats = statsIndex();
+        SubtreeStats totals = stats.totals();
 
         return TaxonomyStats.builder()
-                .totalCategories(totalCategories)
-                .rootCategories(rootCategories)
+                .totalCategories(totals.categories())
+                .rootCategories(stats.rootCategories())
+                .leafCategories(totals.leaves())
+                .maxDepth(totals.height())
+                .categoriesByDepth(stats.categoriesByDepth())
+                .categoriesByChildCount(stats.categoriesByChildCount())
+                .propertiesByType(totals.propertiesByType())
                 .build();
     }
 
-    private int countCategoriesRecursively(java.util.List<CategoryInfo> categories) {
-        int count = categories.size();
-        for (CategoryInfo category : categories) {
-            count += countCategoriesRecursively(category.children());
-        }
-        return count;
+    /**
+     * Get aggregates over the subtree of a category, from the statistics computed once per taxonomy version
+     * @param className the class name of the subtree root
+     * @return the subtree's category, leaf and property counts and height, or empty for unknown classes
+     */
+    public Optional<SubtreeStats> getSubtreeStats(String className) {
+        return Optional.ofNullable(statsIndex().subtree(className));
+    }
+
+    private StatsIndex statsIndex() {
+        return getCurrentVersion().derived(StatsIndex.class, tree -> StatsIndex.of(tree.index()));
     }
 
     /**
          * Statistics about the taxonomy
          *
-         * @param totalCategories total number of categories in the taxonomy
-         * @param rootCategories number of root categories in the taxonomy
+         * @param totalCategories        total number of categories in the taxonomy
+         * @param rootCategories         number of root categories in the taxonomy
+         * @param leafCategories         number of categories without children
+         * @param maxDepth               depth of the deepest category, roots being at depth 0
+         * @param categoriesByDepth      number of categories at each depth, from the roots down
+         * @param categoriesByChildCount number of categories by their number of children
+         * @param propertiesByType       number of declared properties by type
          */
         @Builder
         public record TaxonomyStats(
                 int totalCategories,
-                int rootCategories
+                int rootCategories,
+                int leafCategories,
+                int maxDepth,
+                List<Integer> categoriesByDepth,
+                SortedMap<Integer, Integer> categoriesByChildCount,
+                Map<PropertyType, Integer> propertiesByType
     ) {
+
+        /**
+         * Create statistics, treating missing breakdowns as empty
+         */
+        public TaxonomyStats {
+            categoriesByDepth = categoriesByDepth != null ? categoriesByDepth : List.of();
+            categoriesByChildCount = categoriesByChildCount != null
+                    ? categoriesByChildCount : Collections.emptySortedMap();
+            propertiesByType = propertiesByType != null ? propertiesByType : Map.of();
+        }
+
+        /**
+         * Create statistics with only the category counts, as before the per-depth and per-type breakdowns were
+         * computed. The other counts are zero and the breakdowns empty.
+         * @param totalCategories total number of categories in the taxonomy
+         * @param rootCategories  number of root categories in the taxonomy
+         */
+        public TaxonomyStats(int totalCategories, int rootCategories) {
+            this(totalCategories, rootCategories, 0, 0, null, null, null);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package no.sirktek.taxonomy;
+
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * An immutable taxonomy tree as published by {@link TaxonomyService}, tagged with a version number.
+ * Versions increase by one with every publication, so dependent caches can key on them.
+ * <p>
+ * Structures derived from the tree, such as search indexes, can be attached with
+ * {@link #derived(Class, Function)}. They are built once per version and are dropped with it.
+ * <p>
+ * Versions are compared by identity, so they are cheap cache keys however large the tree; each instance carries
+ * its own derived structures.
+ */
+public final class TaxonomyVersion {
+
+    private final long version;
+    private final TaxonomyTree tree;
+    private final ConcurrentMap<Class<?>, CompletableFuture<Object>> derived = new ConcurrentHashMap<>();
+
+    /**
+     * Create a version
+     * @param version monotonically increasing version number, starting at 1
+     * @param tree    the taxonomy tree of this version
+     */
+    public TaxonomyVersion(long version, TaxonomyTree tree) {
+        this.version = version;
+        this.tree = Objects.requireNonNull(tree, "tree");
+    }
+
+    /**
+     * Get the version number
+     * @return monotonically increasing version number, starting at 1
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Get the published tree
+     * @return the taxonomy tree of this version
+     */
+    public TaxonomyTree tree() {
+        return tree;
+    }
+
+    /**
+     * Get a structure derived from this version's tree, building it on first use.
+     * <p>
+     * Concurrent first callers build it only once: the first caller to install its future runs the factory on its
+     * own thread, outside any lock, and the others wait on that future. A factory may therefore get other
+     * structures of the same version, and slow builds do not hold up first builds of other types. A failed build
+     * is forgotten so the next caller tries again; a factory returning null is not cached either.
+     * @param type    the type of the structure, used as its cache key
+     * @param factory builds the structure from the tree
+     * @param <T>     the structure type
+     * @return the cached structure
+     */
+    public <T> T derived(Class<T> type, Function<TaxonomyTree, ? extends T> factory) {
+        CompletableFuture<Object> build = derived.get(type);
+        if (build == null) {
+            CompletableFuture<Object> mine = new CompletableFuture<>();
+            build = derived.putIfAbsent(type, mine);
+            if (build == null) {
+                build = mine;
+                try {
+                    T value = factory.apply(tree);
+                    if (value == null) {
+                        derived.remove(type, mine);
+                    }
+                    mine.complete(value);
+                } catch (RuntimeException | Error e) {
+                    derived.remove(type, mine);
+                    mine.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return type.cast(build.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TaxonomyVersion[version=" + version + "]";
+    }
+}
@@ -0,0 +1,182 @@
+package no.sirktek.taxonomy.batch;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Categories resolved for a batch of keys, such as the rows of a product import.
+ * <p>
+ * Keys are resolved to node ids in parallel. Work that depends only on the category, like building its ancestor
+ * path, is done once per distinct category in the batch, however many keys name it. Results are read back by
+ * position; unknown and null keys give null or empty values instead of an {@code Optional} per element.
+ */
+public final class BatchClassification {
+
+    private final TaxonomyIndex index;
+    private final int[] nodeIds;
+    /** Position of each key's category among the distinct categories of the batch, -1 for unresolved keys */
+    private final int[] distinctPositions;
+    private final List<CategoryInfo>[] ancestors;
+    private final int unresolved;
+
+    private BatchClassification(TaxonomyIndex index, int[] nodeIds, int[] distinctPositions,
+                                List<CategoryInfo>[] ancestors, int unresolved) {
+        this.index = index;
+        this.nodeIds = nodeIds;
+        this.distinctPositions = distinctPositions;
+        this.ancestors = ancestors;
+        this.unresolved = unresolved;
+    }
+
+    /**
+     * Resolve a batch of keys against a taxonomy, using the common fork-join pool
+     * @param index   the indexed taxonomy
+     * @param keys    the keys, which may contain nulls and repeats
+     * @param keyType what the keys identify categories by
+     * @return the resolved batch
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static BatchClassification classify(TaxonomyIndex index, String[] keys, KeyType keyType) {
+        Objects.requireNonNull(index, "index");
+        Objects.requireNonNull(keyType, "keyType");
+
+        int[] nodeIds = new int[keys.length];
+        IntStream.range(0, keys.length).parallel()
+                .forEach(i -> nodeIds[i] = resolve(index, keys[i], keyType));
+
+        // Collect each category once, however often it occurs in the batch. Distinct ids go into an open-addressing
+        // table sized by the batch, not the taxonomy, which holds id + 1 (0 marking a free slot) and the category's
+        // position among the distinct ones, so the loop allocates nothing per key
+        int capacity = Math.min(keys.length, index.size());
+        int slots = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+        int mask = slots - 1;
+        int[] slotIds = new int[slots];
+        int[] slotPositions = new int[slots];
+        int[] distinctPositions = new int[keys.length];
+        int[] distinct = new int[capacity];
+        int distinctCount = 0;
+        int unresolved = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int id = nodeIds[i];
+            if (id == TaxonomyIndex.NOT_FOUND) {
+                unresolved++;
+                distinctPositions[i] = -1;
+                continue;
+            }
+            int hash = id * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slotIds[slot] != 0 && slotIds[slot] != id + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (slotIds[slot] == 0) {
+                slotIds[slot] = id + 1;
+                slotPositions[slot] = distinctCount;
+                distinct[distinctCount++] = id;
+            }
+            distinctPositions[i] = slotPositions[slot];
+        }
+
+        List<CategoryInfo>[] ancestors = new List[distinctCount];
+        IntStream.range(0, distinctCount).parallel()
+                .forEach(i -> ancestors[i] = index.ancestors(distinct[i]));
+
+        return new BatchClassification(index, nodeIds, distinctPositions, ancestors, unresolved);
+    }
+
+    private static int resolve(TaxonomyIndex index, String key, KeyType keyType) {
+        if (key == null) {
+            return TaxonomyIndex.NOT_FOUND;
+        }
+        return switch (keyType) {
+            case CLASS_NAME -> index.idOf(key);
+            case URI -> index.idOfUri(key);
+            case LABEL -> index.idOfLabel(key);
+        };
+    }
+
+    /**
+     * Number of keys in the batch
+     * @return the batch size
+     */
+    public int size() {
+        return nodeIds.length;
+    }
+
+    /**
+     * Node id resolved for a key, for further queries on {@link #index()}
+     * @param position position of the key in the batch
+     * @return the node id, or {@link TaxonomyIndex#NOT_FOUND}
+     */
+    public int nodeId(int position) {
+        return nodeIds[position];
+    }
+
+    /**
+     * Whether a key named a known category
+     * @param position position of the key in the batch
+     * @return true if the key was resolved
+     */
+    public boolean isResolved(int position) {
+        return nodeIds[position] != TaxonomyIndex.NOT_FOUND;
+    }
+
+    /**
+     * Category resolved for a key
+     * @param position position of the key in the batch
+     * @return the category, or null if the key is unknown
+     */
+    public CategoryInfo category(int position) {
+        int id = nodeIds[position];
+        return id == TaxonomyIndex.NOT_FOUND ? null : index.node(id);
+    }
+
+    /**
+     * Effective properties of the category resolved for a key
+     * @param position position of the key in the batch
+     * @return inherited and own properties, empty if the key is unknown
+     * @see TaxonomyIndex#effectiveProperties(int)
+     */
+    public List<PropertyDefinition> effectiveProperties(int position) {
+        int id = nodeIds[position];
+        return id == TaxonomyIndex.NOT_FOUND ? List.of() : index.effectiveProperties(id);
+    }
+
+    /**
+     * Ancestor path of the category resolved for a key, shared by all keys naming the same category
+     * @param position position of the key in the batch
+     * @return the ancestors, nearest first; empty for roots and unknown keys
+     */
+    public List<CategoryInfo> ancestors(int position) {
+        int distinctPosition = distinctPositions[position];
+        return distinctPosition == -1 ? List.of() : ancestors[distinctPosition];
+    }
+
+    /**
+     * Number of keys that did not name a known category
+     * @return the unresolved count
+     */
+    public int unresolvedCount() {
+        return unresolved;
+    }
+
+    /**
+     * Number of different categories named in the batch
+     * @return the distinct category count
+     */
+    public int distinctCategoryCount() {
+        return ancestors.length;
+    }
+
+    /**
+     * The taxonomy the batch was resolved against
+     * @return the index
+     */
+    public TaxonomyIndex index() {
+        return index;
+    }
+}
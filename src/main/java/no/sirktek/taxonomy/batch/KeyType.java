@@ -0,0 +1,13 @@
+package no.sirktek.taxonomy.batch;
+
+/**
+ * What the keys of a classification batch identify a category by
+ */
+public enum KeyType {
+    /** The class name (URI fragment), e.g. {@code OfficeChair} */
+    CLASS_NAME,
+    /** The complete class URI */
+    URI,
+    /** The exact label in any language */
+    LABEL
+}
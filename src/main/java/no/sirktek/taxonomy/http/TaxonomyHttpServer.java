@@ -0,0 +1,303 @@
+package no.sirktek.taxonomy.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.TaxonomyVersion;
+import no.sirktek.taxonomy.http.TaxonomyResponses.Response;
+import no.sirktek.taxonomy.json.TaxonomyJson;
+import no.sirktek.taxonomy.json.TaxonomyJson.Encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a {@link TaxonomyService} over HTTP with the JDK's built-in server, so several applications can share
+ * one loaded taxonomy.
+ * <p>
+ * Endpoints, all answering {@code GET} and {@code HEAD} with JSON:
+ * <ul>
+ *     <li>{@code /taxonomy}: the whole tree as nested categories with their own properties</li>
+ *     <li>{@code /categories/{className}}: a category with the class names of its children</li>
+ *     <li>{@code /categories/{className}/subtree}: a category with its nested descendants</li>
+ *     <li>{@code /categories/{className}/ancestors}: its ancestors, nearest first</li>
+ *     <li>{@code /categories/{className}/properties}: its effective property schema</li>
+ * </ul>
+ * Responses are serialized once per taxonomy version and carry a strong {@code ETag} computed from their bytes;
+ * a request whose {@code If-None-Match} names it is answered with {@code 304 Not Modified} and no body. The whole
+ * tree is also kept gzip-compressed and sent that way to clients accepting it. A {@code lang} query parameter,
+ * such as {@code ?lang=sv}, on the tree or a subtree adds the label shown in that language and keeps only the
+ * English or, for Norwegian, the Norwegian names; those views, like subtrees, are streamed as they are written
+ * instead of cached. The taxonomy version is sent in an {@code X-Taxonomy-Version} header.
+ * <p>
+ * Requests run on virtual threads when the JVM has them, and on a cached thread pool otherwise.
+ * <p>
+ * The JDK server writes headers and body separately, so without {@code TCP_NODELAY} Nagle's algorithm holds the
+ * body back until the client's delayed acknowledgement, adding about 40 ms to every response with a body. The
+ * server leaves that JVM-wide setting alone; applications opt in by starting the JVM with
+ * {@code -Dsun.net.httpserver.nodelay=true}, which is read when the first server in the JVM is created.
+ */
+@Slf4j
+public final class TaxonomyHttpServer implements AutoCloseable {
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String TAXONOMY = "/taxonomy";
+    private static final String CATEGORIES = "/categories/";
+    private static final String SUBTREE = "/subtree";
+    private static final String LANG = "lang=";
+    private static final String ANCESTORS = "/ancestors";
+    private static final String PROPERTIES = "/properties";
+
+    private final TaxonomyService service;
+    private final InetSocketAddress address;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Create a server
+     * @param service the service whose current taxonomy version is served
+     * @param address the address to listen on; port 0 picks a free port
+     */
+    public TaxonomyHttpServer(TaxonomyService service, InetSocketAddress address) {
+        this.service = Objects.requireNonNull(service, "service");
+        this.address = Objects.requireNonNull(address, "address");
+    }
+
+    /**
+     * Bind the address and start serving
+     * @return the bound address, with the actual port
+     * @throws IOException if the address cannot be bound
+     */
+    public synchronized InetSocketAddress start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        server = HttpServer.create(address, 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("Serving taxonomy on {}", server.getAddress());
+        return server.getAddress();
+    }
+
+    /**
+     * Use a virtual thread per request on JVMs that have them. The project compiles for Java 17, so the factory
+     * is looked up reflectively.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "taxonomy-http-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                respond(exchange);
+            } catch (RuntimeException e) {
+                log.warn("Failed to serve {}", exchange.getRequestURI(), e);
+                // Once a streamed response has started, closing the exchange cuts the body short instead
+                if (exchange.getResponseCode() == -1) {
+                    exchange.sendResponseHeaders(500, -1);
+                }
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        // Drain the request first; an unread request can make the server drop the connection after responding
+        exchange.getRequestBody().close();
+        String method = exchange.getRequestMethod();
+        boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        TaxonomyVersion version = service.getCurrentVersion();
+        TaxonomyJson json = version.derived(TaxonomyJson.class, tree -> TaxonomyJson.of(tree.index()));
+        TaxonomyResponses responses = version.derived(TaxonomyResponses.class,
+                tree -> new TaxonomyResponses(tree.index(), json));
+        String path = exchange.getRequestURI().getPath();
+        Locale locale = locale(exchange.getRequestURI().getRawQuery());
+
+        if (TAXONOMY.equals(path) && locale == null) {
+            Encoding encoding = acceptsGzip(exchange.getRequestHeaders().get("Accept-Encoding"))
+                    ? Encoding.GZIP : Encoding.IDENTITY;
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Vary", "Accept-Encoding");
+            if (encoding == Encoding.GZIP) {
+                headers.set("Content-Encoding", "gzip");
+            }
+            send(exchange, version, responses.treeEtag(encoding), json.size(encoding), head,
+                    out -> json.writeTree(out, encoding));
+            return;
+        }
+        if (TAXONOMY.equals(path)) {
+            stream(exchange, version, head, out -> json.writeTree(out, locale));
+            return;
+        }
+        if (path.startsWith(CATEGORIES) && path.endsWith(SUBTREE)) {
+            String className = path.substring(CATEGORIES.length(), path.length() - SUBTREE.length());
+            if (responses.contains(className)) {
+                stream(exchange, version, head, out -> json.writeSubtree(out, className, locale));
+                return;
+            }
+        }
+        Response response = route(path, responses);
+        if (response == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        send(exchange, version, response.etag(), response.body().length, head, out -> out.write(response.body()));
+    }
+
+    /**
+     * Find the response for a request path, or null if there is none
+     */
+    private static Response route(String path, TaxonomyResponses responses) {
+        if (!path.startsWith(CATEGORIES)) {
+            return null;
+        }
+        String rest = path.substring(CATEGORIES.length());
+        if (rest.endsWith(ANCESTORS)) {
+            return responses.ancestors(rest.substring(0, rest.length() - ANCESTORS.length()));
+        }
+        if (rest.endsWith(PROPERTIES)) {
+            return responses.properties(rest.substring(0, rest.length() - PROPERTIES.length()));
+        }
+        return rest.indexOf('/') < 0 ? responses.category(rest) : null;
+    }
+
+    /**
+     * Send a precomputed body of known length, or 304 if the client already has it
+     */
+    private static void send(HttpExchange exchange, TaxonomyVersion version, String etag, int length, boolean head,
+                             Body body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", "no-cache");
+        headers.set("X-Taxonomy-Version", Long.toString(version.version()));
+        if (matches(exchange.getRequestHeaders().get("If-None-Match"), etag)) {
+            headers.remove("Content-Encoding");
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        headers.set("Content-Type", JSON);
+        if (head) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            body.writeTo(out);
+        }
+    }
+
+    /**
+     * Send a body written while it is produced, chunked and without an entity tag
+     */
+    private static void stream(HttpExchange exchange, TaxonomyVersion version, boolean head, Body body)
+            throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Cache-Control", "no-cache");
+        headers.set("X-Taxonomy-Version", Long.toString(version.version()));
+        headers.set("Content-Type", JSON);
+        if (head) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            body.writeTo(out);
+        }
+    }
+
+    /**
+     * The label language asked for with a {@code lang} query parameter, or null for all
+     */
+    private static Locale locale(String rawQuery) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.startsWith(LANG) && parameter.length() > LANG.length()) {
+                return Locale.forLanguageTag(parameter.substring(LANG.length()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip
+     */
+    private static boolean acceptsGzip(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String header : acceptEncoding) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                    return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header names the entity tag, or is {@code *}
+     */
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String tag : header.split(",")) {
+                String trimmed = tag.trim();
+                if ("*".equals(trimmed) || etag.equals(trimmed)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes a response body
+     */
+    @FunctionalInterface
+    private interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Stop serving, letting requests in progress finish for up to a second
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+        }
+    }
+}
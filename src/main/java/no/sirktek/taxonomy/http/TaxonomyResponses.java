@@ -0,0 +1,123 @@
+package no.sirktek.taxonomy.http;
+
+import no.sirktek.taxonomy.json.TaxonomyJson;
+import no.sirktek.taxonomy.json.TaxonomyJson.Encoding;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * JSON responses of one taxonomy version, serialized once and then served as bytes.
+ * <p>
+ * The whole tree is served from the version's {@link TaxonomyJson}, whose bytes are written out without copying;
+ * its entity tags are computed once here. The responses of a single category are serialized on first request and
+ * kept per node id. Two threads asking for the same category at once may both serialize it, which is harmless
+ * as they produce the same bytes.
+ */
+final class TaxonomyResponses {
+
+    private final TaxonomyIndex index;
+    private final TaxonomyJson json;
+    private final String treeEtag;
+    private final AtomicReferenceArray<Response> categories;
+    private final AtomicReferenceArray<Response> ancestors;
+    private final AtomicReferenceArray<Response> properties;
+
+    TaxonomyResponses(TaxonomyIndex index, TaxonomyJson json) {
+        this.index = index;
+        this.json = json;
+        MessageDigest digest = sha256();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            json.writeTree(out, Encoding.IDENTITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.treeEtag = entityTag(digest.digest());
+        this.categories = new AtomicReferenceArray<>(index.size());
+        this.ancestors = new AtomicReferenceArray<>(index.size());
+        this.properties = new AtomicReferenceArray<>(index.size());
+    }
+
+    /**
+     * Whether a class is in the taxonomy
+     */
+    boolean contains(String className) {
+        return index.idOf(className) != TaxonomyIndex.NOT_FOUND;
+    }
+
+    /**
+     * The entity tag of the whole tree in an encoding; each encoding is a representation with its own tag
+     */
+    String treeEtag(Encoding encoding) {
+        return encoding == Encoding.IDENTITY ? treeEtag
+                : treeEtag.substring(0, treeEtag.length() - 1) + "-" + encoding.name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    /**
+     * A category with the class names of its children, or null for unknown classes
+     */
+    Response category(String className) {
+        return cached(categories, className, json::category);
+    }
+
+    /**
+     * The ancestors of a category, nearest first, or null for unknown classes
+     */
+    Response ancestors(String className) {
+        return cached(ancestors, className, json::ancestors);
+    }
+
+    /**
+     * The effective property schema of a category, or null for unknown classes
+     */
+    Response properties(String className) {
+        return cached(properties, className, json::properties);
+    }
+
+    private Response cached(AtomicReferenceArray<Response> cache, String className, IntFunction<byte[]> serializer) {
+        int id = index.idOf(className);
+        if (id == TaxonomyIndex.NOT_FOUND) {
+            return null;
+        }
+        Response response = cache.get(id);
+        if (response == null) {
+            response = Response.of(serializer.apply(id));
+            cache.set(id, response);
+        }
+        return response;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String entityTag(byte[] digest) {
+        return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+
+    /**
+     * A serialized response body with its strong entity tag
+     *
+     * @param body the UTF-8 JSON body
+     * @param etag the quoted entity tag, derived from the body so equal bodies share a tag across versions
+     */
+    record Response(byte[] body, String etag) {
+
+        static Response of(byte[] body) {
+            return new Response(body, entityTag(sha256().digest(body)));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package no.sirktek.taxonomy.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Appends compact JSON to a buffer or stream. Commas between members and elements are inserted automatically;
+ * callers only open and close objects and arrays in the right order. Write failures of the underlying stream
+ * are thrown as {@link UncheckedIOException}.
+ */
+final class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Appendable out;
+    // Whether the innermost open object or array still needs a comma before its next member or element
+    private boolean separate;
+
+    JsonWriter(Appendable out) {
+        this.out = out;
+    }
+
+    JsonWriter(int capacity) {
+        this(new StringBuilder(capacity));
+    }
+
+    JsonWriter beginObject() {
+        separator();
+        append('{');
+        separate = false;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        append('}');
+        separate = true;
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separator();
+        append('[');
+        separate = false;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        append(']');
+        separate = true;
+        return this;
+    }
+
+    /**
+     * Write a member name; the value follows with the next call
+     */
+    JsonWriter name(String name) {
+        separator();
+        string(name);
+        append(':');
+        separate = false;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separator();
+        if (value == null) {
+            append("null");
+        } else {
+            string(value);
+        }
+        separate = true;
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separator();
+        append(Long.toString(value));
+        separate = true;
+        return this;
+    }
+
+    /**
+     * Write a member whose value is a string, leaving it out when the value is null
+     */
+    JsonWriter member(String name, String value) {
+        return value == null ? this : name(name).value(value);
+    }
+
+    private void separator() {
+        if (separate) {
+            append(',');
+        }
+    }
+
+    private void string(String value) {
+        append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            // Copy the plain run before the character that needs escaping in one call
+            append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"' -> append("\\\"");
+                case '\\' -> append("\\\\");
+                case '\n' -> append("\\n");
+                case '\r' -> append("\\r");
+                case '\t' -> append("\\t");
+                default -> {
+                    append("\\u00");
+                    append(HEX[c >> 4]);
+                    append(HEX[c & 0xF]);
+                }
+            }
+        }
+        append(value, start, value.length());
+        append('"');
+    }
+
+    private void append(char c) {
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(CharSequence text) {
+        append(text, 0, text.length());
+    }
+
+    private void append(CharSequence text, int start, int end) {
+        try {
+            out.append(text, start, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,282 @@
+package no.sirktek.taxonomy.json;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON serialization of a taxonomy without reflection.
+ * <p>
+ * The whole tree, with both languages, is serialized once when the instance is built and kept as UTF-8 bytes next
+ * to a gzip-compressed copy, so serving it only copies bytes. Subtrees and single-language views are written
+ * straight to an output stream on demand, walking the pre-order index without recursion.
+ * <p>
+ * Categories are objects with {@code className}, {@code uri}, {@code englishName}, {@code norwegianName},
+ * {@code description}, {@code parentClassName}, their own {@code properties} and nested {@code children};
+ * members without a value are left out. Views for one locale keep only the English or only the Norwegian name
+ * and add {@code label}, the label shown in that locale after following its fallback chain. The tree is an
+ * object with the root categories in {@code categories}.
+ * <p>
+ * Instances are immutable and safe for concurrent use.
+ */
+public final class TaxonomyJson {
+
+    /**
+     * Content encodings the serialized tree is kept in
+     */
+    public enum Encoding {
+        /** Plain UTF-8 JSON */
+        IDENTITY,
+        /** Gzip-compressed UTF-8 JSON */
+        GZIP
+    }
+
+    private final TaxonomyIndex index;
+    private final byte[] tree;
+    private final byte[] gzipTree;
+
+    private TaxonomyJson(TaxonomyIndex index, byte[] tree, byte[] gzipTree) {
+        this.index = index;
+        this.tree = tree;
+        this.gzipTree = gzipTree;
+    }
+
+    /**
+     * Serialize and compress a taxonomy
+     * @param index the taxonomy index
+     * @return the serialized taxonomy
+     */
+    public static TaxonomyJson of(TaxonomyIndex index) {
+        try {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(index.size() * 128);
+            write(index, raw, 0, index.size(), Labels.BOTH, true);
+            byte[] tree = raw.toByteArray();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(tree.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+                gzip.write(tree);
+            }
+            return new TaxonomyJson(index, tree, compressed.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Size of the serialized tree
+     * @param encoding the content encoding
+     * @return the number of bytes {@link #writeTree(OutputStream, Encoding)} writes
+     */
+    public int size(Encoding encoding) {
+        return bytes(encoding).length;
+    }
+
+    /**
+     * Write the precomputed tree
+     * @param out      the stream to write to; it is neither flushed nor closed
+     * @param encoding the content encoding
+     * @throws IOException if writing fails
+     */
+    public void writeTree(OutputStream out, Encoding encoding) throws IOException {
+        out.write(bytes(encoding));
+    }
+
+    /**
+     * Get a copy of the precomputed tree
+     * @param encoding the content encoding
+     * @return the serialized tree
+     */
+    public byte[] toByteArray(Encoding encoding) {
+        return bytes(encoding).clone();
+    }
+
+    private byte[] bytes(Encoding encoding) {
+        return encoding == Encoding.GZIP ? gzipTree : tree;
+    }
+
+    /**
+     * Write the tree with the labels of one language
+     * @param out    the stream to write UTF-8 JSON to; it is flushed but not closed
+     * @param locale Norwegian ({@code no}, {@code nb}, {@code nn}) keeps Norwegian names, any other language
+     *               English names, and both get the locale's {@code label}; null keeps both names without
+     *               {@code label}, which writes the precomputed bytes
+     * @throws IOException if writing fails
+     */
+    public void writeTree(OutputStream out, Locale locale) throws IOException {
+        if (locale == null) {
+            writeTree(out, Encoding.IDENTITY);
+        } else {
+            write(index, out, 0, index.size(), Labels.of(locale), true);
+        }
+    }
+
+    /**
+     * Write a category with its whole subtree
+     * @param out       the stream to write UTF-8 JSON to; it is flushed but not closed
+     * @param className the class name of the subtree root
+     * @param locale    the label language, as for {@link #writeTree(OutputStream, Locale)}
+     * @return false, without writing anything, if the class is unknown
+     * @throws IOException if writing fails
+     */
+    public boolean writeSubtree(OutputStream out, String className, Locale locale) throws IOException {
+        int id = index.idOf(className);
+        if (id == TaxonomyIndex.NOT_FOUND) {
+            return false;
+        }
+        write(index, out, id, index.subtreeEnd(id), Labels.of(locale), false);
+        return true;
+    }
+
+    /**
+     * Serialize one category with the class names of its children instead of the children themselves
+     * @param id the node id of the category
+     * @return UTF-8 JSON
+     */
+    public byte[] category(int id) {
+        CategoryInfo category = index.node(id);
+        JsonWriter json = new JsonWriter(256).beginObject();
+        summary(json, category, Labels.BOTH).name("children").beginArray();
+        for (CategoryInfo child : childrenOf(category)) {
+            json.value(child.className());
+        }
+        return bytes(json.endArray().endObject());
+    }
+
+    /**
+     * Serialize the ancestors of a category, nearest first, without their properties and children
+     * @param id the node id of the category
+     * @return UTF-8 JSON array
+     */
+    public byte[] ancestors(int id) {
+        JsonWriter json = new JsonWriter(512).beginArray();
+        for (CategoryInfo ancestor : index.ancestors(id)) {
+            summary(json.beginObject(), ancestor, Labels.BOTH).endObject();
+        }
+        return bytes(json.endArray());
+    }
+
+    /**
+     * Serialize the effective properties of a category, inherited ones included
+     * @param id the node id of the category
+     * @return UTF-8 JSON array
+     */
+    public byte[] properties(int id) {
+        return bytes(properties(new JsonWriter(1024), index.effectiveProperties(id), Labels.BOTH));
+    }
+
+    private static byte[] bytes(JsonWriter json) {
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the nodes {@code [from, to)}, which must be whole subtrees, as nested categories
+     */
+    private static void write(TaxonomyIndex index, OutputStream out, int from, int to, Labels labels,
+                              boolean wrapped) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        try {
+            JsonWriter json = new JsonWriter(writer);
+            if (wrapped) {
+                json.beginObject().name("categories").beginArray();
+            }
+            // Ends of the subtrees whose children array is still open
+            int[] open = new int[16];
+            int depth = 0;
+            for (int id = from; id < to; id++) {
+                while (depth > 0 && open[depth - 1] <= id) {
+                    json.endArray().endObject();
+                    depth--;
+                }
+                CategoryInfo category = index.node(id);
+                summary(json.beginObject(), category, labels).name("properties");
+                properties(json, category.properties() == null ? List.of() : category.properties(), labels)
+                        .name("children").beginArray();
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth * 2);
+                }
+                open[depth++] = index.subtreeEnd(id);
+            }
+            while (depth-- > 0) {
+                json.endArray().endObject();
+            }
+            if (wrapped) {
+                json.endArray().endObject();
+            }
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static JsonWriter summary(JsonWriter json, CategoryInfo category, Labels labels) {
+        return json.member("className", category.className())
+                .member("uri", category.uri())
+                .member("englishName", labels.english ? category.englishName() : null)
+                .member("norwegianName", labels.norwegian ? category.norwegianName() : null)
+                .member("label", labels.locale != null ? category.label(labels.locale) : null)
+                .member("description", category.description())
+                .member("parentClassName", category.parentClassName());
+    }
+
+    private static JsonWriter properties(JsonWriter json, List<PropertyDefinition> properties, Labels labels) {
+        json.beginArray();
+        for (PropertyDefinition property : properties) {
+            json.beginObject()
+                    .member("name", property.name())
+                    .member("uri", property.uri())
+                    .member("englishLabel", labels.english ? property.englishLabel() : null)
+                    .member("norwegianLabel", labels.norwegian ? property.norwegianLabel() : null)
+                    .member("label", labels.locale != null ? property.label(labels.locale) : null)
+                    .member("rangeType", property.rangeType())
+                    .member("domainClass", property.domainClass())
+                    .member("description", property.description())
+                    .member("propertyType", property.getPropertyType().name())
+                    .endObject();
+        }
+        return json.endArray();
+    }
+
+    private static List<CategoryInfo> childrenOf(CategoryInfo category) {
+        return category.children() == null ? List.of() : category.children();
+    }
+
+    /**
+     * Which label languages to write: both names, or the name of one language family together with the label
+     * shown for the requested locale
+     */
+    private static final class Labels {
+        static final Labels BOTH = new Labels(true, true, null);
+
+        private final boolean english;
+        private final boolean norwegian;
+        private final Locale locale;
+
+        private Labels(boolean english, boolean norwegian, Locale locale) {
+            this.english = english;
+            this.norwegian = norwegian;
+            this.locale = locale;
+        }
+
+        static Labels of(Locale locale) {
+            if (locale == null) {
+                return BOTH;
+            }
+            return switch (locale.getLanguage()) {
+                case "no", "nb", "nn" -> new Labels(false, true, locale);
+                default -> new Labels(true, false, locale);
+            };
+        }
+    }
+}
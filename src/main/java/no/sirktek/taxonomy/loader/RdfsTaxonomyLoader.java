@@ -1,31 +1,91 @@
 package no.sirktek.taxonomy.loader;
 
 import lombok.extern.slf4j.Slf4j;
-import no.sirktek.taxonomy.model.CategoryInfo;
-import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.metrics.LoadMeasurement;
+import no.sirktek.taxonomy.metrics.TaxonomyMetrics;
+import no.sirktek.taxonomy.model.PropertyTypeResolver;
 import no.sirktek.taxonomy.model.TaxonomyTree;
-import org.apache.jena.rdf.model.*;
-import org.apache.jena.vocabulary.RDF;
-import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 /**
- * Loads the furniture taxonomy from RDF-S Turtle files using Apache Jena
+ * Loads the furniture taxonomy from RDF-S Turtle files using the streaming Apache Jena RIOT parser
  */
 @Slf4j
 public class RdfsTaxonomyLoader {
 
+    private static final String FURNITURE_NAMESPACE = "http://taxonomy.sirktek.no/furniture#";
+
+    private final boolean useSnapshots;
+    private final PropertyTypeResolver typeResolver;
+    private final StringDictionary strings;
+    private final TaxonomyMetrics metrics;
+
     /**
-     * Default constructor
+     * Default constructor, using precompiled snapshots when available
      */
     public RdfsTaxonomyLoader() {
-        // Default constructor
+        this(true);
     }
 
-    private static final String FURNITURE_NAMESPACE = "http://taxonomy.sirktek.no/furniture#";
+    /**
+     * Constructor controlling the snapshot fast path
+     * @param useSnapshots whether to look for a precompiled {@link TaxonomySnapshot} next to each Turtle resource
+     */
+    public RdfsTaxonomyLoader(boolean useSnapshots) {
+        this(useSnapshots, PropertyTypeResolver.defaults());
+    }
+
+    /**
+     * Constructor with custom property type rules. Properties annotated with {@code furniture:propertyType}
+     * keep their annotated type; all others are typed by the resolver, once, while the tree is built.
+     * @param useSnapshots whether to look for a precompiled {@link TaxonomySnapshot} next to each Turtle resource
+     * @param typeResolver rules that assign property types from range types and names
+     */
+    public RdfsTaxonomyLoader(boolean useSnapshots, PropertyTypeResolver typeResolver) {
+        this(useSnapshots, typeResolver, new StringDictionary());
+    }
+
+    /**
+     * Constructor with a string dictionary. Every taxonomy this loader builds takes its strings from the
+     * dictionary, so reloads and other loaders sharing it reuse the same URI, name and label instances.
+     * @param useSnapshots whether to look for a precompiled {@link TaxonomySnapshot} next to each Turtle resource
+     * @param typeResolver rules that assign property types from range types and names
+     * @param strings      dictionary of canonical strings, for example one shared by all tenants
+     */
+    public RdfsTaxonomyLoader(boolean useSnapshots, PropertyTypeResolver typeResolver, StringDictionary strings) {
+        this(useSnapshots, typeResolver, strings, TaxonomyMetrics.NOOP);
+    }
+
+    /**
+     * Constructor reporting parse and build times, triple, category and property counts and the string heap of
+     * every load
+     * @param useSnapshots whether to look for a precompiled {@link TaxonomySnapshot} next to each Turtle resource
+     * @param typeResolver rules that assign property types from range types and names
+     * @param strings      dictionary of canonical strings, for example one shared by all tenants
+     * @param metrics      receives a measurement per load
+     */
+    public RdfsTaxonomyLoader(boolean useSnapshots, PropertyTypeResolver typeResolver, StringDictionary strings,
+                              TaxonomyMetrics metrics) {
+        this.useSnapshots = useSnapshots;
+        this.typeResolver = Objects.requireNonNull(typeResolver, "typeResolver");
+        this.strings = Objects.requireNonNull(strings, "strings");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+    }
 
     /**
      * Load the base taxonomy from the Turtle file
@@ -36,274 +96,254 @@ public class RdfsTaxonomyLoader {
     }
 
     /**
-     * Load taxonomy from a specific resource file
+     * Load taxonomy from a specific resource file.
+     * <p>
+     * If a precompiled snapshot with the same base name and a {@code .snapshot} extension exists, it is
+     * loaded instead and Jena is not touched. The snapshot is only used if the Turtle resource still has the
+     * length and CRC-32 recorded when it was compiled; unreadable snapshots, and snapshots of another or an
+     * edited source, fall back to the Turtle file.
      * @param resourcePath path to the RDF-S resource file
      * @return the loaded taxonomy tree
      */
     public TaxonomyTree loadTaxonomyFromResource(String resourcePath) {
         log.debug("Loading taxonomy from resource: {}", resourcePath);
 
+        if (useSnapshots) {
+            TaxonomyTree fromSnapshot = loadSnapshotResource(TaxonomySnapshot.snapshotPathFor(resourcePath),
+                    resourcePath);
+            if (fromSnapshot != null) {
+                return fromSnapshot;
+            }
+        }
+
         try (InputStream inputStream = getClass().getResourceAsStream(resourcePath)) {
             if (inputStream == null) {
                 throw new TaxonomyLoadException("Could not find resource: " + resourcePath);
             }
-
-            // Create Jena model and read Turtle data
-            Model model = ModelFactory.createDefaultModel();
-            model.read(inputStream, null, "TURTLE");
-
-            return buildTaxonomyTree(model);
+            return loadTaxonomy(resourcePath, inputStream);
 
         } catch (Exception e) {
             throw new TaxonomyLoadException("Failed to load taxonomy from " + resourcePath, e);
         }
     }
 
+    private TaxonomyTree loadSnapshotResource(String snapshotPath, String sourcePath) {
+        try (InputStream inputStream = getClass().getResourceAsStream(snapshotPath)) {
+            if (inputStream == null) {
+                return null;
+            }
+            long started = System.nanoTime();
+            TaxonomyTreeBuilder builder = TaxonomySnapshot.read(inputStream, sourceDigest(sourcePath), strings);
+            TaxonomyTree tree = build(snapshotPath, builder, Duration.ofNanos(System.nanoTime() - started));
+            log.info("Loaded taxonomy snapshot {} with {} total categories, {} root categories",
+                    snapshotPath, builder.classCount(), tree.rootCategories().size());
+            return tree;
+        } catch (IOException | RuntimeException e) {
+            // Whatever is wrong with the snapshot, the Turtle source is still there to load from
+            log.warn("Ignoring unreadable or outdated taxonomy snapshot {}: {}", snapshotPath, e.toString());
+            return null;
+        }
+    }
+
     /**
-     * Build the taxonomy tree from the RDF model
+     * Digest of the Turtle resource a snapshot stands in for, or null if there is none to compare with
      */
-    private TaxonomyTree buildTaxonomyTree(Model model) {
-        log.debug("Building taxonomy tree from RDF model");
-
-        // Get all classes that are subclasses of furniture or direct furniture classes
-        Map<String, CategoryInfo> allCategories = new HashMap<>();
-        Map<String, List<String>> parentChildMap = new HashMap<>();
-
-        // First pass: create all category objects
-        ResIterator classIterator = model.listSubjectsWithProperty(RDF.type, RDFS.Class);
-        while (classIterator.hasNext()) {
-            Resource classResource = classIterator.nextResource();
-
-            if (classResource.getURI() != null && classResource.getURI().startsWith(FURNITURE_NAMESPACE)) {
-                CategoryInfo categoryInfo = buildCategoryInfo(classResource, model);
-                allCategories.put(categoryInfo.className(), categoryInfo);
-
-                // Track parent-child relationships
-                if (categoryInfo.parentClassName() != null) {
-                    parentChildMap.computeIfAbsent(categoryInfo.parentClassName(), k -> new ArrayList<>())
-                                  .add(categoryInfo.className());
-                }
-            }
+    private TaxonomySnapshot.SourceDigest sourceDigest(String sourcePath) throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream(sourcePath)) {
+            return inputStream == null ? null : TaxonomySnapshot.SourceDigest.of(inputStream);
         }
+    }
 
-        // Build the hierarchy recursively
-        Map<String, CategoryInfo> categoriesWithChildren = buildHierarchy(allCategories, parentChildMap);
+    /**
+     * Load taxonomy from a Turtle input stream. The stream is not closed.
+     * @param inputStream stream of RDF-S Turtle data
+     * @return the loaded taxonomy tree
+     */
+    public TaxonomyTree loadTaxonomy(InputStream inputStream) {
+        return loadTaxonomy("stream", inputStream);
+    }
 
-        // Find root categories (those with no parent)
-        List<CategoryInfo> rootCategories = categoriesWithChildren.values().stream()
-                .filter(CategoryInfo::isRoot)
-                .sorted(Comparator.comparing(CategoryInfo::englishName))
-                .collect(Collectors.toList());
+    private TaxonomyTree loadTaxonomy(String source, InputStream inputStream) {
+        long started = System.nanoTime();
+        TaxonomyTreeBuilder builder = parseDeclarations(inputStream);
+        TaxonomyTree tree = build(source, builder, Duration.ofNanos(System.nanoTime() - started));
 
         log.info("Loaded taxonomy with {} total categories, {} root categories",
-                allCategories.size(), rootCategories.size());
+                builder.classCount(), tree.rootCategories().size());
 
-        return TaxonomyTree.builder()
-                .rootCategories(rootCategories)
-                .build();
+        return tree;
     }
 
     /**
-     * Build the category hierarchy recursively
+     * Load taxonomy from every Turtle ({@code *.ttl}) file in a directory, composed in file name order
+     * @param directory directory containing RDF-S Turtle files
+     * @return the loaded taxonomy tree
      */
-    private Map<String, CategoryInfo> buildHierarchy(Map<String, CategoryInfo> allCategories,
-                                                     Map<String, List<String>> parentChildMap) {
-        Map<String, CategoryInfo> categoriesWithChildren = new HashMap<>();
-
-        // First, create all categories without children
-        for (CategoryInfo category : allCategories.values()) {
-            categoriesWithChildren.put(category.className(), category);
+    public TaxonomyTree loadTaxonomyFromDirectory(Path directory) {
+        log.debug("Loading taxonomy from directory: {}", directory);
+
+        List<TaxonomySource> sources;
+        try (Stream<Path> entries = Files.list(directory)) {
+            sources = entries
+                    .filter(path -> path.getFileName().toString().endsWith(".ttl") && Files.isRegularFile(path))
+                    .sorted()
+                    .map(TaxonomySource::file)
+                    .toList();
+        } catch (IOException e) {
+            throw new TaxonomyLoadException("Failed to list taxonomy directory " + directory, e);
         }
-
-        // Then, recursively build children for each category
-        for (CategoryInfo category : allCategories.values()) {
-            CategoryInfo categoryWithChildren = buildCategoryWithChildren(category, allCategories, parentChildMap);
-            categoriesWithChildren.put(category.className(), categoryWithChildren);
+        if (sources.isEmpty()) {
+            throw new TaxonomyLoadException("No Turtle files found in " + directory);
         }
 
-        return categoriesWithChildren;
+        return loadTaxonomy(sources, ForkJoinPool.commonPool()).tree();
     }
 
     /**
-     * Build a category with all its recursive children
+     * Compose a taxonomy from several sources, parsed in parallel on the common fork-join pool
+     * @param sources the sources, in increasing order of precedence
+     * @return the merged tree with per-source timings
+     * @see #loadTaxonomy(List, Executor)
      */
-    private CategoryInfo buildCategoryWithChildren(CategoryInfo category,
-                                                   Map<String, CategoryInfo> allCategories,
-                                                   Map<String, List<String>> parentChildMap) {
-        List<String> childClassNames = parentChildMap.getOrDefault(category.className(), Collections.emptyList());
-
-        List<CategoryInfo> children = new ArrayList<>();
-        for (String childClassName : childClassNames) {
-            CategoryInfo childCategory = allCategories.get(childClassName);
-            if (childCategory != null) {
-                // Recursively build the child with its children
-                CategoryInfo childWithChildren = buildCategoryWithChildren(childCategory, allCategories, parentChildMap);
-                children.add(childWithChildren);
-            }
-        }
-
-        // Sort children by English name
-        children.sort(Comparator.comparing(CategoryInfo::englishName));
-
-        return CategoryInfo.builder()
-                .className(category.className())
-                .englishName(category.englishName())
-                .norwegianName(category.norwegianName())
-                .description(category.description())
-                .parentClassName(category.parentClassName())
-                .uri(category.uri())
-                .properties(category.properties())
-                .children(children)
-                .build();
+    public TaxonomyLoadReport loadTaxonomy(List<TaxonomySource> sources) {
+        return loadTaxonomy(sources, ForkJoinPool.commonPool());
     }
 
     /**
-     * Build a CategoryInfo object from an RDF resource
+     * Compose a taxonomy from several sources, such as a base taxonomy followed by brand and customer extensions.
+     * <p>
+     * Every source is parsed into its own declarations on the executor. The results are then merged in list
+     * order, so the outcome does not depend on which parse finishes first:
+     * <ul>
+     *     <li>a class or property declared by several sources takes each label, comment, parent and range
+     *     from the last source that sets it</li>
+     *     <li>property domains from all sources are combined</li>
+     * </ul>
+     * @param sources  the sources, in increasing order of precedence
+     * @param executor executor that runs the parses
+     * @return the merged tree with per-source timings
      */
-    private CategoryInfo buildCategoryInfo(Resource classResource, Model model) {
-        String uri = classResource.getURI();
-        String className = getLocalName(uri);
+    public TaxonomyLoadReport loadTaxonomy(List<TaxonomySource> sources, Executor executor) {
+        long started = System.nanoTime();
+        List<CompletableFuture<ParsedSource>> parses = sources.stream()
+                .map(source -> CompletableFuture.supplyAsync(() -> parse(source), executor))
+                .toList();
+
+        TaxonomyTreeBuilder composite = new TaxonomyTreeBuilder();
+        List<TaxonomyLoadReport.SourceReport> reports = new ArrayList<>(sources.size());
+        for (int i = 0; i < parses.size(); i++) {
+            ParsedSource parsed;
+            try {
+                parsed = parses.get(i).join();
+            } catch (CompletionException e) {
+                parses.forEach(parse -> parse.cancel(false));
+                throw e.getCause() instanceof TaxonomyLoadException loadException
+                        ? loadException
+                        : new TaxonomyLoadException("Failed to load taxonomy from " + sources.get(i).name(), e.getCause());
+            }
 
-        // Get labels
-        String englishName = getLabel(classResource, "en");
-        String norwegianName = getLabel(classResource, "no");
+            long mergeStarted = System.nanoTime();
+            composite.merge(parsed.declarations());
+            Duration mergeTime = Duration.ofNanos(System.nanoTime() - mergeStarted);
 
-        if (englishName == null) {
-            englishName = className; // Fallback to class name
+            reports.add(new TaxonomyLoadReport.SourceReport(parsed.source().name(), parsed.parseTime(), mergeTime,
+                    parsed.declarations().classCount(), parsed.declarations().propertyCount()));
+            log.debug("Merged taxonomy source {} (parse {} ms, merge {} ms)",
+                    parsed.source().name(), parsed.parseTime().toMillis(), mergeTime.toMillis());
         }
 
-        // Get comment/description
-        String description = null;
-        Statement commentStmt = classResource.getProperty(RDFS.comment);
-        if (commentStmt != null) {
-            description = commentStmt.getString();
-        }
+        long buildStarted = System.nanoTime();
+        TaxonomyTree tree = composite.build(typeResolver, strings);
+        Duration buildTime = Duration.ofNanos(System.nanoTime() - buildStarted);
+        measured(String.join(", ", sources.stream().map(TaxonomySource::name).toList()), composite,
+                Duration.ofNanos(buildStarted - started), buildTime, tree);
 
-        // Get parent class
-        String parentClassName = null;
-        StmtIterator subClassStatements = classResource.listProperties(RDFS.subClassOf);
-        while (subClassStatements.hasNext()) {
-            Statement stmt = subClassStatements.nextStatement();
-            Resource parentResource = stmt.getResource();
-            if (parentResource.getURI() != null && parentResource.getURI().startsWith(FURNITURE_NAMESPACE)) {
-                parentClassName = getLocalName(parentResource.getURI());
-                break; // Take the first furniture-related parent
-            }
-        }
+        log.info("Loaded taxonomy from {} sources with {} total categories, {} root categories",
+                sources.size(), composite.classCount(), tree.rootCategories().size());
 
-        // Get properties defined for this class
-        List<PropertyDefinition> properties = getPropertiesForClass(classResource, model);
-
-        return CategoryInfo.builder()
-                .className(className)
-                .englishName(englishName)
-                .norwegianName(norwegianName)
-                .description(description)
-                .parentClassName(parentClassName)
-                .uri(uri)
-                .properties(properties)
-                .children(Collections.emptyList()) // Will be populated in second pass
-                .build();
+        return new TaxonomyLoadReport(tree, List.copyOf(reports), buildTime);
     }
 
-    /**
-     * Get the localized label for a resource
-     */
-    private String getLabel(Resource resource, String language) {
-        StmtIterator labelStatements = resource.listProperties(RDFS.label);
-        while (labelStatements.hasNext()) {
-            Statement stmt = labelStatements.nextStatement();
-            Literal literal = stmt.getLiteral();
-            if (literal != null && language.equals(literal.getLanguage())) {
-                return literal.getString();
-            }
-        }
-        return null;
+    private TaxonomyTree build(String source, TaxonomyTreeBuilder builder, Duration parseTime) {
+        long started = System.nanoTime();
+        TaxonomyTree tree = builder.build(typeResolver, strings);
+        measured(source, builder, parseTime, Duration.ofNanos(System.nanoTime() - started), tree);
+        return tree;
     }
 
-    /**
-     * Get properties that have this class as their domain
-     */
-    private List<PropertyDefinition> getPropertiesForClass(Resource classResource, Model model) {
-        List<PropertyDefinition> properties = new ArrayList<>();
-        String classUri = classResource.getURI();
-
-        ResIterator propertyIterator = model.listSubjectsWithProperty(RDF.type, RDF.Property);
-        while (propertyIterator.hasNext()) {
-            Resource propertyResource = propertyIterator.nextResource();
+    private void measured(String source, TaxonomyTreeBuilder builder, Duration parseTime, Duration buildTime,
+                          TaxonomyTree tree) {
+        if (metrics != TaxonomyMetrics.NOOP) {
+            metrics.taxonomyLoaded(new LoadMeasurement(source, parseTime, buildTime, builder.sourceTriples(),
+                    builder.classCount(), builder.propertyCount(), tree));
+        }
+    }
 
-            if (propertyResource.getURI() != null && propertyResource.getURI().startsWith(FURNITURE_NAMESPACE) && hasDomain(propertyResource, classUri)) {
-                PropertyDefinition propertyDef = buildPropertyDefinition(propertyResource);
-                properties.add(propertyDef);
-            }
+    private ParsedSource parse(TaxonomySource source) {
+        long started = System.nanoTime();
+        try (InputStream inputStream = source.opener().open()) {
+            TaxonomyTreeBuilder declarations = parseDeclarations(inputStream);
+            return new ParsedSource(source, declarations, Duration.ofNanos(System.nanoTime() - started));
+        } catch (IOException | RuntimeException e) {
+            throw new TaxonomyLoadException("Failed to load taxonomy from " + source.name(), e);
         }
+    }
 
-        return properties;
+    private record ParsedSource(TaxonomySource source, TaxonomyTreeBuilder declarations, Duration parseTime) {
     }
 
     /**
-     * Check if a property has the specified class as its domain
+     * Parse Turtle data into a builder holding its class and property declarations.
+     * <p>
+     * Triples are consumed as the parser produces them and only the ones describing taxonomy classes and
+     * properties are kept, so no RDF graph of the whole file is ever built.
      */
-    private boolean hasDomain(Resource propertyResource, String classUri) {
-        StmtIterator domainStatements = propertyResource.listProperties(RDFS.domain);
-        while (domainStatements.hasNext()) {
-            Statement stmt = domainStatements.nextStatement();
-            Resource domainResource = stmt.getResource();
-            if (classUri.equals(domainResource.getURI())) {
-                return true;
-            }
+    TaxonomyTreeBuilder parseDeclarations(InputStream inputStream) {
+        StreamingDeclarationCollector collector = collect(inputStream);
+        TaxonomyTreeBuilder builder = collector.toBuilder();
+        log.debug("Collected {} classes and {} properties from {} triples",
+                builder.classCount(), builder.propertyCount(), collector.tripleCount());
+        return builder;
+    }
+
+    private static StreamingDeclarationCollector collect(InputStream inputStream) {
+        StreamingDeclarationCollector collector = new StreamingDeclarationCollector(FURNITURE_NAMESPACE);
+        try {
+            RDFParser.source(inputStream).lang(Lang.TURTLE).parse(collector);
+        } catch (RuntimeException e) {
+            throw new TaxonomyLoadException("Failed to parse taxonomy Turtle data", e);
         }
-        return false;
+        return collector;
     }
 
     /**
-     * Build a PropertyDefinition from an RDF property resource
+     * Parse a Turtle patch of added, updated and removed classes and properties. The stream is not closed.
+     * @param inputStream stream of Turtle data in the taxonomy vocabulary
+     * @return the patch
+     * @see TaxonomyPatch
      */
-    private PropertyDefinition buildPropertyDefinition(Resource propertyResource) {
-        String uri = propertyResource.getURI();
-        String name = getLocalName(uri);
-        String englishLabel = getLabel(propertyResource, "en");
-        String norwegianLabel = getLabel(propertyResource, "no");
-
-        // Get range type
-        String rangeType = null;
-        Statement rangeStmt = propertyResource.getProperty(RDFS.range);
-        if (rangeStmt != null) {
-            rangeType = rangeStmt.getResource().getURI();
-        }
-
-        // Get domain
-        String domainClass = null;
-        Statement domainStmt = propertyResource.getProperty(RDFS.domain);
-        if (domainStmt != null) {
-            domainClass = getLocalName(domainStmt.getResource().getURI());
-        }
-
-        return PropertyDefinition.builder()
-                .name(name)
-                .englishLabel(englishLabel)
-                .norwegianLabel(norwegianLabel)
-                .uri(uri)
-                .rangeType(rangeType)
-                .domainClass(domainClass)
-                .description(null) // Could add comments if needed
-                .build();
+    public TaxonomyPatch parsePatch(InputStream inputStream) {
+        return collect(inputStream).toPatch();
     }
 
     /**
-     * Extract the local name from a URI
+     * Apply a patch to a loaded taxonomy without reparsing or rebuilding it. The result shares every subtree
+     * the patch does not touch with the given tree, which is left unchanged; only the changed categories and
+     * their ancestors are copied. The index is derived from the given tree's and hashes only the changed
+     * categories, though it still copies its arrays in full, see
+     * {@link no.sirktek.taxonomy.model.TaxonomyIndex#derive(List)}.
+     * @param tree  the taxonomy to patch
+     * @param patch the changes
+     * @return the patched taxonomy
+     * @throws TaxonomyLoadException if the patch refers to unknown classes, changes something inside a class it
+     *                               removes, or would create a subclass cycle
      */
-    private String getLocalName(String uri) {
-        if (uri == null) return null;
-        int hashIndex = uri.lastIndexOf('#');
-        if (hashIndex >= 0) {
-            return uri.substring(hashIndex + 1);
-        }
-        int slashIndex = uri.lastIndexOf('/');
-        if (slashIndex >= 0) {
-            return uri.substring(slashIndex + 1);
-        }
-        return uri;
+    public TaxonomyTree applyPatch(TaxonomyTree tree, TaxonomyPatch patch) {
+        long started = System.nanoTime();
+        TaxonomyTree patched = TaxonomyPatcher.apply(tree, patch, typeResolver, strings);
+        log.debug("Applied taxonomy patch of {} changes in {} µs", patch.size(),
+                (System.nanoTime() - started) / 1_000);
+        return patched;
     }
 
     /**
@@ -0,0 +1,162 @@
+package no.sirktek.taxonomy.loader;
+
+import no.sirktek.taxonomy.loader.TaxonomyTreeBuilder.ClassDeclaration;
+import no.sirktek.taxonomy.loader.TaxonomyTreeBuilder.PropertyDeclaration;
+import no.sirktek.taxonomy.model.LocaleTable;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects taxonomy declarations from a stream of parsed triples without building an RDF graph.
+ * <p>
+ * Only triples whose subject is in the taxonomy namespace and whose predicate is one of
+ * {@code rdf:type}, {@code rdfs:subClassOf}, {@code rdfs:label}, {@code rdfs:comment}, {@code rdfs:domain},
+ * {@code rdfs:range} or the taxonomy's own {@code propertyType} and {@code removed} annotations are kept,
+ * folded into one small accumulator per subject.
+ */
+final class StreamingDeclarationCollector extends StreamRDFBase {
+
+    private final String namespace;
+    private final String propertyTypePredicate;
+    private final String removedPredicate;
+    private final Map<String, Subject> subjects = new LinkedHashMap<>();
+    private long tripleCount;
+
+    StreamingDeclarationCollector(String namespace) {
+        this.namespace = namespace;
+        this.propertyTypePredicate = namespace + "propertyType";
+        this.removedPredicate = namespace + "removed";
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        tripleCount++;
+        Node subject = triple.getSubject();
+        if (!subject.isURI() || !subject.getURI().startsWith(namespace)) {
+            return;
+        }
+        Node predicate = triple.getPredicate();
+        Node object = triple.getObject();
+
+        if (predicate.equals(RDF.Nodes.type)) {
+            if (object.equals(RDFS.Nodes.Class)) {
+                subject(subject).isClass = true;
+            } else if (object.equals(RDF.Nodes.Property)) {
+                subject(subject).isProperty = true;
+            }
+        } else if (predicate.equals(RDFS.Nodes.label)) {
+            if (object.isLiteral()) {
+                String language = object.getLiteralLanguage();
+                // Keep the first label per language; untagged labels are ignored
+                if (!language.isEmpty()) {
+                    subject(subject).labels.putIfAbsent(LocaleTable.normalize(language), object.getLiteralLexicalForm());
+                }
+            }
+        } else if (predicate.equals(RDFS.Nodes.comment)) {
+            Subject accumulator = subject(subject);
+            if (object.isLiteral() && accumulator.comment == null) {
+                accumulator.comment = object.getLiteralLexicalForm();
+            }
+        } else if (predicate.equals(RDFS.Nodes.subClassOf)) {
+            Subject accumulator = subject(subject);
+            // Take the first taxonomy parent
+            if (object.isURI() && object.getURI().startsWith(namespace) && accumulator.parentUri == null) {
+                accumulator.parentUri = object.getURI();
+            }
+        } else if (predicate.equals(RDFS.Nodes.domain)) {
+            if (object.isURI()) {
+                subject(subject).domainUris.add(object.getURI());
+            }
+        } else if (predicate.equals(RDFS.Nodes.range)) {
+            Subject accumulator = subject(subject);
+            if (object.isURI() && accumulator.rangeUri == null) {
+                accumulator.rangeUri = object.getURI();
+            }
+        } else if (predicate.isURI() && predicate.getURI().equals(propertyTypePredicate)) {
+            Subject accumulator = subject(subject);
+            // Accept both a literal and a resource whose local name is the type
+            if (accumulator.propertyType == null && (object.isLiteral() || object.isURI())) {
+                accumulator.propertyType = object.isLiteral() ? object.getLiteralLexicalForm() : object.getURI();
+            }
+        } else if (predicate.isURI() && predicate.getURI().equals(removedPredicate)
+                && object.isLiteral() && "true".equals(object.getLiteralLexicalForm())) {
+            subject(subject).removed = true;
+        }
+    }
+
+    private Subject subject(Node node) {
+        return subjects.computeIfAbsent(node.getURI(), uri -> new Subject());
+    }
+
+    /**
+     * Number of triples seen, including those that were ignored
+     */
+    long tripleCount() {
+        return tripleCount;
+    }
+
+    /**
+     * Turn the collected subjects into declarations. Subjects annotated as removed are left out.
+     */
+    TaxonomyTreeBuilder toBuilder() {
+        TaxonomyTreeBuilder builder = new TaxonomyTreeBuilder().addSourceTriples(tripleCount);
+        for (Map.Entry<String, Subject> entry : subjects.entrySet()) {
+            Subject subject = entry.getValue();
+            if (subject.removed) {
+                continue;
+            }
+            if (subject.isClass) {
+                builder.addClass(new ClassDeclaration(entry.getKey(), labels(subject), subject.comment,
+                        subject.parentUri));
+            }
+            if (subject.isProperty) {
+                builder.addProperty(new PropertyDeclaration(entry.getKey(), labels(subject), subject.rangeUri,
+                        List.copyOf(subject.domainUris), subject.propertyType));
+            }
+        }
+        return builder;
+    }
+
+    private static Map<String, String> labels(Subject subject) {
+        return subject.labels.isEmpty() ? Map.of() : Collections.unmodifiableMap(subject.labels);
+    }
+
+    /**
+     * Turn the collected subjects into a patch: declarations to add or update, and the subjects annotated as
+     * removed with the domains named for them
+     */
+    TaxonomyPatch toPatch() {
+        Map<String, List<String>> removals = new LinkedHashMap<>();
+        for (Map.Entry<String, Subject> entry : subjects.entrySet()) {
+            if (entry.getValue().removed) {
+                removals.put(entry.getKey(), List.copyOf(entry.getValue().domainUris));
+            }
+        }
+        return new TaxonomyPatch(toBuilder(), removals);
+    }
+
+    /**
+     * Everything the taxonomy needs to know about one subject
+     */
+    private static final class Subject {
+        private boolean isClass;
+        private boolean isProperty;
+        private final Map<String, String> labels = new LinkedHashMap<>(4);
+        private String comment;
+        private String parentUri;
+        private String rangeUri;
+        private String propertyType;
+        private boolean removed;
+        private final Set<String> domainUris = new LinkedHashSet<>(2);
+    }
+}
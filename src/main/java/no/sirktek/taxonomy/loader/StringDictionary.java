@@ -0,0 +1,147 @@
+package no.sirktek.taxonomy.loader;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Dictionary of the strings in loaded taxonomies: URIs, class and property names, labels and range types.
+ * <p>
+ * Every distinct value gets one canonical {@link String} instance. Trees built through the same dictionary share
+ * their string instances, so a URI such as {@code http://www.w3.org/2001/XMLSchema#decimal} or a class name that
+ * is also every child's parent name is stored once. A dictionary can be shared by the loaders of many tenant
+ * taxonomies and by every reloaded version.
+ * <p>
+ * Canonical instances are held weakly: once no tree refers to a string any more, because the taxonomy was
+ * evicted or replaced, the garbage collector drops it from the dictionary too. The dictionary is split into
+ * segments by hash, each with its own lock, and is safe for concurrent use.
+ * <p>
+ * Because entries can disappear, the dictionary itself has no ids. Compact integer ids come from an {@link Ids}
+ * table, which a load opens with {@link #ids()}: it takes its strings from the dictionary, numbers them densely in
+ * first-seen order and holds them strongly, so its ids stay valid for as long as the table is kept.
+ * {@link TaxonomySnapshot} stores its string table and the fields that refer to it this way.
+ */
+public final class StringDictionary {
+
+    private static final int SEGMENTS = 16;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Map<String, WeakReference<String>>[] segments = new Map[SEGMENTS];
+
+    /**
+     * Create an empty dictionary
+     */
+    public StringDictionary() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new WeakHashMap<>();
+        }
+    }
+
+    /**
+     * Get the canonical instance of a string, adding it to the dictionary if needed
+     * @param value the string, may be null
+     * @return the equal string held by the dictionary, or null for null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        Map<String, WeakReference<String>> segment = segment(value);
+        synchronized (segment) {
+            WeakReference<String> reference = segment.get(value);
+            String canonical = reference == null ? null : reference.get();
+            if (canonical == null) {
+                // The value refers weakly to its own key, so the entry goes away with the string
+                segment.put(value, new WeakReference<>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+    }
+
+    private Map<String, WeakReference<String>> segment(String value) {
+        int hash = value.hashCode();
+        return segments[(hash ^ hash >>> 16) & SEGMENTS - 1];
+    }
+
+    /**
+     * Open an empty id table backed by this dictionary
+     * @return the id table
+     */
+    public Ids ids() {
+        return new Ids(this);
+    }
+
+    /**
+     * Number of distinct strings in the dictionary that are still referenced
+     * @return the string count
+     */
+    public int size() {
+        int size = 0;
+        for (Map<String, WeakReference<String>> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Append-only table of compact integer ids for strings, taken from a {@link StringDictionary}. Ids run from 0
+     * upwards in first-seen order and never change or go away while the table is kept. A table belongs to one
+     * load and is not safe for concurrent use.
+     */
+    public static final class Ids {
+
+        private final StringDictionary dictionary;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] values = new String[64];
+        private int size;
+
+        private Ids(StringDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Get the id of a string, adding its canonical instance to the table if needed
+         * @param value the string, not null
+         * @return the id
+         */
+        public int id(String value) {
+            Objects.requireNonNull(value, "value");
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = dictionary.intern(value);
+            ids.put(values[size], size);
+            return size++;
+        }
+
+        /**
+         * Get the canonical string with an id
+         * @param id an id returned by {@link #id(String)}
+         * @return the string
+         */
+        public String get(int id) {
+            if (id < 0 || id >= size) {
+                throw new IndexOutOfBoundsException(id);
+            }
+            return values[id];
+        }
+
+        /**
+         * Number of strings in the table, which is also the next id
+         * @return the string count
+         */
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package no.sirktek.taxonomy.loader;
+
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Result of composing a taxonomy from several sources
+ *
+ * @param tree      the merged taxonomy tree
+ * @param sources   per-source timings and counts, in merge order
+ * @param buildTime time spent building the tree from the merged declarations
+ */
+public record TaxonomyLoadReport(TaxonomyTree tree, List<SourceReport> sources, Duration buildTime) {
+
+    /**
+     * Timings and counts for one source
+     *
+     * @param source        the source name
+     * @param parseTime     time spent parsing the source, on the executor
+     * @param mergeTime     time spent merging its declarations into the composite
+     * @param classCount    number of taxonomy classes the source declares
+     * @param propertyCount number of taxonomy properties the source declares
+     */
+    public record SourceReport(String source, Duration parseTime, Duration mergeTime, int classCount, int propertyCount) {
+    }
+}
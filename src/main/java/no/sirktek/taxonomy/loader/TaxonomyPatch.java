@@ -0,0 +1,53 @@
+package no.sirktek.taxonomy.loader;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A change to a loaded taxonomy, parsed from a small Turtle document with
+ * {@link RdfsTaxonomyLoader#parsePatch(java.io.InputStream)} and applied with
+ * {@link RdfsTaxonomyLoader#applyPatch(no.sirktek.taxonomy.model.TaxonomyTree, TaxonomyPatch)}.
+ * <p>
+ * The document uses the same vocabulary as the taxonomy itself:
+ * <ul>
+ *     <li>a class that is not in the taxonomy is added under its {@code rdfs:subClassOf} parent, or as a root</li>
+ *     <li>a class that is in the taxonomy takes the labels and comment the patch sets, and moves if the patch
+ *     names another parent</li>
+ *     <li>a property is added to, or updated on, every domain class the patch names</li>
+ *     <li>{@code furniture:removed true} removes a class with its whole subtree, or removes a property from the
+ *     domain classes the patch names for it</li>
+ * </ul>
+ */
+public final class TaxonomyPatch {
+
+    private final TaxonomyTreeBuilder declarations;
+    private final Map<String, List<String>> removals;
+
+    TaxonomyPatch(TaxonomyTreeBuilder declarations, Map<String, List<String>> removals) {
+        this.declarations = declarations;
+        this.removals = Collections.unmodifiableMap(removals);
+    }
+
+    /**
+     * Classes and properties the patch adds or updates
+     */
+    TaxonomyTreeBuilder declarations() {
+        return declarations;
+    }
+
+    /**
+     * URIs of the classes and properties the patch removes, each with the domain URIs named for it
+     */
+    Map<String, List<String>> removals() {
+        return removals;
+    }
+
+    /**
+     * Number of classes and properties the patch adds, updates or removes
+     * @return the change count
+     */
+    public int size() {
+        return declarations.classCount() + declarations.propertyCount() + removals.size();
+    }
+}
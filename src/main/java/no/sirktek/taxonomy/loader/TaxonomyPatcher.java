@@ -0,0 +1,400 @@
+package no.sirktek.taxonomy.loader;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader.TaxonomyLoadException;
+import no.sirktek.taxonomy.loader.TaxonomyTreeBuilder.ClassDeclaration;
+import no.sirktek.taxonomy.loader.TaxonomyTreeBuilder.PropertyDeclaration;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.LocaleTable;
+import no.sirktek.taxonomy.model.LocalizedLabels;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.PropertyTypeResolver;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static no.sirktek.taxonomy.model.TaxonomyIndex.NOT_FOUND;
+
+/**
+ * Applies a {@link TaxonomyPatch} to a tree by path copying.
+ * <p>
+ * Only the categories the patch changes and their ancestors up to the root are rebuilt; every other subtree
+ * of the previous tree is reused as is. Classes the patch adds get ids after the last existing node id, so
+ * both kinds of node can be handled as one forest of changed nodes, which is rebuilt children first. The index
+ * of the patched tree is derived from the previous one: only the changed categories are resolved and hashed,
+ * while the index arrays of the unchanged subtrees are copied over in bulk, which still takes time linear in
+ * the size of the taxonomy.
+ */
+final class TaxonomyPatcher {
+
+    private final TaxonomyIndex index;
+    private final TaxonomyTree tree;
+    private final PropertyTypeResolver typeResolver;
+    private final StringDictionary strings;
+    private final int existing;
+    private LocaleTable locales;
+
+    private final List<ClassDeclaration> added = new ArrayList<>();
+    private final Map<String, Integer> addedIds = new HashMap<>();
+    private int[] addedParents = new int[0];
+    private final Map<Integer, ClassDeclaration> updates = new HashMap<>();
+    private final Map<Integer, Integer> moves = new HashMap<>();
+    private final Set<Integer> removed = new HashSet<>();
+    private final Map<Integer, Map<String, PropertyDefinition>> propertyUpdates = new HashMap<>();
+    private final Map<Integer, Set<String>> propertyRemovals = new HashMap<>();
+    private final Map<String, List<PropertyDefinition>> addedProperties = new HashMap<>();
+    private final Set<Integer> changed = new HashSet<>();
+
+    private TaxonomyPatcher(TaxonomyTree tree, PropertyTypeResolver typeResolver, StringDictionary strings) {
+        this.tree = tree;
+        this.index = tree.index();
+        this.typeResolver = typeResolver;
+        this.strings = strings;
+        this.existing = index.size();
+    }
+
+    /**
+     * Apply a patch, leaving the given tree untouched
+     * @throws TaxonomyLoadException if the patch refers to unknown classes or would create a subclass cycle
+     */
+    static TaxonomyTree apply(TaxonomyTree tree, TaxonomyPatch patch, PropertyTypeResolver typeResolver,
+                              StringDictionary strings) {
+        return new TaxonomyPatcher(tree, typeResolver, strings).apply(patch);
+    }
+
+    private TaxonomyTree apply(TaxonomyPatch patch) {
+        locales = patch.declarations().locales(localesOf(index));
+        collectClasses(patch.declarations());
+        collectRemovals(patch.removals());
+        collectProperties(patch.declarations());
+
+        for (int id : updates.keySet()) {
+            markChanged(id, true);
+        }
+        for (Map.Entry<Integer, Integer> move : moves.entrySet()) {
+            markChanged(move.getKey(), true);
+            markChanged(index.parentOf(move.getKey()), false);
+        }
+        for (int id : removed) {
+            markChanged(index.parentOf(id), false);
+        }
+        for (int id : propertyUpdates.keySet()) {
+            markChanged(id, true);
+        }
+        for (int id : propertyRemovals.keySet()) {
+            markChanged(id, true);
+        }
+        for (int i = 0; i < added.size(); i++) {
+            markChanged(existing + i, true);
+        }
+        return rebuild();
+    }
+
+    /**
+     * The locale table of the tree's labels; trees built without them get the default one
+     */
+    private static LocaleTable localesOf(TaxonomyIndex index) {
+        for (int id = 0; id < index.size(); id++) {
+            if (index.node(id).labels() != null) {
+                return index.node(id).labels().table();
+            }
+        }
+        return LocaleTable.defaults();
+    }
+
+    private void collectClasses(TaxonomyTreeBuilder declarations) {
+        for (ClassDeclaration declaration : declarations.classes()) {
+            if (index.idOfUri(declaration.uri()) == NOT_FOUND) {
+                addedIds.put(declaration.uri(), existing + added.size());
+                added.add(declaration);
+            }
+        }
+        addedParents = new int[added.size()];
+        for (int i = 0; i < added.size(); i++) {
+            String parentUri = added.get(i).parentUri();
+            addedParents[i] = parentUri == null ? NOT_FOUND : classId(parentUri, added.get(i).uri());
+        }
+        for (ClassDeclaration declaration : declarations.classes()) {
+            int id = index.idOfUri(declaration.uri());
+            if (id == NOT_FOUND) {
+                continue;
+            }
+            updates.put(id, declaration);
+            if (declaration.parentUri() != null) {
+                int parent = classId(declaration.parentUri(), declaration.uri());
+                if (parent != index.parentOf(id)) {
+                    moves.put(id, parent);
+                }
+            }
+        }
+    }
+
+    private void collectRemovals(Map<String, List<String>> removals) {
+        for (Map.Entry<String, List<String>> removal : removals.entrySet()) {
+            int id = index.idOfUri(removal.getKey());
+            if (id != NOT_FOUND) {
+                removed.add(id);
+            } else if (removal.getValue().isEmpty()) {
+                throw new TaxonomyLoadException("Cannot remove " + removal.getKey()
+                        + ": it is not a class of the taxonomy and no rdfs:domain is given");
+            } else {
+                for (String domainUri : removal.getValue()) {
+                    propertyRemovals.computeIfAbsent(existingClassId(domainUri, removal.getKey()), k -> new HashSet<>())
+                            .add(removal.getKey());
+                }
+            }
+        }
+    }
+
+    private void collectProperties(TaxonomyTreeBuilder declarations) {
+        for (PropertyDeclaration declaration : declarations.properties()) {
+            if (declaration.domainUris().isEmpty()) {
+                throw new TaxonomyLoadException("Property " + declaration.uri() + " in patch has no rdfs:domain");
+            }
+            PropertyDefinition definition = null;
+            Map<PropertyDefinition, PropertyDefinition> merged = new IdentityHashMap<>();
+            for (String domainUri : declaration.domainUris()) {
+                int id = classId(domainUri, declaration.uri());
+                PropertyDefinition current = id < existing ? ownProperty(index.node(id), declaration.uri()) : null;
+                PropertyDefinition next;
+                if (current != null) {
+                    next = merged.computeIfAbsent(current, earlier -> merge(earlier, declaration));
+                } else {
+                    if (definition == null) {
+                        definition = TaxonomyTreeBuilder.toPropertyDefinition(declaration, typeResolver, strings,
+                                locales);
+                    }
+                    next = definition;
+                }
+                if (id < existing) {
+                    propertyUpdates.computeIfAbsent(id, k -> new LinkedHashMap<>()).put(declaration.uri(), next);
+                } else {
+                    addedProperties.computeIfAbsent(domainUri, k -> new ArrayList<>()).add(next);
+                }
+            }
+        }
+    }
+
+    private PropertyDefinition merge(PropertyDefinition current, PropertyDeclaration declaration) {
+        String rangeType = declaration.rangeUri() != null ? strings.intern(declaration.rangeUri()) : current.rangeType();
+        PropertyType type;
+        if (declaration.propertyType() != null) {
+            type = TaxonomyTreeBuilder.parsePropertyType(declaration);
+        } else if (declaration.rangeUri() != null && !declaration.rangeUri().equals(current.rangeType())) {
+            type = typeResolver.resolve(current.name(), rangeType);
+        } else {
+            type = current.propertyType();
+        }
+        LocalizedLabels labels = relabel(current.labels(), declaration.labels());
+        return PropertyDefinition.builder()
+                .name(current.name())
+                .englishLabel(override(current.englishLabel(), declaration.labels().get(TaxonomyTreeBuilder.ENGLISH)))
+                .norwegianLabel(norwegian(labels, current.norwegianLabel()))
+                .uri(current.uri())
+                .rangeType(rangeType)
+                .domainClass(current.domainClass())
+                .description(current.description())
+                .propertyType(type)
+                .labels(labels)
+                .build();
+    }
+
+    private String override(String current, String patched) {
+        return patched != null ? strings.intern(patched) : current;
+    }
+
+    /**
+     * Labels with those of a patch merged in, the patch's winning per language
+     */
+    private LocalizedLabels relabel(LocalizedLabels current, Map<String, String> patched) {
+        if (patched.isEmpty()) {
+            return current;
+        }
+        Map<String, String> declared = current == null ? Map.of() : current.declared();
+        return TaxonomyTreeBuilder.labels(TaxonomyTreeBuilder.mergeLabels(declared, patched), strings, locales);
+    }
+
+    private static String norwegian(LocalizedLabels labels, String current) {
+        String norwegian = labels == null ? null : TaxonomyTreeBuilder.norwegian(labels);
+        return norwegian != null ? norwegian : current;
+    }
+
+    private static PropertyDefinition ownProperty(CategoryInfo category, String uri) {
+        for (PropertyDefinition property : category.properties()) {
+            if (uri.equals(property.uri())) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Id of an existing or added class
+     */
+    private int classId(String uri, String referencedBy) {
+        int id = index.idOfUri(uri);
+        if (id != NOT_FOUND) {
+            return id;
+        }
+        Integer addedId = addedIds.get(uri);
+        if (addedId == null) {
+            throw new TaxonomyLoadException("Patch refers to unknown class " + uri + " from " + referencedBy);
+        }
+        return addedId;
+    }
+
+    private int existingClassId(String uri, String referencedBy) {
+        int id = index.idOfUri(uri);
+        if (id == NOT_FOUND) {
+            throw new TaxonomyLoadException("Patch refers to unknown class " + uri + " from " + referencedBy);
+        }
+        return id;
+    }
+
+    private int parentOf(int id) {
+        if (id >= existing) {
+            return addedParents[id - existing];
+        }
+        Integer moved = moves.get(id);
+        return moved != null ? moved : index.parentOf(id);
+    }
+
+    /**
+     * Mark a node and its ancestors in the patched tree as changed. A strict mark fails if the node ends up below
+     * a removed class or in a cycle; a lenient one, for the parent a node is detached from, stops at removed
+     * classes, since they are dropped anyway.
+     */
+    private void markChanged(int id, boolean strict) {
+        if (strict) {
+            int steps = 0;
+            for (int current = id; current != NOT_FOUND; current = parentOf(current)) {
+                if (removed.contains(current)) {
+                    throw new TaxonomyLoadException("Patch changes " + uri(id) + " inside removed class " + uri(current));
+                }
+                if (++steps > existing + added.size()) {
+                    throw new TaxonomyLoadException("Patch creates a subclass cycle through " + uri(id));
+                }
+            }
+        }
+        for (int current = id; current != NOT_FOUND && !removed.contains(current); current = parentOf(current)) {
+            if (!changed.add(current)) {
+                return;
+            }
+        }
+    }
+
+    private String uri(int id) {
+        return id >= existing ? added.get(id - existing).uri() : index.node(id).uri();
+    }
+
+    private TaxonomyTree rebuild() {
+        Map<Integer, List<Integer>> changedChildren = new HashMap<>();
+        for (int id : changed) {
+            changedChildren.computeIfAbsent(parentOf(id), k -> new ArrayList<>()).add(id);
+        }
+        boolean rootsChanged = changedChildren.containsKey(NOT_FOUND);
+        for (int id : removed) {
+            rootsChanged |= index.parentOf(id) == NOT_FOUND;
+        }
+        if (!rootsChanged) {
+            return tree;
+        }
+
+        // Pre-order over the changed nodes; walking it backwards rebuilds every child before its parent
+        List<Integer> preOrder = new ArrayList<>(changed.size());
+        Deque<Integer> stack = new ArrayDeque<>(changedChildren.getOrDefault(NOT_FOUND, List.of()));
+        while (!stack.isEmpty()) {
+            int id = stack.pop();
+            preOrder.add(id);
+            changedChildren.getOrDefault(id, List.of()).forEach(stack::push);
+        }
+        Map<Integer, CategoryInfo> rebuilt = new HashMap<>(preOrder.size() * 2);
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            int id = preOrder.get(i);
+            rebuilt.put(id, rebuild(id, children(id, changedChildren, rebuilt)));
+        }
+        List<CategoryInfo> rootCategories = children(NOT_FOUND, changedChildren, rebuilt);
+        return new TaxonomyTree(rootCategories, index.derive(rootCategories));
+    }
+
+    /**
+     * Children of a node, or the roots for {@link TaxonomyIndex#NOT_FOUND}, in the patched tree: the unchanged
+     * ones reused, the changed ones rebuilt, and the moved and added ones attached
+     */
+    private List<CategoryInfo> children(int id, Map<Integer, List<Integer>> changedChildren,
+                                        Map<Integer, CategoryInfo> rebuilt) {
+        List<CategoryInfo> children = new ArrayList<>();
+        if (id < existing) {
+            int end = id == NOT_FOUND ? existing : index.subtreeEnd(id);
+            for (int child = id + 1; child < end; child = index.subtreeEnd(child)) {
+                if (!removed.contains(child) && !moves.containsKey(child)) {
+                    CategoryInfo patched = rebuilt.get(child);
+                    children.add(patched != null ? patched : index.node(child));
+                }
+            }
+        }
+        for (int child : changedChildren.getOrDefault(id, List.of())) {
+            if (child >= existing || moves.containsKey(child)) {
+                children.add(rebuilt.get(child));
+            }
+        }
+        children.sort(TaxonomyTreeBuilder.BY_ENGLISH_NAME);
+        return Collections.unmodifiableList(children);
+    }
+
+    private CategoryInfo rebuild(int id, List<CategoryInfo> children) {
+        if (id >= existing) {
+            ClassDeclaration declaration = added.get(id - existing);
+            return TaxonomyTreeBuilder.toCategoryInfo(declaration,
+                    Collections.unmodifiableList(addedProperties.getOrDefault(declaration.uri(), List.of())),
+                    children, strings, locales);
+        }
+        CategoryInfo current = index.node(id);
+        ClassDeclaration update = updates.get(id);
+        String parentClassName = moves.containsKey(id)
+                ? strings.intern(TaxonomyTreeBuilder.localName(uri(moves.get(id))))
+                : current.parentClassName();
+        LocalizedLabels labels = update == null ? current.labels() : relabel(current.labels(), update.labels());
+        return new CategoryInfo(
+                current.className(),
+                update == null
+                        ? current.englishName()
+                        : override(current.englishName(), update.labels().get(TaxonomyTreeBuilder.ENGLISH)),
+                norwegian(labels, current.norwegianName()),
+                update == null ? current.description() : override(current.description(), update.comment()),
+                parentClassName,
+                current.uri(),
+                properties(id, current.properties()),
+                children,
+                labels);
+    }
+
+    private List<PropertyDefinition> properties(int id, List<PropertyDefinition> current) {
+        Map<String, PropertyDefinition> updated = propertyUpdates.getOrDefault(id, Map.of());
+        Set<String> dropped = propertyRemovals.getOrDefault(id, Set.of());
+        if (updated.isEmpty() && dropped.isEmpty()) {
+            return current;
+        }
+        Map<String, PropertyDefinition> remaining = new LinkedHashMap<>(updated);
+        List<PropertyDefinition> properties = new ArrayList<>(current.size() + updated.size());
+        for (PropertyDefinition property : current) {
+            if (!dropped.contains(property.uri())) {
+                PropertyDefinition replacement = remaining.remove(property.uri());
+                properties.add(replacement != null ? replacement : property);
+            }
+        }
+        properties.addAll(remaining.values());
+        return Collections.unmodifiableList(properties);
+    }
+}
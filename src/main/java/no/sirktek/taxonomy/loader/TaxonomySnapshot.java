@@ -0,0 +1,305 @@
+package no.sirktek.taxonomy.loader;
+
+import no.sirktek.taxonomy.loader.TaxonomyTreeBuilder.ClassDeclaration;
+import no.sirktek.taxonomy.loader.TaxonomyTreeBuilder.PropertyDeclaration;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of the declarations in a taxonomy, for loading without Jena.
+ * <p>
+ * The layout is a header, a table of interned UTF-8 strings, and flat class and property tables whose
+ * fields are indexes into the string table ({@code -1} for null). The indexes are the ids of a
+ * {@link StringDictionary.Ids} table, on writing and again on reading, where every string is taken from the
+ * loader's dictionary. Labels are stored as a count followed by
+ * language tag and label pairs. Snapshots are compiled from the Turtle sources at build time with
+ * {@link #main(String[])} and stored next to them with a {@code .snapshot} extension.
+ * <p>
+ * The header records the length and CRC-32 of the Turtle bytes the snapshot was compiled from. The loader
+ * compares them with the Turtle resource it would otherwise parse, so a snapshot left over from an edited
+ * source, or shadowed by another source of the same name earlier on the classpath, is not loaded.
+ */
+public final class TaxonomySnapshot {
+
+    private static final int MAGIC = 0x53544158; // "STAX"
+    private static final int FORMAT_VERSION = 4;
+    private static final int NULL_STRING = -1;
+    // Tables are sized from the counts in the data up to this many entries, and grow as they are read beyond
+    // it, so a corrupt count runs into the end of the data instead of allocating a huge table
+    private static final int MAX_PRESIZE = 1 << 16;
+
+    private TaxonomySnapshot() {
+    }
+
+    /**
+     * Compile a Turtle file into a snapshot file
+     * @param args the Turtle source path followed by the snapshot output path
+     * @throws IOException if the source cannot be read or the snapshot cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: TaxonomySnapshot <source.ttl> <target.snapshot>");
+        }
+        compile(Path.of(args[0]), Path.of(args[1]));
+    }
+
+    /**
+     * Compile a Turtle file into a snapshot file, creating parent directories as needed
+     * @param turtleFile   the RDF-S Turtle source
+     * @param snapshotFile the snapshot to write
+     * @throws IOException if the source cannot be read or the snapshot cannot be written
+     */
+    public static void compile(Path turtleFile, Path snapshotFile) throws IOException {
+        TaxonomyTreeBuilder builder;
+        SourceDigest source;
+        try (InputStream in = Files.newInputStream(turtleFile)) {
+            source = SourceDigest.of(in);
+        }
+        try (InputStream in = Files.newInputStream(turtleFile)) {
+            builder = new RdfsTaxonomyLoader(false).parseDeclarations(in);
+        }
+        if (snapshotFile.getParent() != null) {
+            Files.createDirectories(snapshotFile.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(snapshotFile)) {
+            write(builder, source, out);
+        }
+    }
+
+    /**
+     * Load a taxonomy tree from a snapshot stream, whatever source it was compiled from. The stream is not closed.
+     * @param inputStream the snapshot data
+     * @return the loaded taxonomy tree
+     * @throws IOException if the data is truncated, corrupt or of an unsupported format version
+     */
+    public static TaxonomyTree load(InputStream inputStream) throws IOException {
+        return read(inputStream, null, new StringDictionary()).build();
+    }
+
+    /**
+     * Resource path of the snapshot that belongs to a Turtle resource
+     */
+    static String snapshotPathFor(String resourcePath) {
+        int extension = resourcePath.lastIndexOf('.');
+        int separator = resourcePath.lastIndexOf('/');
+        String base = extension > separator ? resourcePath.substring(0, extension) : resourcePath;
+        return base + ".snapshot";
+    }
+
+    /**
+     * Write the declarations held by a builder, compiled from the given source
+     */
+    static void write(TaxonomyTreeBuilder builder, SourceDigest source, OutputStream outputStream)
+            throws IOException {
+        // Number every string up front, so that the table can be written ahead of the fields referring to it
+        StringDictionary.Ids strings = new StringDictionary().ids();
+        for (ClassDeclaration declaration : builder.classes()) {
+            id(strings, declaration.uri());
+            declaration.labels().forEach((tag, label) -> {
+                id(strings, tag);
+                id(strings, label);
+            });
+            id(strings, declaration.comment());
+            id(strings, declaration.parentUri());
+        }
+        for (PropertyDeclaration declaration : builder.properties()) {
+            id(strings, declaration.uri());
+            declaration.labels().forEach((tag, label) -> {
+                id(strings, tag);
+                id(strings, label);
+            });
+            id(strings, declaration.rangeUri());
+            id(strings, declaration.propertyType());
+            declaration.domainUris().forEach(domainUri -> id(strings, domainUri));
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(source.length());
+        out.writeInt(source.crc());
+
+        out.writeInt(strings.size());
+        for (int id = 0; id < strings.size(); id++) {
+            byte[] bytes = strings.get(id).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(builder.classCount());
+        for (ClassDeclaration declaration : builder.classes()) {
+            out.writeInt(id(strings, declaration.uri()));
+            writeLabels(out, strings, declaration.labels());
+            out.writeInt(id(strings, declaration.comment()));
+            out.writeInt(id(strings, declaration.parentUri()));
+        }
+
+        out.writeInt(builder.propertyCount());
+        for (PropertyDeclaration declaration : builder.properties()) {
+            out.writeInt(id(strings, declaration.uri()));
+            writeLabels(out, strings, declaration.labels());
+            out.writeInt(id(strings, declaration.rangeUri()));
+            out.writeInt(id(strings, declaration.propertyType()));
+            out.writeInt(declaration.domainUris().size());
+            for (String domainUri : declaration.domainUris()) {
+                out.writeInt(id(strings, domainUri));
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeLabels(DataOutputStream out, StringDictionary.Ids strings,
+                                    Map<String, String> labels) throws IOException {
+        out.writeInt(labels.size());
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            out.writeInt(id(strings, label.getKey()));
+            out.writeInt(id(strings, label.getValue()));
+        }
+    }
+
+    private static int id(StringDictionary.Ids strings, String value) {
+        return value == null ? NULL_STRING : strings.id(value);
+    }
+
+    /**
+     * Read a snapshot back into a builder holding its declarations
+     * @param expectedSource the source the snapshot must have been compiled from, or null to accept any
+     * @param dictionary     the dictionary to take the strings from
+     * @throws IOException if the snapshot is unreadable or was compiled from another source
+     */
+    static TaxonomyTreeBuilder read(InputStream inputStream, SourceDigest expectedSource, StringDictionary dictionary)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a taxonomy snapshot");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported taxonomy snapshot version " + version + ", expected " + FORMAT_VERSION);
+        }
+        SourceDigest source = new SourceDigest(in.readLong(), in.readInt());
+        if (expectedSource != null && !expectedSource.equals(source)) {
+            throw new IOException("Outdated taxonomy snapshot: compiled from " + source + ", source is now "
+                    + expectedSource);
+        }
+
+        int stringCount = count(in, "string");
+        StringDictionary.Ids strings = dictionary.ids();
+        for (int i = 0; i < stringCount; i++) {
+            int length = count(in, "string length");
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new EOFException("Truncated taxonomy snapshot");
+            }
+            if (strings.id(new String(bytes, StandardCharsets.UTF_8)) != i) {
+                throw new IOException("Corrupt taxonomy snapshot: string " + i + " is a duplicate");
+            }
+        }
+
+        TaxonomyTreeBuilder builder = new TaxonomyTreeBuilder();
+        int classCount = count(in, "class");
+        for (int i = 0; i < classCount; i++) {
+            builder.addClass(new ClassDeclaration(
+                    requiredString(strings, in.readInt()),
+                    readLabels(in, strings),
+                    string(strings, in.readInt()),
+                    string(strings, in.readInt())));
+        }
+
+        int propertyCount = count(in, "property");
+        for (int i = 0; i < propertyCount; i++) {
+            String uri = requiredString(strings, in.readInt());
+            Map<String, String> labels = readLabels(in, strings);
+            String rangeUri = string(strings, in.readInt());
+            String propertyType = string(strings, in.readInt());
+            int domainCount = count(in, "domain");
+            List<String> domainUris = new ArrayList<>(Math.min(domainCount, MAX_PRESIZE));
+            for (int d = 0; d < domainCount; d++) {
+                domainUris.add(requiredString(strings, in.readInt()));
+            }
+            builder.addProperty(new PropertyDeclaration(uri, labels, rangeUri, domainUris,
+                    propertyType));
+        }
+        return builder;
+    }
+
+    private static Map<String, String> readLabels(DataInputStream in, StringDictionary.Ids strings)
+            throws IOException {
+        int count = count(in, "label");
+        if (count == 0) {
+            return Map.of();
+        }
+        Map<String, String> labels = new LinkedHashMap<>(Math.min(count, MAX_PRESIZE) * 2);
+        for (int i = 0; i < count; i++) {
+            labels.put(requiredString(strings, in.readInt()), requiredString(strings, in.readInt()));
+        }
+        return Collections.unmodifiableMap(labels);
+    }
+
+    private static int count(DataInputStream in, String what) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt taxonomy snapshot: negative " + what + " count " + count);
+        }
+        return count;
+    }
+
+    private static String string(StringDictionary.Ids strings, int id) throws IOException {
+        if (id == NULL_STRING) {
+            return null;
+        }
+        if (id < 0 || id >= strings.size()) {
+            throw new IOException("Corrupt taxonomy snapshot: string id " + id + " out of range");
+        }
+        return strings.get(id);
+    }
+
+    private static String requiredString(StringDictionary.Ids strings, int id) throws IOException {
+        String value = string(strings, id);
+        if (value == null) {
+            throw new IOException("Corrupt taxonomy snapshot: missing required string");
+        }
+        return value;
+    }
+
+    /**
+     * Length and CRC-32 of the Turtle bytes a snapshot is compiled from
+     */
+    record SourceDigest(long length, int crc) {
+
+        /**
+         * Digest a source stream to its end. The stream is not closed.
+         */
+        static SourceDigest of(InputStream inputStream) throws IOException {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[8192];
+            long length = 0;
+            for (int read; (read = inputStream.read(buffer)) != -1; length += read) {
+                crc.update(buffer, 0, read);
+            }
+            return new SourceDigest(length, (int) crc.getValue());
+        }
+
+        @Override
+        public String toString() {
+            return length + " bytes with CRC-32 " + Integer.toHexString(crc);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package no.sirktek.taxonomy.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A named source of RDF-S Turtle data, such as the base taxonomy or a brand or customer extension
+ *
+ * @param name   name used in logs and load reports
+ * @param opener opens a fresh stream over the source's Turtle data
+ */
+public record TaxonomySource(String name, StreamOpener opener) {
+
+    /**
+     * Canonical constructor
+     * @param name   name used in logs and load reports
+     * @param opener opens a fresh stream over the source's Turtle data
+     */
+    public TaxonomySource {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(opener, "opener");
+    }
+
+    /**
+     * A classpath resource
+     * @param resourcePath absolute resource path, e.g. "/taxonomy/furniture-base.ttl"
+     * @return the source
+     */
+    public static TaxonomySource classpath(String resourcePath) {
+        return new TaxonomySource("classpath:" + resourcePath, () -> {
+            InputStream inputStream = TaxonomySource.class.getResourceAsStream(resourcePath);
+            if (inputStream == null) {
+                throw new IOException("Could not find resource: " + resourcePath);
+            }
+            return inputStream;
+        });
+    }
+
+    /**
+     * A file on the file system
+     * @param file path of the Turtle file
+     * @return the source
+     */
+    public static TaxonomySource file(Path file) {
+        return new TaxonomySource(file.toString(), () -> Files.newInputStream(file));
+    }
+
+    /**
+     * An arbitrary stream, e.g. from a database or object store
+     * @param name   name used in logs and load reports
+     * @param opener opens a fresh stream over the Turtle data
+     * @return the source
+     */
+    public static TaxonomySource stream(String name, StreamOpener opener) {
+        return new TaxonomySource(name, opener);
+    }
+
+    /**
+     * Opens the stream of a source; the caller closes it
+     */
+    @FunctionalInterface
+    public interface StreamOpener {
+        /**
+         * Open a new stream over the source's data
+         * @return the stream
+         * @throws IOException if the source cannot be opened
+         */
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,390 @@
+package no.sirktek.taxonomy.loader;
+
+import lombok.extern.slf4j.Slf4j;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader.TaxonomyLoadException;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.LocaleTable;
+import no.sirktek.taxonomy.model.LocalizedLabels;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.PropertyTypeResolver;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assembles a {@link TaxonomyTree} from flat class and property declarations.
+ * <p>
+ * Properties are grouped by domain once, and the tree is built bottom-up so that every
+ * {@link CategoryInfo} is created exactly once, after all of its children. The traversal is
+ * iterative, so arbitrarily deep hierarchies do not exhaust the stack.
+ */
+@Slf4j
+final class TaxonomyTreeBuilder {
+
+    static final Comparator<CategoryInfo> BY_ENGLISH_NAME = Comparator.comparing(CategoryInfo::englishName);
+    static final String ENGLISH = "en";
+    private static final String[] NORWEGIAN = {"no", "nb", "nn"};
+
+    private final Map<String, ClassDeclaration> classes = new LinkedHashMap<>();
+    private final Map<String, PropertyDeclaration> properties = new LinkedHashMap<>();
+    private long sourceTriples;
+
+    /**
+     * Add a class declaration. If the URI was declared before, the declarations are merged field by field
+     * and the new declaration's non-null values win.
+     */
+    TaxonomyTreeBuilder addClass(ClassDeclaration declaration) {
+        classes.merge(declaration.uri(), declaration, (earlier, later) -> new ClassDeclaration(
+                later.uri(),
+                mergeLabels(earlier.labels(), later.labels()),
+                override(earlier.comment(), later.comment()),
+                override(earlier.parentUri(), later.parentUri())));
+        return this;
+    }
+
+    /**
+     * Add a property declaration. If the URI was declared before, the new declaration's non-null labels,
+     * range and type annotation win, and its domains are added to the earlier ones.
+     */
+    TaxonomyTreeBuilder addProperty(PropertyDeclaration declaration) {
+        properties.merge(declaration.uri(), declaration, (earlier, later) -> {
+            Set<String> domains = new LinkedHashSet<>(earlier.domainUris());
+            domains.addAll(later.domainUris());
+            return new PropertyDeclaration(
+                    later.uri(),
+                    mergeLabels(earlier.labels(), later.labels()),
+                    override(earlier.rangeUri(), later.rangeUri()),
+                    List.copyOf(domains),
+                    override(earlier.propertyType(), later.propertyType()));
+        });
+        return this;
+    }
+
+    /**
+     * Merge all declarations of another builder into this one, as if they were added after this builder's own
+     */
+    TaxonomyTreeBuilder merge(TaxonomyTreeBuilder other) {
+        other.classes.values().forEach(this::addClass);
+        other.properties.values().forEach(this::addProperty);
+        sourceTriples += other.sourceTriples;
+        return this;
+    }
+
+    /**
+     * Count RDF triples read while collecting the declarations, for load metrics
+     */
+    TaxonomyTreeBuilder addSourceTriples(long triples) {
+        sourceTriples += triples;
+        return this;
+    }
+
+    /**
+     * Number of RDF triples the declarations were collected from, 0 if they did not come from RDF
+     */
+    long sourceTriples() {
+        return sourceTriples;
+    }
+
+    private static String override(String earlier, String later) {
+        return later != null ? later : earlier;
+    }
+
+    /**
+     * Labels of two declarations of one subject, the later one's winning per language
+     */
+    static Map<String, String> mergeLabels(Map<String, String> earlier, Map<String, String> later) {
+        if (later.isEmpty()) {
+            return earlier;
+        }
+        if (earlier.isEmpty()) {
+            return later;
+        }
+        Map<String, String> merged = new LinkedHashMap<>(earlier);
+        merged.putAll(later);
+        return Collections.unmodifiableMap(merged);
+    }
+
+    /**
+     * Number of class declarations added so far
+     */
+    int classCount() {
+        return classes.size();
+    }
+
+    /**
+     * The class declarations added so far, in insertion order
+     */
+    Collection<ClassDeclaration> classes() {
+        return Collections.unmodifiableCollection(classes.values());
+    }
+
+    /**
+     * The property declarations added so far, in insertion order
+     */
+    Collection<PropertyDeclaration> properties() {
+        return Collections.unmodifiableCollection(properties.values());
+    }
+
+    /**
+     * Number of property declarations added so far
+     */
+    int propertyCount() {
+        return properties.size();
+    }
+
+    /**
+     * The base locales extended with the language tags the declarations use. A table holds at most
+     * {@link LocaleTable#MAX_LOCALES} tags; beyond that, the most used tags are kept and the labels of the others
+     * are ignored when the tree is built.
+     * @throws TaxonomyLoadException if the table cannot be built
+     */
+    LocaleTable locales(LocaleTable base) {
+        Map<String, Integer> uses = new LinkedHashMap<>();
+        classes.values().forEach(declaration -> countTags(declaration.labels(), base, uses));
+        properties.values().forEach(declaration -> countTags(declaration.labels(), base, uses));
+        int room = LocaleTable.MAX_LOCALES - base.size();
+        List<String> tags = new ArrayList<>(uses.keySet());
+        if (tags.size() > room) {
+            // Stable sort, so equally used tags keep the order they were first declared in
+            tags.sort(Comparator.comparing(uses::get, Comparator.reverseOrder()));
+            log.warn("Ignoring labels in {} of {} language tags, a taxonomy holds at most {}: {}",
+                    tags.size() - room, tags.size() + base.size(), LocaleTable.MAX_LOCALES,
+                    tags.subList(room, tags.size()));
+            tags = tags.subList(0, Math.max(room, 0));
+        }
+        try {
+            return base.extend(tags);
+        } catch (IllegalArgumentException e) {
+            throw new TaxonomyLoadException("Cannot build the locale table of the taxonomy", e);
+        }
+    }
+
+    private static void countTags(Map<String, String> labels, LocaleTable base, Map<String, Integer> uses) {
+        for (String tag : labels.keySet()) {
+            if (base.id(tag) == LocaleTable.NOT_FOUND) {
+                uses.merge(LocaleTable.normalize(tag), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Build the tree with the default property type rules
+     */
+    TaxonomyTree build() {
+        return build(PropertyTypeResolver.defaults());
+    }
+
+    /**
+     * Build the tree. Classes whose parent is not declared, or that are part of a
+     * subclass cycle, are not reachable from a root and are left out.
+     * Property types are resolved here, once per property.
+     */
+    TaxonomyTree build(PropertyTypeResolver typeResolver) {
+        return build(typeResolver, new StringDictionary());
+    }
+
+    /**
+     * Build the tree, taking every string of the categories and properties from a dictionary so that equal
+     * values share one instance, within this tree and with other trees built through the same dictionary
+     */
+    TaxonomyTree build(PropertyTypeResolver typeResolver, StringDictionary strings) {
+        LocaleTable locales = locales(LocaleTable.defaults());
+        Map<String, List<PropertyDefinition>> propertiesByDomain =
+                groupPropertiesByDomain(typeResolver, strings, locales);
+
+        Map<String, List<ClassDeclaration>> childrenByParent = new HashMap<>();
+        List<ClassDeclaration> roots = new ArrayList<>();
+        for (ClassDeclaration declaration : classes.values()) {
+            if (declaration.parentUri() == null) {
+                roots.add(declaration);
+            } else {
+                childrenByParent.computeIfAbsent(declaration.parentUri(), k -> new ArrayList<>()).add(declaration);
+            }
+        }
+
+        // Pre-order from the roots; walking it backwards visits every child before its parent
+        List<ClassDeclaration> preOrder = new ArrayList<>(classes.size());
+        Deque<ClassDeclaration> stack = new ArrayDeque<>(roots);
+        while (!stack.isEmpty()) {
+            ClassDeclaration declaration = stack.pop();
+            preOrder.add(declaration);
+            List<ClassDeclaration> children = childrenByParent.get(declaration.uri());
+            if (children != null) {
+                children.forEach(stack::push);
+            }
+        }
+
+        Map<String, CategoryInfo> built = new HashMap<>(preOrder.size() * 2);
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            ClassDeclaration declaration = preOrder.get(i);
+            List<CategoryInfo> children = collectBuilt(childrenByParent.get(declaration.uri()), built);
+            List<PropertyDefinition> ownProperties = propertiesByDomain.getOrDefault(declaration.uri(), List.of());
+            built.put(declaration.uri(), toCategoryInfo(declaration, ownProperties, children, strings, locales));
+        }
+
+        List<CategoryInfo> rootCategories = collectBuilt(roots, built);
+        return TaxonomyTree.builder()
+                .rootCategories(rootCategories)
+                .build();
+    }
+
+    private Map<String, List<PropertyDefinition>> groupPropertiesByDomain(PropertyTypeResolver typeResolver,
+                                                                          StringDictionary strings,
+                                                                          LocaleTable locales) {
+        Map<String, List<PropertyDefinition>> propertiesByDomain = new HashMap<>();
+        for (PropertyDeclaration declaration : properties.values()) {
+            PropertyDefinition definition = toPropertyDefinition(declaration, typeResolver, strings, locales);
+            for (String domainUri : declaration.domainUris()) {
+                propertiesByDomain.computeIfAbsent(domainUri, k -> new ArrayList<>()).add(definition);
+            }
+        }
+        propertiesByDomain.replaceAll((domain, list) -> Collections.unmodifiableList(list));
+        return propertiesByDomain;
+    }
+
+    private static List<CategoryInfo> collectBuilt(List<ClassDeclaration> declarations, Map<String, CategoryInfo> built) {
+        if (declarations == null || declarations.isEmpty()) {
+            return List.of();
+        }
+        List<CategoryInfo> categories = new ArrayList<>(declarations.size());
+        for (ClassDeclaration declaration : declarations) {
+            categories.add(built.get(declaration.uri()));
+        }
+        categories.sort(BY_ENGLISH_NAME);
+        return Collections.unmodifiableList(categories);
+    }
+
+    static CategoryInfo toCategoryInfo(ClassDeclaration declaration,
+                                       List<PropertyDefinition> properties,
+                                       List<CategoryInfo> children,
+                                       StringDictionary strings,
+                                       LocaleTable locales) {
+        String className = strings.intern(localName(declaration.uri()));
+        LocalizedLabels labels = labels(declaration.labels(), strings, locales);
+        String englishName = labels.declared(ENGLISH);
+
+        return CategoryInfo.builder()
+                .className(className)
+                .englishName(englishName != null ? englishName : className)
+                .norwegianName(norwegian(labels))
+                .description(strings.intern(declaration.comment()))
+                .parentClassName(strings.intern(localName(declaration.parentUri())))
+                .uri(strings.intern(declaration.uri()))
+                .properties(properties)
+                .children(children)
+                .labels(labels)
+                .build();
+    }
+
+    static PropertyDefinition toPropertyDefinition(PropertyDeclaration declaration,
+                                                   PropertyTypeResolver typeResolver,
+                                                   StringDictionary strings,
+                                                   LocaleTable locales) {
+        List<String> domains = declaration.domainUris();
+        String name = strings.intern(localName(declaration.uri()));
+        PropertyType type = declaration.propertyType() != null
+                ? parsePropertyType(declaration)
+                : typeResolver.resolve(name, declaration.rangeUri());
+        LocalizedLabels labels = labels(declaration.labels(), strings, locales);
+        return PropertyDefinition.builder()
+                .name(name)
+                .englishLabel(labels.declared(ENGLISH))
+                .norwegianLabel(norwegian(labels))
+                .uri(strings.intern(declaration.uri()))
+                .rangeType(strings.intern(declaration.rangeUri()))
+                .domainClass(domains.isEmpty() ? null : strings.intern(localName(domains.get(0))))
+                .description(null) // Could add comments if needed
+                .propertyType(type)
+                .labels(labels)
+                .build();
+    }
+
+    /**
+     * Resolve declared labels against the locales, taking every label from the dictionary. Labels in languages
+     * the table does not hold are left out.
+     */
+    static LocalizedLabels labels(Map<String, String> declared, StringDictionary strings, LocaleTable locales) {
+        Map<String, String> interned = new HashMap<>(declared.size() * 2);
+        declared.forEach((tag, label) -> {
+            if (locales.id(tag) != LocaleTable.NOT_FOUND) {
+                interned.put(tag, strings.intern(label));
+            }
+        });
+        return LocalizedLabels.of(locales, interned);
+    }
+
+    /**
+     * The Norwegian label: the macrolanguage's, or else that of Bokmål or Nynorsk, without falling back on English
+     */
+    static String norwegian(LocalizedLabels labels) {
+        for (String tag : NORWEGIAN) {
+            String label = labels.declared(tag);
+            if (label != null) {
+                return label;
+            }
+        }
+        return null;
+    }
+
+    static PropertyType parsePropertyType(PropertyDeclaration declaration) {
+        String value = localName(declaration.propertyType()).trim();
+        try {
+            return PropertyType.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new TaxonomyLoadException("Unknown property type '" + value + "' on " + declaration.uri(), e);
+        }
+    }
+
+    /**
+     * Extract the local name from a URI
+     */
+    static String localName(String uri) {
+        if (uri == null) return null;
+        int hashIndex = uri.lastIndexOf('#');
+        if (hashIndex >= 0) {
+            return uri.substring(hashIndex + 1);
+        }
+        int slashIndex = uri.lastIndexOf('/');
+        if (slashIndex >= 0) {
+            return uri.substring(slashIndex + 1);
+        }
+        return uri;
+    }
+
+    /**
+     * A taxonomy class as declared in the source
+     *
+     * @param uri       complete class URI
+     * @param labels    labels by normalized language tag, in declaration order
+     * @param comment   description, or null
+     * @param parentUri URI of the taxonomy parent class, or null for roots
+     */
+    record ClassDeclaration(String uri, Map<String, String> labels, String comment, String parentUri) {
+    }
+
+    /**
+     * A taxonomy property as declared in the source
+     *
+     * @param uri            complete property URI
+     * @param labels         labels by normalized language tag, in declaration order
+     * @param rangeUri       range type URI, or null
+     * @param domainUris     URIs of every domain class, in declaration order
+     * @param propertyType   value of the {@code furniture:propertyType} annotation, or null
+     */
+    record PropertyDeclaration(String uri, Map<String, String> labels, String rangeUri,
+                               List<String> domainUris, String propertyType) {
+    }
+}
@@ -0,0 +1,76 @@
+package no.sirktek.taxonomy.metrics;
+
+import jdk.jfr.FlightRecorder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports loads and reloads as custom JDK Flight Recorder events, and lookup counts as a periodic event.
+ * <p>
+ * Events are only built when a recording has them enabled, so without a recording a load costs one check and
+ * a lookup one counter increment. Event names start with {@code no.sirktek.taxonomy}; enable them in a JFR
+ * configuration or with {@code jfr configure}.
+ */
+public final class JfrTaxonomyMetrics implements TaxonomyMetrics, AutoCloseable {
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Runnable lookupStatistics = this::emitLookupStatistics;
+
+    /**
+     * Create the metrics and register the periodic lookup statistics event
+     */
+    public JfrTaxonomyMetrics() {
+        FlightRecorder.addPeriodicEvent(TaxonomyLookupStatisticsEvent.class, lookupStatistics);
+    }
+
+    @Override
+    public void taxonomyLoaded(LoadMeasurement load) {
+        TaxonomyLoadEvent event = new TaxonomyLoadEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.source = load.source();
+        event.parseTime = load.parseTime().toNanos();
+        event.buildTime = load.buildTime().toNanos();
+        event.triples = load.triples();
+        event.categories = load.categories();
+        event.properties = load.properties();
+        event.stringBytes = load.estimatedStringBytes();
+        event.commit();
+    }
+
+    @Override
+    public void taxonomyReloaded(long version, Duration latency) {
+        TaxonomyReloadEvent event = new TaxonomyReloadEvent();
+        if (event.shouldCommit()) {
+            event.version = version;
+            event.latency = latency.toNanos();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void categoryLookup(boolean found) {
+        lookups.increment();
+        if (!found) {
+            misses.increment();
+        }
+    }
+
+    private void emitLookupStatistics() {
+        TaxonomyLookupStatisticsEvent event = new TaxonomyLookupStatisticsEvent();
+        event.lookups = lookups.sum();
+        event.misses = misses.sum();
+        event.commit();
+    }
+
+    /**
+     * Unregister the periodic lookup statistics event
+     */
+    @Override
+    public void close() {
+        FlightRecorder.removePeriodicEvent(lookupStatistics);
+    }
+}
@@ -0,0 +1,31 @@
+package no.sirktek.taxonomy.metrics;
+
+import no.sirktek.taxonomy.model.StringFootprint;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.time.Duration;
+
+/**
+ * Timings and sizes of one taxonomy load
+ *
+ * @param source     the resource, file names or {@code stream} the taxonomy was loaded from
+ * @param parseTime  time spent reading the source into declarations, including merging several sources
+ * @param buildTime  time spent building the tree from the declarations
+ * @param triples    number of RDF triples read, 0 for snapshots
+ * @param categories number of categories declared
+ * @param properties number of properties declared
+ * @param tree       the loaded tree
+ */
+public record LoadMeasurement(String source, Duration parseTime, Duration buildTime, long triples,
+                              int categories, int properties, TaxonomyTree tree) {
+
+    /**
+     * Estimate the heap held by the strings of the tree. This walks the whole tree, so metrics call it only when
+     * the value is recorded.
+     * @return estimated bytes of the URI, name, label and description strings
+     * @see StringFootprint
+     */
+    public long estimatedStringBytes() {
+        return StringFootprint.of(tree).bytes();
+    }
+}
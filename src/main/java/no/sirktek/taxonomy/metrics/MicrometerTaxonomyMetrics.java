@@ -0,0 +1,106 @@
+package no.sirktek.taxonomy.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports loads, reloads and lookups to a Micrometer registry.
+ * <p>
+ * Micrometer is an optional dependency: add {@code micrometer-core} to use this class. Measurements made before
+ * {@link #bindTo(MeterRegistry)} are dropped. Meters:
+ * <ul>
+ *     <li>{@code taxonomy.load.parse} and {@code taxonomy.load.build} timers</li>
+ *     <li>{@code taxonomy.reload} timer, from the start of a reload until it is published</li>
+ *     <li>{@code taxonomy.triples}, {@code taxonomy.categories}, {@code taxonomy.properties} and
+ *     {@code taxonomy.strings.bytes} gauges of the last load</li>
+ *     <li>{@code taxonomy.lookups} counter, tagged {@code result=hit} or {@code result=miss}</li>
+ * </ul>
+ */
+public final class MicrometerTaxonomyMetrics implements TaxonomyMetrics, MeterBinder {
+
+    private final Tags tags;
+    private final AtomicLong triples = new AtomicLong();
+    private final AtomicLong categories = new AtomicLong();
+    private final AtomicLong properties = new AtomicLong();
+    private final AtomicLong stringBytes = new AtomicLong();
+    private volatile Meters meters;
+
+    /**
+     * Create untagged metrics
+     */
+    public MicrometerTaxonomyMetrics() {
+        this(Tags.empty());
+    }
+
+    /**
+     * Create metrics with common tags, for example the tenant
+     * @param tags tags added to every meter
+     */
+    public MicrometerTaxonomyMetrics(Iterable<Tag> tags) {
+        this.tags = Tags.of(tags);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("taxonomy.triples", triples, AtomicLong::get).tags(tags)
+                .description("RDF triples read by the last load").register(registry);
+        Gauge.builder("taxonomy.categories", categories, AtomicLong::get).tags(tags)
+                .description("Categories in the last loaded taxonomy").register(registry);
+        Gauge.builder("taxonomy.properties", properties, AtomicLong::get).tags(tags)
+                .description("Properties in the last loaded taxonomy").register(registry);
+        Gauge.builder("taxonomy.strings.bytes", stringBytes, AtomicLong::get).tags(tags).baseUnit("bytes")
+                .description("Estimated heap held by the strings of the last loaded taxonomy").register(registry);
+        meters = new Meters(
+                Timer.builder("taxonomy.load.parse").tags(tags)
+                        .description("Time reading taxonomy sources into declarations").register(registry),
+                Timer.builder("taxonomy.load.build").tags(tags)
+                        .description("Time building the taxonomy tree").register(registry),
+                Timer.builder("taxonomy.reload").tags(tags)
+                        .description("Time from the start of a reload until it is published").register(registry),
+                Counter.builder("taxonomy.lookups").tags(tags).tag("result", "hit")
+                        .description("Category lookups by class name").register(registry),
+                Counter.builder("taxonomy.lookups").tags(tags).tag("result", "miss")
+                        .description("Category lookups by class name").register(registry));
+    }
+
+    @Override
+    public void taxonomyLoaded(LoadMeasurement load) {
+        Meters bound = meters;
+        if (bound == null) {
+            return;
+        }
+        bound.parse().record(load.parseTime());
+        bound.build().record(load.buildTime());
+        triples.set(load.triples());
+        categories.set(load.categories());
+        properties.set(load.properties());
+        stringBytes.set(load.estimatedStringBytes());
+    }
+
+    @Override
+    public void taxonomyReloaded(long version, Duration latency) {
+        Meters bound = meters;
+        if (bound != null) {
+            bound.reload().record(latency);
+        }
+    }
+
+    @Override
+    public void categoryLookup(boolean found) {
+        Meters bound = meters;
+        if (bound != null) {
+            (found ? bound.hits() : bound.misses()).increment();
+        }
+    }
+
+    private record Meters(Timer parse, Timer build, Timer reload, Counter hits, Counter misses) {
+    }
+}
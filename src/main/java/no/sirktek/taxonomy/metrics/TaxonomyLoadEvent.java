@@ -0,0 +1,45 @@
+package no.sirktek.taxonomy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one taxonomy load
+ */
+@Name("no.sirktek.taxonomy.Load")
+@Label("Taxonomy Load")
+@Category("Taxonomy")
+@Description("A taxonomy parsed and built from Turtle or a snapshot")
+@StackTrace(false)
+final class TaxonomyLoadEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Parse Time")
+    @Timespan
+    long parseTime;
+
+    @Label("Build Time")
+    @Timespan
+    long buildTime;
+
+    @Label("Triples")
+    long triples;
+
+    @Label("Categories")
+    int categories;
+
+    @Label("Properties")
+    int properties;
+
+    @Label("String Heap")
+    @Description("Estimated bytes held by the strings of the tree")
+    @DataAmount
+    long stringBytes;
+}
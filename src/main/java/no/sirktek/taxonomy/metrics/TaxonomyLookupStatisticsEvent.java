@@ -0,0 +1,26 @@
+package no.sirktek.taxonomy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic JFR event with the category lookups counted so far. Lookups are too frequent for an event each.
+ */
+@Name("no.sirktek.taxonomy.LookupStatistics")
+@Label("Taxonomy Lookup Statistics")
+@Category("Taxonomy")
+@Description("Category lookups by class name since the metrics were created")
+@Period("10 s")
+@StackTrace(false)
+final class TaxonomyLookupStatisticsEvent extends jdk.jfr.Event {
+
+    @Label("Lookups")
+    long lookups;
+
+    @Label("Misses")
+    long misses;
+}
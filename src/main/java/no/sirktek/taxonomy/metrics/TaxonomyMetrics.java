@@ -0,0 +1,77 @@
+package no.sirktek.taxonomy.metrics;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Receives measurements from the loader and service hot paths: loads, reloads and category lookups.
+ * <p>
+ * Every method does nothing by default, and {@link #NOOP} is used unless metrics are configured, so an
+ * uninstrumented taxonomy pays for no more than an empty call. Implementations are called on the loading and
+ * looking-up threads and must be thread-safe and cheap. See {@link JfrTaxonomyMetrics} and
+ * {@link MicrometerTaxonomyMetrics}.
+ */
+public interface TaxonomyMetrics {
+
+    /**
+     * Metrics that discard every measurement
+     */
+    TaxonomyMetrics NOOP = new TaxonomyMetrics() {
+    };
+
+    /**
+     * Called after a taxonomy has been parsed and built
+     * @param load timings and sizes of the load
+     */
+    default void taxonomyLoaded(LoadMeasurement load) {
+        // Not measured
+    }
+
+    /**
+     * Called after a new taxonomy version has been loaded and published
+     * @param version the published version
+     * @param latency time from the start of the reload until the version was published
+     */
+    default void taxonomyReloaded(long version, Duration latency) {
+        // Not measured
+    }
+
+    /**
+     * Called for every category lookup by class name
+     * @param found whether the class name was known
+     */
+    default void categoryLookup(boolean found) {
+        // Not measured
+    }
+
+    /**
+     * Metrics that pass every measurement to several others, for example to both JFR and Micrometer
+     * @param metrics the metrics to notify, in order
+     * @return the combined metrics
+     */
+    static TaxonomyMetrics composite(TaxonomyMetrics... metrics) {
+        List<TaxonomyMetrics> targets = List.of(metrics);
+        return new TaxonomyMetrics() {
+            @Override
+            public void taxonomyLoaded(LoadMeasurement load) {
+                for (TaxonomyMetrics target : targets) {
+                    target.taxonomyLoaded(load);
+                }
+            }
+
+            @Override
+            public void taxonomyReloaded(long version, Duration latency) {
+                for (TaxonomyMetrics target : targets) {
+                    target.taxonomyReloaded(version, latency);
+                }
+            }
+
+            @Override
+            public void categoryLookup(boolean found) {
+                for (TaxonomyMetrics target : targets) {
+                    target.categoryLookup(found);
+                }
+            }
+        };
+    }
+}
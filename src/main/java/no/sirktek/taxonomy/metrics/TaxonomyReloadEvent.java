@@ -0,0 +1,26 @@
+package no.sirktek.taxonomy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one published taxonomy reload
+ */
+@Name("no.sirktek.taxonomy.Reload")
+@Label("Taxonomy Reload")
+@Category("Taxonomy")
+@Description("A new taxonomy version loaded and published")
+@StackTrace(false)
+final class TaxonomyReloadEvent extends jdk.jfr.Event {
+
+    @Label("Version")
+    long version;
+
+    @Label("Latency")
+    @Timespan
+    long latency;
+}
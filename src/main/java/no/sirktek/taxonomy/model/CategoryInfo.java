@@ -3,6 +3,7 @@ package no.sirktek.taxonomy.model;
 import lombok.Builder;
 
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Represents a single category in the furniture taxonomy
@@ -15,6 +16,8 @@ import java.util.List;
  * @param uri             Complete URI of this RDF class
  * @param properties      Properties defined for this category
  * @param children        Child categories
+ * @param labels          Labels in every language of the taxonomy; when null, they are derived from the English
+ *                        and Norwegian names
  */
 @Builder
 public record CategoryInfo(
@@ -24,7 +27,35 @@ public record CategoryInfo(
         String description,
         String parentClassName,
         String uri, List<PropertyDefinition> properties,
-        List<CategoryInfo> children) {
+        List<CategoryInfo> children,
+        LocalizedLabels labels) {
+
+    /**
+     * Create a category, deriving missing labels from the English and Norwegian names
+     */
+    public CategoryInfo {
+        if (labels == null) {
+            labels = LocalizedLabels.ofNames(englishName, norwegianName);
+        }
+    }
+
+    /**
+     * Create a category with only English and Norwegian names, as before labels of every language were supported
+     * @param className       the RDF class name
+     * @param englishName     English label
+     * @param norwegianName   Norwegian label
+     * @param description     human-readable description
+     * @param parentClassName the parent's class name, null for root categories
+     * @param uri             complete URI of the class
+     * @param properties      properties defined for the category
+     * @param children        child categories
+     */
+    public CategoryInfo(String className, String englishName, String norwegianName, String description,
+                        String parentClassName, String uri, List<PropertyDefinition> properties,
+                        List<CategoryInfo> children) {
+        this(className, englishName, norwegianName, description, parentClassName, uri, properties, children, null);
+    }
+
     /**
      * Whether this is a root category (no parent)
      * @return true if this category has no parent, false otherwise
@@ -33,4 +64,14 @@ public record CategoryInfo(
         return parentClassName == null;
     }
 
+    /**
+     * Get the label to show in a language, following the locale's fallback chain, such as nb, no, en
+     * @param locale the language, or null for the default language of the taxonomy
+     * @return the label, or the English name if neither the locale nor any of its fallbacks has one
+     */
+    public String label(Locale locale) {
+        String label = labels.get(locale);
+        return label != null ? label : englishName;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package no.sirktek.taxonomy.model;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Effective property list of a category: the parent's effective list followed by the category's own
+ * properties. The parent's list is referenced, not copied, so a chain of categories shares one copy
+ * of every inherited property. Positional access walks the chain, so the list is not {@code RandomAccess};
+ * iterate it instead.
+ */
+final class InheritedPropertyList extends AbstractList<PropertyDefinition> {
+
+    private final List<PropertyDefinition> inherited;
+    private final List<PropertyDefinition> own;
+    private final int size;
+
+    private InheritedPropertyList(List<PropertyDefinition> inherited, List<PropertyDefinition> own) {
+        this.inherited = inherited;
+        this.own = own;
+        this.size = inherited.size() + own.size();
+    }
+
+    /**
+     * Append a category's own properties to an inherited list, sharing the inherited list.
+     * The caller guarantees that no own property has the same name as an inherited one.
+     */
+    static List<PropertyDefinition> of(List<PropertyDefinition> inherited, List<PropertyDefinition> own) {
+        if (own == null || own.isEmpty()) {
+            return inherited;
+        }
+        if (inherited.isEmpty()) {
+            return Collections.unmodifiableList(own);
+        }
+        return new InheritedPropertyList(inherited, own);
+    }
+
+    /**
+     * Append a category's own properties to an inherited list, dropping inherited properties that an own
+     * property overrides by name. The result is a flat copy.
+     */
+    static List<PropertyDefinition> overriding(List<PropertyDefinition> inherited, List<PropertyDefinition> own) {
+        List<PropertyDefinition> merged = new ArrayList<>(inherited.size() + own.size());
+        for (PropertyDefinition property : inherited) {
+            if (!containsName(own, property.name())) {
+                merged.add(property);
+            }
+        }
+        merged.addAll(own);
+        return List.copyOf(merged);
+    }
+
+    private static boolean containsName(List<PropertyDefinition> properties, String name) {
+        for (PropertyDefinition property : properties) {
+            if (property.name() != null && property.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public PropertyDefinition get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        // Walk down the chain iteratively so deep hierarchies do not recurse
+        InheritedPropertyList list = this;
+        while (true) {
+            int inheritedSize = list.inherited.size();
+            if (index >= inheritedSize) {
+                return list.own.get(index - inheritedSize);
+            }
+            if (!(list.inherited instanceof InheritedPropertyList parent)) {
+                return list.inherited.get(index);
+            }
+            list = parent;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Spliterator<PropertyDefinition> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Iterates segment by segment, so a full pass costs the list size plus the chain length
+     */
+    @Override
+    public Iterator<PropertyDefinition> iterator() {
+        Deque<List<PropertyDefinition>> segments = new ArrayDeque<>();
+        List<PropertyDefinition> current = this;
+        while (current instanceof InheritedPropertyList list) {
+            segments.push(list.own);
+            current = list.inherited;
+        }
+        segments.push(current);
+
+        return new Iterator<>() {
+            private Iterator<PropertyDefinition> segment = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!segment.hasNext() && !segments.isEmpty()) {
+                    segment = segments.pop().iterator();
+                }
+                return segment.hasNext();
+            }
+
+            @Override
+            public PropertyDefinition next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return segment.next();
+            }
+        };
+    }
+}
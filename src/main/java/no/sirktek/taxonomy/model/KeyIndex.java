@@ -0,0 +1,151 @@
+package no.sirktek.taxonomy.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static no.sirktek.taxonomy.model.TaxonomyIndex.NOT_FOUND;
+
+/**
+ * Hash index from string keys, such as class names, URIs or labels, to the nodes of a {@link TaxonomyIndex}.
+ * <p>
+ * Keys map to node slots rather than node ids. A category keeps its slot in every version derived with
+ * {@link TaxonomyIndex#derive(List)}, while its pre-order id shifts whenever a node is inserted or removed before
+ * it, so the versions share one base map and each copies only an overlay of the keys changed since. The overlay
+ * is merged into a new base once it outgrows a small multiple of the square root of the base size, which keeps
+ * both the copying per version and the amortized merging far below the size of the taxonomy.
+ * <p>
+ * A key held by several nodes maps to all their slots, and a lookup returns the first of them in pre-order.
+ */
+final class KeyIndex {
+
+    private static final int[] NONE = new int[0];
+    private static final int MIN_OVERLAY = 64;
+
+    /** Slots per key, an {@link Integer} for one node and an {@code int[]} for several */
+    private final Map<String, Object> base;
+    /** Keys changed since the base was built; {@link #NONE} marks keys no node holds any more */
+    private final Map<String, Object> overlay;
+
+    private KeyIndex(Map<String, Object> base, Map<String, Object> overlay) {
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Index the keys of every node, the slot of each node being its id
+     */
+    static KeyIndex of(CategoryInfo[] nodes, Function<CategoryInfo, List<String>> keys) {
+        Map<String, Object> base = new HashMap<>(nodes.length * 2);
+        for (int id = 0; id < nodes.length; id++) {
+            Integer slot = id;
+            for (String key : keys.apply(nodes[id])) {
+                base.put(key, plus(base.get(key), slot));
+            }
+        }
+        return new KeyIndex(base, Collections.emptyMap());
+    }
+
+    /**
+     * Node id of a key
+     * @param idsOfSlots the node id of each slot, {@link TaxonomyIndex#NOT_FOUND} for slots no longer in use
+     */
+    int id(String key, int[] idsOfSlots) {
+        Object slots = overlay.get(key);
+        if (slots == null) {
+            slots = base.get(key);
+        }
+        if (slots == null) {
+            return NOT_FOUND;
+        }
+        if (slots instanceof Integer slot) {
+            return idsOfSlots[slot];
+        }
+        int first = NOT_FOUND;
+        for (int slot : (int[]) slots) {
+            int id = idsOfSlots[slot];
+            if (id != NOT_FOUND && (first == NOT_FOUND || id < first)) {
+                first = id;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Start a new version of the index; this one is left untouched
+     */
+    Editor edit() {
+        return new Editor();
+    }
+
+    private static Object plus(Object slots, Integer slot) {
+        if (slots == null || slots == NONE) {
+            return slot;
+        }
+        if (slots instanceof Integer only) {
+            return only.equals(slot) ? only : new int[] {only, slot};
+        }
+        int[] several = (int[]) slots;
+        for (int held : several) {
+            if (held == slot) {
+                return several;
+            }
+        }
+        int[] more = Arrays.copyOf(several, several.length + 1);
+        more[several.length] = slot;
+        return more;
+    }
+
+    private static Object minus(Object slots, int slot) {
+        if (slots == null || slots == NONE) {
+            return NONE;
+        }
+        if (slots instanceof Integer only) {
+            return only == slot ? NONE : only;
+        }
+        int[] remaining = Arrays.stream((int[]) slots).filter(held -> held != slot).toArray();
+        return remaining.length == 0 ? NONE : remaining.length == 1 ? (Object) remaining[0] : remaining;
+    }
+
+    /**
+     * Collects the key changes of a derived version
+     */
+    final class Editor {
+
+        private final Map<String, Object> changed = new HashMap<>(overlay);
+
+        private Editor() {
+        }
+
+        void add(String key, int slot) {
+            changed.put(key, plus(current(key), slot));
+        }
+
+        void remove(String key, int slot) {
+            changed.put(key, minus(current(key), slot));
+        }
+
+        private Object current(String key) {
+            Object slots = changed.get(key);
+            return slots != null ? slots : base.get(key);
+        }
+
+        KeyIndex build() {
+            if (changed.size() <= Math.max(MIN_OVERLAY, 4 * (int) Math.sqrt(base.size()))) {
+                return new KeyIndex(base, changed);
+            }
+            Map<String, Object> merged = new HashMap<>(base);
+            changed.forEach((key, slots) -> {
+                if (slots == NONE) {
+                    merged.remove(key);
+                } else {
+                    merged.put(key, slots);
+                }
+            });
+            return new KeyIndex(merged, Collections.emptyMap());
+        }
+    }
+}
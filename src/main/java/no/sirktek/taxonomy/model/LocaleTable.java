@@ -0,0 +1,284 @@
+package no.sirktek.taxonomy.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interned table of the label languages of a taxonomy, with their fallback chains.
+ * <p>
+ * Every language tag gets a small integer id, so {@link LocalizedLabels} can store the labels of a category as an
+ * array indexed by locale instead of a map. Fallback chains are resolved into id arrays when the table is built:
+ * a chain starts with the locale itself, continues with its configured fallbacks and ends with the table's
+ * default locale, the first one. Tags are compared in lower case, with {@code _} read as {@code -}.
+ * <p>
+ * Tables are immutable and shared by every category of a tree.
+ */
+public final class LocaleTable {
+
+    /** Id returned for a language tag that is not in the table */
+    public static final int NOT_FOUND = -1;
+
+    /** Largest number of locales a table can hold */
+    public static final int MAX_LOCALES = Long.SIZE;
+
+    /** Most locales whose resolved id is cached, so lookups with arbitrary client locales cannot grow the cache */
+    private static final int MAX_RESOLVED = 256;
+
+    private static final Comparator<String> BY_LENGTH = Comparator.comparingInt(String::length);
+    private static final LocaleTable DEFAULTS = of(defaultFallbacks());
+
+    private final String[] tags;
+    private final Map<String, Integer> ids;
+    private final int[][] chains;
+    private final LocalizedLabels empty;
+    /** Resolved ids of the locales looked up so far; the ids are small, so reading one does not allocate */
+    private final ConcurrentMap<Locale, Integer> resolved = new ConcurrentHashMap<>();
+
+    private LocaleTable(String[] tags, Map<String, Integer> ids, int[][] chains) {
+        this.tags = tags;
+        this.ids = ids;
+        this.chains = chains;
+        this.empty = new LocalizedLabels(this, new String[tags.length], 0L);
+    }
+
+    private static Map<String, List<String>> defaultFallbacks() {
+        Map<String, List<String>> fallbacks = new LinkedHashMap<>();
+        fallbacks.put("en", List.of());
+        fallbacks.put("no", List.of("nb", "nn"));
+        fallbacks.put("nb", List.of("no", "nn"));
+        fallbacks.put("nn", List.of("no", "nb"));
+        fallbacks.put("sv", List.of());
+        fallbacks.put("da", List.of());
+        return fallbacks;
+    }
+
+    /**
+     * The default table: English, Norwegian ({@code no}, with the written forms {@code nb} and {@code nn} falling
+     * back on each other), Swedish and Danish, all ending in English
+     * @return the default table
+     */
+    public static LocaleTable defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Build a table
+     * @param fallbacks the fallbacks of each language tag, in order; the first tag is the default locale every
+     *                  chain ends with. Tags only named as fallbacks are added with no fallbacks of their own.
+     * @return the table
+     * @throws IllegalArgumentException if there are no tags or more than {@link #MAX_LOCALES}
+     */
+    public static LocaleTable of(Map<String, List<String>> fallbacks) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> tags = new ArrayList<>();
+        fallbacks.forEach((tag, chain) -> {
+            add(tags, ids, tag);
+            chain.forEach(fallback -> add(tags, ids, fallback));
+        });
+        if (tags.isEmpty() || tags.size() > MAX_LOCALES) {
+            throw new IllegalArgumentException("A locale table needs 1 to " + MAX_LOCALES + " tags, got " + tags.size());
+        }
+        Map<String, List<String>> normalized = new HashMap<>();
+        fallbacks.forEach((tag, chain) -> normalized.put(normalize(tag), chain));
+        int[][] chains = new int[tags.size()][];
+        for (int id = 0; id < chains.length; id++) {
+            chains[id] = chain(id, normalized.getOrDefault(tags.get(id), List.of()), ids);
+        }
+        return new LocaleTable(tags.toArray(new String[0]), Collections.unmodifiableMap(ids), chains);
+    }
+
+    private static void add(List<String> tags, Map<String, Integer> ids, String tag) {
+        String normalized = normalize(Objects.requireNonNull(tag, "tag"));
+        if (ids.putIfAbsent(normalized, tags.size()) == null) {
+            tags.add(normalized);
+        }
+    }
+
+    private static int[] chain(int id, List<String> fallbacks, Map<String, Integer> ids) {
+        int[] chain = new int[fallbacks.size() + 2];
+        int length = 0;
+        chain[length++] = id;
+        for (String fallback : fallbacks) {
+            length = append(chain, length, ids.get(normalize(fallback)));
+        }
+        length = append(chain, length, 0);
+        return Arrays.copyOf(chain, length);
+    }
+
+    private static int append(int[] chain, int length, int id) {
+        for (int i = 0; i < length; i++) {
+            if (chain[i] == id) {
+                return length;
+            }
+        }
+        chain[length] = id;
+        return length + 1;
+    }
+
+    /**
+     * Add tags that are not in the table yet. A new tag falls back on the chain of its longest known prefix,
+     * so {@code nb-NO} falls back on {@code nb} and {@code de} only on the default locale.
+     * @param languageTags the tags to add
+     * @return a table with the tags, or this table if it already has them all
+     * @throws IllegalArgumentException if the table would hold more than {@link #MAX_LOCALES} tags
+     */
+    public LocaleTable extend(Collection<String> languageTags) {
+        Map<String, List<String>> fallbacks = null;
+        // Shorter tags first, so a new tag can fall back on a new prefix added in the same call
+        for (String tag : languageTags.stream().map(LocaleTable::normalize).sorted(BY_LENGTH).toList()) {
+            if (ids.containsKey(tag) || fallbacks != null && fallbacks.containsKey(tag)) {
+                continue;
+            }
+            if (fallbacks == null) {
+                fallbacks = toFallbacks();
+            }
+            int separator = tag.lastIndexOf('-');
+            String prefix = separator < 0 ? null : tag.substring(0, separator);
+            List<String> chain = prefix == null ? null : fallbacks.get(prefix);
+            if (chain == null) {
+                fallbacks.put(tag, List.of());
+            } else {
+                List<String> inherited = new ArrayList<>(chain.size() + 1);
+                inherited.add(prefix);
+                inherited.addAll(chain);
+                fallbacks.put(tag, inherited);
+            }
+        }
+        return fallbacks == null ? this : of(fallbacks);
+    }
+
+    private Map<String, List<String>> toFallbacks() {
+        Map<String, List<String>> fallbacks = new LinkedHashMap<>();
+        for (int id = 0; id < tags.length; id++) {
+            fallbacks.put(tags[id], tags(Arrays.copyOfRange(chains[id], 1, chains[id].length)));
+        }
+        return fallbacks;
+    }
+
+    private List<String> tags(int[] localeIds) {
+        List<String> result = new ArrayList<>(localeIds.length);
+        for (int id : localeIds) {
+            result.add(tags[id]);
+        }
+        return result;
+    }
+
+    /**
+     * Normalize a language tag for lookups: lower case, with {@code _} replaced by {@code -}
+     * @param tag a language tag
+     * @return the normalized tag
+     */
+    public static String normalize(String tag) {
+        return tag.replace('_', '-').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Id of a language tag
+     * @param tag the tag, in any case
+     * @return the id, or {@link #NOT_FOUND}
+     */
+    public int id(String tag) {
+        Integer id = tag == null ? null : ids.get(normalize(tag));
+        return id == null ? NOT_FOUND : id;
+    }
+
+    /**
+     * Id of the locale labels should be resolved for: the locale's tag, or the longest known prefix of it, or
+     * the default locale if the table has no match. The id is cached per locale, so after the first lookup of a
+     * locale this is one hash lookup that does not allocate.
+     * @param locale the locale, or null for the default
+     * @return the id
+     */
+    public int resolve(Locale locale) {
+        if (locale == null) {
+            return 0;
+        }
+        Integer cached = resolved.get(locale);
+        if (cached != null) {
+            return cached;
+        }
+        int id = resolveTag(locale.toLanguageTag());
+        if (resolved.size() < MAX_RESOLVED) {
+            resolved.putIfAbsent(locale, id);
+        }
+        return id;
+    }
+
+    private int resolveTag(String tag) {
+        while (true) {
+            int id = id(tag);
+            if (id != NOT_FOUND) {
+                return id;
+            }
+            int separator = tag.lastIndexOf('-');
+            if (separator < 0) {
+                return 0;
+            }
+            tag = tag.substring(0, separator);
+        }
+    }
+
+    /**
+     * Language tag with an id
+     * @param id a locale id
+     * @return the normalized tag
+     */
+    public String tag(int id) {
+        return tags[id];
+    }
+
+    /**
+     * Number of locales in the table
+     * @return the locale count
+     */
+    public int size() {
+        return tags.length;
+    }
+
+    /**
+     * Resolution order for a locale: itself, its fallbacks and the default locale
+     * @param id a locale id
+     * @return the tags in the order they are tried
+     */
+    public List<String> fallbackChain(int id) {
+        return Collections.unmodifiableList(tags(chains[id]));
+    }
+
+    int[] chain(int id) {
+        return chains[id];
+    }
+
+    LocalizedLabels empty() {
+        return empty;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof LocaleTable other && Arrays.equals(tags, other.tags)
+                && Arrays.deepEquals(chains, other.chains);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(tags);
+    }
+
+    @Override
+    public String toString() {
+        return toFallbacks().toString();
+    }
+}
@@ -0,0 +1,176 @@
+package no.sirktek.taxonomy.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Labels of a category or property in every language of a {@link LocaleTable}.
+ * <p>
+ * Labels are held in an array indexed by locale id. Fallbacks are resolved when the instance is built, so the slot
+ * of every locale already holds the label to show for it: the declared label, or the first declared label along
+ * the locale's fallback chain. Looking up a label by locale id is one array read; by {@link Locale}, it first
+ * resolves the locale to its id through a per-table cache, one hash lookup. A bit set records which slots were
+ * declared.
+ * <p>
+ * Equality only considers the declared labels, so two instances with the same labels are equal even if they
+ * were built with different tables.
+ */
+public final class LocalizedLabels {
+
+    private final LocaleTable table;
+    private final String[] labels;
+    private final long declared;
+
+    LocalizedLabels(LocaleTable table, String[] labels, long declared) {
+        this.table = table;
+        this.labels = labels;
+        this.declared = declared;
+    }
+
+    /**
+     * Resolve labels against a table
+     * @param table        the locales to resolve for
+     * @param labelsByTag  declared labels by language tag; null labels are ignored
+     * @return the labels, shared with other empty instances of the table if there are none
+     * @throws IllegalArgumentException if a tag is not in the table
+     */
+    public static LocalizedLabels of(LocaleTable table, Map<String, String> labelsByTag) {
+        String[] declaredLabels = new String[table.size()];
+        long declared = 0L;
+        for (Map.Entry<String, String> entry : labelsByTag.entrySet()) {
+            int id = table.id(entry.getKey());
+            if (id == LocaleTable.NOT_FOUND) {
+                throw new IllegalArgumentException("Language tag '" + entry.getKey() + "' is not in " + table);
+            }
+            if (entry.getValue() != null) {
+                declaredLabels[id] = entry.getValue();
+                declared |= 1L << id;
+            }
+        }
+        if (declared == 0L) {
+            return table.empty();
+        }
+        String[] labels = new String[declaredLabels.length];
+        for (int id = 0; id < labels.length; id++) {
+            for (int fallback : table.chain(id)) {
+                if (declaredLabels[fallback] != null) {
+                    labels[id] = declaredLabels[fallback];
+                    break;
+                }
+            }
+        }
+        return new LocalizedLabels(table, labels, declared);
+    }
+
+    /**
+     * Label to show for a locale, following its fallback chain
+     * @param locale the locale, resolved through {@link LocaleTable#resolve(Locale)}; one the table does not know
+     *               resolves like its language, or like the default
+     * @return the label, or null if neither the locale nor any of its fallbacks has one
+     */
+    public String get(Locale locale) {
+        return labels[table.resolve(locale)];
+    }
+
+    /**
+     * Label to show for a locale id of the table, following its fallback chain
+     * @param localeId a locale id
+     * @return the label, or null if neither the locale nor any of its fallbacks has one
+     */
+    public String get(int localeId) {
+        return labels[localeId];
+    }
+
+    /**
+     * Label declared for exactly one language tag, without fallbacks
+     * @param tag the language tag
+     * @return the label, or null if none was declared for the tag
+     */
+    public String declared(String tag) {
+        int id = table.id(tag);
+        return id != LocaleTable.NOT_FOUND && (declared & 1L << id) != 0 ? labels[id] : null;
+    }
+
+    /**
+     * The declared labels
+     * @return labels by normalized language tag, in table order
+     */
+    public Map<String, String> declared() {
+        Map<String, String> result = new LinkedHashMap<>(Long.bitCount(declared) * 2);
+        for (long bits = declared; bits != 0; bits &= bits - 1) {
+            int id = Long.numberOfTrailingZeros(bits);
+            result.put(table.tag(id), labels[id]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Whether no label was declared
+     * @return true if every locale resolves to null
+     */
+    public boolean isEmpty() {
+        return declared == 0L;
+    }
+
+    /**
+     * The table the labels were resolved against
+     * @return the locale table
+     */
+    public LocaleTable table() {
+        return table;
+    }
+
+    /**
+     * Labels of a category or property built with only English and Norwegian names, against the default table
+     */
+    static LocalizedLabels ofNames(String english, String norwegian) {
+        Map<String, String> labels = new LinkedHashMap<>(4);
+        labels.put("en", english);
+        labels.put("no", norwegian);
+        return of(LocaleTable.defaults(), labels);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LocalizedLabels other)) {
+            return false;
+        }
+        if (table != other.table) {
+            return declared().equals(other.declared());
+        }
+        if (declared != other.declared) {
+            return false;
+        }
+        for (long bits = declared; bits != 0; bits &= bits - 1) {
+            int id = Long.numberOfTrailingZeros(bits);
+            if (!labels[id].equals(other.labels[id])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hash code of the declared labels, equal to that of the {@link #declared()} map
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (long bits = declared; bits != 0; bits &= bits - 1) {
+            int id = Long.numberOfTrailingZeros(bits);
+            hash += table.tag(id).hashCode() ^ labels[id].hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return declared().toString();
+    }
+}
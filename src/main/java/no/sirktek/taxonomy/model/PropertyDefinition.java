@@ -2,6 +2,8 @@ package no.sirktek.taxonomy.model;
 
 import lombok.Builder;
 
+import java.util.Locale;
+
 /**
  * Represents a property definition in the RDF-S taxonomy
  *
@@ -12,6 +14,10 @@ import lombok.Builder;
  * @param rangeType      RDF range type (e.g., xsd:string, xsd:decimal, etc.)
  * @param domainClass    Domain classes this property applies to
  * @param description    Human-readable description
+ * @param propertyType   Type resolved at load time; when null, it is derived from the range type and name with the
+ *                       {@linkplain PropertyTypeResolver#defaults() default rules}
+ * @param labels         Labels in every language of the taxonomy; when null, they are derived from the English and
+ *                       Norwegian labels
  */
 @Builder
 public record PropertyDefinition(
@@ -21,52 +27,54 @@ public record PropertyDefinition(
         String uri,
         String rangeType,
         String domainClass,
-        String description) {
+        String description,
+        PropertyType propertyType,
+        LocalizedLabels labels) {
+
+    /**
+     * Create a property definition, deriving a missing type and missing labels
+     */
+    public PropertyDefinition {
+        if (propertyType == null) {
+            propertyType = PropertyTypeResolver.defaults().resolve(name, rangeType);
+        }
+        if (labels == null) {
+            labels = LocalizedLabels.ofNames(englishLabel, norwegianLabel);
+        }
+    }
+
     /**
-     * Convert RDF range type to PropertyType enum equivalent
+     * Create a property definition with only English and Norwegian labels and the type the default rules give,
+     * as before types were resolved at load time
+     * @param name           property name
+     * @param englishLabel   English label
+     * @param norwegianLabel Norwegian label
+     * @param uri            complete property URI
+     * @param rangeType      RDF range type
+     * @param domainClass    domain class
+     * @param description    human-readable description
+     */
+    public PropertyDefinition(String name, String englishLabel, String norwegianLabel, String uri, String rangeType,
+                              String domainClass, String description) {
+        this(name, englishLabel, norwegianLabel, uri, rangeType, domainClass, description, null, null);
+    }
+
+    /**
+     * Get the property type, resolved when the taxonomy was loaded or derived when the definition was created
      * @return the corresponding PropertyType enum value
      */
     public PropertyType getPropertyType() {
-        if (rangeType == null) {
-            return PropertyType.STRING;
-        }
+        return propertyType;
+    }
 
-        return switch (rangeType) {
-            case "http://www.w3.org/2001/XMLSchema#string" -> {
-                if (name != null) {
-                    if (name.equals("unit")) yield PropertyType.UNIT;
-                    if (name.equals("resourceType")) yield PropertyType.RESOURCE_TYPE;
-                }
-                yield PropertyType.STRING;
-            }
-            case "http://www.w3.org/2001/XMLSchema#decimal" -> {
-                // Need to check property name for specific decimal types
-                if (name != null) {
-                    if (name.contains("weight")) yield PropertyType.DECIMAL_KG;
-                    if (name.contains("volume")) yield PropertyType.DECIMAL_M3;
-                    if (name.contains("length") || name.contains("width") || name.contains("height"))
-                        yield PropertyType.DECIMAL_CM;
-                    if (name.contains("emission")) yield PropertyType.EMISSION;
-                }
-                yield PropertyType.DECIMAL;
-            }
-            case "http://www.w3.org/2001/XMLSchema#date" -> PropertyType.DATE;
-            case "http://www.w3.org/2001/XMLSchema#boolean" -> PropertyType.BOOLEAN;
-            case "http://www.w3.org/2001/XMLSchema#anyURI" -> PropertyType.URL;
-            case "http://www.w3.org/2001/XMLSchema#integer" -> PropertyType.INTEGER;
-            default -> {
-                // Handle custom types
-                if (rangeType.contains("Manufacturer") || rangeType.contains("Furniture")) {
-                    yield PropertyType.CATEGORY;
-                }
-                if (name != null) {
-                    if (name.contains("emission")) yield PropertyType.EMISSION;
-                    if (name.equals("unit")) yield PropertyType.UNIT;
-                    if (name.equals("resourceType")) yield PropertyType.RESOURCE_TYPE;
-                }
-                yield PropertyType.STRING; // Default fallback
-            }
-        };
+    /**
+     * Get the label to show in a language, following the locale's fallback chain, such as nb, no, en
+     * @param locale the language, or null for the default language of the taxonomy
+     * @return the label, or the English label if neither the locale nor any of its fallbacks has one
+     */
+    public String label(Locale locale) {
+        String label = labels.get(locale);
+        return label != null ? label : englishLabel;
     }
 
     /**
@@ -0,0 +1,127 @@
+package no.sirktek.taxonomy.model;
+
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Resolves the {@link PropertyType} of a property from its range type and name with an ordered list of rules.
+ * The first matching rule wins, and properties that match no rule are {@link PropertyType#STRING}.
+ * <p>
+ * The loader resolves every property once while building the taxonomy, so the rules are not evaluated per
+ * {@link PropertyDefinition#getPropertyType()} call. Properties that carry an explicit
+ * {@code furniture:propertyType} annotation in the RDF skip the rules altogether.
+ */
+public final class PropertyTypeResolver {
+
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+    private static final PropertyTypeResolver DEFAULTS = new PropertyTypeResolver(List.of(
+            new Rule(Objects::isNull, any(), PropertyType.STRING),
+            new Rule(is(XSD + "string"), is("unit"), PropertyType.UNIT),
+            new Rule(is(XSD + "string"), is("resourceType"), PropertyType.RESOURCE_TYPE),
+            new Rule(is(XSD + "string"), any(), PropertyType.STRING),
+            new Rule(is(XSD + "decimal"), contains("weight"), PropertyType.DECIMAL_KG),
+            new Rule(is(XSD + "decimal"), contains("volume"), PropertyType.DECIMAL_M3),
+            new Rule(is(XSD + "decimal"), contains("length").or(contains("width")).or(contains("height")),
+                    PropertyType.DECIMAL_CM),
+            new Rule(is(XSD + "decimal"), contains("emission"), PropertyType.EMISSION),
+            new Rule(is(XSD + "decimal"), any(), PropertyType.DECIMAL),
+            new Rule(is(XSD + "date"), any(), PropertyType.DATE),
+            new Rule(is(XSD + "boolean"), any(), PropertyType.BOOLEAN),
+            new Rule(is(XSD + "anyURI"), any(), PropertyType.URL),
+            new Rule(is(XSD + "integer"), any(), PropertyType.INTEGER),
+            new Rule(contains("Manufacturer").or(contains("Furniture")), any(), PropertyType.CATEGORY),
+            new Rule(any(), contains("emission"), PropertyType.EMISSION),
+            new Rule(any(), is("unit"), PropertyType.UNIT),
+            new Rule(any(), is("resourceType"), PropertyType.RESOURCE_TYPE)));
+
+    private final List<Rule> rules;
+
+    private PropertyTypeResolver(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+    }
+
+    /**
+     * The built-in rules for the XSD range types and the furniture property naming conventions
+     * @return the default resolver
+     */
+    public static PropertyTypeResolver defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * A resolver with only the given rules
+     * @param rules the rules, in order of precedence
+     * @return the resolver
+     */
+    public static PropertyTypeResolver of(List<Rule> rules) {
+        return new PropertyTypeResolver(rules);
+    }
+
+    /**
+     * A resolver that tries the given rules before this resolver's own
+     * @param priorityRules the rules to try first, in order of precedence
+     * @return the extended resolver
+     */
+    public PropertyTypeResolver withPriorityRules(List<Rule> priorityRules) {
+        List<Rule> combined = new ArrayList<>(priorityRules.size() + rules.size());
+        combined.addAll(priorityRules);
+        combined.addAll(rules);
+        return new PropertyTypeResolver(combined);
+    }
+
+    /**
+     * Resolve the type of a property
+     * @param name      the property name (local name of its URI), may be null
+     * @param rangeType the range type URI, may be null
+     * @return the type of the first matching rule, or {@link PropertyType#STRING}
+     */
+    public PropertyType resolve(String name, String rangeType) {
+        for (Rule rule : rules) {
+            if (rule.rangeType().test(rangeType) && rule.name().test(name)) {
+                return rule.type();
+            }
+        }
+        return PropertyType.STRING;
+    }
+
+    /**
+     * Matches any value, including null
+     * @return the predicate
+     */
+    public static Predicate<String> any() {
+        return value -> true;
+    }
+
+    /**
+     * Matches one exact value
+     * @param expected the value to match
+     * @return the predicate
+     */
+    public static Predicate<String> is(String expected) {
+        return expected::equals;
+    }
+
+    /**
+     * Matches values that contain a fragment
+     * @param fragment the text to look for
+     * @return the predicate, false for null values
+     */
+    public static Predicate<String> contains(String fragment) {
+        return value -> value != null && value.contains(fragment);
+    }
+
+    /**
+     * A rule assigning a type to properties whose range type and name both match
+     *
+     * @param rangeType predicate on the range type URI, which may be null
+     * @param name      predicate on the property name, which may be null
+     * @param type      the type assigned to matching properties
+     */
+    public record Rule(Predicate<String> rangeType, Predicate<String> name, PropertyType type) {
+    }
+}
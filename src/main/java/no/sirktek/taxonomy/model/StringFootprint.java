@@ -0,0 +1,109 @@
+package no.sirktek.taxonomy.model;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Estimated heap held by the strings of loaded taxonomies: URIs, names, labels, descriptions and range types.
+ * <p>
+ * String instances are counted by identity, so the report shows how much is spent on duplicate copies of equal
+ * values. Sizes assume a 64-bit JVM with compressed oops and compact strings: a 24 byte {@link String} object
+ * plus a byte array of one byte per character for Latin-1 text and two otherwise.
+ *
+ * @param references     number of non-null string fields in all categories and properties
+ * @param instances      number of distinct string objects those fields point to
+ * @param distinctValues number of distinct string values
+ * @param bytes          estimated bytes held by the string objects
+ * @param minimumBytes   estimated bytes if every value were held by a single instance
+ */
+public record StringFootprint(int references, int instances, int distinctValues, long bytes, long minimumBytes) {
+
+    private static final int STRING_OBJECT_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * Measure the strings of one taxonomy
+     * @param tree the taxonomy
+     * @return the footprint
+     */
+    public static StringFootprint of(TaxonomyTree tree) {
+        return of(List.of(tree));
+    }
+
+    /**
+     * Measure the strings of several taxonomies held at the same time, such as the versions of many tenants
+     * @param trees the taxonomies
+     * @return the combined footprint
+     */
+    public static StringFootprint of(Collection<TaxonomyTree> trees) {
+        Map<String, Boolean> instances = new IdentityHashMap<>();
+        Set<String> values = new HashSet<>();
+        Map<PropertyDefinition, Boolean> seenProperties = new IdentityHashMap<>();
+        int[] references = new int[1];
+        Consumer<String> sink = value -> {
+            if (value != null) {
+                references[0]++;
+                instances.put(value, Boolean.TRUE);
+                values.add(value);
+            }
+        };
+        for (TaxonomyTree tree : trees) {
+            TaxonomyIndex index = tree.index();
+            for (int id = 0; id < index.size(); id++) {
+                CategoryInfo category = index.node(id);
+                sink.accept(category.className());
+                sink.accept(category.englishName());
+                sink.accept(category.norwegianName());
+                sink.accept(category.description());
+                sink.accept(category.parentClassName());
+                sink.accept(category.uri());
+                for (PropertyDefinition property : category.properties()) {
+                    if (seenProperties.put(property, Boolean.TRUE) == null) {
+                        sink.accept(property.name());
+                        sink.accept(property.englishLabel());
+                        sink.accept(property.norwegianLabel());
+                        sink.accept(property.uri());
+                        sink.accept(property.rangeType());
+                        sink.accept(property.domainClass());
+                        sink.accept(property.description());
+                    }
+                }
+            }
+        }
+
+        long bytes = 0;
+        for (String value : instances.keySet()) {
+            bytes += sizeOf(value);
+        }
+        long minimumBytes = 0;
+        for (String value : values) {
+            minimumBytes += sizeOf(value);
+        }
+        return new StringFootprint(references[0], instances.size(), values.size(), bytes, minimumBytes);
+    }
+
+    /**
+     * Estimated bytes spent on duplicate copies of equal values
+     * @return {@link #bytes()} minus {@link #minimumBytes()}
+     */
+    public long duplicateBytes() {
+        return bytes - minimumBytes;
+    }
+
+    static long sizeOf(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        long array = ARRAY_HEADER_BYTES + (long) value.length() * bytesPerChar;
+        return STRING_OBJECT_BYTES + (array + 7) / 8 * 8;
+    }
+}
@@ -0,0 +1,609 @@
+package no.sirktek.taxonomy.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable hash index over all categories of a {@link TaxonomyTree}.
+ * <p>
+ * The index is built once, with an iterative pre-order traversal, when the tree is created. Every
+ * category gets a dense node id equal to its pre-order position, so the descendants of a node are exactly
+ * the ids in {@code [id + 1, subtreeEnd(id))}. Subsumption checks are therefore two integer comparisons,
+ * and lookups are plain hash map reads that do not allocate. The index of a changed version of the tree can be
+ * derived from the previous one with {@link #derive(List)}, which copies unchanged subtrees over as id ranges.
+ */
+public final class TaxonomyIndex {
+
+    /** Node id returned when a category is not in the index */
+    public static final int NOT_FOUND = -1;
+
+    private final CategoryInfo[] nodes;
+    private final int[] parents;
+    private final int[] depths;
+    private final int[] subtreeEnds;
+    private final List<PropertyDefinition>[] effectiveProperties;
+    private final int[] slots;
+    private final int[] idsOfSlots;
+    private final KeyIndex byClassName;
+    private final KeyIndex byUri;
+    private final KeyIndex byLabel;
+
+    private TaxonomyIndex(CategoryInfo[] nodes, int[] parents, int[] depths, int[] subtreeEnds,
+                          List<PropertyDefinition>[] effectiveProperties,
+                          int[] slots, int[] idsOfSlots,
+                          KeyIndex byClassName,
+                          KeyIndex byUri,
+                          KeyIndex byLabel) {
+        this.nodes = nodes;
+        this.parents = parents;
+        this.depths = depths;
+        this.subtreeEnds = subtreeEnds;
+        this.effectiveProperties = effectiveProperties;
+        this.slots = slots;
+        this.idsOfSlots = idsOfSlots;
+        this.byClassName = byClassName;
+        this.byUri = byUri;
+        this.byLabel = byLabel;
+    }
+
+    /**
+     * Build an index over the given root categories and all their descendants.
+     * Labels of every language share one hash index; when several categories share a label, the first one in
+     * pre-order wins.
+     *
+     * @param rootCategories the top-level categories of the tree
+     * @return the index
+     */
+    public static TaxonomyIndex of(List<CategoryInfo> rootCategories) {
+        List<CategoryInfo> preOrder = new ArrayList<>();
+        List<Integer> parentIds = new ArrayList<>();
+
+        Deque<CategoryInfo> stack = new ArrayDeque<>();
+        Deque<Integer> parentStack = new ArrayDeque<>();
+        pushReversed(stack, parentStack, rootCategories, NOT_FOUND);
+        while (!stack.isEmpty()) {
+            CategoryInfo category = stack.pop();
+            int id = preOrder.size();
+            preOrder.add(category);
+            parentIds.add(parentStack.pop());
+            pushReversed(stack, parentStack, category.children(), id);
+        }
+
+        int size = preOrder.size();
+        CategoryInfo[] nodes = preOrder.toArray(new CategoryInfo[0]);
+        int[] parents = new int[size];
+        int[] depths = new int[size];
+        int[] subtreeEnds = new int[size];
+        for (int id = 0; id < size; id++) {
+            parents[id] = parentIds.get(id);
+            depths[id] = parents[id] == NOT_FOUND ? 0 : depths[parents[id]] + 1;
+            subtreeEnds[id] = id + 1;
+        }
+        // Children come after their parent in pre-order, so a backwards pass sees complete subtrees
+        for (int id = size - 1; id >= 0; id--) {
+            if (parents[id] != NOT_FOUND) {
+                subtreeEnds[parents[id]] = Math.max(subtreeEnds[parents[id]], subtreeEnds[id]);
+            }
+        }
+
+        // A fresh index numbers the key slots like the nodes
+        int[] slots = new int[size];
+        Arrays.setAll(slots, id -> id);
+        return new TaxonomyIndex(nodes, parents, depths, subtreeEnds, effectiveProperties(nodes, parents, subtreeEnds),
+                slots, slots,
+                KeyIndex.of(nodes, TaxonomyIndex::classNameOf),
+                KeyIndex.of(nodes, TaxonomyIndex::uriOf),
+                KeyIndex.of(nodes, TaxonomyIndex::labelsOf));
+    }
+
+    /**
+     * Index a tree derived from the tree of this index, such as a patched version of it.
+     * <p>
+     * Subtrees the new tree shares with this one, as the same {@link CategoryInfo} instances, are copied over
+     * as id ranges, along with their key slots and, where nothing above them changed, their effective property
+     * lists. Only the categories that differ are indexed one by one: their properties are resolved and their
+     * keys hashed, and the key lookups share their hash maps with this index apart from those keys.
+     * <p>
+     * The per-version columns are still flat arrays, so deriving copies them in bulk and moves the parent,
+     * depth and subtree end of every shared node by a constant. That residual is linear in the size of the
+     * taxonomy, a few array writes per node without hashing or allocation; the rest of the work grows with the
+     * size of the change. The result answers every query like {@link #of(List)} on the same roots would; this
+     * index is left untouched.
+     *
+     * @param rootCategories the top-level categories of the new tree
+     * @return the index of the new tree
+     */
+    public TaxonomyIndex derive(List<CategoryInfo> rootCategories) {
+        return new Derivation(this).derive(rootCategories);
+    }
+
+    /**
+     * Effective property lists, built top-down so each node can share its parent's list
+     */
+    private static List<PropertyDefinition>[] effectiveProperties(CategoryInfo[] nodes, int[] parents, int[] subtreeEnds) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<PropertyDefinition>[] effectiveProperties = new List[nodes.length];
+        // The ancestors of the current node, innermost first, and how often each property name is declared
+        // among them; together they cost one update per declaration over the whole pass
+        Deque<Integer> open = new ArrayDeque<>();
+        Map<String, Integer> declaredAbove = new HashMap<>();
+        for (int id = 0; id < nodes.length; id++) {
+            while (!open.isEmpty() && subtreeEnds[open.peek()] <= id) {
+                for (PropertyDefinition property : ownProperties(nodes[open.pop()])) {
+                    if (property.name() != null) {
+                        declaredAbove.computeIfPresent(property.name(), (name, count) -> count == 1 ? null : count - 1);
+                    }
+                }
+            }
+            // Parents precede their children, so the inherited list is always complete here
+            List<PropertyDefinition> inherited = parents[id] == NOT_FOUND ? List.of() : effectiveProperties[parents[id]];
+            List<PropertyDefinition> own = ownProperties(nodes[id]);
+            boolean overrides = false;
+            for (PropertyDefinition property : own) {
+                overrides |= property.name() != null && declaredAbove.containsKey(property.name());
+            }
+            effectiveProperties[id] = overrides
+                    ? InheritedPropertyList.overriding(inherited, own)
+                    : InheritedPropertyList.of(inherited, own);
+            for (PropertyDefinition property : own) {
+                if (property.name() != null) {
+                    declaredAbove.merge(property.name(), 1, Integer::sum);
+                }
+            }
+            open.push(id);
+        }
+        return effectiveProperties;
+    }
+
+    private List<PropertyDefinition> inheritedProperties(int id) {
+        return parents[id] == NOT_FOUND ? List.of() : effectiveProperties[parents[id]];
+    }
+
+    private static List<PropertyDefinition> ownProperties(CategoryInfo category) {
+        return category.properties() == null ? List.of() : category.properties();
+    }
+
+    /**
+     * Effective properties of a node from its parent's, for nodes indexed one by one. The names declared above
+     * a node are exactly those in its parent's effective list, since an override keeps the name.
+     */
+    private static List<PropertyDefinition> effectiveProperties(List<PropertyDefinition> inherited,
+                                                                List<PropertyDefinition> own) {
+        if (own.isEmpty() || inherited.isEmpty()) {
+            return InheritedPropertyList.of(inherited, own);
+        }
+        Set<String> declaredAbove = new HashSet<>();
+        for (PropertyDefinition property : inherited) {
+            declaredAbove.add(property.name());
+        }
+        for (PropertyDefinition property : own) {
+            if (property.name() != null && declaredAbove.contains(property.name())) {
+                return InheritedPropertyList.overriding(inherited, own);
+            }
+        }
+        return InheritedPropertyList.of(inherited, own);
+    }
+
+    private static List<String> classNameOf(CategoryInfo category) {
+        return List.of(category.className());
+    }
+
+    private static List<String> uriOf(CategoryInfo category) {
+        return category.uri() == null ? List.of() : List.of(category.uri());
+    }
+
+    private static List<String> labelsOf(CategoryInfo category) {
+        List<String> labels = new ArrayList<>(2);
+        if (category.labels() != null) {
+            labels.addAll(category.labels().declared().values());
+        }
+        if (category.englishName() != null) {
+            labels.add(category.englishName());
+        }
+        if (category.norwegianName() != null) {
+            labels.add(category.norwegianName());
+        }
+        return labels;
+    }
+
+    private static void pushReversed(Deque<CategoryInfo> stack, Deque<Integer> parentStack,
+                                     List<CategoryInfo> categories, int parentId) {
+        if (categories == null) {
+            return;
+        }
+        for (int i = categories.size() - 1; i >= 0; i--) {
+            stack.push(categories.get(i));
+            parentStack.push(parentId);
+        }
+    }
+
+    /**
+     * Find a category by its class name (URI fragment)
+     * @param className the class name to look up
+     * @return the category, or null if not present
+     */
+    public CategoryInfo findByClassName(String className) {
+        return nodeOrNull(byClassName.id(className, idsOfSlots));
+    }
+
+    /**
+     * Find a category by its complete URI
+     * @param uri the URI to look up
+     * @return the category, or null if not present
+     */
+    public CategoryInfo findByUri(String uri) {
+        return nodeOrNull(byUri.id(uri, idsOfSlots));
+    }
+
+    /**
+     * Find a category by its exact label in any language
+     * @param label the label to look up
+     * @return the category, or null if not present
+     */
+    public CategoryInfo findByLabel(String label) {
+        return nodeOrNull(byLabel.id(label, idsOfSlots));
+    }
+
+    private CategoryInfo nodeOrNull(int id) {
+        return id == NOT_FOUND ? null : nodes[id];
+    }
+
+    /**
+     * Number of categories in the indexed tree
+     * @return the total category count
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Node id (pre-order position) of a class name
+     * @param className the class name to look up
+     * @return the node id, or {@link #NOT_FOUND}
+     */
+    public int idOf(String className) {
+        return byClassName.id(className, idsOfSlots);
+    }
+
+    /**
+     * Node id of a complete class URI
+     * @param uri the URI to look up
+     * @return the node id, or {@link #NOT_FOUND}
+     */
+    public int idOfUri(String uri) {
+        return byUri.id(uri, idsOfSlots);
+    }
+
+    /**
+     * Node id of an exact label in any language
+     * @param label the label to look up
+     * @return the node id, or {@link #NOT_FOUND}
+     */
+    public int idOfLabel(String label) {
+        return byLabel.id(label, idsOfSlots);
+    }
+
+    /**
+     * Category with the given node id
+     * @param id a node id between 0 and {@link #size()}
+     * @return the category
+     */
+    public CategoryInfo node(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Node id of the parent of a node
+     * @param id a node id
+     * @return the parent's node id, or {@link #NOT_FOUND} for roots
+     */
+    public int parentOf(int id) {
+        return parents[id];
+    }
+
+    /**
+     * Depth of a node, 0 for roots
+     * @param id a node id
+     * @return the number of ancestors of the node
+     */
+    public int depthOf(int id) {
+        return depths[id];
+    }
+
+    /**
+     * Exclusive end of the pre-order interval covered by a node's subtree
+     * @param id a node id
+     * @return the first node id after the node's last descendant
+     */
+    public int subtreeEnd(int id) {
+        return subtreeEnds[id];
+    }
+
+    /**
+     * Properties that apply to a node: those inherited along the {@code rdfs:subClassOf} chain, root first,
+     * followed by the node's own. An own property overrides an inherited one with the same name.
+     * Lists are shared with the parent's wherever the node adds nothing.
+     * @param id a node id
+     * @return the effective properties, unmodifiable
+     */
+    public List<PropertyDefinition> effectiveProperties(int id) {
+        return effectiveProperties[id];
+    }
+
+    /**
+     * Whether a node is a (reflexive, transitive) subclass of another
+     * @param id         the candidate subclass
+     * @param ancestorId the candidate superclass
+     * @return true if {@code id} is {@code ancestorId} or one of its descendants
+     */
+    public boolean isSubclassOf(int id, int ancestorId) {
+        return ancestorId <= id && id < subtreeEnds[ancestorId];
+    }
+
+    /**
+     * Ancestors of a node, nearest first
+     * @param id a node id
+     * @return the parent, grandparent and so on up to the root
+     */
+    public List<CategoryInfo> ancestors(int id) {
+        List<CategoryInfo> ancestors = new ArrayList<>(depths[id]);
+        for (int current = parents[id]; current != NOT_FOUND; current = parents[current]) {
+            ancestors.add(nodes[current]);
+        }
+        return Collections.unmodifiableList(ancestors);
+    }
+
+    /**
+     * All descendants of a node in pre-order, as a view over the index without copying
+     * @param id a node id
+     * @return the node's descendants, not including the node itself
+     */
+    public List<CategoryInfo> descendants(int id) {
+        return Collections.unmodifiableList(Arrays.asList(nodes).subList(id + 1, subtreeEnds[id]));
+    }
+
+    /**
+     * Lowest common ancestor of two nodes, which may be one of the nodes themselves
+     * @param a a node id
+     * @param b another node id
+     * @return the node id of the deepest node both are subclasses of, or {@link #NOT_FOUND} if they are in different trees
+     */
+    public int lowestCommonAncestor(int a, int b) {
+        int current = a;
+        while (current != NOT_FOUND && !isSubclassOf(b, current)) {
+            current = parents[current];
+        }
+        return current;
+    }
+
+    /**
+     * Builds the index of a derived tree from a previous index, see {@link #derive(List)}
+     */
+    private static final class Derivation {
+
+        private final TaxonomyIndex previous;
+        /** Previous node ids already matched to a node of the new tree */
+        private final BitSet claimed;
+        private CategoryInfo[] nodes;
+        private int[] parents;
+        private int[] depths;
+        private int[] subtreeEnds;
+        private List<PropertyDefinition>[] effectiveProperties;
+        private int[] slots;
+        private int[] idsOfSlots;
+        private int slotCount;
+        /** Nodes indexed one by one, in pre-order */
+        private int[] added;
+        private int addedCount;
+        /** Id in the previous index of each node indexed one by one, {@link #NOT_FOUND} for new categories */
+        private int[] previousIds;
+        private int size;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Derivation(TaxonomyIndex previous) {
+            this.previous = previous;
+            this.claimed = new BitSet(previous.size());
+            int capacity = previous.size() + 16;
+            nodes = new CategoryInfo[capacity];
+            parents = new int[capacity];
+            depths = new int[capacity];
+            subtreeEnds = new int[capacity];
+            effectiveProperties = new List[capacity];
+            slots = new int[capacity];
+            previousIds = new int[capacity];
+            added = new int[16];
+            slotCount = previous.idsOfSlots.length;
+            idsOfSlots = new int[slotCount + 16];
+            Arrays.fill(idsOfSlots, NOT_FOUND);
+        }
+
+        TaxonomyIndex derive(List<CategoryInfo> rootCategories) {
+            Deque<CategoryInfo> stack = new ArrayDeque<>();
+            Deque<Integer> parentStack = new ArrayDeque<>();
+            // Nodes indexed one by one whose subtree is still being filled, innermost first. Only their children
+            // are pushed, so the parent of every popped category is one of them, or none for roots.
+            Deque<Integer> open = new ArrayDeque<>();
+            pushReversed(stack, parentStack, rootCategories, NOT_FOUND);
+            while (!stack.isEmpty()) {
+                CategoryInfo category = stack.pop();
+                int parent = parentStack.pop();
+                while (!open.isEmpty() && open.peek() != parent) {
+                    subtreeEnds[open.pop()] = size;
+                }
+                int previousId = claim(category);
+                if (previousId != NOT_FOUND && previous.nodes[previousId] == category && unclaimedBelow(previousId)) {
+                    copySubtree(previousId, parent);
+                } else {
+                    add(category, parent, previousId);
+                    open.push(size - 1);
+                    pushReversed(stack, parentStack, category.children(), size - 1);
+                }
+            }
+            while (!open.isEmpty()) {
+                subtreeEnds[open.pop()] = size;
+            }
+
+            if (slotCount > 2 * size + 64) {
+                // Mostly slots of removed categories: number them afresh
+                return of(rootCategories);
+            }
+            return new TaxonomyIndex(Arrays.copyOf(nodes, size), Arrays.copyOf(parents, size),
+                    Arrays.copyOf(depths, size), Arrays.copyOf(subtreeEnds, size),
+                    Arrays.copyOf(effectiveProperties, size),
+                    Arrays.copyOf(slots, size), Arrays.copyOf(idsOfSlots, slotCount),
+                    rekey(previous.byClassName, TaxonomyIndex::classNameOf),
+                    rekey(previous.byUri, TaxonomyIndex::uriOf),
+                    rekey(previous.byLabel, TaxonomyIndex::labelsOf));
+        }
+
+        /**
+         * Match a category to an unclaimed node of the previous index with the same class name
+         */
+        private int claim(CategoryInfo category) {
+            int previousId = previous.idOf(category.className());
+            if (previousId == NOT_FOUND || claimed.get(previousId)) {
+                return NOT_FOUND;
+            }
+            claimed.set(previousId);
+            return previousId;
+        }
+
+        /**
+         * Whether none of the previous descendants of a node were matched elsewhere, which only happens when
+         * class names are not unique
+         */
+        private boolean unclaimedBelow(int previousId) {
+            int next = claimed.nextSetBit(previousId + 1);
+            return next == -1 || next >= previous.subtreeEnds[previousId];
+        }
+
+        /**
+         * Copy a shared subtree over as one id range. Its nodes, slots and, unless its inherited properties
+         * changed, effective property lists are copied in bulk; the links within the range only move by a
+         * constant, which is the one write per node and array left for shared subtrees.
+         */
+        private void copySubtree(int previousId, int parent) {
+            int end = previous.subtreeEnds[previousId];
+            int length = end - previousId;
+            ensureCapacity(size + length);
+            int shift = size - previousId;
+            int depthShift = (parent == NOT_FOUND ? 0 : depths[parent] + 1) - previous.depths[previousId];
+            System.arraycopy(previous.nodes, previousId, nodes, size, length);
+            System.arraycopy(previous.slots, previousId, slots, size, length);
+            for (int i = 0; i < length; i++) {
+                int id = previousId + i;
+                parents[size + i] = i == 0 ? parent : previous.parents[id] + shift;
+                depths[size + i] = previous.depths[id] + depthShift;
+                subtreeEnds[size + i] = previous.subtreeEnds[id] + shift;
+                idsOfSlots[previous.slots[id]] = size + i;
+            }
+
+            List<PropertyDefinition> inherited = parent == NOT_FOUND ? List.of() : effectiveProperties[parent];
+            if (inherited == previous.inheritedProperties(previousId)) {
+                System.arraycopy(previous.effectiveProperties, previousId, effectiveProperties, size, length);
+            } else {
+                // A change above the subtree reaches every list in it that does not override it
+                for (int i = 0; i < length; i++) {
+                    int id = size + i;
+                    List<PropertyDefinition> above = i == 0 ? inherited : effectiveProperties[parents[id]];
+                    effectiveProperties[id] = effectiveProperties(nodes[id], above, previousId + i);
+                }
+            }
+            claimed.set(previousId, end);
+            size += length;
+        }
+
+        private void add(CategoryInfo category, int parent, int previousId) {
+            ensureCapacity(size + 1);
+            nodes[size] = category;
+            parents[size] = parent;
+            depths[size] = parent == NOT_FOUND ? 0 : depths[parent] + 1;
+            subtreeEnds[size] = size + 1;
+            effectiveProperties[size] = effectiveProperties(category,
+                    parent == NOT_FOUND ? List.of() : effectiveProperties[parent], previousId);
+            slots[size] = previousId == NOT_FOUND ? newSlot() : previous.slots[previousId];
+            idsOfSlots[slots[size]] = size;
+            previousIds[size] = previousId;
+            if (addedCount == added.length) {
+                added = Arrays.copyOf(added, addedCount * 2);
+            }
+            added[addedCount++] = size;
+            size++;
+        }
+
+        /**
+         * Effective property list of a node, reusing its previous list when both its own properties and its
+         * inherited list are unchanged
+         */
+        private List<PropertyDefinition> effectiveProperties(CategoryInfo category, List<PropertyDefinition> inherited,
+                                                             int previousId) {
+            List<PropertyDefinition> own = ownProperties(category);
+            if (previousId != NOT_FOUND && own == ownProperties(previous.nodes[previousId])
+                    && inherited == previous.inheritedProperties(previousId)) {
+                return previous.effectiveProperties[previousId];
+            }
+            return TaxonomyIndex.effectiveProperties(inherited, own);
+        }
+
+        private int newSlot() {
+            if (slotCount == idsOfSlots.length) {
+                int grown = idsOfSlots.length * 2;
+                idsOfSlots = Arrays.copyOf(idsOfSlots, grown);
+                Arrays.fill(idsOfSlots, slotCount, grown, NOT_FOUND);
+            }
+            return slotCount++;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > nodes.length) {
+                int grown = Math.max(capacity, nodes.length * 2);
+                nodes = Arrays.copyOf(nodes, grown);
+                parents = Arrays.copyOf(parents, grown);
+                depths = Arrays.copyOf(depths, grown);
+                subtreeEnds = Arrays.copyOf(subtreeEnds, grown);
+                effectiveProperties = Arrays.copyOf(effectiveProperties, grown);
+                slots = Arrays.copyOf(slots, grown);
+                previousIds = Arrays.copyOf(previousIds, grown);
+            }
+        }
+
+        /**
+         * Key index of the new tree: the keys of every node indexed one by one are compared with those it had
+         * before, and removed nodes drop theirs. Shared subtrees keep their slots, so their keys are not touched.
+         */
+        private KeyIndex rekey(KeyIndex keys, Function<CategoryInfo, List<String>> keysOf) {
+            KeyIndex.Editor editor = keys.edit();
+            for (int i = 0; i < addedCount; i++) {
+                int id = added[i];
+                int previousId = previousIds[id];
+                CategoryInfo before = previousId == NOT_FOUND ? null : previous.nodes[previousId];
+                if (before != nodes[id]) {
+                    Set<String> removed = before == null ? new HashSet<>() : new HashSet<>(keysOf.apply(before));
+                    for (String key : keysOf.apply(nodes[id])) {
+                        if (!removed.remove(key)) {
+                            editor.add(key, slots[id]);
+                        }
+                    }
+                    for (String key : removed) {
+                        editor.remove(key, slots[id]);
+                    }
+                }
+            }
+            for (int id = claimed.nextClearBit(0); id < previous.size(); id = claimed.nextClearBit(id + 1)) {
+                int slot = previous.slots[id];
+                keysOf.apply(previous.nodes[id]).forEach(key -> editor.remove(key, slot));
+            }
+            return editor.build();
+        }
+    }
+}
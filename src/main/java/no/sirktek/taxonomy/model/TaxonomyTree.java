@@ -3,37 +3,91 @@ package no.sirktek.taxonomy.model;
 import lombok.Builder;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents a complete taxonomy tree with root categories and their hierarchical children
  *
  * @param rootCategories the top-level categories in the taxonomy tree
+ * @param index          hash index over every category in the tree, built once on creation
  */
-@Builder
 public record TaxonomyTree(
-        List<CategoryInfo> rootCategories
+        List<CategoryInfo> rootCategories,
+        TaxonomyIndex index
 ) {
+    /**
+     * Canonical constructor, builds the index when none is given
+     * @param rootCategories the top-level categories in the taxonomy tree
+     * @param index          index over the tree, or null to build it from the root categories
+     */
+    public TaxonomyTree {
+        if (index == null) {
+            index = TaxonomyIndex.of(rootCategories);
+        }
+    }
+
+    /**
+     * Create a tree from its root categories and index it
+     * @param rootCategories the top-level categories in the taxonomy tree
+     */
+    @Builder
+    public TaxonomyTree(List<CategoryInfo> rootCategories) {
+        this(rootCategories, null);
+    }
+
     /**
      * Find a category by its English class name (URI fragment)
      * @param className the English class name to search for
      * @return the category info if found, null otherwise
      */
     public CategoryInfo findByClassName(String className) {
-        return findCategoryRecursively(rootCategories, className);
+        return index.findByClassName(className);
     }
 
+    /**
+     * Find a category by its complete URI
+     * @param uri the URI to search for
+     * @return the category info if found, null otherwise
+     */
+    public CategoryInfo findByUri(String uri) {
+        return index.findByUri(uri);
+    }
 
-    private CategoryInfo findCategoryRecursively(List<CategoryInfo> categories, String className) {
-        for (CategoryInfo category : categories) {
-            if (category.className().equals(className)) {
-                return category;
-            }
-            CategoryInfo found = findCategoryRecursively(category.children(), className);
-            if (found != null) {
-                return found;
-            }
-        }
-        return null;
+    /**
+     * Find a category by its exact label in any language
+     * @param label the label to search for
+     * @return the category info if found, null otherwise
+     */
+    public CategoryInfo findByLabel(String label) {
+        return index.findByLabel(label);
+    }
+
+    /**
+     * Check whether a class name exists in the tree
+     * @param className the English class name to check
+     * @return true if the class exists
+     */
+    public boolean containsClassName(String className) {
+        return index.findByClassName(className) != null;
     }
 
-}
\ No newline at end of file
+    /**
+     * Trees are equal when their root categories are equal; the derived index is ignored
+     * @param o the object to compare with
+     * @return true if the other object is a tree with equal root categories
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TaxonomyTree other && Objects.equals(rootCategories, other.rootCategories);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(rootCategories);
+    }
+
+    @Override
+    public String toString() {
+        return "TaxonomyTree[rootCategories=" + rootCategories + "]";
+    }
+}
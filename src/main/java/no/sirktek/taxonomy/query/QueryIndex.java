@@ -0,0 +1,362 @@
+package no.sirktek.taxonomy.query;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import no.sirktek.taxonomy.search.SuggestIndex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Runs {@link TaxonomyQuery} filters against precomputed columns of a taxonomy index.
+ * <p>
+ * Categories are addressed by their pre-order node id, so the descendants of a category are one contiguous id
+ * range. Because a property is inherited by a whole subtree, the categories having an effective property are a
+ * short list of id runs, kept per property name, per name and type, and per type; a declaration that overrides
+ * an inherited property splits its ancestor's run. Leaves are kept as a sorted id array and the labels of every
+ * language as normalized keys. A query is compiled into the narrowest of these candidate lists, intersecting
+ * property runs with the leaves when it asks for both, which is then walked in id order with the remaining
+ * criteria checked per candidate, stopping as soon as the limit is reached.
+ * <p>
+ * The index is immutable and safe for concurrent queries.
+ */
+public final class QueryIndex {
+
+    private static final Runs NO_RUNS = new Runs(new int[0], new int[0]);
+
+    private final TaxonomyIndex taxonomy;
+    private final int[] leaves;
+    // Normalized keys of the labels of each category, in every language
+    private final String[][] labelKeys;
+    private final Map<String, Runs> byName;
+    private final Map<String, Map<PropertyType, Runs>> byNameAndType;
+    private final Map<PropertyType, Runs> byType;
+
+    private QueryIndex(TaxonomyIndex taxonomy, int[] leaves, String[][] labelKeys,
+                       Map<String, Runs> byName, Map<String, Map<PropertyType, Runs>> byNameAndType,
+                       Map<PropertyType, Runs> byType) {
+        this.taxonomy = taxonomy;
+        this.leaves = leaves;
+        this.labelKeys = labelKeys;
+        this.byName = byName;
+        this.byNameAndType = byNameAndType;
+        this.byType = byType;
+    }
+
+    /**
+     * Build the query columns of a taxonomy
+     * @param taxonomy the taxonomy index
+     * @return the query index
+     */
+    public static QueryIndex of(TaxonomyIndex taxonomy) {
+        int size = taxonomy.size();
+        int[] leafIds = new int[size];
+        int leafCount = 0;
+        String[][] labelKeys = new String[size][];
+        Map<String, List<Segment>> declarations = new HashMap<>();
+        for (int id = 0; id < size; id++) {
+            int end = taxonomy.subtreeEnd(id);
+            if (end == id + 1) {
+                leafIds[leafCount++] = id;
+            }
+            CategoryInfo category = taxonomy.node(id);
+            labelKeys[id] = keys(category);
+            if (category.properties() != null) {
+                for (PropertyDefinition property : category.properties()) {
+                    if (property.name() != null) {
+                        declarations.computeIfAbsent(property.name(), k -> new ArrayList<>(1))
+                                .add(new Segment(id, end, property.getPropertyType()));
+                    }
+                }
+            }
+        }
+
+        Map<String, Runs> byName = new HashMap<>(declarations.size() * 2);
+        Map<String, Map<PropertyType, Runs>> byNameAndType = new HashMap<>(declarations.size() * 2);
+        Map<PropertyType, List<Segment>> segmentsByType = new EnumMap<>(PropertyType.class);
+        for (Map.Entry<String, List<Segment>> entry : declarations.entrySet()) {
+            List<Segment> segments = paint(entry.getValue());
+            byName.put(entry.getKey(), Runs.of(segments));
+            Map<PropertyType, List<Segment>> typed = new EnumMap<>(PropertyType.class);
+            for (Segment segment : segments) {
+                typed.computeIfAbsent(segment.type(), k -> new ArrayList<>()).add(segment);
+                segmentsByType.computeIfAbsent(segment.type(), k -> new ArrayList<>()).add(segment);
+            }
+            Map<PropertyType, Runs> runs = new EnumMap<>(PropertyType.class);
+            typed.forEach((type, typeSegments) -> runs.put(type, Runs.of(typeSegments)));
+            byNameAndType.put(entry.getKey(), runs);
+        }
+        Map<PropertyType, Runs> byType = new EnumMap<>(PropertyType.class);
+        segmentsByType.forEach((type, segments) -> {
+            segments.sort(Comparator.comparingInt(Segment::start));
+            byType.put(type, Runs.of(segments));
+        });
+
+        return new QueryIndex(taxonomy, Arrays.copyOf(leafIds, leafCount), labelKeys,
+                byName, byNameAndType, byType);
+    }
+
+    /**
+     * Distinct normalized keys of the English and Norwegian names and of every declared label of a category
+     */
+    private static String[] keys(CategoryInfo category) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKey(keys, category.englishName());
+        addKey(keys, category.norwegianName());
+        if (category.labels() != null) {
+            category.labels().declared().values().forEach(label -> addKey(keys, label));
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    private static void addKey(Set<String> keys, String label) {
+        if (label != null) {
+            keys.add(SuggestIndex.normalize(label));
+        }
+    }
+
+    /**
+     * Turn the subtrees declaring one property, in pre-order, into disjoint id segments, each with the type of
+     * the innermost declaration covering it
+     */
+    private static List<Segment> paint(List<Segment> declarations) {
+        List<Segment> segments = new ArrayList<>(declarations.size());
+        Deque<Segment> open = new ArrayDeque<>();
+        int cursor = 0;
+        for (Segment declaration : declarations) {
+            while (!open.isEmpty() && open.peek().end() <= declaration.start()) {
+                cursor = close(segments, open.pop(), cursor);
+            }
+            if (!open.isEmpty() && cursor < declaration.start()) {
+                segments.add(new Segment(cursor, declaration.start(), open.peek().type()));
+            }
+            cursor = declaration.start();
+            open.push(declaration);
+        }
+        while (!open.isEmpty()) {
+            cursor = close(segments, open.pop(), cursor);
+        }
+        return segments;
+    }
+
+    private static int close(List<Segment> segments, Segment declaration, int cursor) {
+        if (cursor < declaration.end()) {
+            segments.add(new Segment(cursor, declaration.end(), declaration.type()));
+            return declaration.end();
+        }
+        return cursor;
+    }
+
+    /**
+     * Find the categories matching a query
+     * @param query the query
+     * @return matching categories in pre-order, at most {@link TaxonomyQuery#limit()} of them
+     */
+    public List<CategoryInfo> find(TaxonomyQuery query) {
+        List<CategoryInfo> matches = new ArrayList<>(Math.min(query.limit(), 16));
+        run(query, id -> matches.add(taxonomy.node(id)));
+        return matches;
+    }
+
+    /**
+     * Count the categories matching a query
+     * @param query the query
+     * @return the number of matches, at most {@link TaxonomyQuery#limit()}
+     */
+    public int count(TaxonomyQuery query) {
+        return run(query, id -> true);
+    }
+
+    /**
+     * Pass the node ids of the categories matching a query to a visitor, in pre-order
+     * @param query   the query
+     * @param visitor receives each matching node id and returns false to stop early
+     * @return the number of ids passed to the visitor
+     */
+    public int run(TaxonomyQuery query, IntPredicate visitor) {
+        int from = 0;
+        int to = taxonomy.size();
+        if (query.descendantOf() != null) {
+            int ancestor = taxonomy.idOf(query.descendantOf());
+            if (ancestor == TaxonomyIndex.NOT_FOUND) {
+                return 0;
+            }
+            from = ancestor + 1;
+            to = taxonomy.subtreeEnd(ancestor);
+        }
+        if (query.limit() == 0 || from >= to) {
+            return 0;
+        }
+        Scan scan = new Scan(filter(query), visitor, query.limit());
+        Runs runs = propertyRuns(query);
+        int[] candidates = Boolean.TRUE.equals(query.leaf()) ? leaves : null;
+        if (runs != null) {
+            runs.scan(from, to, scan, candidates);
+        } else {
+            scan.ids(candidates, from, to);
+        }
+        return scan.matched;
+    }
+
+    /**
+     * The id runs of the property criterion, an empty list for an unknown property, or null without one
+     */
+    private Runs propertyRuns(TaxonomyQuery query) {
+        if (query.propertyName() != null && query.propertyType() != null) {
+            return byNameAndType.getOrDefault(query.propertyName(), Map.of())
+                    .getOrDefault(query.propertyType(), NO_RUNS);
+        }
+        if (query.propertyName() != null) {
+            return byName.getOrDefault(query.propertyName(), NO_RUNS);
+        }
+        if (query.propertyType() != null) {
+            return byType.getOrDefault(query.propertyType(), NO_RUNS);
+        }
+        return null;
+    }
+
+    /**
+     * Compile the per-candidate criteria: depth, leaf-ness and label
+     */
+    private IntPredicate filter(TaxonomyQuery query) {
+        IntPredicate filter = id -> true;
+        if (query.minDepth() != null) {
+            int minDepth = query.minDepth();
+            filter = filter.and(id -> taxonomy.depthOf(id) >= minDepth);
+        }
+        if (query.maxDepth() != null) {
+            int maxDepth = query.maxDepth();
+            filter = filter.and(id -> taxonomy.depthOf(id) <= maxDepth);
+        }
+        if (query.leaf() != null) {
+            boolean leaf = query.leaf();
+            filter = filter.and(id -> taxonomy.subtreeEnd(id) == id + 1 == leaf);
+        }
+        if (query.labelContains() != null) {
+            String needle = SuggestIndex.normalize(query.labelContains());
+            filter = filter.and(id -> contains(labelKeys[id], needle));
+        }
+        return filter;
+    }
+
+    private static boolean contains(String[] keys, String needle) {
+        for (String key : keys) {
+            if (key.contains(needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An id range with the type of the property declaration covering it
+     */
+    private record Segment(int start, int end, PropertyType type) {
+    }
+
+    /**
+     * Sorted, disjoint id ranges {@code [starts[i], ends[i])}
+     */
+    private record Runs(int[] starts, int[] ends) {
+
+        /**
+         * Merge sorted segments, which may touch or overlap, into runs
+         */
+        static Runs of(List<Segment> segments) {
+            int[] starts = new int[segments.size()];
+            int[] ends = new int[segments.size()];
+            int count = 0;
+            for (Segment segment : segments) {
+                if (count > 0 && segment.start() <= ends[count - 1]) {
+                    ends[count - 1] = Math.max(ends[count - 1], segment.end());
+                } else {
+                    starts[count] = segment.start();
+                    ends[count] = segment.end();
+                    count++;
+                }
+            }
+            return new Runs(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+        }
+
+        /**
+         * Walk the part of the runs that falls in {@code [from, to)}, or only the candidate ids in it if given
+         */
+        void scan(int from, int to, Scan scan, int[] candidates) {
+            // The first run that ends after the range starts
+            int low = 0;
+            int high = ends.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] <= from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (int i = low; i < starts.length && starts[i] < to; i++) {
+                if (!scan.ids(candidates, Math.max(starts[i], from), Math.min(ends[i], to))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks candidate ids, passing those that pass the filter to the visitor until it stops or the limit is
+     * reached
+     */
+    private static final class Scan {
+        private final IntPredicate filter;
+        private final IntPredicate visitor;
+        private final int limit;
+        private int matched;
+
+        Scan(IntPredicate filter, IntPredicate visitor, int limit) {
+            this.filter = filter;
+            this.visitor = visitor;
+            this.limit = limit;
+        }
+
+        /**
+         * Visit the matching ids in {@code [from, to)}, or only those of a sorted candidate id array if given
+         * @return false once the scan has stopped
+         */
+        boolean ids(int[] candidates, int from, int to) {
+            if (candidates == null) {
+                for (int id = from; id < to; id++) {
+                    if (!accept(id)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            int start = Arrays.binarySearch(candidates, from);
+            for (int i = start < 0 ? -start - 1 : start; i < candidates.length && candidates[i] < to; i++) {
+                if (!accept(candidates[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean accept(int id) {
+            if (!filter.test(id)) {
+                return true;
+            }
+            matched++;
+            return visitor.test(id) && matched < limit;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package no.sirktek.taxonomy.query;
+
+import lombok.Builder;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+
+/**
+ * A typed filter over the categories of a taxonomy, run with {@link QueryIndex#find(TaxonomyQuery)}.
+ * Every criterion left null matches all categories; the criteria that are set must all match.
+ *
+ * @param descendantOf  class name of a category whose strict descendants are searched
+ * @param minDepth      smallest depth to match, roots being at depth 0
+ * @param maxDepth      largest depth to match
+ * @param leaf          true for categories without children only, false for categories with children only
+ * @param labelContains text a label of the category, in any language, must contain, compared in
+ *                      {@linkplain no.sirktek.taxonomy.search.SuggestIndex#normalize(String) normalized} form
+ * @param propertyName  name of an effective property the category must have
+ * @param propertyType  type of an effective property the category must have; together with a property name,
+ *                      the type that property must have
+ * @param limit         maximum number of categories to return
+ */
+@Builder
+public record TaxonomyQuery(
+        String descendantOf,
+        Integer minDepth,
+        Integer maxDepth,
+        Boolean leaf,
+        String labelContains,
+        String propertyName,
+        PropertyType propertyType,
+        int limit) {
+
+    /**
+     * Create a query
+     */
+    public TaxonomyQuery {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+    }
+
+    /**
+     * Start a query without a limit; {@code builder().build()} matches every category
+     * @return a builder with the limit set to {@link Integer#MAX_VALUE}
+     */
+    public static TaxonomyQueryBuilder builder() {
+        return new TaxonomyQueryBuilder().limit(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,187 @@
+package no.sirktek.taxonomy.reload;
+
+import lombok.extern.slf4j.Slf4j;
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.TaxonomyVersion;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory of Turtle files and publishes a freshly built taxonomy to a {@link TaxonomyService}
+ * whenever they change.
+ * <p>
+ * Only changes to {@code .ttl} files trigger a reload, and they are debounced, so an editor saving several
+ * files at once causes a single reload. Each reload parses the whole directory on the watcher thread while
+ * readers keep using the current tree, then publishes the result with
+ * {@link TaxonomyService#publish(TaxonomyTree)}. A directory that fails to load is logged and leaves the
+ * current tree in place. If the directory itself is deleted, the watcher stops.
+ */
+@Slf4j
+public class TaxonomyDirectoryWatcher implements AutoCloseable {
+
+    private static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(250);
+    private static final String TURTLE = ".ttl";
+
+    private final TaxonomyService service;
+    private final RdfsTaxonomyLoader loader;
+    private final Path directory;
+    private final Duration debounce;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Create a watcher with a default loader and debounce interval
+     * @param service   the service to publish reloaded taxonomies to
+     * @param directory the directory of Turtle files to watch
+     */
+    public TaxonomyDirectoryWatcher(TaxonomyService service, Path directory) {
+        this(service, new RdfsTaxonomyLoader(), directory, DEFAULT_DEBOUNCE);
+    }
+
+    /**
+     * Create a watcher
+     * @param service   the service to publish reloaded taxonomies to
+     * @param loader    the loader used to parse the directory
+     * @param directory the directory of Turtle files to watch
+     * @param debounce  how long the directory must be quiet before a reload starts
+     */
+    public TaxonomyDirectoryWatcher(TaxonomyService service, RdfsTaxonomyLoader loader, Path directory, Duration debounce) {
+        this.service = Objects.requireNonNull(service, "service");
+        this.loader = Objects.requireNonNull(loader, "loader");
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.debounce = Objects.requireNonNull(debounce, "debounce");
+    }
+
+    /**
+     * Load and publish the directory once, then start watching it on a daemon thread
+     * @return the version published by the initial load
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized TaxonomyVersion start() throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("Watcher already started");
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        TaxonomyVersion initial;
+        try {
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            initial = service.publish(loader.loadTaxonomyFromDirectory(directory));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(watchService);
+            watchService = null;
+            throw e;
+        }
+
+        thread = new Thread(this::watch, "taxonomy-watcher-" + directory.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return initial;
+    }
+
+    /**
+     * Reload the directory now and publish the result
+     * @return the published version
+     */
+    public TaxonomyVersion reload() {
+        long started = System.nanoTime();
+        TaxonomyVersion version = service.publish(loader.loadTaxonomyFromDirectory(directory));
+        Duration latency = Duration.ofNanos(System.nanoTime() - started);
+        service.getMetrics().taxonomyReloaded(version.version(), latency);
+        log.info("Reloaded taxonomy from {} as version {} in {} ms", directory, version.version(), latency.toMillis());
+        return version;
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // Wait until the directory has been quiet for the debounce interval
+                WatchKey more;
+                while ((more = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(more);
+                }
+                if (!key.isValid()) {
+                    // The directory was deleted or became inaccessible, so no further events will come
+                    log.warn("Stopped watching {}, it can no longer be watched; keeping current taxonomy", directory);
+                    closeQuietly(watchService);
+                    return;
+                }
+                if (changed) {
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        log.warn("Keeping current taxonomy, reload from {} failed", directory, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Stopped watching {}", directory);
+        }
+    }
+
+    /**
+     * Take the events of a key and reset it
+     * @return whether any event concerned a Turtle file, or events were lost
+     */
+    private static boolean drain(WatchKey key) {
+        boolean turtle = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            turtle |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || event.context() instanceof Path file && file.getFileName().toString().endsWith(TURTLE);
+        }
+        key.reset();
+        return turtle;
+    }
+
+    private void closeQuietly(WatchService service) {
+        try {
+            service.close();
+        } catch (IOException e) {
+            log.debug("Failed to close watch service for {}", directory, e);
+        }
+    }
+
+    /**
+     * Whether the watcher thread is running
+     * @return false before {@link #start()}, after {@link #close()} and once the directory can no longer be watched
+     */
+    boolean isWatching() {
+        Thread watcher;
+        synchronized (this) {
+            watcher = thread;
+        }
+        return watcher != null && watcher.isAlive();
+    }
+
+    /**
+     * Stop watching the directory. The last published taxonomy stays in place.
+     * @throws IOException if the underlying watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
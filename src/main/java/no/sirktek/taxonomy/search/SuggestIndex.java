@@ -0,0 +1,528 @@
+package no.sirktek.taxonomy.search;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.LocaleTable;
+import no.sirktek.taxonomy.model.LocalizedLabels;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Type-ahead index over the labels of a taxonomy in every language.
+ * <p>
+ * Labels are normalized by lower-casing them and dropping everything that is not a letter or digit, so
+ * "Kontor stol", "kontor-stol" and "Kontorstol" share the key {@code kontorstol}; Norwegian letters are kept
+ * as they are. Every label is stored under its full key and under the key of each later word, in one sorted
+ * array that answers prefix queries with a binary search. Short prefixes matching many keys also keep their
+ * entries in rank order, so a query walks them best first and stops once it has enough categories instead of
+ * ranking the whole range. When prefixes do not fill the requested number of suggestions, the sorted keys are
+ * walked as a trie for those starting within a bounded edit distance of the query, following only the prefixes
+ * still within the bound. A query for a locale only matches the label each category shows in that locale,
+ * resolved through the locale's fallback chain.
+ * <p>
+ * The index is immutable and safe for concurrent queries.
+ */
+public final class SuggestIndex {
+
+    private static final String ENGLISH = "en";
+    private static final String NORWEGIAN = "no";
+    /** Longest prefix whose key range is kept in rank order */
+    private static final int RANKED_PREFIX = 3;
+    /** Largest key range that is scanned and sorted rather than walked in rank order */
+    private static final int SCAN_LIMIT = 256;
+
+    private final TaxonomyIndex taxonomy;
+    private final String[] keys;
+    private final int[] nodeIds;
+    private final String[] labels;
+    private final String[] languages;
+    private final boolean[] wordStarts;
+    private final Map<String, int[]> rankedByPrefix;
+    private final Comparator<Candidate> ranking;
+
+    private SuggestIndex(TaxonomyIndex taxonomy, List<Entry> entries) {
+        this.taxonomy = taxonomy;
+        int size = entries.size();
+        keys = new String[size];
+        nodeIds = new int[size];
+        labels = new String[size];
+        languages = new String[size];
+        wordStarts = new boolean[size];
+
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            keys[i] = entry.key();
+            nodeIds[i] = entry.nodeId();
+            labels[i] = entry.label();
+            languages[i] = entry.language();
+            wordStarts[i] = entry.wordStart();
+        }
+
+        ranking = Comparator.comparing(Candidate::match)
+                .thenComparingInt(Candidate::distance)
+                .thenComparingInt(candidate -> labels[candidate.entry()].length())
+                .thenComparing(candidate -> labels[candidate.entry()]);
+        rankedByPrefix = rankLargeRanges();
+    }
+
+    /**
+     * The entries of every short prefix matching more than {@link #SCAN_LIMIT} keys, ordered as their
+     * prefix matches rank: entries starting the label first, then by label length and label
+     */
+    private Map<String, int[]> rankLargeRanges() {
+        Comparator<Integer> rank = Comparator.<Integer, Boolean>comparing(i -> wordStarts[i])
+                .thenComparingInt(i -> labels[i].length())
+                .thenComparing(i -> labels[i]);
+        Map<String, int[]> ranked = new HashMap<>();
+        for (int length = 1; length <= RANKED_PREFIX; length++) {
+            int from = 0;
+            while (from < keys.length) {
+                if (keys[from].length() < length) {
+                    from++;
+                    continue;
+                }
+                String prefix = keys[from].substring(0, length);
+                int to = upperBound(prefix, from);
+                if (to - from > SCAN_LIMIT) {
+                    ranked.put(prefix, IntStream.range(from, to).boxed()
+                            .sorted(rank).mapToInt(Integer::intValue).toArray());
+                }
+                from = to;
+            }
+        }
+        return ranked;
+    }
+
+    /**
+     * Build the index for every category of a taxonomy
+     * @param taxonomy the indexed taxonomy
+     * @return the suggest index
+     */
+    public static SuggestIndex of(TaxonomyIndex taxonomy) {
+        List<Entry> entries = new ArrayList<>(taxonomy.size() * 3);
+        for (int id = 0; id < taxonomy.size(); id++) {
+            for (Map.Entry<String, String> label : labelsOf(taxonomy.node(id)).entrySet()) {
+                addLabel(entries, id, label.getValue(), label.getKey());
+            }
+        }
+        entries.sort(Comparator.comparing(Entry::key));
+        return new SuggestIndex(taxonomy, entries);
+    }
+
+    /**
+     * The declared labels of a category by language tag, with the English name, and the Norwegian one for
+     * categories built without localized labels
+     */
+    private static Map<String, String> labelsOf(CategoryInfo category) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        if (category.labels() != null) {
+            labels.putAll(category.labels().declared());
+        } else {
+            labels.put(NORWEGIAN, category.norwegianName());
+        }
+        labels.putIfAbsent(ENGLISH, category.englishName());
+        return labels;
+    }
+
+    private static void addLabel(List<Entry> entries, int nodeId, String label, String language) {
+        if (label == null) {
+            return;
+        }
+        Set<String> seen = new HashSet<>();
+        boolean wordStart = false;
+        for (int i = 0; i < label.length(); i++) {
+            boolean startsWord = Character.isLetterOrDigit(label.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(label.charAt(i - 1)));
+            if (startsWord) {
+                String key = normalize(label.substring(i));
+                if (!key.isEmpty() && seen.add(key)) {
+                    entries.add(new Entry(key, nodeId, label, language, wordStart));
+                }
+                wordStart = true;
+            }
+        }
+    }
+
+    /**
+     * Normalize text to the form used for keys and queries
+     * @param text the label or query
+     * @return the lower-cased letters and digits of the text
+     */
+    public static String normalize(String text) {
+        String composed = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(composed.length());
+        for (int i = 0; i < composed.length(); i++) {
+            char c = composed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Suggest categories for a partially typed query
+     * @param query  the text typed so far
+     * @param locale the label language to search: only the label each category shows in it, following the
+     *               locale's fallback chain, is matched; null matches labels in every language
+     * @param limit  maximum number of suggestions
+     * @return at most {@code limit} suggestions, best first, with at most one per category
+     */
+    public List<Suggestion> suggest(String query, Locale locale, int limit) {
+        if (query == null || limit <= 0) {
+            return List.of();
+        }
+        String key = normalize(query);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        LanguageFilter language = new LanguageFilter(locale);
+
+        int from = lowerBound(key);
+        int to = upperBound(key, from);
+        Map<Integer, Candidate> best = new HashMap<>();
+        List<Candidate> ranked = to - from <= SCAN_LIMIT
+                ? scanPrefixMatches(key, from, to, language, best, limit)
+                : walkPrefixMatches(key, from, to, language, best, limit);
+        if (ranked.size() < limit) {
+            Map<Integer, Candidate> fuzzy = new HashMap<>();
+            addFuzzyMatches(key, language, best.keySet(), fuzzy, limit - ranked.size());
+            ranked = new ArrayList<>(ranked);
+            fuzzy.values().stream().sorted(ranking).limit(limit - ranked.size()).forEach(ranked::add);
+        }
+
+        return ranked.stream()
+                .map(candidate -> new Suggestion(taxonomy.node(nodeIds[candidate.entry()]),
+                        labels[candidate.entry()], languages[candidate.entry()], candidate.match()))
+                .toList();
+    }
+
+    /**
+     * Best prefix matches from a short key range, found by ranking all of them
+     */
+    private List<Candidate> scanPrefixMatches(String key, int from, int to, LanguageFilter language,
+                                              Map<Integer, Candidate> best, int limit) {
+        for (int i = from; i < to; i++) {
+            if (language.test(i)) {
+                Suggestion.Match match = wordStarts[i] ? Suggestion.Match.WORD_PREFIX
+                        : keys[i].length() == key.length() ? Suggestion.Match.EXACT
+                        : Suggestion.Match.PREFIX;
+                offer(best, new Candidate(i, match, 0));
+            }
+        }
+        return best.values().stream().sorted(ranking).limit(limit).toList();
+    }
+
+    /**
+     * Best prefix matches from a long key range. Exact matches sort first in the range; the rest are walked in
+     * the rank order kept for the query's first characters, stopping once {@code limit} categories are found.
+     */
+    private List<Candidate> walkPrefixMatches(String key, int from, int to, LanguageFilter language,
+                                              Map<Integer, Candidate> best, int limit) {
+        for (int i = from; i < to && keys[i].length() == key.length(); i++) {
+            if (!wordStarts[i] && language.test(i)) {
+                offer(best, new Candidate(i, Suggestion.Match.EXACT, 0));
+            }
+        }
+        List<Candidate> ranked = new ArrayList<>(limit);
+        best.values().stream().sorted(ranking).limit(limit).forEach(ranked::add);
+
+        int[] order = rankedByPrefix.get(key.substring(0, Math.min(key.length(), RANKED_PREFIX)));
+        for (int n = 0; n < order.length && ranked.size() < limit; n++) {
+            int i = order[n];
+            if (keys[i].startsWith(key) && !best.containsKey(nodeIds[i]) && language.test(i)) {
+                Candidate candidate = new Candidate(i,
+                        wordStarts[i] ? Suggestion.Match.WORD_PREFIX : Suggestion.Match.PREFIX, 0);
+                best.put(nodeIds[i], candidate);
+                ranked.add(candidate);
+            }
+        }
+        return ranked;
+    }
+
+    /**
+     * Fuzzy matches: entries whose key starts within a bounded edit distance of the query, as measured by
+     * {@link #prefixDistance}. Only the best {@code limit} categories of a large key range sharing one distance
+     * are guaranteed to be added. The bound grows one edit at a time, as farther matches would rank after
+     * {@code limit} closer ones.
+     */
+    private void addFuzzyMatches(String key, LanguageFilter language, Set<Integer> matched,
+                                 Map<Integer, Candidate> best, int limit) {
+        int maxDistance = key.length() < 3 ? 0 : key.length() < 6 ? 1 : 2;
+        if (maxDistance == 0) {
+            return;
+        }
+        int[] column = new int[key.length() + 1];
+        for (int i = 0; i <= key.length(); i++) {
+            column[i] = i;
+        }
+        for (int bound = 1; bound <= maxDistance && best.size() < limit; bound++) {
+            best.clear();
+            new FuzzyWalk(key, bound, language, matched, best, limit).walk(0, keys.length, 0, null, column, bound + 1);
+        }
+    }
+
+    private void offer(Map<Integer, Candidate> best, Candidate candidate) {
+        best.merge(nodeIds[candidate.entry()], candidate,
+                (current, offered) -> ranking.compare(offered, current) < 0 ? offered : current);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * End of the range of keys starting with a prefix
+     * @param prefix the prefix
+     * @param from   the start of the range
+     * @return the first index from {@code from} whose key does not start with the prefix
+     */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Smallest edit distance, counting adjacent transpositions as one edit, between the query and any prefix
+     * of the key whose length is within {@code maxDistance} of the query's. Returns {@code maxDistance + 1}
+     * when there is none within the bound. {@link FuzzyWalk} computes the same distance for many keys at once.
+     */
+    static int prefixDistance(String query, String key, int maxDistance) {
+        int m = query.length();
+        int n = Math.min(key.length(), m + maxDistance);
+        if (n < m - maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] previous2 = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= n; j++) {
+                int cost = query.charAt(i - 1) == key.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == key.charAt(j - 2) && query.charAt(i - 2) == key.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        int distance = maxDistance + 1;
+        for (int j = Math.max(0, m - maxDistance); j <= n; j++) {
+            distance = Math.min(distance, previous[j]);
+        }
+        return distance;
+    }
+
+    /**
+     * Accepts the entries holding the label their category shows in one locale. The locale is resolved once per
+     * locale table, as patched trees may mix the tables of two versions.
+     */
+    private final class LanguageFilter {
+        private final Locale locale;
+        private LocaleTable table;
+        private int localeId;
+
+        LanguageFilter(Locale locale) {
+            this.locale = locale;
+        }
+
+        boolean test(int entry) {
+            if (locale == null) {
+                return true;
+            }
+            CategoryInfo category = taxonomy.node(nodeIds[entry]);
+            LocalizedLabels localized = category.labels();
+            if (localized == null) {
+                return labels[entry].equals(category.label(locale));
+            }
+            if (localized.table() != table) {
+                table = localized.table();
+                localeId = table.resolve(locale);
+            }
+            String shown = localized.get(localeId);
+            return labels[entry].equals(shown != null ? shown : category.englishName());
+        }
+    }
+
+    /**
+     * Walks the sorted keys as a trie, computing one column of the edit distance table per character and
+     * leaving every branch whose column already exceeds the bound or the distance reached, so only prefixes near
+     * the query are visited
+     */
+    private final class FuzzyWalk {
+        private final String query;
+        private final int maxDistance;
+        private final LanguageFilter language;
+        private final Set<Integer> matched;
+        private final Map<Integer, Candidate> best;
+        private final int limit;
+
+        FuzzyWalk(String query, int maxDistance, LanguageFilter language, Set<Integer> matched,
+                  Map<Integer, Candidate> best, int limit) {
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.language = language;
+            this.matched = matched;
+            this.best = best;
+            this.limit = limit;
+        }
+
+        /**
+         * Visit the keys from {@code from} to {@code to}, which share their first {@code depth} characters
+         * @param previous the distance column of the shared prefix without its last character, null at the root
+         * @param column   the distance column of the shared prefix: from each prefix of the query to it
+         * @param distance the smallest distance so far from the query to a prefix long enough to count
+         */
+        void walk(int from, int to, int depth, int[] previous, int[] column, int distance) {
+            int i = from;
+            for (; i < to && keys[i].length() == depth; i++) {
+                add(i, distance);
+            }
+            if (i == to) {
+                return;
+            }
+            int closest = column[0];
+            for (int value : column) {
+                closest = Math.min(closest, value);
+            }
+            if (depth == query.length() + maxDistance || closest >= distance) {
+                // Longer prefixes no longer count or cannot come closer, so the whole range is at this distance
+                addRange(i, to, depth, distance);
+                return;
+            }
+            while (i < to) {
+                char c = keys[i].charAt(depth);
+                int end = childEnd(i, to, depth, c);
+                int[] next = new int[query.length() + 1];
+                next[0] = depth + 1;
+                for (int q = 1; q <= query.length(); q++) {
+                    int cost = query.charAt(q - 1) == c ? 0 : 1;
+                    int value = Math.min(Math.min(column[q] + 1, next[q - 1] + 1), column[q - 1] + cost);
+                    if (q > 1 && depth > 0 && query.charAt(q - 1) == keys[i].charAt(depth - 1)
+                            && query.charAt(q - 2) == c) {
+                        value = Math.min(value, previous[q - 2] + 1);
+                    }
+                    next[q] = value;
+                }
+                boolean counts = depth + 1 >= query.length() - maxDistance;
+                walk(i, end, depth + 1, column, next, counts ? Math.min(distance, next[query.length()]) : distance);
+                i = end;
+            }
+        }
+
+        /**
+         * End of the keys from {@code from} that have character {@code c} at {@code depth}
+         */
+        private int childEnd(int from, int to, int depth, char c) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].charAt(depth) <= c) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Add a range of keys at one distance. A large range is walked in the rank order kept for its first
+         * characters, once for the entries starting their label and once for the others, stopping each walk
+         * after {@code limit} new categories.
+         */
+        private void addRange(int from, int to, int depth, int distance) {
+            if (distance > maxDistance) {
+                return;
+            }
+            int[] order = to - from <= SCAN_LIMIT ? null
+                    : rankedByPrefix.get(keys[from].substring(0, Math.min(depth, RANKED_PREFIX)));
+            if (order == null) {
+                for (int i = from; i < to; i++) {
+                    add(i, distance);
+                }
+                return;
+            }
+            int low = 0;
+            int high = order.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (wordStarts[order[mid]]) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            addRanked(order, 0, low, from, to, distance);
+            addRanked(order, low, order.length, from, to, distance);
+        }
+
+        private void addRanked(int[] order, int start, int end, int from, int to, int distance) {
+            int added = 0;
+            for (int n = start; n < end && added < limit; n++) {
+                int i = order[n];
+                if (i >= from && i < to && !best.containsKey(nodeIds[i]) && add(i, distance)) {
+                    added++;
+                }
+            }
+        }
+
+        private boolean add(int entry, int distance) {
+            if (distance > maxDistance || matched.contains(nodeIds[entry]) || !language.test(entry)) {
+                return false;
+            }
+            offer(best, new Candidate(entry, Suggestion.Match.FUZZY, distance));
+            return true;
+        }
+    }
+
+    private record Entry(String key, int nodeId, String label, String language, boolean wordStart) {
+    }
+
+    private record Candidate(int entry, Suggestion.Match match, int distance) {
+    }
+}
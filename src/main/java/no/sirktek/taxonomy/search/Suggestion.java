@@ -0,0 +1,28 @@
+package no.sirktek.taxonomy.search;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+
+/**
+ * A ranked type-ahead match for a category
+ *
+ * @param category the matching category
+ * @param label    the label that matched, in the language it was found in
+ * @param language language tag of the label, such as {@code "en"} or {@code "no"}
+ * @param match    how the label matched the query
+ */
+public record Suggestion(CategoryInfo category, String label, String language, Match match) {
+
+    /**
+     * Kinds of match, from strongest to weakest
+     */
+    public enum Match {
+        /** The whole label equals the query */
+        EXACT,
+        /** The label starts with the query */
+        PREFIX,
+        /** A later word of the label starts with the query */
+        WORD_PREFIX,
+        /** The label starts with something within a small edit distance of the query */
+        FUZZY
+    }
+}
@@ -0,0 +1,157 @@
+package no.sirktek.taxonomy.stats;
+
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent counters per category, such as live inventory, with totals rolled up to every ancestor.
+ * <p>
+ * Counters are bound to one {@link TaxonomyIndex} and addressed by its dense node ids. Each category that has
+ * been counted gets a {@link LongAdder}, whose cells are striped across threads, so an update is one array read
+ * and one uncontended add whatever the number of writers. Nothing is propagated to ancestors when writing;
+ * because the subtree of a node is the pre-order id interval {@code [id, subtreeEnd(id))}, its total is summed
+ * over that interval when read. {@link #rollUp()} computes the totals of every category in one pass.
+ * <p>
+ * Reads are not atomic snapshots: updates made while a total is summed may or may not be included. Instances
+ * are safe for concurrent use.
+ */
+public final class CategoryCounters {
+
+    private final TaxonomyIndex index;
+    private final AtomicReferenceArray<LongAdder> counters;
+
+    /**
+     * Create counters, all zero, for the categories of a taxonomy
+     * @param index the taxonomy index whose node ids address the counters
+     */
+    public CategoryCounters(TaxonomyIndex index) {
+        this.index = Objects.requireNonNull(index, "index");
+        this.counters = new AtomicReferenceArray<>(index.size());
+    }
+
+    /**
+     * Create counters, all zero, for the categories of a taxonomy tree
+     * @param tree the taxonomy tree
+     * @return the counters, bound to the tree's index
+     */
+    public static CategoryCounters of(TaxonomyTree tree) {
+        return new CategoryCounters(tree.index());
+    }
+
+    /**
+     * The taxonomy the counters are bound to
+     * @return the taxonomy index
+     */
+    public TaxonomyIndex index() {
+        return index;
+    }
+
+    /**
+     * Add to the own count of a category
+     * @param id    a node id of the index
+     * @param delta the amount to add, negative to subtract
+     */
+    public void add(int id, long delta) {
+        LongAdder counter = counters.get(id);
+        if (counter == null) {
+            counters.compareAndSet(id, null, new LongAdder());
+            counter = counters.get(id);
+        }
+        counter.add(delta);
+    }
+
+    /**
+     * Add one to the own count of a category
+     * @param id a node id of the index
+     */
+    public void increment(int id) {
+        add(id, 1);
+    }
+
+    /**
+     * Add to the own count of a category by class name
+     * @param className the class name
+     * @param delta     the amount to add, negative to subtract
+     * @return false, without counting, if the class is not in the taxonomy
+     */
+    public boolean add(String className, long delta) {
+        int id = index.idOf(className);
+        if (id == TaxonomyIndex.NOT_FOUND) {
+            return false;
+        }
+        add(id, delta);
+        return true;
+    }
+
+    /**
+     * Own count of a category, without its descendants
+     * @param id a node id of the index
+     * @return the sum of the amounts added for the category itself
+     */
+    public long count(int id) {
+        LongAdder counter = counters.get(id);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Total of a category and all its descendants, summed over its subtree's id interval
+     * @param id a node id of the index
+     * @return the rolled-up total
+     */
+    public long total(int id) {
+        long total = 0;
+        for (int node = id, end = index.subtreeEnd(id); node < end; node++) {
+            total += count(node);
+        }
+        return total;
+    }
+
+    /**
+     * Total of a category and all its descendants by class name
+     * @param className the class name
+     * @return the rolled-up total, 0 if the class is not in the taxonomy
+     */
+    public long total(String className) {
+        int id = index.idOf(className);
+        return id == TaxonomyIndex.NOT_FOUND ? 0 : total(id);
+    }
+
+    /**
+     * Totals of every category in one pass, for reports over the whole taxonomy
+     * @return the rolled-up total of each category, indexed by node id
+     */
+    public long[] rollUp() {
+        long[] totals = new long[index.size()];
+        // Children come after their parent in pre-order, so a backwards pass sees complete subtrees
+        for (int id = totals.length - 1; id >= 0; id--) {
+            totals[id] += count(id);
+            int parent = index.parentOf(id);
+            if (parent != TaxonomyIndex.NOT_FOUND) {
+                totals[parent] += totals[id];
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Carry the own counts over to another version of the taxonomy, matching categories by class name.
+     * Counts of categories the other version does not have are dropped, and updates made to these counters
+     * while they are copied may be missed, so writers should switch to the new counters first.
+     * @param next the index of the other version
+     * @return new counters bound to {@code next}
+     */
+    public CategoryCounters rebind(TaxonomyIndex next) {
+        CategoryCounters rebound = new CategoryCounters(next);
+        for (int id = 0; id < index.size(); id++) {
+            long count = count(id);
+            if (count != 0) {
+                rebound.add(index.node(id).className(), count);
+            }
+        }
+        return rebound;
+    }
+}
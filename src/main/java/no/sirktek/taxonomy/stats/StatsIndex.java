@@ -0,0 +1,304 @@
+package no.sirktek.taxonomy.stats;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Taxonomy-wide statistics and per-subtree aggregates, computed once per taxonomy version.
+ * <p>
+ * The index is built in one fork-join traversal over the pre-order node ids of a {@link TaxonomyIndex}. Each
+ * task takes a range of ids, marks the leaves and counts the declared properties of every node by type, and keeps
+ * its own depth and child count histograms, which are added up as the tasks join. A sequential pass over the
+ * arrays then turns the per-node counts into prefix sums and computes subtree heights.
+ * <p>
+ * The subtree of a node is the id interval {@code [id, subtreeEnd(id))}, so any count over a subtree is the
+ * difference of two prefix sums: {@link #subtree(int)} takes constant time per property type and never walks
+ * the tree.
+ * <p>
+ * Instances are immutable and safe for concurrent use.
+ */
+public final class StatsIndex {
+
+    /** Ranges of at most this many nodes are counted by one task without splitting */
+    static final int SPLIT_THRESHOLD = 8192;
+
+    private static final PropertyType[] TYPES = PropertyType.values();
+
+    private final TaxonomyIndex index;
+    private final int rootCategories;
+    // Number of leaves among the node ids below each index
+    private final int[] leafPrefix;
+    // Per type ordinal, number of declared properties of that type among the node ids below each index;
+    // null for types no category declares
+    private final int[][] typePrefix;
+    private final int[] heights;
+    private final List<Integer> categoriesByDepth;
+    private final SortedMap<Integer, Integer> categoriesByChildCount;
+    private final SubtreeStats totals;
+
+    private StatsIndex(TaxonomyIndex index, int rootCategories, int[] leafPrefix, int[][] typePrefix,
+                       int[] heights, Histograms histograms) {
+        this.index = index;
+        this.rootCategories = rootCategories;
+        this.leafPrefix = leafPrefix;
+        this.typePrefix = typePrefix;
+        this.heights = heights;
+        this.categoriesByDepth = histograms.depths();
+        this.categoriesByChildCount = histograms.childCounts();
+        this.totals = aggregate(0, index.size(), Math.max(0, categoriesByDepth.size() - 1));
+    }
+
+    /**
+     * Compute the statistics of a taxonomy in the common fork-join pool
+     * @param index the taxonomy index
+     * @return the statistics
+     */
+    public static StatsIndex of(TaxonomyIndex index) {
+        return of(index, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute the statistics of a taxonomy
+     * @param index the taxonomy index
+     * @param pool  the pool to run the traversal in
+     * @return the statistics
+     */
+    public static StatsIndex of(TaxonomyIndex index, ForkJoinPool pool) {
+        int size = index.size();
+        int[] leafPrefix = new int[size + 1];
+        AtomicReferenceArray<int[]> typeCounts = new AtomicReferenceArray<>(TYPES.length);
+        Histograms histograms = pool.invoke(new Count(index, 0, size, leafPrefix, typeCounts));
+
+        // The tasks stored per-node counts one slot to the right; summing in place makes them prefix sums
+        prefixSums(leafPrefix);
+        int[][] typePrefix = new int[TYPES.length][];
+        for (int type = 0; type < TYPES.length; type++) {
+            typePrefix[type] = typeCounts.get(type);
+            if (typePrefix[type] != null) {
+                prefixSums(typePrefix[type]);
+            }
+        }
+        int[] heights = new int[size];
+        int roots = 0;
+        // Children come after their parent in pre-order, so a backwards pass sees complete subtrees
+        for (int id = size - 1; id >= 0; id--) {
+            int parent = index.parentOf(id);
+            if (parent == TaxonomyIndex.NOT_FOUND) {
+                roots++;
+            } else {
+                heights[parent] = Math.max(heights[parent], heights[id] + 1);
+            }
+        }
+        return new StatsIndex(index, roots, leafPrefix, typePrefix, heights, histograms);
+    }
+
+    private static void prefixSums(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+
+    /**
+     * Aggregates over the whole taxonomy
+     * @return the totals; the height is the depth of the deepest category
+     */
+    public SubtreeStats totals() {
+        return totals;
+    }
+
+    /**
+     * Aggregates over the subtree of a node
+     * @param id a node id of the index the statistics were computed from
+     * @return the aggregates of the node and its descendants
+     */
+    public SubtreeStats subtree(int id) {
+        return aggregate(id, index.subtreeEnd(id), heights[id]);
+    }
+
+    /**
+     * Aggregates over the subtree of a category
+     * @param className the class name of the subtree root
+     * @return the aggregates of the category and its descendants, or null if the class is unknown
+     */
+    public SubtreeStats subtree(String className) {
+        int id = index.idOf(className);
+        return id == TaxonomyIndex.NOT_FOUND ? null : subtree(id);
+    }
+
+    private SubtreeStats aggregate(int from, int to, int height) {
+        Map<PropertyType, Integer> byType = new EnumMap<>(PropertyType.class);
+        int properties = 0;
+        for (int type = 0; type < TYPES.length; type++) {
+            int[] prefix = typePrefix[type];
+            int count = prefix == null ? 0 : prefix[to] - prefix[from];
+            if (count > 0) {
+                byType.put(TYPES[type], count);
+                properties += count;
+            }
+        }
+        return SubtreeStats.builder()
+                .categories(to - from)
+                .leaves(leafPrefix[to] - leafPrefix[from])
+                .height(height)
+                .properties(properties)
+                .propertiesByType(Collections.unmodifiableMap(byType))
+                .build();
+    }
+
+    /**
+     * Number of root categories
+     * @return the root count
+     */
+    public int rootCategories() {
+        return rootCategories;
+    }
+
+    /**
+     * Depth histogram
+     * @return the number of categories at each depth, roots at index 0, up to the deepest category
+     */
+    public List<Integer> categoriesByDepth() {
+        return categoriesByDepth;
+    }
+
+    /**
+     * Fan-out distribution
+     * @return the number of categories by their number of children, for child counts that occur
+     */
+    public SortedMap<Integer, Integer> categoriesByChildCount() {
+        return categoriesByChildCount;
+    }
+
+    /**
+     * Counts one range of node ids, splitting it while it is large
+     */
+    @SuppressWarnings("serial")
+    private static final class Count extends RecursiveTask<Histograms> {
+        private final TaxonomyIndex index;
+        private final int from;
+        private final int to;
+        private final int[] leafCounts;
+        private final AtomicReferenceArray<int[]> typeCounts;
+
+        Count(TaxonomyIndex index, int from, int to, int[] leafCounts, AtomicReferenceArray<int[]> typeCounts) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.leafCounts = leafCounts;
+            this.typeCounts = typeCounts;
+        }
+
+        @Override
+        protected Histograms compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Count left = new Count(index, from, middle, leafCounts, typeCounts);
+                left.fork();
+                Histograms right = new Count(index, middle, to, leafCounts, typeCounts).compute();
+                return left.join().add(right);
+            }
+            Histograms histograms = new Histograms();
+            for (int id = from; id < to; id++) {
+                int end = index.subtreeEnd(id);
+                int children = 0;
+                for (int child = id + 1; child < end; child = index.subtreeEnd(child)) {
+                    children++;
+                }
+                if (children == 0) {
+                    leafCounts[id + 1] = 1;
+                }
+                histograms.count(index.depthOf(id), children);
+                CategoryInfo category = index.node(id);
+                if (category.properties() != null) {
+                    for (PropertyDefinition property : category.properties()) {
+                        typeCounts(property.getPropertyType())[id + 1]++;
+                    }
+                }
+            }
+            return histograms;
+        }
+
+        /**
+         * Per-node counts of a type, allocated by the first task that meets the type. Tasks write disjoint
+         * slots, and joining them publishes the writes.
+         */
+        private int[] typeCounts(PropertyType type) {
+            int[] counts = typeCounts.get(type.ordinal());
+            if (counts == null) {
+                typeCounts.compareAndSet(type.ordinal(), null, new int[leafCounts.length]);
+                counts = typeCounts.get(type.ordinal());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Depth and child count histograms of a range of nodes, indexed by depth and by child count
+     */
+    private static final class Histograms {
+        private int[] depths = new int[16];
+        private int[] childCounts = new int[16];
+
+        void count(int depth, int children) {
+            depths = increment(depths, depth);
+            childCounts = increment(childCounts, children);
+        }
+
+        private static int[] increment(int[] histogram, int index) {
+            int[] grown = index < histogram.length ? histogram
+                    : Arrays.copyOf(histogram, Math.max(index + 1, histogram.length * 2));
+            grown[index]++;
+            return grown;
+        }
+
+        Histograms add(Histograms other) {
+            depths = add(depths, other.depths);
+            childCounts = add(childCounts, other.childCounts);
+            return this;
+        }
+
+        private static int[] add(int[] histogram, int[] other) {
+            int[] sum = other.length > histogram.length ? Arrays.copyOf(histogram, other.length) : histogram;
+            for (int i = 0; i < other.length; i++) {
+                sum[i] += other[i];
+            }
+            return sum;
+        }
+
+        List<Integer> depths() {
+            int deepest = depths.length - 1;
+            while (deepest >= 0 && depths[deepest] == 0) {
+                deepest--;
+            }
+            List<Integer> result = new ArrayList<>(deepest + 1);
+            for (int depth = 0; depth <= deepest; depth++) {
+                result.add(depths[depth]);
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        SortedMap<Integer, Integer> childCounts() {
+            SortedMap<Integer, Integer> result = new TreeMap<>();
+            for (int children = 0; children < childCounts.length; children++) {
+                if (childCounts[children] > 0) {
+                    result.put(children, childCounts[children]);
+                }
+            }
+            return Collections.unmodifiableSortedMap(result);
+        }
+    }
+}
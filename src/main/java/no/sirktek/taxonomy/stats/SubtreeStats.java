@@ -0,0 +1,26 @@
+package no.sirktek.taxonomy.stats;
+
+import lombok.Builder;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+
+import java.util.Map;
+
+/**
+ * Aggregates over a subtree of the taxonomy, or over the whole taxonomy
+ *
+ * @param categories       number of categories, the subtree root included
+ * @param leaves           number of categories without children
+ * @param height           number of levels below the subtree root; 0 for a leaf. For the whole taxonomy, the
+ *                         depth of its deepest category
+ * @param properties       number of properties the categories declare themselves, inherited ones not counted
+ *                         again
+ * @param propertiesByType the declared properties by type; types without properties are left out
+ */
+@Builder
+public record SubtreeStats(
+        int categories,
+        int leaves,
+        int height,
+        int properties,
+        Map<PropertyType, Integer> propertiesByType) {
+}
@@ -0,0 +1,525 @@
+package no.sirktek.taxonomy.store;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.LocaleTable;
+import no.sirktek.taxonomy.model.LocalizedLabels;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only taxonomy backed by a memory-mapped file instead of heap objects.
+ * <p>
+ * The file holds fixed-width node and property records whose string fields are offsets into a shared
+ * string pool, plus an open-addressing hash table over class names. Localized labels are rows with one string
+ * per locale of the file's locale table, shared by every node and property with the same labels. Nodes are stored in breadth-first
+ * order so the children of every node are contiguous. {@link CategoryInfo} and {@link PropertyDefinition}
+ * records are only materialized when asked for, and their {@code children} and {@code properties} lists
+ * are lazy views over the file, so navigating a huge taxonomy touches only the nodes actually visited.
+ * <p>
+ * The mapping is read-only and shared through the OS page cache, so several JVMs opening the same file
+ * share one copy. Files are limited to 2 GB. The mapping is released when the instance is garbage collected.
+ */
+public final class MappedTaxonomy {
+
+    private static final int MAGIC = 0x534D5458; // "SMTX"
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_BYTES = 12 * Integer.BYTES;
+    private static final int NONE = -1;
+
+    // Node record: className, englishName, norwegianName, description, uri, parent, firstChild, childCount,
+    // firstPropertyRef, propertyCount, classNameHash, labels row
+    private static final int NODE_INTS = 12;
+    private static final int NODE_CLASS_NAME = 0;
+    private static final int NODE_ENGLISH_NAME = 1;
+    private static final int NODE_NORWEGIAN_NAME = 2;
+    private static final int NODE_DESCRIPTION = 3;
+    private static final int NODE_URI = 4;
+    private static final int NODE_PARENT = 5;
+    private static final int NODE_FIRST_CHILD = 6;
+    private static final int NODE_CHILD_COUNT = 7;
+    private static final int NODE_FIRST_PROPERTY_REF = 8;
+    private static final int NODE_PROPERTY_COUNT = 9;
+    private static final int NODE_HASH = 10;
+    private static final int NODE_LABELS = 11;
+
+    // Property record: name, englishLabel, norwegianLabel, uri, rangeType, domainClass, description,
+    // propertyType ordinal, labels row
+    private static final int PROPERTY_INTS = 9;
+    private static final PropertyDefinition.PropertyType[] PROPERTY_TYPES = PropertyDefinition.PropertyType.values();
+
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+    private final int rootCount;
+    private final int hashSlots;
+    private final int nodesOffset;
+    private final int propertiesOffset;
+    private final int propertyRefsOffset;
+    private final int hashOffset;
+    private final int stringsOffset;
+    private final int labelsOffset;
+    private final LocaleTable locales;
+
+    private MappedTaxonomy(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped taxonomy file");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported mapped taxonomy version " + version + ", expected " + FORMAT_VERSION);
+        }
+        this.nodeCount = buffer.getInt(8);
+        this.rootCount = buffer.getInt(12);
+        this.hashSlots = buffer.getInt(16);
+        this.nodesOffset = buffer.getInt(20);
+        this.propertiesOffset = buffer.getInt(24);
+        this.propertyRefsOffset = buffer.getInt(28);
+        this.hashOffset = buffer.getInt(32);
+        this.stringsOffset = buffer.getInt(36);
+        this.labelsOffset = buffer.getInt(40);
+        this.locales = readLocales(buffer.getInt(44));
+    }
+
+    /**
+     * Read the locale table: a count, then per locale its tag and the ids of its fallbacks
+     */
+    private LocaleTable readLocales(int offset) {
+        int count = buffer.getInt(offset);
+        if (count == 0) {
+            return null;
+        }
+        int position = offset + Integer.BYTES;
+        String[] tags = new String[count];
+        int[][] fallbackIds = new int[count][];
+        for (int id = 0; id < count; id++) {
+            tags[id] = string(buffer.getInt(position));
+            fallbackIds[id] = new int[buffer.getInt(position + Integer.BYTES)];
+            position += 2 * Integer.BYTES;
+            for (int i = 0; i < fallbackIds[id].length; i++) {
+                fallbackIds[id][i] = buffer.getInt(position);
+                position += Integer.BYTES;
+            }
+        }
+        Map<String, List<String>> fallbacks = new LinkedHashMap<>();
+        for (int id = 0; id < count; id++) {
+            List<String> chain = new ArrayList<>(fallbackIds[id].length);
+            for (int fallback : fallbackIds[id]) {
+                chain.add(tags[fallback]);
+            }
+            fallbacks.put(tags[id], chain);
+        }
+        return LocaleTable.of(fallbacks);
+    }
+
+    /**
+     * Map a taxonomy file written by {@link #write(TaxonomyTree, Path)}
+     * @param file the file to map
+     * @return the mapped taxonomy
+     * @throws IOException if the file cannot be mapped or is not a mapped taxonomy
+     */
+    public static MappedTaxonomy open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedTaxonomy(mapped);
+        }
+    }
+
+    /**
+     * Write a taxonomy tree to a file that can be mapped with {@link #open(Path)}.
+     * The file is written next to the target and moved into place, so readers never see a partial file.
+     * @param tree the taxonomy to write
+     * @param file the target file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(TaxonomyTree tree, Path file) throws IOException {
+        byte[] bytes = new Writer(tree).toBytes();
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Number of categories in the taxonomy
+     * @return the total category count
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * The top-level categories, as a lazy view over the file
+     * @return the root categories
+     */
+    public List<CategoryInfo> rootCategories() {
+        return new NodeRange(0, rootCount);
+    }
+
+    /**
+     * Find a category by its class name using the on-file hash table
+     * @param className the class name to search for
+     * @return the category info if found, null otherwise
+     */
+    public CategoryInfo findByClassName(String className) {
+        int node = nodeIdOf(className);
+        return node == NONE ? null : category(node);
+    }
+
+    /**
+     * Check whether a class name exists in the taxonomy
+     * @param className the class name to check
+     * @return true if the class exists
+     */
+    public boolean containsClassName(String className) {
+        return nodeIdOf(className) != NONE;
+    }
+
+    private int nodeIdOf(String className) {
+        if (className == null || hashSlots == 0) {
+            return NONE;
+        }
+        int hash = className.hashCode();
+        int mask = hashSlots - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int node = buffer.getInt(hashOffset + slot * Integer.BYTES) - 1;
+            if (node == NONE) {
+                return NONE;
+            }
+            if (nodeInt(node, NODE_HASH) == hash && className.equals(string(nodeInt(node, NODE_CLASS_NAME)))) {
+                return node;
+            }
+        }
+    }
+
+    private CategoryInfo category(int node) {
+        int parent = nodeInt(node, NODE_PARENT);
+        return CategoryInfo.builder()
+                .className(string(nodeInt(node, NODE_CLASS_NAME)))
+                .englishName(string(nodeInt(node, NODE_ENGLISH_NAME)))
+                .norwegianName(string(nodeInt(node, NODE_NORWEGIAN_NAME)))
+                .description(string(nodeInt(node, NODE_DESCRIPTION)))
+                .parentClassName(parent == NONE ? null : string(nodeInt(parent, NODE_CLASS_NAME)))
+                .uri(string(nodeInt(node, NODE_URI)))
+                .properties(new PropertyRange(nodeInt(node, NODE_FIRST_PROPERTY_REF), nodeInt(node, NODE_PROPERTY_COUNT)))
+                .children(new NodeRange(nodeInt(node, NODE_FIRST_CHILD), nodeInt(node, NODE_CHILD_COUNT)))
+                .labels(labels(nodeInt(node, NODE_LABELS)))
+                .build();
+    }
+
+    private PropertyDefinition property(int property) {
+        int base = propertiesOffset + property * PROPERTY_INTS * Integer.BYTES;
+        return PropertyDefinition.builder()
+                .name(string(buffer.getInt(base)))
+                .englishLabel(string(buffer.getInt(base + 4)))
+                .norwegianLabel(string(buffer.getInt(base + 8)))
+                .uri(string(buffer.getInt(base + 12)))
+                .rangeType(string(buffer.getInt(base + 16)))
+                .domainClass(string(buffer.getInt(base + 20)))
+                .description(string(buffer.getInt(base + 24)))
+                .propertyType(propertyType(buffer.getInt(base + 28)))
+                .labels(labels(buffer.getInt(base + 32)))
+                .build();
+    }
+
+    private LocalizedLabels labels(int row) {
+        if (row == NONE) {
+            return null;
+        }
+        int base = labelsOffset + row * locales.size() * Integer.BYTES;
+        Map<String, String> declared = new HashMap<>();
+        for (int id = 0; id < locales.size(); id++) {
+            String label = string(buffer.getInt(base + id * Integer.BYTES));
+            if (label != null) {
+                declared.put(locales.tag(id), label);
+            }
+        }
+        return LocalizedLabels.of(locales, declared);
+    }
+
+    private static PropertyDefinition.PropertyType propertyType(int ordinal) {
+        return ordinal == NONE ? null : PROPERTY_TYPES[ordinal];
+    }
+
+    private int nodeInt(int node, int field) {
+        return buffer.getInt(nodesOffset + (node * NODE_INTS + field) * Integer.BYTES);
+    }
+
+    private String string(int offset) {
+        if (offset == NONE) {
+            return null;
+        }
+        int position = stringsOffset + offset;
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Lazy view of a contiguous range of nodes
+     */
+    private final class NodeRange extends AbstractList<CategoryInfo> {
+        private final int first;
+        private final int count;
+
+        NodeRange(int first, int count) {
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        public CategoryInfo get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return category(first + index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    /**
+     * Lazy view of a node's properties, through its range of property references
+     */
+    private final class PropertyRange extends AbstractList<PropertyDefinition> {
+        private final int firstRef;
+        private final int count;
+
+        PropertyRange(int firstRef, int count) {
+            this.firstRef = firstRef;
+            this.count = count;
+        }
+
+        @Override
+        public PropertyDefinition get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return property(buffer.getInt(propertyRefsOffset + (firstRef + index) * Integer.BYTES));
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    /**
+     * Lays out a tree in the mapped file format
+     */
+    private static final class Writer {
+        private final List<CategoryInfo> nodes = new ArrayList<>();
+        private final List<Integer> parents = new ArrayList<>();
+        private final Map<PropertyDefinition, Integer> propertyIds = new IdentityHashMap<>();
+        private final Map<Map<String, String>, Integer> labelRows = new HashMap<>();
+        private final List<Map<String, String>> labels = new ArrayList<>();
+        private LocaleTable locales;
+        private final List<PropertyDefinition> properties = new ArrayList<>();
+        private final Map<String, Integer> stringOffsets = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+        private int stringBytes;
+        private final int rootCount;
+
+        Writer(TaxonomyTree tree) {
+            // Breadth-first, so that the children of every node get consecutive ids
+            rootCount = tree.rootCategories().size();
+            for (CategoryInfo root : tree.rootCategories()) {
+                nodes.add(root);
+                parents.add(NONE);
+            }
+            for (int i = 0; i < nodes.size(); i++) {
+                for (CategoryInfo child : nodes.get(i).children()) {
+                    nodes.add(child);
+                    parents.add(i);
+                }
+            }
+        }
+
+        byte[] toBytes() {
+            int propertyRefCount = 0;
+            for (CategoryInfo node : nodes) {
+                for (PropertyDefinition property : node.properties()) {
+                    if (propertyIds.putIfAbsent(property, properties.size()) == null) {
+                        properties.add(property);
+                    }
+                }
+                propertyRefCount += node.properties().size();
+                addLocales(node.labels());
+            }
+            properties.forEach(property -> addLocales(property.labels()));
+            int[] nodeLabels = new int[nodes.size()];
+            for (int id = 0; id < nodes.size(); id++) {
+                nodeLabels[id] = labelRow(nodes.get(id).labels());
+            }
+            int[] propertyLabels = new int[properties.size()];
+            for (int id = 0; id < properties.size(); id++) {
+                propertyLabels[id] = labelRow(properties.get(id).labels());
+            }
+            int localeCount = locales == null ? 0 : locales.size();
+
+            int hashSlots = nodes.isEmpty() ? 0 : Integer.highestOneBit(nodes.size() * 2 - 1) << 1;
+            int nodesOffset = HEADER_BYTES;
+            int propertiesOffset = nodesOffset + nodes.size() * NODE_INTS * Integer.BYTES;
+            int propertyRefsOffset = propertiesOffset + properties.size() * PROPERTY_INTS * Integer.BYTES;
+            int hashOffset = propertyRefsOffset + propertyRefCount * Integer.BYTES;
+            int labelsOffset = hashOffset + hashSlots * Integer.BYTES;
+            int localesOffset = labelsOffset + labels.size() * localeCount * Integer.BYTES;
+            int[] localeInts = localeInts();
+            int stringsOffset = localesOffset + localeInts.length * Integer.BYTES;
+
+            int[] nodeInts = new int[nodes.size() * NODE_INTS];
+            int[] hashTable = new int[hashSlots];
+            int[] propertyRefs = new int[propertyRefCount];
+            int nextChild = rootCount;
+            int nextRef = 0;
+            for (int id = 0; id < nodes.size(); id++) {
+                CategoryInfo node = nodes.get(id);
+                int base = id * NODE_INTS;
+                nodeInts[base + NODE_CLASS_NAME] = intern(node.className());
+                nodeInts[base + NODE_ENGLISH_NAME] = intern(node.englishName());
+                nodeInts[base + NODE_NORWEGIAN_NAME] = intern(node.norwegianName());
+                nodeInts[base + NODE_DESCRIPTION] = intern(node.description());
+                nodeInts[base + NODE_URI] = intern(node.uri());
+                nodeInts[base + NODE_PARENT] = parents.get(id);
+                nodeInts[base + NODE_FIRST_CHILD] = nextChild;
+                nodeInts[base + NODE_CHILD_COUNT] = node.children().size();
+                nodeInts[base + NODE_FIRST_PROPERTY_REF] = nextRef;
+                nodeInts[base + NODE_PROPERTY_COUNT] = node.properties().size();
+                nodeInts[base + NODE_HASH] = node.className().hashCode();
+                nodeInts[base + NODE_LABELS] = nodeLabels[id];
+                nextChild += node.children().size();
+                for (PropertyDefinition property : node.properties()) {
+                    propertyRefs[nextRef++] = propertyIds.get(property);
+                }
+
+                int mask = hashSlots - 1;
+                int slot = mix(node.className().hashCode()) & mask;
+                while (hashTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                hashTable[slot] = id + 1;
+            }
+
+            int[] propertyInts = new int[properties.size() * PROPERTY_INTS];
+            for (int id = 0; id < properties.size(); id++) {
+                PropertyDefinition property = properties.get(id);
+                int base = id * PROPERTY_INTS;
+                propertyInts[base] = intern(property.name());
+                propertyInts[base + 1] = intern(property.englishLabel());
+                propertyInts[base + 2] = intern(property.norwegianLabel());
+                propertyInts[base + 3] = intern(property.uri());
+                propertyInts[base + 4] = intern(property.rangeType());
+                propertyInts[base + 5] = intern(property.domainClass());
+                propertyInts[base + 6] = intern(property.description());
+                propertyInts[base + 7] = property.propertyType() == null ? NONE : property.propertyType().ordinal();
+                propertyInts[base + 8] = propertyLabels[id];
+            }
+
+            int[] labelInts = new int[labels.size() * localeCount];
+            for (int row = 0; row < labels.size(); row++) {
+                for (int id = 0; id < localeCount; id++) {
+                    labelInts[row * localeCount + id] = intern(labels.get(row).get(locales.tag(id)));
+                }
+            }
+
+            long total = (long) stringsOffset + stringBytes;
+            if (total > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Taxonomy too large for a mapped file: " + total + " bytes");
+            }
+            ByteBuffer out = ByteBuffer.allocate((int) total);
+            out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nodes.size()).putInt(rootCount).putInt(hashSlots)
+                    .putInt(nodesOffset).putInt(propertiesOffset).putInt(propertyRefsOffset)
+                    .putInt(hashOffset).putInt(stringsOffset).putInt(labelsOffset).putInt(localesOffset);
+            out.asIntBuffer().put(nodeInts).put(propertyInts).put(propertyRefs).put(hashTable).put(labelInts)
+                    .put(localeInts);
+            out.position(stringsOffset);
+            for (byte[] string : strings) {
+                out.putInt(string.length).put(string);
+            }
+            return out.array();
+        }
+
+        /**
+         * Grow the file's locale table to cover the languages of some labels
+         */
+        private void addLocales(LocalizedLabels localized) {
+            if (localized == null) {
+                return;
+            }
+            if (locales == null) {
+                locales = localized.table();
+            } else if (locales != localized.table()) {
+                locales = locales.extend(localized.declared().keySet());
+            }
+        }
+
+        private int labelRow(LocalizedLabels localized) {
+            if (localized == null) {
+                return NONE;
+            }
+            return labelRows.computeIfAbsent(localized.declared(), declared -> {
+                labels.add(declared);
+                return labels.size() - 1;
+            });
+        }
+
+        private int[] localeInts() {
+            if (locales == null) {
+                return new int[] {0};
+            }
+            List<Integer> ints = new ArrayList<>();
+            ints.add(locales.size());
+            for (int id = 0; id < locales.size(); id++) {
+                List<String> chain = locales.fallbackChain(id);
+                ints.add(intern(locales.tag(id)));
+                ints.add(chain.size() - 1);
+                for (String fallback : chain.subList(1, chain.size())) {
+                    ints.add(locales.id(fallback));
+                }
+            }
+            return ints.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer offset = stringOffsets.get(value);
+            if (offset == null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                offset = stringBytes;
+                stringOffsets.put(value, offset);
+                strings.add(bytes);
+                stringBytes += Integer.BYTES + bytes.length;
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package no.sirktek.taxonomy.tenant;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/**
+ * Cumulative statistics of a {@link TaxonomyRegistry}
+ *
+ * @param hits          lookups answered by a loaded or loading taxonomy
+ * @param misses        lookups that had to load the taxonomy
+ * @param loadSuccesses loads that produced a taxonomy
+ * @param loadFailures  loads that threw
+ * @param totalLoadTime time spent in successful and failed loads
+ * @param evictions     taxonomies removed for weight or idle time
+ * @param size          taxonomies currently held, including ones still loading
+ * @param weight        total weight of the loaded taxonomies
+ */
+@Builder
+public record RegistryStats(
+        long hits,
+        long misses,
+        long loadSuccesses,
+        long loadFailures,
+        Duration totalLoadTime,
+        long evictions,
+        int size,
+        long weight
+) {
+    /**
+     * Fraction of lookups that did not have to load
+     * @return the hit rate, 1 when there were no lookups
+     */
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    /**
+     * Mean duration of a load
+     * @return the average load time, zero when nothing was loaded
+     */
+    public Duration averageLoadTime() {
+        long loads = loadSuccesses + loadFailures;
+        return loads == 0 ? Duration.ZERO : totalLoadTime.dividedBy(loads);
+    }
+}
@@ -0,0 +1,289 @@
+package no.sirktek.taxonomy.tenant;
+
+import lombok.extern.slf4j.Slf4j;
+import no.sirktek.taxonomy.TaxonomyVersion;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Taxonomies of many tenants, keyed by tenant and version, loaded on first use and evicted under memory pressure.
+ * <p>
+ * Loading is single-flight: the first caller for a key runs the loader on its own thread and concurrent callers
+ * for the same key wait for that result instead of parsing again. Failed loads are not cached. When the total
+ * weight of the loaded taxonomies exceeds the limit, the least recently used ones are evicted, and taxonomies
+ * not used for the idle timeout are evicted on their next lookup or by {@link #cleanUp()}.
+ * <p>
+ * Tenants typically share one {@link no.sirktek.taxonomy.loader.StringDictionary} through their loaders, so the
+ * base classes all tenant taxonomies extend hold their strings once. The dictionary holds its strings weakly, so
+ * strings used only by evicted taxonomies are freed along with them.
+ */
+@Slf4j
+public final class TaxonomyRegistry {
+
+    private final Function<TenantKey, TaxonomyTree> loader;
+    private final ToLongFunction<TaxonomyTree> weigher;
+    private final long maxWeight;
+    private final long idleNanos;
+    private final LongSupplier ticker;
+
+    private final ConcurrentHashMap<TenantKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a registry that weighs taxonomies by their number of categories
+     * @param loader      loads the taxonomy of a tenant version
+     * @param maxWeight   total number of categories to keep loaded
+     * @param idleTimeout time after its last lookup when a taxonomy is evicted
+     */
+    public TaxonomyRegistry(Function<TenantKey, TaxonomyTree> loader, long maxWeight, Duration idleTimeout) {
+        this(loader, tree -> tree.index().size(), maxWeight, idleTimeout);
+    }
+
+    /**
+     * Create a registry with a custom weight
+     * @param loader      loads the taxonomy of a tenant version
+     * @param weigher     weight of a loaded taxonomy, for example its category count or estimated bytes
+     * @param maxWeight   total weight to keep loaded
+     * @param idleTimeout time after its last lookup when a taxonomy is evicted
+     */
+    public TaxonomyRegistry(Function<TenantKey, TaxonomyTree> loader, ToLongFunction<TaxonomyTree> weigher,
+                            long maxWeight, Duration idleTimeout) {
+        this(loader, weigher, maxWeight, idleTimeout, System::nanoTime);
+    }
+
+    TaxonomyRegistry(Function<TenantKey, TaxonomyTree> loader, ToLongFunction<TaxonomyTree> weigher,
+                     long maxWeight, Duration idleTimeout, LongSupplier ticker) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must not be negative, was " + maxWeight);
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive, was " + idleTimeout);
+        }
+        this.loader = Objects.requireNonNull(loader, "loader");
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        this.maxWeight = maxWeight;
+        this.idleNanos = idleTimeout.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Get the taxonomy of a tenant version, loading it if it is not held
+     * @param key the tenant and version
+     * @return the taxonomy, with its own cache of derived structures
+     * @throws RuntimeException whatever the loader threw, to the loading caller and to every caller waiting on it;
+     *                          errors are rethrown the same way
+     */
+    public TaxonomyVersion get(TenantKey key) {
+        Objects.requireNonNull(key, "key");
+        long now = ticker.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isIdle(now, idleNanos) && evict(key, entry)) {
+            entry = null;
+        }
+        if (entry == null) {
+            Entry created = new Entry(now);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                misses.increment();
+                return load(key, created);
+            }
+        }
+        hits.increment();
+        entry.lastAccess = now;
+        return await(entry);
+    }
+
+    /**
+     * Get the taxonomy of a tenant version if it is loaded, without loading it or counting a lookup
+     * @param key the tenant and version
+     * @return the taxonomy, or empty if it is not loaded or still loading
+     */
+    public Optional<TaxonomyVersion> getIfPresent(TenantKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.future.join());
+    }
+
+    private TaxonomyVersion load(TenantKey key, Entry entry) {
+        long start = ticker.getAsLong();
+        try {
+            TaxonomyTree tree = Objects.requireNonNull(loader.apply(key), "Loader returned no taxonomy");
+            TaxonomyVersion version = new TaxonomyVersion(key.version(), tree);
+            entry.loaded(weigher.applyAsLong(tree), weight);
+            loadSuccesses.increment();
+            entry.future.complete(version);
+            // Idle time counts from the end of the load, or a load slower than the timeout would be evicted at once
+            entry.lastAccess = ticker.getAsLong();
+            log.debug("Loaded taxonomy {} of tenant {}", key.version(), key.tenantId());
+            evictOverweight(entry);
+            return version;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            entries.remove(key, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadNanos.add(ticker.getAsLong() - start);
+        }
+    }
+
+    private static TaxonomyVersion await(Entry entry) {
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void evictOverweight(Entry justLoaded) {
+        while (weight.get() > maxWeight) {
+            Map.Entry<TenantKey, Entry> eldest = null;
+            for (Map.Entry<TenantKey, Entry> candidate : entries.entrySet()) {
+                Entry entry = candidate.getValue();
+                if (entry != justLoaded && entry.future.isDone()
+                        && (eldest == null || entry.lastAccess < eldest.getValue().lastAccess)) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            evict(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private boolean evict(TenantKey key, Entry entry) {
+        if (!remove(key, entry)) {
+            return false;
+        }
+        evictions.increment();
+        log.debug("Evicted taxonomy {} of tenant {}", key.version(), key.tenantId());
+        return true;
+    }
+
+    private boolean remove(TenantKey key, Entry entry) {
+        if (!entries.remove(key, entry)) {
+            return false;
+        }
+        entry.removed(weight);
+        return true;
+    }
+
+    /**
+     * Evict every loaded taxonomy that has been idle for longer than the idle timeout
+     */
+    public void cleanUp() {
+        long now = ticker.getAsLong();
+        entries.forEach((key, entry) -> {
+            if (entry.isIdle(now, idleNanos)) {
+                evict(key, entry);
+            }
+        });
+    }
+
+    /**
+     * Drop one tenant version, so that its next lookup loads it again
+     * @param key the tenant and version
+     */
+    public void invalidate(TenantKey key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+    }
+
+    /**
+     * Drop every version of a tenant
+     * @param tenantId the tenant
+     */
+    public void invalidateTenant(String tenantId) {
+        entries.forEach((key, entry) -> {
+            if (key.tenantId().equals(tenantId)) {
+                remove(key, entry);
+            }
+        });
+    }
+
+    /**
+     * Number of taxonomies held, including ones still loading
+     * @return the taxonomy count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the cumulative statistics
+     * @return hits, misses, load counts and times, evictions and current size and weight
+     */
+    public RegistryStats stats() {
+        return RegistryStats.builder()
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .loadSuccesses(loadSuccesses.sum())
+                .loadFailures(loadFailures.sum())
+                .totalLoadTime(Duration.ofNanos(loadNanos.sum()))
+                .evictions(evictions.sum())
+                .size(entries.size())
+                .weight(weight.get())
+                .build();
+    }
+
+    /**
+     * A held taxonomy. Its weight is added to the registry total when it has loaded and subtracted when it is
+     * removed, in whichever order the two happen.
+     */
+    private static final class Entry {
+
+        private final CompletableFuture<TaxonomyVersion> future = new CompletableFuture<>();
+        private volatile long lastAccess;
+        private long weight;
+        private boolean removed;
+
+        Entry(long now) {
+            this.lastAccess = now;
+        }
+
+        boolean isIdle(long now, long idleNanos) {
+            return future.isDone() && now - lastAccess > idleNanos;
+        }
+
+        synchronized void loaded(long entryWeight, AtomicLong total) {
+            weight = entryWeight;
+            if (!removed) {
+                total.addAndGet(entryWeight);
+            }
+        }
+
+        synchronized void removed(AtomicLong total) {
+            removed = true;
+            total.addAndGet(-weight);
+        }
+    }
+}
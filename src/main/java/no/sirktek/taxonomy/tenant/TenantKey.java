@@ -0,0 +1,24 @@
+package no.sirktek.taxonomy.tenant;
+
+import java.util.Objects;
+
+/**
+ * Identifies one version of one tenant's taxonomy in a {@link TaxonomyRegistry}
+ *
+ * @param tenantId the tenant
+ * @param version  the taxonomy version of the tenant, starting at 1
+ */
+public record TenantKey(String tenantId, long version) {
+
+    /**
+     * Validating constructor
+     * @param tenantId the tenant
+     * @param version  the taxonomy version of the tenant, starting at 1
+     */
+    public TenantKey {
+        Objects.requireNonNull(tenantId, "tenantId");
+        if (version < 1) {
+            throw new IllegalArgumentException("Version must be at least 1, was " + version);
+        }
+    }
+}
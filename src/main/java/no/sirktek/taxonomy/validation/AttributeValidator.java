@@ -0,0 +1,152 @@
+package no.sirktek.taxonomy.validation;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Validates attribute records, maps of property name to raw string value, against the effective properties of
+ * one category.
+ * <p>
+ * The validator is compiled once per category into flat arrays indexed by property position, holding each
+ * property's type and the lexical check for that type, plus a map from property name to position. Validating a
+ * record is a hash lookup and a character scan per attribute, and allocates only for the errors it reports.
+ * Validators are immutable and safe for concurrent use.
+ */
+public final class AttributeValidator {
+
+    private final CategoryInfo category;
+    private final PropertyType[] types;
+    private final FieldFormat[] formats;
+    private final Map<String, Integer> positions;
+
+    private AttributeValidator(CategoryInfo category, List<PropertyDefinition> properties) {
+        this.category = category;
+        int size = properties.size();
+        types = new PropertyType[size];
+        formats = new FieldFormat[size];
+        positions = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            PropertyDefinition property = properties.get(i);
+            types[i] = property.getPropertyType();
+            formats[i] = FieldFormat.of(types[i]);
+            positions.putIfAbsent(property.name(), i);
+        }
+    }
+
+    /**
+     * Compile a validator for a category
+     * @param category   the category
+     * @param properties the category's effective properties, as from
+     *                   {@link no.sirktek.taxonomy.model.TaxonomyIndex#effectiveProperties(int)}
+     * @return the compiled validator
+     */
+    public static AttributeValidator compile(CategoryInfo category, List<PropertyDefinition> properties) {
+        return new AttributeValidator(category, properties);
+    }
+
+    /**
+     * The category this validator checks records for
+     * @return the category
+     */
+    public CategoryInfo category() {
+        return category;
+    }
+
+    /**
+     * Type expected for an attribute
+     * @param propertyName the attribute name
+     * @return the property type, or null if the category has no such property
+     */
+    public PropertyType typeOf(String propertyName) {
+        Integer position = positions.get(propertyName);
+        return position == null ? null : types[position];
+    }
+
+    /**
+     * Validate one record, reporting each error to a consumer
+     * @param attributes property name to raw value
+     * @param row        row number to put in the reported errors
+     * @param errors     receives every error found
+     * @return the number of errors found
+     */
+    public int validate(Map<String, String> attributes, int row, Consumer<ValidationError> errors) {
+        int count = 0;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            ValidationError.Code code = check(attribute.getKey(), attribute.getValue());
+            if (code != null) {
+                errors.accept(new ValidationError(row, attribute.getKey(), attribute.getValue(), code));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Validate one record
+     * @param attributes property name to raw value
+     * @return the errors found, empty if the record is valid
+     */
+    public List<ValidationError> validate(Map<String, String> attributes) {
+        return validateRow(attributes, 0);
+    }
+
+    /**
+     * Check one attribute
+     * @param propertyName the attribute name
+     * @param value        the raw value
+     * @return null if the value is valid, otherwise the reason it is not
+     */
+    public ValidationError.Code check(String propertyName, String value) {
+        Integer position = positions.get(propertyName);
+        if (position == null) {
+            return ValidationError.Code.UNKNOWN_PROPERTY;
+        }
+        if (value == null || value.isBlank()) {
+            return ValidationError.Code.MISSING_VALUE;
+        }
+        return formats[position].check(value);
+    }
+
+    /**
+     * Validate many records in parallel on the common fork-join pool
+     * @param records the records, each a map of property name to raw value
+     * @return counts and errors, with each error's row set to its record's position
+     */
+    public BatchValidationResult validateAll(List<? extends Map<String, String>> records) {
+        List<List<ValidationError>> perRow = IntStream.range(0, records.size()).parallel()
+                .mapToObj(row -> validateRow(records.get(row), row))
+                .toList();
+
+        List<ValidationError> errors = new ArrayList<>();
+        int invalidRows = 0;
+        for (List<ValidationError> rowErrors : perRow) {
+            if (!rowErrors.isEmpty()) {
+                invalidRows++;
+                errors.addAll(rowErrors);
+            }
+        }
+        return new BatchValidationResult(records.size(), invalidRows, List.copyOf(errors));
+    }
+
+    private List<ValidationError> validateRow(Map<String, String> attributes, int row) {
+        List<ValidationError> errors = null;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            ValidationError.Code code = check(attribute.getKey(), attribute.getValue());
+            if (code != null) {
+                if (errors == null) {
+                    errors = new ArrayList<>(2);
+                }
+                errors.add(new ValidationError(row, attribute.getKey(), attribute.getValue(), code));
+            }
+        }
+        return errors == null ? List.of() : errors;
+    }
+}
@@ -0,0 +1,49 @@
+package no.sirktek.taxonomy.validation;
+
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The attribute validators of one taxonomy, compiled on first use and then reused for every record
+ */
+public final class AttributeValidators {
+
+    private final TaxonomyIndex index;
+    private final AtomicReferenceArray<AttributeValidator> validators;
+
+    /**
+     * Create an empty validator cache for a taxonomy
+     * @param index the indexed taxonomy
+     */
+    public AttributeValidators(TaxonomyIndex index) {
+        this.index = index;
+        this.validators = new AtomicReferenceArray<>(index.size());
+    }
+
+    /**
+     * Get the validator of a category, compiling it on first use
+     * @param id the category's node id
+     * @return the validator
+     */
+    public AttributeValidator forNode(int id) {
+        AttributeValidator validator = validators.get(id);
+        if (validator == null) {
+            validator = AttributeValidator.compile(index.node(id), index.effectiveProperties(id));
+            if (!validators.compareAndSet(id, null, validator)) {
+                validator = validators.get(id);
+            }
+        }
+        return validator;
+    }
+
+    /**
+     * Get the validator of a category by class name
+     * @param className the class name
+     * @return the validator, or null for unknown classes
+     */
+    public AttributeValidator forClassName(String className) {
+        int id = index.idOf(className);
+        return id == TaxonomyIndex.NOT_FOUND ? null : forNode(id);
+    }
+}
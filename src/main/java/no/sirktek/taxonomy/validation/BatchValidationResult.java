@@ -0,0 +1,21 @@
+package no.sirktek.taxonomy.validation;
+
+import java.util.List;
+
+/**
+ * Outcome of validating a batch of records
+ *
+ * @param rows        number of records validated
+ * @param invalidRows number of records with at least one error
+ * @param errors      every error, ordered by row and then by attribute encounter order
+ */
+public record BatchValidationResult(int rows, int invalidRows, List<ValidationError> errors) {
+
+    /**
+     * Whether every record in the batch was valid
+     * @return true if there are no errors
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
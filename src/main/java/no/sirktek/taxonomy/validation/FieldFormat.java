@@ -0,0 +1,200 @@
+package no.sirktek.taxonomy.validation;
+
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.validation.ValidationError.Code;
+
+/**
+ * Lexical checks for raw attribute values, one per family of property types. Every check scans the characters
+ * of the value in place and allocates nothing.
+ */
+enum FieldFormat {
+
+    TEXT {
+        @Override
+        Code check(String value) {
+            return null;
+        }
+    },
+    DECIMAL {
+        @Override
+        Code check(String value) {
+            return isDecimal(value, true) ? null : Code.INVALID_DECIMAL;
+        }
+    },
+    MEASUREMENT {
+        @Override
+        Code check(String value) {
+            if (!isDecimal(value, true)) {
+                return Code.INVALID_DECIMAL;
+            }
+            return value.charAt(0) == '-' && !isZero(value) ? Code.NEGATIVE_MEASUREMENT : null;
+        }
+    },
+    INTEGER {
+        @Override
+        Code check(String value) {
+            return isDecimal(value, false) ? null : Code.INVALID_INTEGER;
+        }
+    },
+    SCALE_1_TO_5 {
+        @Override
+        Code check(String value) {
+            if (!isDecimal(value, false)) {
+                return Code.INVALID_INTEGER;
+            }
+            return value.length() == 1 && value.charAt(0) >= '1' && value.charAt(0) <= '5' ? null : Code.OUT_OF_SCALE;
+        }
+    },
+    DATE {
+        @Override
+        Code check(String value) {
+            return isDate(value) ? null : Code.INVALID_DATE;
+        }
+    },
+    BOOLEAN {
+        @Override
+        Code check(String value) {
+            return "true".equals(value) || "false".equals(value) || "1".equals(value) || "0".equals(value)
+                    ? null : Code.INVALID_BOOLEAN;
+        }
+    },
+    URL {
+        @Override
+        Code check(String value) {
+            return isAbsoluteUri(value) ? null : Code.INVALID_URL;
+        }
+    };
+
+    /**
+     * Check a non-null raw value
+     * @return null if the value is valid, otherwise the reason it is not
+     */
+    abstract Code check(String value);
+
+    static FieldFormat of(PropertyType type) {
+        return switch (type) {
+            case DECIMAL, EMISSION -> DECIMAL;
+            case DECIMAL_CM, DECIMAL_KG, DECIMAL_M2, DECIMAL_M3 -> MEASUREMENT;
+            case INTEGER -> INTEGER;
+            case INTEGER_SCALE_1TO5 -> SCALE_1_TO_5;
+            case DATE -> DATE;
+            case BOOLEAN -> BOOLEAN;
+            case URL -> URL;
+            case STRING, UNIT, CATEGORY, MULTI_CATEGORY, EMAIL_FORM, RESOURCE_TYPE -> TEXT;
+        };
+    }
+
+    /**
+     * {@code xsd:decimal} lexical form: optional sign, digits, and with {@code allowFraction} an optional
+     * fraction; at least one digit overall
+     */
+    static boolean isDecimal(String value, boolean allowFraction) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        int i = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        int digits = 0;
+        boolean seenPoint = false;
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && allowFraction && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+
+    private static boolean isZero(String value) {
+        for (int i = 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '0' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code xsd:date} lexical form: {@code YYYY-MM-DD} with a real calendar day, optionally followed by
+     * {@code Z} or a {@code +hh:mm}/{@code -hh:mm} offset
+     */
+    static boolean isDate(String value) {
+        if (value == null || value.length() < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return false;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return false;
+        }
+        int rest = value.length() - 10;
+        if (rest == 0) {
+            return true;
+        }
+        if (rest == 1) {
+            return value.charAt(10) == 'Z';
+        }
+        return rest == 6 && (value.charAt(10) == '+' || value.charAt(10) == '-') && value.charAt(13) == ':'
+                && digits(value, 11, 2) >= 0 && digits(value, 11, 2) <= 14 && digits(value, 14, 2) >= 0
+                && digits(value, 14, 2) < 60;
+    }
+
+    private static int digits(String value, int start, int length) {
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + c - '0';
+        }
+        return result;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Absolute URI: a scheme of a letter followed by letters, digits, {@code +}, {@code -} or {@code .}, a colon,
+     * and a non-empty remainder without whitespace
+     */
+    static boolean isAbsoluteUri(String value) {
+        if (value == null || value.isEmpty() || !isAsciiLetter(value.charAt(0))) {
+            return false;
+        }
+        int colon = -1;
+        for (int i = 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ':') {
+                colon = i;
+                break;
+            }
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        if (colon < 0 || colon == value.length() - 1) {
+            return false;
+        }
+        for (int i = colon + 1; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,36 @@
+package no.sirktek.taxonomy.validation;
+
+/**
+ * A rejected attribute value
+ *
+ * @param row      position of the record in a batch, 0 for a single record
+ * @param property name of the attribute
+ * @param value    the rejected raw value, possibly null
+ * @param code     why the value was rejected
+ */
+public record ValidationError(int row, String property, String value, Code code) {
+
+    /**
+     * Reasons for rejecting a value
+     */
+    public enum Code {
+        /** The category has no property with this name */
+        UNKNOWN_PROPERTY,
+        /** The value is null or blank for a property that needs a value */
+        MISSING_VALUE,
+        /** Not an {@code xsd:decimal} */
+        INVALID_DECIMAL,
+        /** A decimal measurement that is negative */
+        NEGATIVE_MEASUREMENT,
+        /** Not an {@code xsd:integer} */
+        INVALID_INTEGER,
+        /** Not an integer from 1 to 5 */
+        OUT_OF_SCALE,
+        /** Not an {@code xsd:date} */
+        INVALID_DATE,
+        /** Not an {@code xsd:boolean} */
+        INVALID_BOOLEAN,
+        /** Not an absolute URI */
+        INVALID_URL
+    }
+}
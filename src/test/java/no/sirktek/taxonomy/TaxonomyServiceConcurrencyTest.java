@@ -0,0 +1,159 @@
+package no.sirktek.taxonomy;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(60)
+class TaxonomyServiceConcurrencyTest {
+
+    private static final TaxonomyTree BASE = new RdfsTaxonomyLoader(false).loadBaseTaxonomy();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the base tree, counting calls and blocking each one until released
+     */
+    private static final class GatedLoader extends RdfsTaxonomyLoader {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean failNext;
+
+        GatedLoader() {
+            super(false);
+        }
+
+        @Override
+        public TaxonomyTree loadBaseTaxonomy() {
+            calls.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("load failed");
+            }
+            return BASE;
+        }
+    }
+
+    @Test
+    void shouldShareOneFirstLoadBetweenConcurrentCallers() throws Exception {
+        GatedLoader loader = new GatedLoader();
+        TaxonomyService service = new TaxonomyService(loader);
+        List<Future<TaxonomyVersion>> callers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            callers.add(executor.submit(service::getCurrentVersion));
+        }
+
+        assertTrue(loader.entered.await(10, TimeUnit.SECONDS));
+        loader.release.countDown();
+        Set<TaxonomyVersion> versions = ConcurrentHashMap.newKeySet();
+        for (Future<TaxonomyVersion> caller : callers) {
+            versions.add(caller.get());
+        }
+
+        assertEquals(1, versions.size());
+        assertEquals(1, versions.iterator().next().version());
+        assertEquals(1, loader.calls.get());
+    }
+
+    @Test
+    void shouldRetryFirstLoadAfterFailure() {
+        GatedLoader loader = new GatedLoader();
+        loader.release.countDown();
+        loader.failNext = true;
+        TaxonomyService service = new TaxonomyService(loader);
+
+        assertThrows(IllegalStateException.class, service::getCurrentVersion);
+        assertEquals(1, service.getCurrentVersion().version());
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    void shouldNotBlockReadersOrLoseVersionsWhileReloading() throws Exception {
+        GatedLoader loader = new GatedLoader();
+        TaxonomyService service = new TaxonomyService(loader);
+        Queue<Long> published = new ConcurrentLinkedQueue<>();
+        AtomicInteger skipped = new AtomicInteger();
+        service.addChangeListener((previous, next) -> {
+            published.add(next.version());
+            if (previous != null && previous.version() + 1 != next.version()) {
+                skipped.incrementAndGet();
+            }
+        });
+        service.publish(BASE);
+
+        // A reload parks inside the loader while readers and writers carry on
+        Future<TaxonomyTree> reload = executor.submit(service::reloadBaseTaxonomy);
+        assertTrue(loader.entered.await(10, TimeUnit.SECONDS));
+
+        int writers = 4;
+        int publishesPerWriter = 250;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(executor.submit(() -> {
+                start.await();
+                long seen = 0;
+                for (int read = 0; read < 20_000; read++) {
+                    TaxonomyVersion version = service.getCurrentVersion();
+                    assertTrue(version.version() >= seen, "versions went backwards");
+                    seen = version.version();
+                    assertTrue(service.getCategoryByClassName("OfficeChair").isPresent());
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < writers; i++) {
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int write = 0; write < publishesPerWriter; write++) {
+                    service.publish(BASE);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        assertFalse(reload.isDone(), "the reload should still be parked in the loader");
+
+        loader.release.countDown();
+        reload.get(10, TimeUnit.SECONDS);
+        long expected = 1 + writers * publishesPerWriter + 1;
+        assertEquals(expected, service.getCurrentVersion().version());
+        assertEquals(LongStream.rangeClosed(1, expected).boxed().toList(), published.stream().sorted().toList());
+        assertEquals(0, skipped.get());
+        assertEquals(1, loader.calls.get());
+    }
+}
@@ -1,10 +1,19 @@
 package no.sirktek.taxonomy;
 
 import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
 import no.sirktek.taxonomy.model.TaxonomyTree;
+import no.sirktek.taxonomy.search.SuggestIndex;
+import no.sirktek.taxonomy.search.Suggestion;
+import no.sirktek.taxonomy.stats.SubtreeStats;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,7 +46,110 @@ class TaxonomyServiceTest {
         assertTrue(furniture.get().isRoot());
     }
 
+    @Test
+    void shouldFindNestedCategoryByClassName() {
+        Optional<CategoryInfo> officeChair = taxonomyService.getCategoryByClassName("OfficeChair");
+
+        assertTrue(officeChair.isPresent());
+        assertEquals("Chair", officeChair.get().parentClassName());
+    }
+
+    @Test
+    void shouldFindCategoryByUri() {
+        Optional<CategoryInfo> table = taxonomyService.getCategoryByUri("http://taxonomy.sirktek.no/furniture#Table");
+
+        assertTrue(table.isPresent());
+        assertEquals("Table", table.get().className());
+        assertFalse(taxonomyService.getCategoryByUri("http://example.com/Table").isPresent());
+    }
+
+    @Test
+    void shouldFindCategoryByEnglishAndNorwegianLabel() {
+        assertEquals("Table", taxonomyService.getCategoryByLabel("Table").map(CategoryInfo::className).orElse(null));
+        assertEquals("Table", taxonomyService.getCategoryByLabel("Bord").map(CategoryInfo::className).orElse(null));
+        assertFalse(taxonomyService.getCategoryByLabel("Nonexistent label").isPresent());
+    }
+
+    @Test
+    void shouldReturnSameInstanceFromIndexAsFromTree() {
+        TaxonomyTree taxonomy = taxonomyService.loadBaseTaxonomy();
+        CategoryInfo furniture = taxonomy.rootCategories().stream()
+                .filter(category -> category.className().equals("Furniture"))
+                .findFirst()
+                .orElseThrow();
+        CategoryInfo table = furniture.children().stream()
+                .filter(category -> category.className().equals("Table"))
+                .findFirst()
+                .orElseThrow();
+
+        assertSame(table, taxonomy.findByClassName("Table"));
+        assertEquals(taxonomy.index().size(), taxonomyService.getStats().totalCategories());
+    }
+
+    @Test
+    void shouldAnswerSubclassQueries() {
+        assertTrue(taxonomyService.isSubclassOf("OfficeChair", "SeatingFurniture"));
+        assertTrue(taxonomyService.isSubclassOf("OfficeChair", "Furniture"));
+        assertTrue(taxonomyService.isSubclassOf("Chair", "Chair"));
+        assertFalse(taxonomyService.isSubclassOf("SeatingFurniture", "OfficeChair"));
+        assertFalse(taxonomyService.isSubclassOf("OfficeChair", "StorageFurniture"));
+        assertFalse(taxonomyService.isSubclassOf("OfficeChair", "NonExistent"));
+    }
+
+    @Test
+    void shouldListAncestorsNearestFirst() {
+        List<String> ancestors = taxonomyService.getAncestors("OfficeChair").stream()
+                .map(CategoryInfo::className)
+                .toList();
+
+        assertEquals(List.of("Chair", "SeatingFurniture", "Furniture"), ancestors);
+        assertTrue(taxonomyService.getAncestors("Furniture").isEmpty());
+        assertTrue(taxonomyService.getAncestors("NonExistent").isEmpty());
+    }
+
+    @Test
+    void shouldListAllDescendants() {
+        List<String> descendants = taxonomyService.getDescendants("SeatingFurniture").stream()
+                .map(CategoryInfo::className)
+                .toList();
+
+        assertTrue(descendants.containsAll(List.of("Chair", "OfficeChair", "Sofa", "ModularSofa", "BarStool")));
+        assertFalse(descendants.contains("SeatingFurniture"));
+        assertFalse(descendants.contains("Table"));
+        assertTrue(taxonomyService.getDescendants("OfficeChair").isEmpty());
+    }
+
+    @Test
+    void shouldFindLowestCommonAncestor() {
+        assertEquals("Chair", taxonomyService.getLowestCommonAncestor("OfficeChair", "LoungeChair")
+                .map(CategoryInfo::className).orElse(null));
+        assertEquals("SeatingFurniture", taxonomyService.getLowestCommonAncestor("OfficeChair", "BarStool")
+                .map(CategoryInfo::className).orElse(null));
+        assertEquals("Chair", taxonomyService.getLowestCommonAncestor("Chair", "OfficeChair")
+                .map(CategoryInfo::className).orElse(null));
+        assertFalse(taxonomyService.getLowestCommonAncestor("OfficeChair", "Manufacturer").isPresent());
+    }
+
+    @Test
+    void shouldInheritPropertiesAlongSubclassChain() {
+        List<String> names = taxonomyService.getEffectiveProperties("OfficeChair").stream()
+                .map(PropertyDefinition::name)
+                .toList();
+
+        assertTrue(names.containsAll(List.of("weight", "height", "serialNumber", "color")));
+        assertFalse(names.contains("accessory"));
+        assertTrue(names.indexOf("weight") < names.indexOf("serialNumber"), "inherited properties come first");
+        assertTrue(taxonomyService.getEffectiveProperties("NonExistent").isEmpty());
+    }
+
+    @Test
+    void shouldShareEffectivePropertiesWithParent() {
+        List<PropertyDefinition> chair = taxonomyService.getEffectiveProperties("Chair");
 
+        assertSame(chair, taxonomyService.getEffectiveProperties("OfficeChair"));
+        assertSame(taxonomyService.getEffectiveProperties("Furniture"), taxonomyService.getEffectiveProperties("Table"));
+        assertThrows(UnsupportedOperationException.class, () -> chair.add(chair.get(0)));
+    }
 
     @Test
     void shouldReturnEmptyForNonExistentCategory() {
@@ -58,6 +170,38 @@ class TaxonomyServiceTest {
 
         // Total categories should be more than root categories due to hierarchy
         assertTrue(stats.totalCategories() > stats.rootCategories());
+
+        assertEquals(stats.rootCategories(), stats.categoriesByDepth().get(0));
+        assertEquals(stats.maxDepth() + 1, stats.categoriesByDepth().size());
+        assertEquals(stats.totalCategories(), stats.categoriesByDepth().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(stats.leafCategories(), stats.categoriesByChildCount().get(0));
+        assertTrue(stats.propertiesByType().containsKey(PropertyDefinition.PropertyType.DECIMAL_CM));
+        assertSame(stats.categoriesByDepth(), taxonomyService.getStats().categoriesByDepth(), "computed once per version");
+    }
+
+    @Test
+    void shouldCreateStatsWithLegacyConstructor() {
+        TaxonomyService.TaxonomyStats stats = new TaxonomyService.TaxonomyStats(12, 3);
+
+        assertEquals(12, stats.totalCategories());
+        assertEquals(3, stats.rootCategories());
+        assertEquals(0, stats.leafCategories());
+        assertEquals(0, stats.maxDepth());
+        assertTrue(stats.categoriesByDepth().isEmpty());
+        assertTrue(stats.categoriesByChildCount().isEmpty());
+        assertTrue(stats.propertiesByType().isEmpty());
+        assertEquals(stats, TaxonomyService.TaxonomyStats.builder().totalCategories(12).rootCategories(3).build());
+    }
+
+    @Test
+    void shouldProvideSubtreeStats() {
+        SubtreeStats chair = taxonomyService.getSubtreeStats("Chair").orElseThrow();
+
+        assertEquals(taxonomyService.getCategoryByClassName("Chair").orElseThrow().children().size() + 1,
+                chair.categories(), "Chair and its leaf children");
+        assertEquals(chair.categories() - 1, chair.leaves());
+        assertEquals(1, chair.height());
+        assertTrue(taxonomyService.getSubtreeStats("NonExistent").isEmpty());
     }
 
     @Test
@@ -85,6 +229,74 @@ class TaxonomyServiceTest {
         assertSame(reloaded, cached);
     }
 
+    @Test
+    void shouldIncrementVersionAndNotifyListenersOnReload() {
+        List<Long> notified = new ArrayList<>();
+        taxonomyService.addChangeListener((previous, current) -> notified.add(current.version()));
+
+        TaxonomyVersion first = taxonomyService.getCurrentVersion();
+        taxonomyService.reloadBaseTaxonomy();
+        TaxonomyVersion second = taxonomyService.getCurrentVersion();
+
+        assertEquals(1, first.version());
+        assertEquals(2, second.version());
+        assertSame(second.tree(), taxonomyService.loadBaseTaxonomy());
+        assertEquals(List.of(1L, 2L), notified);
+    }
+
+    @Test
+    void shouldCompareVersionsByIdentity() {
+        TaxonomyTree tree = taxonomyService.loadBaseTaxonomy();
+        TaxonomyVersion version = new TaxonomyVersion(1, tree);
+
+        assertNotEquals(new TaxonomyVersion(1, tree), version);
+        assertEquals(System.identityHashCode(version), version.hashCode());
+    }
+
+    @Test
+    void shouldBuildDerivedStructuresOutsideTheCacheAndRetryFailedBuilds() {
+        TaxonomyVersion version = new TaxonomyVersion(1, taxonomyService.loadBaseTaxonomy());
+
+        assertThrows(IllegalStateException.class, () -> version.derived(String.class, tree -> {
+            throw new IllegalStateException("failed build");
+        }));
+        // A factory may get another structure of the same version while it runs
+        String built = version.derived(String.class,
+                tree -> "size " + version.derived(Integer.class, t -> t.index().size()));
+
+        assertEquals("size " + version.tree().index().size(), built);
+        assertSame(built, version.derived(String.class, tree -> fail("structure should already be built")));
+    }
+
+    @Test
+    void shouldSuggestCategoriesAndRebuildIndexPerVersion() {
+        TaxonomyVersion first = taxonomyService.getCurrentVersion();
+        List<Suggestion> suggestions = taxonomyService.suggest("kontor stol", Locale.forLanguageTag("nb"), 3);
+
+        assertEquals("OfficeChair", suggestions.get(0).category().className());
+        SuggestIndex index = first.derived(SuggestIndex.class, tree -> fail("index should already be built"));
+        taxonomyService.reloadBaseTaxonomy();
+        taxonomyService.suggest("stol", null, 3);
+        assertNotSame(index, taxonomyService.getCurrentVersion().derived(SuggestIndex.class, tree -> null));
+    }
+
+    @Test
+    void shouldPublishPatchedTaxonomy() {
+        TaxonomyVersion first = taxonomyService.getCurrentVersion();
+        String patch = """
+                @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+                @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+                furniture:GamingChair a rdfs:Class ; rdfs:subClassOf furniture:Chair ; rdfs:label "Gaming Chair"@en .
+                """;
+
+        TaxonomyVersion patched = taxonomyService.applyPatch(
+                new ByteArrayInputStream(patch.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(first.version() + 1, patched.version());
+        assertTrue(taxonomyService.isSubclassOf("GamingChair", "SeatingFurniture"));
+        assertSame(first.tree().findByClassName("Table"), taxonomyService.getCategoryByClassName("Table").orElseThrow());
+    }
+
     @Test
     void shouldDetectBaseTaxonomyClasses() {
         assertTrue(taxonomyService.isBaseTaxonomyClass("Table"));
@@ -0,0 +1,21 @@
+package no.sirktek.taxonomy;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+
+/**
+ * Small taxonomies shared by tests, loaded from {@code src/test/resources/taxonomy}
+ */
+public final class TestTaxonomies {
+
+    private TestTaxonomies() {
+    }
+
+    /**
+     * A seat and a stool labelled in English, Norwegian, Swedish and Danish
+     * @return the indexed taxonomy
+     */
+    public static TaxonomyIndex scandinavian() {
+        return new RdfsTaxonomyLoader(false).loadTaxonomyFromResource("/taxonomy/scandinavian.ttl").index();
+    }
+}
@@ -0,0 +1,55 @@
+package no.sirktek.taxonomy.batch;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchClassificationTest {
+
+    private final TaxonomyService service = new TaxonomyService();
+
+    @Test
+    void shouldResolveKeysByPositionAndShareWorkPerCategory() {
+        String[] keys = {"OfficeChair", "Missing", null, "Table", "OfficeChair"};
+
+        BatchClassification batch = service.classify(keys, KeyType.CLASS_NAME);
+
+        assertEquals(5, batch.size());
+        assertEquals("OfficeChair", batch.category(0).className());
+        assertFalse(batch.isResolved(1));
+        assertNull(batch.category(2));
+        assertTrue(batch.effectiveProperties(1).isEmpty());
+        assertEquals(List.of("Chair", "SeatingFurniture", "Furniture"),
+                batch.ancestors(0).stream().map(CategoryInfo::className).toList());
+        assertSame(batch.ancestors(0), batch.ancestors(4));
+        assertEquals(service.getEffectiveProperties("Table"), batch.effectiveProperties(3));
+        assertEquals(2, batch.unresolvedCount());
+        assertEquals(2, batch.distinctCategoryCount());
+    }
+
+    @Test
+    void shouldResolveUrisAndLabels() {
+        String uri = service.getCategoryByClassName("Table").orElseThrow().uri();
+
+        assertEquals("Table", service.classify(new String[]{uri}, KeyType.URI).category(0).className());
+        assertEquals("OfficeChair", service.classify(Stream.of("Kontorstol"), KeyType.LABEL).category(0).className());
+    }
+
+    @Test
+    void shouldClassifyLargeBatches() {
+        String[] names = {"OfficeChair", "Table", "Sofa", "Unknown"};
+        String[] keys = IntStream.range(0, 1_000_000).mapToObj(i -> names[i % names.length]).toArray(String[]::new);
+
+        BatchClassification batch = service.classify(keys, KeyType.CLASS_NAME);
+
+        assertEquals(250_000, batch.unresolvedCount());
+        assertEquals(3, batch.distinctCategoryCount());
+        assertEquals("Sofa", batch.category(999_998).className());
+    }
+}
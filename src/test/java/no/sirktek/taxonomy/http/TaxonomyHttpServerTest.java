@@ -0,0 +1,133 @@
+package no.sirktek.taxonomy.http;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxonomyHttpServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private TaxonomyService service;
+    private TaxonomyHttpServer server;
+    private URI base;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new TaxonomyService(new RdfsTaxonomyLoader(false));
+        server = new TaxonomyHttpServer(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        InetSocketAddress address = server.start();
+        base = URI.create("http://localhost:" + address.getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> get(String path, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void shouldServeCategoriesAncestorsAndProperties() throws Exception {
+        HttpResponse<String> category = get("/categories/OfficeChair");
+        assertEquals(200, category.statusCode());
+        assertEquals("application/json; charset=utf-8", category.headers().firstValue("Content-Type").orElseThrow());
+        assertTrue(category.body().startsWith("{\"className\":\"OfficeChair\""), category.body());
+        assertTrue(category.body().contains("\"norwegianName\":\"Kontorstol\""), category.body());
+
+        String ancestors = get("/categories/OfficeChair/ancestors").body();
+        assertTrue(ancestors.indexOf("\"className\":\"Chair\"") < ancestors.indexOf("\"className\":\"Furniture\""));
+
+        String properties = get("/categories/OfficeChair/properties").body();
+        assertTrue(properties.contains("\"name\":\"color\""), properties);
+        assertTrue(properties.contains("\"propertyType\":\"DECIMAL_CM\""), properties);
+
+        String tree = get("/taxonomy").body();
+        assertTrue(tree.startsWith("{\"categories\":[{"), tree);
+        assertTrue(tree.endsWith("]}"), tree);
+
+        HttpResponse<String> head = client.send(HttpRequest.newBuilder(base.resolve("/taxonomy"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, head.statusCode());
+        assertEquals("", head.body());
+        assertTrue(head.headers().firstValue("ETag").isPresent());
+
+        assertEquals(404, get("/categories/Spaceship").statusCode());
+        assertEquals(404, get("/categories/OfficeChair/owners").statusCode());
+        assertEquals(404, get("/").statusCode());
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(base.resolve("/taxonomy"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, post.statusCode());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedUntilTheContentChanges() throws Exception {
+        HttpResponse<String> first = get("/categories/Chair");
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""), etag);
+        assertEquals("1", first.headers().firstValue("X-Taxonomy-Version").orElseThrow());
+
+        HttpResponse<String> cached = get("/categories/Chair", "If-None-Match", etag);
+        assertEquals(304, cached.statusCode());
+        assertEquals("", cached.body());
+
+        // A new version with the same category keeps its tag; a changed category gets a new one
+        service.reloadBaseTaxonomy();
+        assertEquals(304, get("/categories/Chair", "If-None-Match", "\"other\", " + etag).statusCode());
+        service.applyPatch(new ByteArrayInputStream("""
+                @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+                @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+                furniture:Chair a rdfs:Class ; rdfs:label "Seat"@en .
+                """.getBytes(StandardCharsets.UTF_8)));
+        HttpResponse<String> changed = get("/categories/Chair", "If-None-Match", etag);
+        assertEquals(200, changed.statusCode());
+        assertTrue(changed.body().contains("\"englishName\":\"Seat\""), changed.body());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        assertEquals("3", changed.headers().firstValue("X-Taxonomy-Version").orElseThrow());
+    }
+
+    @Test
+    void shouldServeGzipAndLanguageViews() throws Exception {
+        HttpResponse<byte[]> gzip = client.send(HttpRequest.newBuilder(base.resolve("/taxonomy"))
+                .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElseThrow());
+        String identityEtag = get("/taxonomy").headers().firstValue("ETag").orElseThrow();
+        String gzipEtag = gzip.headers().firstValue("ETag").orElseThrow();
+        assertNotEquals(identityEtag, gzipEtag);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertEquals(get("/taxonomy").body(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(304, get("/taxonomy", "Accept-Encoding", "gzip", "If-None-Match", gzipEtag).statusCode());
+        assertEquals(200, get("/taxonomy", "If-None-Match", gzipEtag).statusCode());
+
+        String norwegian = get("/taxonomy?lang=nb").body();
+        assertTrue(norwegian.contains("\"norwegianName\":\"Kontorstol\""), norwegian);
+        assertFalse(norwegian.contains("englishName"));
+
+        String subtree = get("/categories/Chair/subtree?lang=en").body();
+        assertTrue(subtree.startsWith("{\"className\":\"Chair\""), subtree);
+        assertTrue(subtree.contains("\"englishName\":\"Office Chair\""), subtree);
+        assertFalse(subtree.contains("norwegianName"));
+        assertEquals(404, get("/categories/Spaceship/subtree").statusCode());
+    }
+}
@@ -0,0 +1,102 @@
+package no.sirktek.taxonomy.json;
+
+import no.sirktek.taxonomy.TestTaxonomies;
+import no.sirktek.taxonomy.json.TaxonomyJson.Encoding;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxonomyJsonTest {
+
+    private final TaxonomyJson json = TaxonomyJson.of(new RdfsTaxonomyLoader(false).loadBaseTaxonomy().index());
+
+    private static String tree(TaxonomyJson json, Locale locale) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        json.writeTree(out, locale);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldKeepPlainAndGzipTreeInSync() throws IOException {
+        byte[] plain = json.toByteArray(Encoding.IDENTITY);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(json.toByteArray(Encoding.GZIP)))) {
+            assertArrayEquals(plain, in.readAllBytes());
+        }
+        assertEquals(new String(plain, StandardCharsets.UTF_8), tree(json, null));
+        assertEquals(plain.length, json.size(Encoding.IDENTITY));
+        assertTrue(json.size(Encoding.GZIP) < plain.length / 4, "gzip should shrink the repetitive JSON");
+        assertTrue(tree(json, null).contains("{\"className\":\"OfficeChair\",\"uri\":\"http://taxonomy.sirktek.no/"
+                + "furniture#OfficeChair\",\"englishName\":\"Office Chair\",\"norwegianName\":\"Kontorstol\""));
+    }
+
+    @Test
+    void shouldWriteSingleLanguageViewsAndSubtrees() throws IOException {
+        String norwegian = tree(json, Locale.forLanguageTag("nb"));
+        assertTrue(norwegian.contains("\"norwegianName\":\"Kontorstol\""));
+        assertFalse(norwegian.contains("englishName"));
+        assertFalse(norwegian.contains("englishLabel"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(json.writeSubtree(out, "Chair", Locale.ENGLISH));
+        String chair = out.toString(StandardCharsets.UTF_8);
+        assertTrue(chair.startsWith("{\"className\":\"Chair\""), chair);
+        assertTrue(chair.endsWith("}"), chair);
+        assertTrue(chair.contains("\"className\":\"OfficeChair\""));
+        assertFalse(chair.contains("\"className\":\"Table\""));
+        assertFalse(chair.contains("norwegianName"));
+
+        ByteArrayOutputStream unknown = new ByteArrayOutputStream();
+        assertFalse(json.writeSubtree(unknown, "Spaceship", null));
+        assertEquals(0, unknown.size());
+    }
+
+    @Test
+    void shouldWriteLabelShownInEveryLanguage() throws IOException {
+        TaxonomyJson scandinavian = TaxonomyJson.of(TestTaxonomies.scandinavian());
+
+        String swedish = tree(scandinavian, Locale.forLanguageTag("sv-SE"));
+        assertTrue(swedish.contains("\"englishName\":\"Seat\",\"label\":\"Sittmöbel\""), swedish);
+        assertTrue(swedish.contains("\"englishName\":\"Stool\",\"label\":\"Stool\""), swedish);
+        String danish = tree(scandinavian, Locale.forLanguageTag("da"));
+        assertTrue(danish.contains("\"label\":\"Skammel\""), danish);
+        String nynorsk = tree(scandinavian, Locale.forLanguageTag("nn"));
+        assertTrue(nynorsk.contains("\"norwegianName\":\"Sete\",\"label\":\"Sete\""), nynorsk);
+        assertFalse(tree(scandinavian, null).contains("\"label\""));
+    }
+
+    @Test
+    void shouldSerializeDeepTreesWithoutRecursion() {
+        CategoryInfo chain = CategoryInfo.builder().className("C20000").properties(List.of()).children(List.of()).build();
+        for (int i = 19_999; i >= 0; i--) {
+            chain = CategoryInfo.builder().className("C" + i).properties(List.of()).children(List.of(chain)).build();
+        }
+        String deep = new String(TaxonomyJson.of(TaxonomyIndex.of(List.of(chain))).toByteArray(Encoding.IDENTITY),
+                StandardCharsets.UTF_8);
+
+        assertTrue(deep.startsWith("{\"categories\":[{\"className\":\"C0\",\"properties\":[],\"children\":[{"));
+        assertTrue(deep.endsWith("{\"className\":\"C20000\",\"properties\":[],\"children\":[]}" + "]}".repeat(20_000)
+                + "]}"));
+    }
+
+    @Test
+    void shouldEscapeJsonStrings() {
+        String json = new JsonWriter(16).beginObject()
+                .member("text", "say \"hi\"\\\n\u0001")
+                .member("absent", null)
+                .name("list").beginArray().value(1).value("x").endArray()
+                .endObject().toString();
+
+        assertEquals("{\"text\":\"say \\\"hi\\\"\\\\\\n\\u0001\",\"list\":[1,\"x\"]}", json);
+    }
+}
@@ -0,0 +1,349 @@
+package no.sirktek.taxonomy.loader;
+
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.LocaleTable;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyTypeResolver;
+import no.sirktek.taxonomy.model.StringFootprint;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RdfsTaxonomyLoaderTest {
+
+    private static final String PREFIXES = """
+            @prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .
+            @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+            @prefix xsd: <http://www.w3.org/2001/XMLSchema#> .
+            @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+            """;
+
+    private final RdfsTaxonomyLoader loader = new RdfsTaxonomyLoader();
+
+    @Test
+    void shouldAttachPropertiesToEveryDomainClass() {
+        TaxonomyTree tree = loader.loadBaseTaxonomy();
+
+        List<String> furnitureProperties = tree.findByClassName("Furniture").properties().stream()
+                .map(PropertyDefinition::name)
+                .toList();
+        List<String> modelProperties = tree.findByClassName("Model").properties().stream()
+                .map(PropertyDefinition::name)
+                .toList();
+
+        assertEquals(9, furnitureProperties.size());
+        assertTrue(furnitureProperties.contains("weight"));
+        assertTrue(modelProperties.contains("accessory"));
+        assertTrue(tree.findByClassName("StorageFurniture").properties().stream()
+                .anyMatch(property -> property.name().equals("accessory")));
+        assertTrue(tree.findByClassName("OfficeChair").properties().isEmpty());
+    }
+
+    @Test
+    void shouldMatchSnapshotWhenStreamingBaseTaxonomy() throws Exception {
+        TaxonomyTree fromSnapshot = loader.loadBaseTaxonomy();
+        TaxonomyTree streamed;
+        try (InputStream in = getClass().getResourceAsStream("/taxonomy/furniture-base.ttl")) {
+            streamed = new RdfsTaxonomyLoader(false).loadTaxonomy(in);
+        }
+
+        assertEquals(fromSnapshot, streamed);
+    }
+
+    @Test
+    void shouldKeepOnlyTaxonomyTriplesWhenStreaming() {
+        String turtle = PREFIXES + """
+                @prefix other: <http://example.org/other#> .
+                furniture:Seat a rdfs:Class ; rdfs:label "Seat"@en , "Sete"@no , "Siège"@fr ;
+                    rdfs:comment "Something to sit on" ; rdfs:subClassOf other:Thing ; other:note "ignored" .
+                furniture:Stool a rdfs:Class ; rdfs:label "Stool"@en ; rdfs:subClassOf furniture:Seat .
+                furniture:height a rdf:Property ; rdfs:label "height"@en ;
+                    rdfs:domain furniture:Seat , furniture:Seat ; rdfs:range xsd:decimal .
+                other:Thing a rdfs:Class ; rdfs:label "Thing"@en .
+                """;
+
+        TaxonomyTree tree = loader.loadTaxonomy(new ByteArrayInputStream(turtle.getBytes(StandardCharsets.UTF_8)));
+
+        CategoryInfo seat = tree.rootCategories().get(0);
+        assertEquals(1, tree.rootCategories().size());
+        assertEquals("Sete", seat.norwegianName());
+        assertEquals("Something to sit on", seat.description());
+        assertEquals(List.of("height"), seat.properties().stream().map(PropertyDefinition::name).toList());
+        assertEquals("Seat", tree.findByClassName("Stool").parentClassName());
+        assertFalse(tree.containsClassName("Thing"));
+    }
+
+    @Test
+    void shouldResolveLabelsOfEveryLanguageThroughFallbackChains() throws Exception {
+        String turtle = PREFIXES + """
+                furniture:Seat a rdfs:Class ; rdfs:label "Seat"@en , "Sete"@nb , "Sittmöbel"@sv , "Siège"@FR .
+                furniture:Stool a rdfs:Class ; rdfs:label "Stool"@en , "Krakk"@no , "Pall"@sv ;
+                    rdfs:subClassOf furniture:Seat .
+                furniture:height a rdf:Property ; rdfs:label "height"@en , "højde"@da ; rdfs:domain furniture:Seat .
+                """;
+        byte[] bytes = turtle.getBytes(StandardCharsets.UTF_8);
+
+        TaxonomyTree tree = loader.loadTaxonomy(new ByteArrayInputStream(bytes));
+        CategoryInfo seat = tree.findByClassName("Seat");
+        CategoryInfo stool = tree.findByClassName("Stool");
+
+        assertEquals("Sete", seat.norwegianName());
+        assertEquals("Sete", seat.label(Locale.forLanguageTag("no")));
+        assertEquals("Sete", seat.label(Locale.forLanguageTag("nn")));
+        assertEquals("Sittmöbel", seat.label(Locale.forLanguageTag("sv-FI")));
+        assertEquals("Seat", seat.label(Locale.forLanguageTag("da")));
+        assertEquals("Siège", seat.label(Locale.CANADA_FRENCH));
+        assertEquals("Seat", seat.label(Locale.GERMAN));
+        assertEquals("Krakk", stool.label(Locale.forLanguageTag("nb-NO")));
+        assertEquals("højde", seat.properties().get(0).label(new Locale("da")));
+        assertEquals("height", seat.properties().get(0).label(Locale.forLanguageTag("sv")));
+        assertEquals(Map.of("en", "Stool", "no", "Krakk", "sv", "Pall"), stool.labels().declared());
+
+        assertSame(stool, tree.findByLabel("Pall"));
+        assertSame(seat, tree.findByLabel("Siège"));
+        assertSame(seat, tree.findByLabel("Sete"));
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        TaxonomySnapshot.write(loader.parseDeclarations(new ByteArrayInputStream(bytes)),
+                TaxonomySnapshot.SourceDigest.of(new ByteArrayInputStream(bytes)), snapshot);
+        assertEquals(tree, TaxonomySnapshot.load(new ByteArrayInputStream(snapshot.toByteArray())));
+
+        TaxonomyTree patched = loader.applyPatch(tree, loader.parsePatch(new ByteArrayInputStream((PREFIXES + """
+                furniture:Stool a rdfs:Class ; rdfs:label "Taburett"@nb , "Skammel"@da .
+                """).getBytes(StandardCharsets.UTF_8))));
+        CategoryInfo patchedStool = patched.findByClassName("Stool");
+        assertEquals("Krakk", patchedStool.norwegianName());
+        assertEquals("Taburett", patchedStool.label(Locale.forLanguageTag("nb")));
+        assertEquals("Krakk", patchedStool.label(Locale.forLanguageTag("nn")));
+        assertEquals("Skammel", patchedStool.label(Locale.forLanguageTag("da")));
+        assertSame(patchedStool, patched.findByLabel("Skammel"));
+    }
+
+    @Test
+    void shouldKeepMostUsedLanguagesWhenSourcesDeclareMoreThanTableHolds() {
+        StringBuilder turtle = new StringBuilder(PREFIXES).append("furniture:Seat a rdfs:Class ; rdfs:label \"Seat\"@en");
+        for (int i = 0; i < 100; i++) {
+            turtle.append(" , \"Seat ").append(i).append("\"@").append(tag(i));
+        }
+        turtle.append(" .\nfurniture:Stool a rdfs:Class ; rdfs:subClassOf furniture:Seat ; rdfs:label \"Stool\"@")
+                .append(tag(99)).append(" .\n");
+
+        TaxonomyTree tree = loader.loadTaxonomy(
+                new ByteArrayInputStream(turtle.toString().getBytes(StandardCharsets.UTF_8)));
+        CategoryInfo seat = tree.findByClassName("Seat");
+
+        assertEquals(LocaleTable.MAX_LOCALES, seat.labels().table().size());
+        assertEquals(LocaleTable.MAX_LOCALES - LocaleTable.defaults().size() + 1, seat.labels().declared().size());
+        assertEquals("Seat 0", seat.label(Locale.forLanguageTag(tag(0))));
+        assertEquals("Seat", seat.label(Locale.forLanguageTag(tag(98))));
+        assertEquals("Stool", tree.findByClassName("Stool").label(Locale.forLanguageTag(tag(99))));
+    }
+
+    private static String tag(int i) {
+        return "z" + (char) ('a' + i / 26) + (char) ('a' + i % 26);
+    }
+
+    @Test
+    void shouldResolvePropertyTypesOnceFromAnnotationsAndRules() {
+        String turtle = PREFIXES + """
+                furniture:Seat a rdfs:Class ; rdfs:label "Seat"@en .
+                furniture:seatArea a rdf:Property ; rdfs:domain furniture:Seat ; rdfs:range xsd:decimal ;
+                    furniture:propertyType "DECIMAL_M2" .
+                furniture:legArea a rdf:Property ; rdfs:domain furniture:Seat ; rdfs:range xsd:decimal .
+                furniture:weight a rdf:Property ; rdfs:domain furniture:Seat ; rdfs:range xsd:decimal .
+                """;
+        PropertyTypeResolver resolver = PropertyTypeResolver.defaults().withPriorityRules(List.of(
+                new PropertyTypeResolver.Rule(PropertyTypeResolver.any(), PropertyTypeResolver.contains("Area"),
+                        PropertyDefinition.PropertyType.DECIMAL)));
+
+        TaxonomyTree tree = new RdfsTaxonomyLoader(false, resolver)
+                .loadTaxonomy(new ByteArrayInputStream(turtle.getBytes(StandardCharsets.UTF_8)));
+
+        Map<String, PropertyDefinition.PropertyType> types = tree.findByClassName("Seat").properties().stream()
+                .collect(Collectors.toMap(PropertyDefinition::name, PropertyDefinition::propertyType));
+        assertEquals(Map.of(
+                "seatArea", PropertyDefinition.PropertyType.DECIMAL_M2,
+                "legArea", PropertyDefinition.PropertyType.DECIMAL,
+                "weight", PropertyDefinition.PropertyType.DECIMAL_KG), types);
+
+        String unknown = PREFIXES + """
+                furniture:Seat a rdfs:Class .
+                furniture:seatArea a rdf:Property ; rdfs:domain furniture:Seat ; furniture:propertyType "SQUARE_FEET" .
+                """;
+        RdfsTaxonomyLoader.TaxonomyLoadException e = assertThrows(RdfsTaxonomyLoader.TaxonomyLoadException.class,
+                () -> loader.loadTaxonomy(new ByteArrayInputStream(unknown.getBytes(StandardCharsets.UTF_8))));
+        assertTrue(e.getMessage().contains("SQUARE_FEET"));
+    }
+
+    @Test
+    void shouldShareStringInstancesBetweenLoadersWithOneDictionary() {
+        StringDictionary strings = new StringDictionary();
+        TaxonomyTree first = new RdfsTaxonomyLoader(false, PropertyTypeResolver.defaults(), strings).loadBaseTaxonomy();
+        TaxonomyTree second = new RdfsTaxonomyLoader(false, PropertyTypeResolver.defaults(), strings).loadBaseTaxonomy();
+
+        StringFootprint shared = StringFootprint.of(List.of(first, second));
+        assertEquals(shared.distinctValues(), shared.instances());
+        assertEquals(0, shared.duplicateBytes());
+        assertSame(first.findByClassName("Chair").className(), second.findByClassName("Chair").className());
+        assertSame(first.findByClassName("Chair").className(),
+                first.findByClassName("Chair").children().get(0).parentClassName());
+
+        StringFootprint separate = StringFootprint.of(List.of(first, new RdfsTaxonomyLoader(false).loadBaseTaxonomy()));
+        assertTrue(separate.bytes() > shared.bytes());
+    }
+
+    @Test
+    void shouldSortChildrenByEnglishName() {
+        TaxonomyTree tree = loader.loadBaseTaxonomy();
+
+        List<String> names = tree.findByClassName("Table").children().stream()
+                .map(CategoryInfo::englishName)
+                .toList();
+
+        assertEquals(names.stream().sorted().toList(), names);
+        assertSame(tree.findByClassName("BarTable"), tree.findByClassName("Table").children().get(0));
+    }
+
+    @Test
+    void shouldLoadHundredThousandClasses() {
+        String turtle = wideTaxonomy(100_000, 10);
+
+        TaxonomyTree tree = assertTimeout(Duration.ofSeconds(30),
+                () -> loader.loadTaxonomy(new ByteArrayInputStream(turtle.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(100_000, tree.index().size());
+        assertEquals(1, tree.rootCategories().size());
+        assertEquals("C9999", tree.findByClassName("C99999").parentClassName());
+        assertEquals(1, tree.findByClassName("C500").properties().size());
+    }
+
+    @Test
+    void shouldLoadDeepHierarchyWithoutRecursion() {
+        String turtle = deepTaxonomy(20_000);
+
+        TaxonomyTree tree = loader.loadTaxonomy(new ByteArrayInputStream(turtle.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(20_000, tree.index().size());
+        assertEquals("C19998", tree.findByClassName("C19999").parentClassName());
+        assertTrue(tree.findByClassName("C19999").children().isEmpty());
+    }
+
+    @Test
+    void shouldSkipClassesInSubclassCycles() {
+        String turtle = PREFIXES + """
+                furniture:Root a rdfs:Class .
+                furniture:A a rdfs:Class ; rdfs:subClassOf furniture:B .
+                furniture:B a rdfs:Class ; rdfs:subClassOf furniture:A .
+                """;
+
+        TaxonomyTree tree = loader.loadTaxonomy(new ByteArrayInputStream(turtle.getBytes(StandardCharsets.UTF_8)));
+
+        assertNotNull(tree.findByClassName("Root"));
+        assertNull(tree.findByClassName("A"));
+        assertNull(tree.findByClassName("B"));
+    }
+
+    @Test
+    void shouldComposeSourcesWithLaterSourcesTakingPrecedence() throws Exception {
+        String extension = PREFIXES + """
+                furniture:Table a rdfs:Class ; rdfs:label "Desk or Table"@en .
+                furniture:Hammock a rdfs:Class ;
+                    rdfs:subClassOf furniture:SeatingFurniture ;
+                    rdfs:label "Hammock"@en .
+                furniture:weight a rdf:Property ;
+                    rdfs:domain furniture:Manufacturer .
+                """;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            TaxonomyLoadReport report = loader.loadTaxonomy(List.of(
+                    TaxonomySource.classpath("/taxonomy/furniture-base.ttl"),
+                    TaxonomySource.stream("brand", () -> slowStream(extension))), executor);
+            TaxonomyTree tree = report.tree();
+
+            assertEquals("Desk or Table", tree.findByClassName("Table").englishName());
+            assertEquals("Bord", tree.findByClassName("Table").norwegianName());
+            assertEquals("Furniture", tree.findByClassName("Table").parentClassName());
+            assertEquals("SeatingFurniture", tree.findByClassName("Hammock").parentClassName());
+            assertTrue(tree.findByClassName("Manufacturer").properties().stream()
+                    .anyMatch(property -> property.name().equals("weight")));
+            assertTrue(tree.findByClassName("Furniture").properties().stream()
+                    .anyMatch(property -> property.name().equals("weight")));
+
+            assertEquals(List.of("classpath:/taxonomy/furniture-base.ttl", "brand"),
+                    report.sources().stream().map(TaxonomyLoadReport.SourceReport::source).toList());
+            assertEquals(1, report.sources().get(1).propertyCount());
+            assertEquals(2, report.sources().get(1).classCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldNameFailingSource() {
+        List<TaxonomySource> sources = List.of(
+                TaxonomySource.classpath("/taxonomy/furniture-base.ttl"),
+                TaxonomySource.stream("broken", () -> new ByteArrayInputStream("not turtle".getBytes(StandardCharsets.UTF_8))));
+
+        RdfsTaxonomyLoader.TaxonomyLoadException e = assertThrows(RdfsTaxonomyLoader.TaxonomyLoadException.class,
+                () -> loader.loadTaxonomy(sources));
+        assertTrue(e.getMessage().contains("broken"), e.getMessage());
+    }
+
+    /**
+     * A stream that only becomes readable after a delay, so that later sources finish parsing first
+     */
+    private static InputStream slowStream(String turtle) {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new ByteArrayInputStream(turtle.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A single root with {@code count - 1} descendants in a tree of the given fan-out,
+     * and one property on every hundredth class
+     */
+    private static String wideTaxonomy(int count, int fanOut) {
+        StringBuilder turtle = new StringBuilder(PREFIXES);
+        for (int i = 0; i < count; i++) {
+            turtle.append("furniture:C").append(i).append(" a rdfs:Class ;\n");
+            if (i > 0) {
+                turtle.append("    rdfs:subClassOf furniture:C").append((i - 1) / fanOut).append(" ;\n");
+            }
+            turtle.append("    rdfs:label \"Category ").append(i).append("\"@en, \"Kategori ").append(i).append("\"@no .\n");
+            if (i % 100 == 0) {
+                turtle.append("furniture:p").append(i).append(" a rdf:Property ;\n")
+                        .append("    rdfs:domain furniture:C").append(i).append(" ;\n")
+                        .append("    rdfs:range xsd:decimal .\n");
+            }
+        }
+        return turtle.toString();
+    }
+
+    private static String deepTaxonomy(int depth) {
+        StringBuilder turtle = new StringBuilder(PREFIXES);
+        for (int i = 0; i < depth; i++) {
+            turtle.append("furniture:C").append(i).append(" a rdfs:Class");
+            if (i > 0) {
+                turtle.append(" ; rdfs:subClassOf furniture:C").append(i - 1);
+            }
+            turtle.append(" .\n");
+        }
+        return turtle.toString();
+    }
+}
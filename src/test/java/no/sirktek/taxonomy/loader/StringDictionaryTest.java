@@ -0,0 +1,58 @@
+package no.sirktek.taxonomy.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+
+    @Test
+    void shouldReturnOneInstancePerValue() {
+        StringDictionary strings = new StringDictionary();
+        String first = strings.intern(new String("Chair"));
+        String second = strings.intern(new String("Chair"));
+
+        assertSame(first, second);
+        assertNull(strings.intern(null));
+        assertEquals(1, strings.size());
+    }
+
+    @Test
+    void shouldDropStringsNoLongerReferenced() throws InterruptedException {
+        StringDictionary strings = new StringDictionary();
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String value = strings.intern("value" + i);
+            if (i % 10 == 0) {
+                kept.add(value);
+            }
+        }
+
+        for (int attempt = 0; attempt < 50 && strings.size() > kept.size(); attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(kept.size(), strings.size());
+        assertSame(kept.get(3), strings.intern(new String("value30")));
+    }
+
+    @Test
+    void shouldNumberCanonicalStringsInFirstSeenOrder() {
+        StringDictionary strings = new StringDictionary();
+        String chair = strings.intern("Chair");
+        StringDictionary.Ids ids = strings.ids();
+
+        assertEquals(0, ids.id(new String("Table")));
+        assertEquals(1, ids.id(new String("Chair")));
+        assertEquals(0, ids.id("Table"));
+        assertSame(chair, ids.get(1));
+        assertSame(ids.get(0), strings.intern(new String("Table")));
+        assertEquals(2, ids.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> ids.get(2));
+        assertEquals(0, strings.ids().id("Chair"));
+    }
+}
@@ -0,0 +1,133 @@
+package no.sirktek.taxonomy.loader;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader.TaxonomyLoadException;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxonomyPatcherTest {
+
+    private static final String PREFIXES = """
+            @prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .
+            @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+            @prefix xsd: <http://www.w3.org/2001/XMLSchema#> .
+            @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+            """;
+
+    private final RdfsTaxonomyLoader loader = new RdfsTaxonomyLoader(false);
+    private final TaxonomyTree base = loader.loadBaseTaxonomy();
+
+    private TaxonomyTree patch(String turtle) {
+        return loader.applyPatch(base, loader.parsePatch(stream(turtle)));
+    }
+
+    private static ByteArrayInputStream stream(String turtle) {
+        return new ByteArrayInputStream((PREFIXES + turtle).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertIndexedLikeFreshTree(TaxonomyTree patched) {
+        TaxonomyIndex fresh = TaxonomyIndex.of(patched.rootCategories());
+        TaxonomyIndex derived = patched.index();
+        assertEquals(fresh.size(), derived.size());
+        for (int id = 0; id < fresh.size(); id++) {
+            String className = fresh.node(id).className();
+            assertSame(fresh.node(id), derived.node(id), className);
+            assertEquals(fresh.parentOf(id), derived.parentOf(id), className);
+            assertEquals(fresh.subtreeEnd(id), derived.subtreeEnd(id), className);
+            assertEquals(fresh.effectiveProperties(id), derived.effectiveProperties(id), className);
+            assertEquals(id, derived.idOf(className));
+            assertEquals(fresh.idOfLabel(fresh.node(id).norwegianName()), derived.idOfLabel(fresh.node(id).norwegianName()));
+        }
+    }
+
+    @Test
+    void shouldMatchFullRebuildAndShareUntouchedSubtrees() {
+        String additions = """
+                furniture:GamingChair a rdfs:Class ; rdfs:subClassOf furniture:Chair ;
+                    rdfs:label "Gaming Chair"@en, "Gamingstol"@no .
+                furniture:Sofa a rdfs:Class ; rdfs:label "Couch"@en .
+                furniture:rgbLighting a rdf:Property ; rdfs:label "RGB lighting"@en ;
+                    rdfs:domain furniture:GamingChair ; rdfs:range xsd:boolean .
+                furniture:seatDepth a rdf:Property ; rdfs:domain furniture:Chair ; rdfs:range xsd:decimal .
+                """;
+
+        TaxonomyTree patched = patch(additions);
+        TaxonomyTree rebuilt = loader.loadTaxonomy(List.of(
+                TaxonomySource.classpath("/taxonomy/furniture-base.ttl"),
+                TaxonomySource.stream("patch", () -> stream(additions)))).tree();
+
+        assertEquals(rebuilt, patched);
+        assertIndexedLikeFreshTree(patched);
+        assertSame(base.findByClassName("Table"), patched.findByClassName("Table"));
+        assertSame(base.findByClassName("ConferenceChair"), patched.findByClassName("ConferenceChair"));
+        assertNotSame(base.findByClassName("Chair"), patched.findByClassName("Chair"));
+        assertEquals("Couch", patched.findByClassName("Sofa").englishName());
+        assertEquals(PropertyDefinition.PropertyType.BOOLEAN,
+                patched.findByClassName("GamingChair").properties().get(0).propertyType());
+        assertNull(base.findByClassName("GamingChair"), "the previous tree is left unchanged");
+    }
+
+    @Test
+    void shouldMoveAndRemoveClassesAndProperties() {
+        TaxonomyTree patched = patch("""
+                furniture:Stool a rdfs:Class ; rdfs:subClassOf furniture:Chair .
+                furniture:Table furniture:removed true .
+                furniture:color furniture:removed true ; rdfs:domain furniture:SeatingFurniture .
+                """);
+
+        TaxonomyIndex index = patched.index();
+        assertIndexedLikeFreshTree(patched);
+        assertEquals("Chair", patched.findByClassName("Stool").parentClassName());
+        assertTrue(index.isSubclassOf(index.idOf("Stool"), index.idOf("Chair")));
+        assertNull(patched.findByClassName("Table"));
+        assertNull(patched.findByClassName("HeightAdjustableTable"));
+        int table = base.index().idOf("Table");
+        assertEquals(base.index().size() - (base.index().subtreeEnd(table) - table), index.size());
+        assertTrue(index.effectiveProperties(index.idOf("Chair")).stream().noneMatch(p -> "color".equals(p.name())));
+        assertSame(base.findByClassName("StorageFurniture"), patched.findByClassName("StorageFurniture"));
+    }
+
+    @Test
+    void shouldDeriveIndexAcrossSuccessivePatches() {
+        TaxonomyTree tree = base;
+        for (int i = 0; i < 20; i++) {
+            String patch = "furniture:Added" + i + " a rdfs:Class ; rdfs:subClassOf furniture:"
+                    + (i % 2 == 0 ? "Chair" : "Table") + " ; rdfs:label \"Added " + i + "\"@en, \"Stol\"@no .\n"
+                    + (i == 10 ? "furniture:Stool a rdfs:Class ; rdfs:subClassOf furniture:Added9 .\n" : "");
+            tree = loader.applyPatch(tree, loader.parsePatch(stream(patch)));
+            assertIndexedLikeFreshTree(tree);
+        }
+
+        assertEquals("Added9", tree.findByClassName("Stool").parentClassName());
+        assertEquals(base.index().size() + 20, tree.index().size());
+    }
+
+    @Test
+    void shouldRejectInconsistentPatches() {
+        assertThrows(TaxonomyLoadException.class, () -> patch("""
+                furniture:HoverChair a rdfs:Class ; rdfs:subClassOf furniture:AntiGravityFurniture .
+                """));
+        assertThrows(TaxonomyLoadException.class, () -> patch("""
+                furniture:SeatingFurniture a rdfs:Class ; rdfs:subClassOf furniture:Chair .
+                """));
+        assertThrows(TaxonomyLoadException.class, () -> patch("""
+                furniture:Chair furniture:removed true .
+                furniture:ConferenceChair a rdfs:Class ; rdfs:label "Meeting Chair"@en .
+                """));
+        assertThrows(TaxonomyLoadException.class, () -> patch("""
+                furniture:legroom a rdf:Property ; rdfs:range xsd:decimal .
+                """));
+    }
+
+    @Test
+    void shouldReturnSameTreeForEmptyPatch() {
+        assertSame(base, patch(""));
+    }
+}
@@ -0,0 +1,167 @@
+package no.sirktek.taxonomy.loader;
+
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxonomySnapshotTest {
+
+    private static final String BASE_TAXONOMY = "/taxonomy/furniture-base.ttl";
+    private static final TaxonomySnapshot.SourceDigest SOURCE = new TaxonomySnapshot.SourceDigest(42, 0x1234abcd);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRoundTripBaseTaxonomy() throws IOException {
+        TaxonomyTreeBuilder declarations = parseBaseTaxonomy();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        TaxonomySnapshot.write(declarations, SOURCE, out);
+        TaxonomyTree fromSnapshot = TaxonomySnapshot.load(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(declarations.build(), fromSnapshot);
+        assertEquals(declarations.classCount(), fromSnapshot.index().size());
+    }
+
+    @Test
+    void shouldTakeSnapshotStringsFromTheDictionary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaxonomySnapshot.write(parseBaseTaxonomy(), SOURCE, out);
+        StringDictionary dictionary = new StringDictionary();
+
+        TaxonomyTreeBuilder read = TaxonomySnapshot.read(new ByteArrayInputStream(out.toByteArray()), null, dictionary);
+
+        for (TaxonomyTreeBuilder.ClassDeclaration declaration : read.classes()) {
+            assertSame(declaration.uri(), dictionary.intern(new String(declaration.uri())));
+        }
+    }
+
+    @Test
+    void shouldKeepPropertyTypeAnnotations() throws IOException {
+        TaxonomyTreeBuilder declarations = new TaxonomyTreeBuilder()
+                .addClass(new TaxonomyTreeBuilder.ClassDeclaration("urn:x#Seat", Map.of("en", "Seat"), null, null))
+                .addProperty(new TaxonomyTreeBuilder.PropertyDeclaration("urn:x#seatArea", Map.of(),
+                        "http://www.w3.org/2001/XMLSchema#decimal", List.of("urn:x#Seat"), "DECIMAL_M2"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        TaxonomySnapshot.write(declarations, SOURCE, out);
+        TaxonomyTree fromSnapshot = TaxonomySnapshot.load(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(PropertyDefinition.PropertyType.DECIMAL_M2,
+                fromSnapshot.findByClassName("Seat").properties().get(0).getPropertyType());
+    }
+
+    @Test
+    void shouldLoadBaseTaxonomyFromBuildTimeSnapshot() {
+        assertNotNull(getClass().getResource("/taxonomy/furniture-base.snapshot"),
+                "snapshot should be compiled into target/classes by the build");
+
+        TaxonomyTree fromSnapshot = new RdfsTaxonomyLoader().loadBaseTaxonomy();
+        TaxonomyTree fromTurtle = new RdfsTaxonomyLoader(false).loadBaseTaxonomy();
+
+        assertEquals(fromTurtle, fromSnapshot);
+    }
+
+    @Test
+    void shouldCompileTurtleFileToSnapshotFile() throws IOException {
+        Path source = tempDir.resolve("taxonomy.ttl");
+        Path target = tempDir.resolve("out/taxonomy.snapshot");
+        try (InputStream in = getClass().getResourceAsStream(BASE_TAXONOMY)) {
+            Files.copy(in, source);
+        }
+
+        TaxonomySnapshot.main(new String[]{source.toString(), target.toString()});
+
+        try (InputStream in = Files.newInputStream(target)) {
+            assertEquals(new RdfsTaxonomyLoader(false).loadBaseTaxonomy(), TaxonomySnapshot.load(in));
+        }
+        TaxonomySnapshot.SourceDigest digest;
+        try (InputStream in = Files.newInputStream(source)) {
+            digest = TaxonomySnapshot.SourceDigest.of(in);
+        }
+        assertEquals(Files.size(source), digest.length());
+        try (InputStream in = Files.newInputStream(target)) {
+            assertNotNull(TaxonomySnapshot.read(in, digest, new StringDictionary()));
+        }
+    }
+
+    @Test
+    void shouldRejectSnapshotOfAnotherSource() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaxonomySnapshot.write(parseBaseTaxonomy(), SOURCE, out);
+        byte[] bytes = out.toByteArray();
+
+        assertNotNull(TaxonomySnapshot.read(new ByteArrayInputStream(bytes), SOURCE, new StringDictionary()));
+        for (TaxonomySnapshot.SourceDigest edited : List.of(new TaxonomySnapshot.SourceDigest(43, SOURCE.crc()),
+                new TaxonomySnapshot.SourceDigest(SOURCE.length(), SOURCE.crc() + 1))) {
+            IOException e = assertThrows(IOException.class,
+                    () -> TaxonomySnapshot.read(new ByteArrayInputStream(bytes), edited, new StringDictionary()));
+            assertTrue(e.getMessage().contains("Outdated"), e.getMessage());
+        }
+    }
+
+    @Test
+    void shouldRejectUnsupportedFormatVersion() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaxonomySnapshot.write(parseBaseTaxonomy(), SOURCE, out);
+        byte[] bytes = out.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(4, 999);
+
+        IOException e = assertThrows(IOException.class,
+                () -> TaxonomySnapshot.load(new ByteArrayInputStream(bytes)));
+        assertTrue(e.getMessage().contains("version 999"));
+    }
+
+    @Test
+    void shouldRejectCorruptCountsWithoutAllocatingThem() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaxonomySnapshot.write(parseBaseTaxonomy(), SOURCE, out);
+        byte[] valid = out.toByteArray();
+
+        // String count, then the length of the first string, after the magic, version and source digest
+        for (int offset : new int[]{20, 24}) {
+            for (int value : new int[]{-7, Integer.MAX_VALUE}) {
+                byte[] bytes = valid.clone();
+                ByteBuffer.wrap(bytes).putInt(offset, value);
+                assertThrows(IOException.class, () -> TaxonomySnapshot.load(new ByteArrayInputStream(bytes)),
+                        "offset " + offset + ", value " + value);
+            }
+        }
+        assertThrows(IOException.class,
+                () -> TaxonomySnapshot.load(new ByteArrayInputStream(Arrays.copyOf(valid, valid.length / 2))));
+    }
+
+    @Test
+    void shouldRejectNonSnapshotData() {
+        byte[] turtle = "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .".getBytes();
+
+        assertThrows(IOException.class, () -> TaxonomySnapshot.load(new ByteArrayInputStream(turtle)));
+    }
+
+    @Test
+    void shouldDeriveSnapshotPathFromResourcePath() {
+        assertEquals("/taxonomy/furniture-base.snapshot", TaxonomySnapshot.snapshotPathFor(BASE_TAXONOMY));
+        assertEquals("/tax.onomy/base.snapshot", TaxonomySnapshot.snapshotPathFor("/tax.onomy/base"));
+    }
+
+    private TaxonomyTreeBuilder parseBaseTaxonomy() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(BASE_TAXONOMY)) {
+            return new RdfsTaxonomyLoader(false).parseDeclarations(in);
+        }
+    }
+}
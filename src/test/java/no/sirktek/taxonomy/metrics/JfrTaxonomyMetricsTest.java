@@ -0,0 +1,50 @@
+package no.sirktek.taxonomy.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.loader.StringDictionary;
+import no.sirktek.taxonomy.model.PropertyTypeResolver;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrTaxonomyMetricsTest {
+
+    @Test
+    void shouldEmitLoadAndReloadEvents(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("taxonomy.jfr");
+        TaxonomyTree tree;
+        try (JfrTaxonomyMetrics metrics = new JfrTaxonomyMetrics(); Recording recording = new Recording()) {
+            recording.enable("no.sirktek.taxonomy.Load");
+            recording.enable("no.sirktek.taxonomy.Reload");
+            recording.start();
+            tree = new RdfsTaxonomyLoader(true, PropertyTypeResolver.defaults(), new StringDictionary(), metrics)
+                    .loadBaseTaxonomy();
+            metrics.taxonomyReloaded(2, Duration.ofMillis(5));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent load = events.stream()
+                .filter(event -> event.getEventType().getName().equals("no.sirktek.taxonomy.Load"))
+                .findFirst().orElseThrow();
+        assertEquals("/taxonomy/furniture-base.snapshot", load.getString("source"));
+        assertEquals(tree.index().size(), load.getInt("categories"));
+        assertTrue(load.getLong("stringBytes") > 0);
+
+        RecordedEvent reload = events.stream()
+                .filter(event -> event.getEventType().getName().equals("no.sirktek.taxonomy.Reload"))
+                .findFirst().orElseThrow();
+        assertEquals(2, reload.getLong("version"));
+        assertEquals(Duration.ofMillis(5), reload.getDuration("latency"));
+    }
+}
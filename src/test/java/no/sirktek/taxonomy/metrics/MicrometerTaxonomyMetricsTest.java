@@ -0,0 +1,48 @@
+package no.sirktek.taxonomy.metrics;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.loader.StringDictionary;
+import no.sirktek.taxonomy.model.PropertyTypeResolver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerTaxonomyMetricsTest {
+
+    @Test
+    void shouldRecordLoadsLookupsAndReloads() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerTaxonomyMetrics metrics = new MicrometerTaxonomyMetrics(Tags.of("tenant", "acme"));
+        metrics.bindTo(registry);
+        RdfsTaxonomyLoader loader = new RdfsTaxonomyLoader(false, PropertyTypeResolver.defaults(),
+                new StringDictionary(), metrics);
+        TaxonomyService service = new TaxonomyService(loader, metrics);
+
+        assertTrue(service.getCategoryByClassName("Chair").isPresent());
+        assertTrue(service.getCategoryByClassName("Chair").isPresent());
+        assertTrue(service.getCategoryByClassName("Spaceship").isEmpty());
+        service.reloadBaseTaxonomy();
+
+        assertEquals(2, registry.get("taxonomy.load.parse").tag("tenant", "acme").timer().count());
+        assertEquals(2, registry.get("taxonomy.load.build").timer().count());
+        assertEquals(1, registry.get("taxonomy.reload").timer().count());
+        assertEquals(2.0, registry.get("taxonomy.lookups").tag("result", "hit").counter().count());
+        assertEquals(1.0, registry.get("taxonomy.lookups").tag("result", "miss").counter().count());
+        assertEquals(service.getStats().totalCategories(), registry.get("taxonomy.categories").gauge().value());
+        assertTrue(registry.get("taxonomy.triples").gauge().value() > 0);
+        assertTrue(registry.get("taxonomy.strings.bytes").gauge().value() > 0);
+    }
+
+    @Test
+    void shouldDropMeasurementsBeforeBinding() {
+        MicrometerTaxonomyMetrics metrics = new MicrometerTaxonomyMetrics();
+        metrics.categoryLookup(true);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+        assertEquals(0.0, registry.get("taxonomy.lookups").tag("result", "hit").counter().count());
+    }
+}
@@ -0,0 +1,74 @@
+package no.sirktek.taxonomy.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalizedLabelsTest {
+
+    private final LocaleTable table = LocaleTable.defaults();
+
+    @Test
+    void shouldResolveFallbackChainsWhenBuilt() {
+        assertEquals(List.of("nb", "no", "nn", "en"), table.fallbackChain(table.id("nb")));
+        assertEquals(List.of("sv", "en"), table.fallbackChain(table.id("SV")));
+        assertEquals(List.of("en"), table.fallbackChain(table.id("en")));
+
+        LocalizedLabels labels = LocalizedLabels.of(table, Map.of("en", "Chair", "nn", "Stol", "sv", "Stol"));
+
+        assertEquals("Stol", labels.get(Locale.forLanguageTag("nb")));
+        assertEquals("Stol", labels.get(table.id("no")));
+        assertEquals("Chair", labels.get(Locale.forLanguageTag("da-DK")));
+        assertEquals("Chair", labels.get((Locale) null));
+        assertNull(labels.declared("nb"));
+        assertEquals("Stol", labels.declared("nn"));
+        assertNull(LocalizedLabels.of(table, Map.of("nb", "Stol")).get(Locale.ENGLISH));
+    }
+
+    @Test
+    void shouldExtendTablesWithNewTagsFallingBackOnTheirPrefix() {
+        LocaleTable extended = table.extend(List.of("nb-NO", "de-AT", "de", "en"));
+
+        assertSame(table, table.extend(List.of("EN", "nb")));
+        assertEquals(table.size() + 3, extended.size());
+        assertEquals(List.of("nb-no", "nb", "no", "nn", "en"), extended.fallbackChain(extended.id("nb_NO")));
+        assertEquals(List.of("de-at", "de", "en"), extended.fallbackChain(extended.id("de-AT")));
+        assertEquals(table.id("sv"), extended.resolve(Locale.forLanguageTag("sv-SE")));
+        assertEquals(0, extended.resolve(Locale.JAPANESE));
+        assertThrows(IllegalArgumentException.class, () -> LocalizedLabels.of(table, Map.of("de", "Stuhl")));
+    }
+
+    @Test
+    void shouldResolveLocalesAlikeOnceCachedAndPastTheCacheLimit() {
+        LocaleTable extended = table.extend(List.of("nb-NO"));
+        Locale bokmal = Locale.forLanguageTag("nb-NO");
+
+        assertEquals(extended.id("nb-no"), extended.resolve(bokmal));
+        assertEquals(extended.id("nb-no"), extended.resolve(Locale.forLanguageTag("nb-NO")));
+        for (int i = 0; i < 300; i++) {
+            assertEquals(extended.id("sv"), extended.resolve(Locale.forLanguageTag("sv-x-v" + i)));
+        }
+        assertEquals(extended.id("nb"), extended.resolve(Locale.forLanguageTag("nb-SJ")));
+    }
+
+    @Test
+    void shouldCompareDeclaredLabelsOnly() {
+        Map<String, String> declared = new LinkedHashMap<>();
+        declared.put("sv", "Stol");
+        declared.put("en", "Chair");
+        LocalizedLabels labels = LocalizedLabels.of(table, declared);
+        LocalizedLabels sameInExtendedTable = LocalizedLabels.of(table.extend(List.of("fi")), declared);
+
+        assertEquals(labels, sameInExtendedTable);
+        assertEquals(labels.hashCode(), sameInExtendedTable.hashCode());
+        assertEquals(declared, labels.declared());
+        assertEquals(declared.hashCode(), labels.hashCode());
+        assertNotEquals(labels, LocalizedLabels.of(table, Map.of("en", "Chair")));
+        assertSame(LocalizedLabels.of(table, Map.of()), LocalizedLabels.of(table, new LinkedHashMap<>()));
+    }
+}
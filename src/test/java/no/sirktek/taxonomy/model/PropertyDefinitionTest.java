@@ -1,6 +1,13 @@
 package no.sirktek.taxonomy.model;
 
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PropertyDefinitionTest {
@@ -244,4 +251,36 @@ class PropertyDefinitionTest {
         assertNotNull(PropertyDefinition.PropertyType.valueOf("RESOURCE_TYPE"));
         assertNotNull(PropertyDefinition.PropertyType.valueOf("EMISSION"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldEqualLoadedDefinitionWhenBuiltWithLegacyConstructors() {
+        CategoryInfo loaded = new RdfsTaxonomyLoader(false).loadBaseTaxonomy().findByClassName("Furniture");
+        List<PropertyDefinition> properties = loaded.properties().stream()
+                .map(p -> new PropertyDefinition(p.name(), p.englishLabel(), p.norwegianLabel(), p.uri(),
+                        p.rangeType(), p.domainClass(), p.description()))
+                .toList();
+        CategoryInfo built = new CategoryInfo(loaded.className(), loaded.englishName(), loaded.norwegianName(),
+                loaded.description(), loaded.parentClassName(), loaded.uri(), properties, loaded.children());
+
+        assertFalse(loaded.properties().isEmpty());
+        for (int i = 0; i < properties.size(); i++) {
+            PropertyDefinition expected = loaded.properties().get(i);
+            PropertyDefinition actual = properties.get(i);
+            assertEquals(expected.labels(), actual.labels(), expected.name());
+            assertEquals(expected.propertyType(), actual.propertyType(), expected.name());
+            assertEquals(expected, actual);
+            assertEquals(expected.hashCode(), actual.hashCode(), expected.name());
+        }
+
+        PropertyDefinition width = properties.stream().filter(p -> p.name().equals("width")).findFirst().orElseThrow();
+        assertEquals(PropertyType.DECIMAL_CM, width.propertyType());
+        assertEquals(Map.of("en", "Width (cm)"), width.labels().declared());
+        assertEquals("Width (cm)", width.label(Locale.forLanguageTag("nb")));
+
+        assertEquals(loaded, built);
+        assertEquals(loaded.hashCode(), built.hashCode());
+        assertEquals("Møbler", built.label(Locale.forLanguageTag("nb")));
+        assertEquals(PropertyType.DECIMAL_KG, new PropertyDefinition("weight", null, null, null,
+                "http://www.w3.org/2001/XMLSchema#decimal", null, null).propertyType());
+    }
+}
@@ -0,0 +1,50 @@
+package no.sirktek.taxonomy.model;
+
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.PropertyTypeResolver.Rule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static no.sirktek.taxonomy.model.PropertyTypeResolver.contains;
+import static no.sirktek.taxonomy.model.PropertyTypeResolver.is;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyTypeResolverTest {
+
+    private static final String XSD_DECIMAL = "http://www.w3.org/2001/XMLSchema#decimal";
+
+    @Test
+    void shouldApplyDefaultRulesInOrder() {
+        PropertyTypeResolver defaults = PropertyTypeResolver.defaults();
+
+        assertEquals(PropertyType.STRING, defaults.resolve("weight", null));
+        assertEquals(PropertyType.DECIMAL_KG, defaults.resolve("weight", XSD_DECIMAL));
+        assertEquals(PropertyType.DECIMAL, defaults.resolve("area", XSD_DECIMAL));
+        assertEquals(PropertyType.CATEGORY, defaults.resolve("emission", "http://taxonomy.sirktek.no/furniture#Manufacturer"));
+        assertEquals(PropertyType.EMISSION, defaults.resolve("emission", "http://example.org/Custom"));
+    }
+
+    @Test
+    void shouldTryPriorityRulesFirst() {
+        PropertyTypeResolver resolver = PropertyTypeResolver.defaults()
+                .withPriorityRules(List.of(new Rule(is(XSD_DECIMAL), contains("area"), PropertyType.DECIMAL_M2)));
+
+        assertEquals(PropertyType.DECIMAL_M2, resolver.resolve("area", XSD_DECIMAL));
+        assertEquals(PropertyType.DECIMAL_KG, resolver.resolve("weight", XSD_DECIMAL));
+        assertEquals(PropertyType.STRING, PropertyTypeResolver.of(List.of()).resolve("weight", XSD_DECIMAL));
+    }
+
+    @Test
+    void shouldPreferTypeStoredOnDefinition() {
+        PropertyDefinition resolved = PropertyDefinition.builder()
+                .name("weight")
+                .rangeType(XSD_DECIMAL)
+                .propertyType(PropertyType.INTEGER)
+                .build();
+
+        assertEquals(PropertyType.INTEGER, resolved.getPropertyType());
+        assertEquals(PropertyType.DECIMAL_KG,
+                PropertyDefinition.builder().name("weight").rangeType(XSD_DECIMAL).build().getPropertyType());
+    }
+}
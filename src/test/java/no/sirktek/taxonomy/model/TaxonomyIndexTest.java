@@ -0,0 +1,180 @@
+package no.sirktek.taxonomy.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxonomyIndexTest {
+
+    private static PropertyDefinition property(String name, String domainClass) {
+        return PropertyDefinition.builder()
+                .name(name)
+                .domainClass(domainClass)
+                .rangeType("http://www.w3.org/2001/XMLSchema#string")
+                .build();
+    }
+
+    private static CategoryInfo category(String className, String parentClassName,
+                                         List<PropertyDefinition> properties, CategoryInfo... children) {
+        return CategoryInfo.builder()
+                .className(className)
+                .englishName(className)
+                .parentClassName(parentClassName)
+                .properties(properties)
+                .children(List.of(children))
+                .build();
+    }
+
+    private static CategoryInfo labeled(String className, String norwegianName, List<PropertyDefinition> properties,
+                                        CategoryInfo... children) {
+        return CategoryInfo.builder()
+                .className(className)
+                .englishName(className)
+                .norwegianName(norwegianName)
+                .uri("urn:" + className)
+                .properties(properties)
+                .children(List.of(children))
+                .build();
+    }
+
+    private static void assertSameIndex(TaxonomyIndex expected, TaxonomyIndex actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); id++) {
+            CategoryInfo node = expected.node(id);
+            assertSame(node, actual.node(id));
+            assertEquals(expected.parentOf(id), actual.parentOf(id), node.className());
+            assertEquals(expected.depthOf(id), actual.depthOf(id), node.className());
+            assertEquals(expected.subtreeEnd(id), actual.subtreeEnd(id), node.className());
+            assertEquals(expected.effectiveProperties(id), actual.effectiveProperties(id), node.className());
+            assertEquals(expected.idOf(node.className()), actual.idOf(node.className()));
+            assertEquals(expected.idOfUri(node.uri()), actual.idOfUri(node.uri()));
+            assertEquals(expected.idOfLabel(node.englishName()), actual.idOfLabel(node.englishName()));
+            assertEquals(expected.idOfLabel(node.norwegianName()), actual.idOfLabel(node.norwegianName()));
+        }
+    }
+
+    @Test
+    void shouldNumberNodesInPreOrderWithSubtreeIntervals() {
+        CategoryInfo leafA = category("A", "Mid", List.of());
+        CategoryInfo leafB = category("B", "Mid", List.of());
+        CategoryInfo mid = category("Mid", "Root", List.of(), leafA, leafB);
+        CategoryInfo other = category("Other", "Root", List.of());
+        TaxonomyIndex index = TaxonomyIndex.of(List.of(category("Root", null, List.of(), mid, other)));
+
+        assertEquals(List.of(0, 1, 2, 3, 4),
+                List.of(index.idOf("Root"), index.idOf("Mid"), index.idOf("A"), index.idOf("B"), index.idOf("Other")));
+        assertEquals(5, index.subtreeEnd(0));
+        assertEquals(4, index.subtreeEnd(1));
+        assertEquals(2, index.depthOf(index.idOf("B")));
+        assertEquals(index.idOf("Mid"), index.parentOf(index.idOf("A")));
+        assertTrue(index.isSubclassOf(index.idOf("B"), index.idOf("Mid")));
+        assertFalse(index.isSubclassOf(index.idOf("Other"), index.idOf("Mid")));
+        assertEquals(List.of(leafA, leafB), index.descendants(index.idOf("Mid")));
+        assertEquals(index.idOf("Root"), index.lowestCommonAncestor(index.idOf("A"), index.idOf("Other")));
+    }
+
+    @Test
+    void shouldLetOwnPropertyOverrideInheritedOneWithSameName() {
+        PropertyDefinition rootColor = property("color", "Root");
+        PropertyDefinition rootWeight = property("weight", "Root");
+        PropertyDefinition childColor = property("color", "Child");
+        CategoryInfo child = category("Child", "Root", List.of(childColor));
+        TaxonomyIndex index = TaxonomyIndex.of(List.of(category("Root", null, List.of(rootColor, rootWeight), child)));
+
+        assertEquals(List.of(rootWeight, childColor), index.effectiveProperties(index.idOf("Child")));
+    }
+
+    @Test
+    void shouldResolveInheritedPropertiesInDeepChains() {
+        int depth = 5_000;
+        CategoryInfo current = category("C" + (depth - 1), "C" + (depth - 2), List.of(property("p" + (depth - 1), null)));
+        for (int i = depth - 2; i >= 0; i--) {
+            current = category("C" + i, i == 0 ? null : "C" + (i - 1), List.of(property("p" + i, null)), current);
+        }
+        TaxonomyIndex index = TaxonomyIndex.of(List.of(current));
+
+        List<PropertyDefinition> leafProperties = index.effectiveProperties(index.idOf("C" + (depth - 1)));
+        assertEquals(depth, leafProperties.size());
+        assertEquals("p0", leafProperties.get(0).name());
+        assertEquals("p" + (depth - 1), leafProperties.get(depth - 1).name());
+    }
+
+    @Test
+    void shouldDetectOverridesInLinearTimeWhenOneNameIsDeclaredWidely() {
+        int width = 50_000;
+        CategoryInfo[] leaves = new CategoryInfo[width];
+        for (int i = 0; i < width; i++) {
+            leaves[i] = category("L" + i, "Root", List.of(property("color", "L" + i)));
+        }
+        PropertyDefinition rootColor = property("color", "Root");
+        PropertyDefinition rootWeight = property("weight", "Root");
+        CategoryInfo root = category("Root", null, List.of(rootColor, rootWeight), leaves);
+        CategoryInfo otherChild = category("OtherChild", "Other", List.of(property("color", "OtherChild")));
+        CategoryInfo other = category("Other", null, List.of(property("size", "Other")), otherChild);
+
+        TaxonomyIndex index = assertTimeout(Duration.ofSeconds(5), () -> TaxonomyIndex.of(List.of(root, other)));
+
+        List<PropertyDefinition> leaf = index.effectiveProperties(index.idOf("L" + (width - 1)));
+        assertEquals(List.of("weight", "color"), leaf.stream().map(PropertyDefinition::name).toList());
+        assertEquals("L" + (width - 1), leaf.get(1).domainClass());
+        assertEquals(List.of("size", "color"), index.effectiveProperties(index.idOf("OtherChild")).stream()
+                .map(PropertyDefinition::name).toList());
+    }
+
+    @Test
+    void shouldDeriveIndexOfChangedTreeLikeFreshOne() {
+        PropertyDefinition color = property("color", "Root");
+        List<PropertyDefinition> rootProperties = List.of(color);
+        CategoryInfo leafA = labeled("A", "Blad", List.of());
+        CategoryInfo leafB = labeled("B", "Gren", List.of(property("color", "B")));
+        CategoryInfo mid = labeled("Mid", "Midt", List.of(), leafA, leafB);
+        CategoryInfo gone = labeled("Gone", "Borte", List.of(), labeled("GoneChild", "Borte barn", List.of()));
+        CategoryInfo other = labeled("Other", "Annen", List.of(property("size", "Other")));
+        TaxonomyIndex first = TaxonomyIndex.of(List.of(labeled("Root", "Rot", rootProperties, gone, mid), other));
+
+        // Gone is removed, Mid moves below Other, which gains a property, and an added class shares a label with B
+        CategoryInfo added = labeled("Added", "Gren", List.of());
+        CategoryInfo movedOther = labeled("Other", "Annen", List.of(property("size", "Other"), color), added, mid);
+        List<CategoryInfo> roots = List.of(labeled("Root", "Rot", rootProperties), movedOther);
+        TaxonomyIndex second = first.derive(roots);
+
+        assertSameIndex(TaxonomyIndex.of(roots), second);
+        assertEquals(TaxonomyIndex.NOT_FOUND, second.idOf("Gone"));
+        assertNull(second.findByLabel("Borte barn"));
+        assertEquals(second.idOf("Added"), second.idOfLabel("Gren"));
+        assertNull(first.findByClassName("Added"), "the previous index is left unchanged");
+        assertSame(first.effectiveProperties(first.idOf("Root")), second.effectiveProperties(second.idOf("Root")));
+
+        // Removing the class first in pre-order hands the shared label back to B
+        List<CategoryInfo> third = List.of(labeled("Root", "Rot", rootProperties),
+                labeled("Other", "Annen", List.of(property("size", "Other"), color), mid));
+        TaxonomyIndex derived = second.derive(third);
+        assertSameIndex(TaxonomyIndex.of(third), derived);
+        assertEquals(derived.idOf("B"), derived.idOfLabel("Gren"));
+    }
+
+    @Test
+    void shouldKeepDerivedLookupsCorrectOverManyVersions() {
+        int width = 2_000;
+        CategoryInfo[] leaves = new CategoryInfo[width];
+        for (int i = 0; i < width; i++) {
+            leaves[i] = labeled("L" + i, "Blad " + i, List.of());
+        }
+        List<CategoryInfo> roots = List.of(labeled("Root", "Rot", List.of(), leaves));
+        TaxonomyIndex index = TaxonomyIndex.of(roots);
+        // Each version adds one class in front, past the point where the changed keys are merged into a new base
+        for (int version = 0; version < 200; version++) {
+            CategoryInfo[] children = index.node(0).children().toArray(new CategoryInfo[0]);
+            CategoryInfo[] next = new CategoryInfo[children.length + 1];
+            next[0] = labeled("V" + version, "Blad " + (version * 7 % width), List.of());
+            System.arraycopy(children, 0, next, 1, children.length);
+            roots = List.of(labeled("Root", "Rot", List.of(), next));
+            index = index.derive(roots);
+        }
+
+        assertSameIndex(TaxonomyIndex.of(roots), index);
+    }
+}
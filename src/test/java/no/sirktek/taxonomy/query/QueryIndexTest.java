@@ -0,0 +1,131 @@
+package no.sirktek.taxonomy.query;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.TestTaxonomies;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryIndexTest {
+
+    private final TaxonomyIndex base = new RdfsTaxonomyLoader(false).loadBaseTaxonomy().index();
+    private final QueryIndex index = QueryIndex.of(base);
+
+    private static PropertyDefinition property(String name, PropertyType type) {
+        return PropertyDefinition.builder().name(name).propertyType(type).build();
+    }
+
+    private static CategoryInfo category(String className, List<PropertyDefinition> properties,
+                                         CategoryInfo... children) {
+        return CategoryInfo.builder()
+                .className(className)
+                .englishName(className)
+                .properties(properties)
+                .children(List.of(children))
+                .build();
+    }
+
+    private static List<String> classNames(List<CategoryInfo> categories) {
+        return categories.stream().map(CategoryInfo::className).toList();
+    }
+
+    /**
+     * The same query answered by checking every node of the index
+     */
+    private List<String> scanAll(TaxonomyQuery query) {
+        int ancestor = query.descendantOf() == null ? TaxonomyIndex.NOT_FOUND : base.idOf(query.descendantOf());
+        List<String> matches = new ArrayList<>();
+        for (int id = 0; id < base.size() && matches.size() < query.limit(); id++) {
+            CategoryInfo category = base.node(id);
+            boolean leaf = category.children().isEmpty();
+            String label = (category.englishName() + " " + category.norwegianName()).toLowerCase(Locale.ROOT);
+            if ((query.descendantOf() == null || ancestor != id && base.isSubclassOf(id, ancestor))
+                    && (query.minDepth() == null || base.depthOf(id) >= query.minDepth())
+                    && (query.maxDepth() == null || base.depthOf(id) <= query.maxDepth())
+                    && (query.leaf() == null || query.leaf() == leaf)
+                    && (query.labelContains() == null || label.contains(query.labelContains()))
+                    && (query.propertyName() == null && query.propertyType() == null
+                    || base.effectiveProperties(id).stream().anyMatch(p ->
+                    (query.propertyName() == null || query.propertyName().equals(p.name()))
+                            && (query.propertyType() == null || query.propertyType() == p.getPropertyType())))) {
+                matches.add(category.className());
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    void shouldMatchFullScanOfBaseTaxonomy() {
+        List<TaxonomyQuery> queries = List.of(
+                TaxonomyQuery.builder().build(),
+                TaxonomyQuery.builder().descendantOf("Table").leaf(true).build(),
+                TaxonomyQuery.builder().descendantOf("StorageFurniture").leaf(false).build(),
+                TaxonomyQuery.builder().minDepth(2).maxDepth(2).build(),
+                TaxonomyQuery.builder().labelContains("bord").build(),
+                TaxonomyQuery.builder().propertyName("color").leaf(true).build(),
+                TaxonomyQuery.builder().propertyName("width").propertyType(PropertyType.DECIMAL_CM).build(),
+                TaxonomyQuery.builder().propertyType(PropertyType.URL).descendantOf("Furniture").limit(3).build(),
+                TaxonomyQuery.builder().propertyName("accessory").labelContains("cabinet").maxDepth(2).build());
+
+        for (TaxonomyQuery query : queries) {
+            assertEquals(scanAll(query), classNames(index.find(query)), query.toString());
+            assertEquals(scanAll(query).size(), index.count(query), query.toString());
+        }
+        assertFalse(index.find(TaxonomyQuery.builder().descendantOf("Table").leaf(true).build()).isEmpty());
+    }
+
+    @Test
+    void shouldMatchLabelsInEveryLanguage() {
+        QueryIndex scandinavian = QueryIndex.of(TestTaxonomies.scandinavian());
+
+        assertEquals(List.of("Seat"), classNames(scandinavian.find(TaxonomyQuery.builder().labelContains("möbel").build())));
+        assertEquals(List.of("Stool"), classNames(scandinavian.find(TaxonomyQuery.builder().labelContains("skammel").build())));
+        assertEquals(2, scandinavian.count(TaxonomyQuery.builder().labelContains("s").build()));
+    }
+
+    @Test
+    void shouldUseTypeOfInnermostDeclaration() {
+        TaxonomyIndex tree = TaxonomyIndex.of(List.of(category("Root", List.of(property("size", PropertyType.STRING)),
+                category("Sized", List.of(property("size", PropertyType.INTEGER)), category("SizedLeaf", List.of())),
+                category("Plain", List.of()))));
+        QueryIndex query = QueryIndex.of(tree);
+
+        assertEquals(List.of("Sized", "SizedLeaf"), classNames(query.find(TaxonomyQuery.builder()
+                .propertyName("size").propertyType(PropertyType.INTEGER).build())));
+        assertEquals(List.of("Root", "Plain"), classNames(query.find(TaxonomyQuery.builder()
+                .propertyType(PropertyType.STRING).build())));
+        assertEquals(List.of("Root", "Sized", "SizedLeaf", "Plain"), classNames(query.find(TaxonomyQuery.builder()
+                .propertyName("size").build())));
+    }
+
+    @Test
+    void shouldStopAtLimitOrWhenVisitorDeclines() {
+        List<Integer> visited = new ArrayList<>();
+        int passed = index.run(TaxonomyQuery.builder().build(), id -> visited.add(id) && visited.size() < 2);
+
+        assertEquals(2, passed);
+        assertEquals(List.of(0, 1), visited);
+        assertEquals(1, index.count(TaxonomyQuery.builder().descendantOf("Furniture").limit(1).build()));
+        assertEquals(0, index.count(TaxonomyQuery.builder().limit(0).build()));
+        assertTrue(index.find(TaxonomyQuery.builder().descendantOf("Spaceship").build()).isEmpty());
+        assertTrue(index.find(TaxonomyQuery.builder().propertyName("thrust").build()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> TaxonomyQuery.builder().limit(-1).build());
+    }
+
+    @Test
+    void shouldQueryCurrentVersionThroughService() {
+        TaxonomyService service = new TaxonomyService(new RdfsTaxonomyLoader(false));
+
+        assertEquals(classNames(index.find(TaxonomyQuery.builder().descendantOf("Chair").build())),
+                classNames(service.query(TaxonomyQuery.builder().descendantOf("Chair").build())));
+    }
+}
@@ -0,0 +1,135 @@
+package no.sirktek.taxonomy.reload;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.TaxonomyVersion;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxonomyDirectoryWatcherTest {
+
+    private static final String EXTENSION = """
+            @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+            @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+
+            furniture:Hammock a rdfs:Class ;
+                rdfs:subClassOf furniture:SeatingFurniture ;
+                rdfs:label "Hammock"@en, "Hengekøye"@no .
+            """;
+
+    @TempDir
+    Path directory;
+
+    private TaxonomyService service;
+    private TaxonomyDirectoryWatcher watcher;
+    private final List<TaxonomyVersion> published = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/taxonomy/furniture-base.ttl")) {
+            Files.copy(in, directory.resolve("furniture-base.ttl"));
+        }
+        service = new TaxonomyService();
+        service.addChangeListener((previous, current) -> published.add(current));
+        watcher = new TaxonomyDirectoryWatcher(service, new RdfsTaxonomyLoader(), directory, Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    void shouldPublishDirectoryOnStart() throws IOException {
+        TaxonomyVersion initial = watcher.start();
+
+        assertEquals(1, initial.version());
+        assertSame(initial, service.getCurrentVersion());
+        assertTrue(service.isBaseTaxonomyClass("OfficeChair"));
+        assertEquals(List.of(initial), published);
+    }
+
+    @Test
+    void shouldPublishNewVersionWhenFilesChange() throws Exception {
+        TaxonomyVersion initial = watcher.start();
+        assertFalse(service.isBaseTaxonomyClass("Hammock"));
+
+        Files.writeString(directory.resolve("extension.ttl"), EXTENSION);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (!service.isBaseTaxonomyClass("Hammock") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(service.isBaseTaxonomyClass("Hammock"), "watcher should have published the extension");
+        assertTrue(service.isSubclassOf("Hammock", "SeatingFurniture"));
+        assertTrue(service.getCurrentVersion().version() > initial.version());
+        assertSame(service.getCurrentVersion(), published.get(published.size() - 1));
+    }
+
+    @Test
+    void shouldKeepCurrentTaxonomyWhenReloadFails() throws Exception {
+        TaxonomyVersion initial = watcher.start();
+        Files.writeString(directory.resolve("broken.ttl"), "this is not turtle");
+
+        assertThrows(RdfsTaxonomyLoader.TaxonomyLoadException.class, () -> watcher.reload());
+        assertSame(initial, service.getCurrentVersion());
+    }
+
+    @Test
+    void shouldReloadOnlyForTurtleFiles() throws Exception {
+        watcher.start();
+        Files.writeString(directory.resolve("notes.txt"), "not a taxonomy");
+        Thread.sleep(500);
+        assertEquals(1, published.size(), "a non-Turtle file should not trigger a reload");
+
+        Files.writeString(directory.resolve("extension.ttl"), EXTENSION);
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (published.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(service.isBaseTaxonomyClass("Hammock"));
+    }
+
+    @Test
+    void shouldAllowStartingAgainAfterFailedInitialLoad() throws Exception {
+        Path broken = directory.resolve("broken.ttl");
+        Files.writeString(broken, "this is not turtle");
+        assertThrows(RdfsTaxonomyLoader.TaxonomyLoadException.class, () -> watcher.start());
+        assertFalse(watcher.isWatching());
+
+        Files.delete(broken);
+        assertEquals(1, watcher.start().version());
+        assertTrue(watcher.isWatching());
+    }
+
+    @Test
+    void shouldStopWhenDirectoryIsDeleted() throws Exception {
+        Path watched = Files.createDirectory(directory.resolve("watched"));
+        Files.move(directory.resolve("furniture-base.ttl"), watched.resolve("furniture-base.ttl"));
+        try (TaxonomyDirectoryWatcher deleted = new TaxonomyDirectoryWatcher(service, new RdfsTaxonomyLoader(),
+                watched, Duration.ofMillis(50))) {
+            TaxonomyVersion initial = deleted.start();
+            Files.delete(watched.resolve("furniture-base.ttl"));
+            Files.delete(watched);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+            while (deleted.isWatching() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertFalse(deleted.isWatching(), "watcher should stop once its directory is gone");
+            assertSame(initial, service.getCurrentVersion());
+        }
+    }
+}
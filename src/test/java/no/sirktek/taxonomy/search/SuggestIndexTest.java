@@ -0,0 +1,166 @@
+package no.sirktek.taxonomy.search;
+
+import no.sirktek.taxonomy.TestTaxonomies;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestIndexTest {
+
+    private static final Locale NORWEGIAN = Locale.forLanguageTag("nb");
+
+    private final SuggestIndex index = SuggestIndex.of(new RdfsTaxonomyLoader().loadBaseTaxonomy().index());
+
+    private static List<String> classNames(List<Suggestion> suggestions) {
+        return suggestions.stream()
+                .map(Suggestion::category)
+                .map(CategoryInfo::className)
+                .toList();
+    }
+
+    @Test
+    void shouldIgnoreSpacesHyphensAndCase() {
+        assertEquals("OfficeChair", classNames(index.suggest("kontor stol", NORWEGIAN, 5)).get(0));
+        assertEquals("OfficeChair", classNames(index.suggest("Kontor-Stol", NORWEGIAN, 5)).get(0));
+        assertEquals(Suggestion.Match.EXACT, index.suggest("kontorstol", NORWEGIAN, 1).get(0).match());
+    }
+
+    @Test
+    void shouldRankExactBeforePrefixBeforeWordMatches() {
+        List<Suggestion> suggestions = index.suggest("bord", NORWEGIAN, 10);
+
+        assertEquals(List.of("Bord", "Bordplate"), suggestions.subList(0, 2).stream().map(Suggestion::label).toList());
+        assertEquals(List.of(Suggestion.Match.EXACT, Suggestion.Match.PREFIX),
+                suggestions.subList(0, 2).stream().map(Suggestion::match).toList());
+        assertTrue(suggestions.stream().anyMatch(s -> s.match() == Suggestion.Match.WORD_PREFIX
+                && s.label().equals("Lite bord")));
+    }
+
+    @Test
+    void shouldMatchNorwegianLetters() {
+        List<Suggestion> suggestions = index.suggest("hø", NORWEGIAN, 5);
+
+        assertFalse(suggestions.isEmpty());
+        assertTrue(suggestions.stream().allMatch(s -> s.label().startsWith("Høyde")));
+        assertEquals("Tower Cabinet", index.suggest("tårn", NORWEGIAN, 1).get(0).category().englishName());
+    }
+
+    @Test
+    void shouldSuggestWithinEditDistanceForTypos() {
+        List<Suggestion> suggestions = index.suggest("kontrostol", NORWEGIAN, 3);
+
+        assertEquals("OfficeChair", suggestions.get(0).category().className());
+        assertEquals(Suggestion.Match.FUZZY, suggestions.get(0).match());
+        assertEquals("OfficeChair", classNames(index.suggest("ofice ch", Locale.ENGLISH, 3)).get(0));
+    }
+
+    @Test
+    void shouldFilterByLocaleAndRespectLimit() {
+        assertTrue(index.suggest("office", NORWEGIAN, 5).stream()
+                .noneMatch(s -> s.category().className().equals("OfficeChair")));
+        assertEquals("no", index.suggest("kontorstol", null, 1).get(0).language());
+        assertEquals(2, index.suggest("k", null, 2).size());
+        assertTrue(index.suggest("  ", null, 5).isEmpty());
+    }
+
+    @Test
+    void shouldSuggestLabelShownInEveryLanguage() {
+        SuggestIndex scandinavian = SuggestIndex.of(TestTaxonomies.scandinavian());
+        Locale swedish = Locale.forLanguageTag("sv");
+
+        Suggestion seat = scandinavian.suggest("sittm", swedish, 1).get(0);
+        assertEquals("Seat", seat.category().className());
+        assertEquals("sv", seat.language());
+        assertEquals("Stool", scandinavian.suggest("stoo", swedish, 1).get(0).category().className());
+        assertTrue(scandinavian.suggest("seat", swedish, 5).isEmpty());
+        assertEquals("Stool", scandinavian.suggest("skam", Locale.forLanguageTag("da"), 1).get(0).category().className());
+        assertTrue(scandinavian.suggest("skam", Locale.forLanguageTag("nb"), 5).isEmpty());
+        assertEquals("Sete", scandinavian.suggest("se", Locale.forLanguageTag("nn"), 1).get(0).label());
+    }
+
+    @Test
+    void shouldRankLargePrefixRangesWithoutScanningThem() {
+        StringBuilder turtle = new StringBuilder("""
+                @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+                @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+                furniture:Stool a rdfs:Class ; rdfs:label "Stol"@no .
+                """);
+        for (int i = 0; i < 600; i++) {
+            String label = i % 2 == 0 ? "Stol" + i : "Lite stol" + i;
+            turtle.append("furniture:C").append(i).append(" a rdfs:Class ; rdfs:label \"").append(label)
+                    .append("\"@no .\n");
+        }
+        SuggestIndex large = SuggestIndex.of(new RdfsTaxonomyLoader(false).loadTaxonomy(
+                new ByteArrayInputStream(turtle.toString().getBytes(StandardCharsets.UTF_8))).index());
+
+        assertEquals(List.of("Stol", "Stol0", "Stol2"),
+                large.suggest("s", NORWEGIAN, 3).stream().map(Suggestion::label).toList());
+        List<Suggestion> all = large.suggest("stol", NORWEGIAN, 400);
+        assertEquals(400, all.size());
+        assertEquals(Suggestion.Match.EXACT, all.get(0).match());
+        assertEquals(Suggestion.Match.PREFIX, all.get(300).match());
+        assertEquals("Lite stol1", all.get(301).label());
+        assertEquals(Suggestion.Match.WORD_PREFIX, all.get(301).match());
+        assertEquals(400, all.stream().map(Suggestion::category).distinct().count());
+    }
+
+    @Test
+    void shouldFindTheFuzzyMatchesOfCheckingEveryKey() {
+        StringBuilder turtle = new StringBuilder("""
+                @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+                @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+                """);
+        List<List<String>> labels = new ArrayList<>();
+        for (int i = 0; i < 700; i++) {
+            labels.add(List.of("Chair " + i, "Stol " + i));
+            turtle.append("furniture:C").append(i).append(" a rdfs:Class ; rdfs:label \"Chair ").append(i)
+                    .append("\"@en , \"Stol ").append(i).append("\"@no .\n");
+        }
+        SuggestIndex large = SuggestIndex.of(new RdfsTaxonomyLoader(false).loadTaxonomy(
+                new ByteArrayInputStream(turtle.toString().getBytes(StandardCharsets.UTF_8))).index());
+
+        // The first queries end on the ranges of all 700 "stol" and "chair" keys, walked in rank order
+        for (String query : List.of("sot", "cahi", "sotl", "stlo 12", "chiar 6", "cahir 61", "stol1x",
+                "hcair 123")) {
+            String key = SuggestIndex.normalize(query);
+            int maxDistance = key.length() < 6 ? 1 : 2;
+            Comparator<Map.Entry<String, Integer>> rank = Map.Entry.<String, Integer>comparingByValue()
+                    .thenComparingInt(label -> label.getKey().length())
+                    .thenComparing(Map.Entry::getKey);
+            List<String> expected = labels.stream()
+                    .map(category -> category.stream()
+                            .map(label -> Map.entry(label, Math.min(
+                                    SuggestIndex.prefixDistance(key, SuggestIndex.normalize(label), maxDistance),
+                                    SuggestIndex.prefixDistance(key, SuggestIndex.normalize(
+                                            label.substring(label.indexOf(' ') + 1)), maxDistance))))
+                            .min(rank).orElseThrow())
+                    .filter(label -> label.getValue() <= maxDistance)
+                    .sorted(rank)
+                    .limit(5)
+                    .map(Map.Entry::getKey)
+                    .toList();
+
+            List<Suggestion> suggestions = large.suggest(query, null, 5);
+            assertFalse(expected.isEmpty(), query);
+            assertEquals(expected, suggestions.stream().map(Suggestion::label).toList(), query);
+            assertTrue(suggestions.stream().allMatch(s -> s.match() == Suggestion.Match.FUZZY), query);
+        }
+    }
+
+    @Test
+    void shouldBoundPrefixEditDistance() {
+        assertEquals(0, SuggestIndex.prefixDistance("kont", "kontorstol", 1));
+        assertEquals(1, SuggestIndex.prefixDistance("kotn", "kontorstol", 1));
+        assertEquals(2, SuggestIndex.prefixDistance("xyz", "kontorstol", 1));
+    }
+}
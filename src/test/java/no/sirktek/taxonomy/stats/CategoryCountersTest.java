@@ -0,0 +1,94 @@
+package no.sirktek.taxonomy.stats;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryCountersTest {
+
+    private final TaxonomyTree tree = new RdfsTaxonomyLoader(false).loadBaseTaxonomy();
+
+    @Test
+    void shouldRollUpCountsToAncestors() {
+        CategoryCounters counters = CategoryCounters.of(tree);
+
+        assertTrue(counters.add("Cabinet", 3));
+        assertTrue(counters.add("Shelf", 4));
+        assertTrue(counters.add("StorageFurniture", 1));
+        assertTrue(counters.add("OfficeChair", 2));
+        assertFalse(counters.add("Spaceship", 5));
+
+        assertEquals(3, counters.total("Cabinet"));
+        assertEquals(8, counters.total("StorageFurniture"));
+        assertEquals(1, counters.count(tree.index().idOf("StorageFurniture")));
+        assertEquals(0, counters.total("Spaceship"));
+
+        long[] totals = counters.rollUp();
+        for (int id = 0; id < totals.length; id++) {
+            assertEquals(counters.total(id), totals[id], tree.index().node(id).className());
+        }
+        long roots = tree.rootCategories().stream().mapToLong(root -> counters.total(root.className())).sum();
+        assertEquals(10, roots);
+    }
+
+    @Test
+    void shouldNotLoseUpdatesFromManyThreads() throws InterruptedException {
+        CategoryCounters counters = CategoryCounters.of(tree);
+        TaxonomyIndex index = counters.index();
+        int threads = 64;
+        int increments = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < increments; i++) {
+                    // Half the updates go to one hot category
+                    counters.increment(i % 2 == 0 ? 0 : random.nextInt(index.size()));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        long all = 0;
+        for (CategoryInfo root : tree.rootCategories()) {
+            all += counters.total(root.className());
+        }
+        assertEquals((long) threads * increments, all);
+        assertTrue(counters.count(0) >= (long) threads * increments / 2);
+    }
+
+    @Test
+    void shouldCarryCountsOverToAnotherVersion() {
+        CategoryCounters counters = CategoryCounters.of(tree);
+        counters.add("Cabinet", 3);
+        counters.add("OfficeChair", 2);
+        TaxonomyTree chairs = new TaxonomyTree(List.of(tree.findByClassName("Chair")));
+
+        CategoryCounters rebound = counters.rebind(chairs.index());
+
+        assertSame(chairs.index(), rebound.index());
+        assertEquals(2, rebound.total("Chair"));
+        assertEquals(0, rebound.total("Cabinet"));
+    }
+}
@@ -0,0 +1,135 @@
+package no.sirktek.taxonomy.stats;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.PropertyDefinition;
+import no.sirktek.taxonomy.model.PropertyDefinition.PropertyType;
+import no.sirktek.taxonomy.model.TaxonomyIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsIndexTest {
+
+    private static final PropertyType[] TYPES = {PropertyType.STRING, PropertyType.DECIMAL_CM, PropertyType.URL};
+
+    @Test
+    void shouldMatchBruteForceCountsOnLargeRandomTree() {
+        TaxonomyIndex index = TaxonomyIndex.of(randomForest(30_000, new Random(7)));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        StatsIndex stats;
+        try {
+            stats = StatsIndex.of(index, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Integer> byDepth = new ArrayList<>();
+        SortedMap<Integer, Integer> byChildCount = new TreeMap<>();
+        for (int id = 0; id < index.size(); id++) {
+            while (byDepth.size() <= index.depthOf(id)) {
+                byDepth.add(0);
+            }
+            byDepth.set(index.depthOf(id), byDepth.get(index.depthOf(id)) + 1);
+            byChildCount.merge(index.node(id).children().size(), 1, Integer::sum);
+        }
+        assertEquals(byDepth, stats.categoriesByDepth());
+        assertEquals(byChildCount, stats.categoriesByChildCount());
+        assertEquals(5, stats.rootCategories());
+
+        Random random = new Random(11);
+        for (int sample = 0; sample < 300; sample++) {
+            int id = sample == 0 ? 0 : random.nextInt(index.size());
+            assertEquals(walk(index.node(id)), stats.subtree(id), "subtree of " + index.node(id).className());
+        }
+        SubtreeStats totals = stats.totals();
+        assertEquals(index.size(), totals.categories());
+        assertEquals(byDepth.size() - 1, totals.height());
+        assertEquals(byChildCount.get(0), totals.leaves());
+        assertEquals(totals.properties(), totals.propertiesByType().values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void shouldAggregateBaseTaxonomy() {
+        TaxonomyIndex index = new RdfsTaxonomyLoader(false).loadBaseTaxonomy().index();
+        StatsIndex stats = StatsIndex.of(index);
+
+        SubtreeStats chair = stats.subtree("Chair");
+        assertEquals(walk(index.findByClassName("Chair")), chair);
+        assertEquals(0, stats.subtree("OfficeChair").height());
+        assertEquals(1, stats.subtree("OfficeChair").leaves());
+        assertNull(stats.subtree("Spaceship"));
+        assertTrue(stats.subtree("Furniture").properties() >= index.findByClassName("Furniture").properties().size());
+        assertThrows(UnsupportedOperationException.class, () -> stats.categoriesByDepth().set(0, 0));
+    }
+
+    @Test
+    void shouldHandleEmptyTaxonomy() {
+        StatsIndex stats = StatsIndex.of(TaxonomyIndex.of(List.of()));
+
+        assertEquals(new SubtreeStats(0, 0, 0, 0, Map.of()), stats.totals());
+        assertEquals(List.of(), stats.categoriesByDepth());
+        assertTrue(stats.categoriesByChildCount().isEmpty());
+    }
+
+    /**
+     * Aggregate a subtree by walking it
+     */
+    private static SubtreeStats walk(CategoryInfo root) {
+        int categories = 1;
+        int leaves = root.children().isEmpty() ? 1 : 0;
+        int height = 0;
+        Map<PropertyType, Integer> byType = new EnumMap<>(PropertyType.class);
+        for (PropertyDefinition property : root.properties()) {
+            byType.merge(property.getPropertyType(), 1, Integer::sum);
+        }
+        for (CategoryInfo child : root.children()) {
+            SubtreeStats stats = walk(child);
+            categories += stats.categories();
+            leaves += stats.leaves();
+            height = Math.max(height, stats.height() + 1);
+            stats.propertiesByType().forEach((type, count) -> byType.merge(type, count, Integer::sum));
+        }
+        int properties = byType.values().stream().mapToInt(Integer::intValue).sum();
+        return new SubtreeStats(categories, leaves, height, properties, byType);
+    }
+
+    /**
+     * A forest of five roots where every other node hangs below a random earlier node and declares up to two
+     * properties
+     */
+    private static List<CategoryInfo> randomForest(int size, Random random) {
+        int[] parents = new int[size];
+        List<List<Integer>> children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            parents[i] = i < 5 ? -1 : random.nextInt(i);
+            children.add(new ArrayList<>());
+            if (parents[i] >= 0) {
+                children.get(parents[i]).add(i);
+            }
+        }
+        CategoryInfo[] built = new CategoryInfo[size];
+        for (int i = size - 1; i >= 0; i--) {
+            List<CategoryInfo> kids = new ArrayList<>();
+            children.get(i).forEach(child -> kids.add(built[child]));
+            List<PropertyDefinition> properties = new ArrayList<>();
+            for (int p = random.nextInt(3); p > 0; p--) {
+                properties.add(PropertyDefinition.builder().name("p" + i + "_" + p)
+                        .propertyType(TYPES[random.nextInt(TYPES.length)]).build());
+            }
+            built[i] = CategoryInfo.builder().className("C" + i).englishName("C" + i)
+                    .parentClassName(parents[i] < 0 ? null : "C" + parents[i])
+                    .properties(properties).children(kids).build();
+        }
+        return List.of(built[0], built[1], built[2], built[3], built[4]);
+    }
+}
@@ -0,0 +1,121 @@
+package no.sirktek.taxonomy.store;
+
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTaxonomyTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TaxonomyTree tree;
+    private MappedTaxonomy mapped;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tree = new RdfsTaxonomyLoader().loadBaseTaxonomy();
+        Path file = tempDir.resolve("taxonomy.mapped");
+        MappedTaxonomy.write(tree, file);
+        mapped = MappedTaxonomy.open(file);
+    }
+
+    @Test
+    void shouldExposeSameRootCategoriesAsHeapTree() {
+        assertEquals(tree.rootCategories(), mapped.rootCategories());
+        assertEquals(tree.index().size(), mapped.size());
+    }
+
+    @Test
+    void shouldFindEveryCategoryByClassName() {
+        List<CategoryInfo> all = new ArrayList<>();
+        collect(tree.rootCategories(), all);
+
+        for (CategoryInfo category : all) {
+            assertEquals(category, mapped.findByClassName(category.className()), category.className());
+        }
+        assertNull(mapped.findByClassName("NonExistent"));
+        assertNull(mapped.findByClassName(null));
+        assertTrue(mapped.containsClassName("OfficeChair"));
+        assertFalse(mapped.containsClassName("CustomClass"));
+    }
+
+    @Test
+    void shouldNavigateChildrenAndPropertiesLazily() {
+        CategoryInfo chair = mapped.findByClassName("Chair");
+
+        assertEquals("SeatingFurniture", chair.parentClassName());
+        assertEquals(tree.findByClassName("Chair").children().size(), chair.children().size());
+        assertEquals("Chair", chair.children().get(0).parentClassName());
+        assertEquals(tree.findByClassName("Furniture").properties(), mapped.findByClassName("Furniture").properties());
+        assertThrows(IndexOutOfBoundsException.class, () -> chair.children().get(chair.children().size()));
+    }
+
+    @Test
+    void shouldKeepLabelsOfEveryLanguageWithTheirFallbacks() throws IOException {
+        String turtle = """
+                @prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .
+                @prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .
+                @prefix furniture: <http://taxonomy.sirktek.no/furniture#> .
+                furniture:Seat a rdfs:Class ; rdfs:label "Seat"@en , "Sete"@nb , "Sittmöbel"@sv , "Siège"@fr .
+                furniture:Stool a rdfs:Class ; rdfs:subClassOf furniture:Seat ; rdfs:label "Pall"@sv .
+                furniture:height a rdf:Property ; rdfs:label "højde"@da ; rdfs:domain furniture:Seat .
+                """;
+        TaxonomyTree localized = new RdfsTaxonomyLoader(false)
+                .loadTaxonomy(new ByteArrayInputStream(turtle.getBytes(StandardCharsets.UTF_8)));
+        Path file = tempDir.resolve("localized.mapped");
+
+        MappedTaxonomy.write(localized, file);
+        MappedTaxonomy reopened = MappedTaxonomy.open(file);
+
+        assertEquals(localized.rootCategories(), reopened.rootCategories());
+        CategoryInfo seat = reopened.findByClassName("Seat");
+        assertEquals("Sete", seat.label(Locale.forLanguageTag("no")));
+        assertEquals("Siège", seat.label(Locale.FRANCE));
+        assertEquals("højde", seat.properties().get(0).label(Locale.forLanguageTag("da")));
+        assertEquals("Pall", reopened.findByClassName("Stool").label(Locale.forLanguageTag("sv")));
+        assertEquals("Stool", reopened.findByClassName("Stool").label(Locale.ENGLISH));
+    }
+
+    @Test
+    void shouldReplaceExistingFileAtomically() throws IOException {
+        Path file = tempDir.resolve("replace.mapped");
+        Files.writeString(file, "stale");
+
+        MappedTaxonomy.write(tree, file);
+
+        assertEquals(tree.index().size(), MappedTaxonomy.open(file).size());
+        try (var files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void shouldRejectForeignFiles() throws IOException {
+        Path file = tempDir.resolve("foreign.mapped");
+        Files.writeString(file, "this is not a mapped taxonomy file");
+
+        assertThrows(IOException.class, () -> MappedTaxonomy.open(file));
+    }
+
+    private static void collect(List<CategoryInfo> categories, List<CategoryInfo> into) {
+        for (CategoryInfo category : categories) {
+            into.add(category);
+            collect(category.children(), into);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package no.sirktek.taxonomy.tenant;
+
+import no.sirktek.taxonomy.TaxonomyVersion;
+import no.sirktek.taxonomy.loader.RdfsTaxonomyLoader.TaxonomyLoadException;
+import no.sirktek.taxonomy.model.CategoryInfo;
+import no.sirktek.taxonomy.model.TaxonomyTree;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxonomyRegistryTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private TaxonomyTree tree(TenantKey key) {
+        loads.incrementAndGet();
+        CategoryInfo root = CategoryInfo.builder()
+                .className(key.tenantId())
+                .englishName(key.tenantId())
+                .properties(List.of())
+                .children(List.of())
+                .build();
+        return new TaxonomyTree(List.of(root));
+    }
+
+    private TaxonomyRegistry registry(long maxWeight) {
+        return new TaxonomyRegistry(this::tree, tree -> 10, maxWeight, Duration.ofMinutes(5), clock::get);
+    }
+
+    @Test
+    void shouldLoadOnceForConcurrentFirstRequests() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        TaxonomyRegistry registry = new TaxonomyRegistry(key -> {
+            await(loading);
+            return tree(key);
+        }, 1_000, Duration.ofMinutes(5));
+        TenantKey key = new TenantKey("acme", 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TaxonomyVersion>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> registry.get(key)));
+            }
+            while (registry.stats().hits() + registry.stats().misses() < 8) {
+                Thread.onSpinWait();
+            }
+            loading.countDown();
+            TaxonomyVersion first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<TaxonomyVersion> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, registry.stats().misses());
+        assertEquals(7, registry.stats().hits());
+        assertEquals(1, registry.getIfPresent(key).orElseThrow().version());
+    }
+
+    @Test
+    void shouldCountIdleTimeFromTheEndOfASlowLoad() {
+        TaxonomyRegistry registry = new TaxonomyRegistry(key -> {
+            clock.addAndGet(Duration.ofMinutes(10).toNanos());
+            return tree(key);
+        }, tree -> 10, 1_000, Duration.ofMinutes(5), clock::get);
+        TenantKey key = new TenantKey("acme", 1);
+
+        TaxonomyVersion loaded = registry.get(key);
+
+        assertSame(loaded, registry.get(key));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedWhenOverWeight() {
+        TaxonomyRegistry registry = registry(20);
+        TenantKey a = new TenantKey("a", 1);
+        TenantKey b = new TenantKey("b", 1);
+        TenantKey c = new TenantKey("c", 1);
+
+        registry.get(a);
+        clock.addAndGet(1);
+        registry.get(b);
+        clock.addAndGet(1);
+        registry.get(a);
+        clock.addAndGet(1);
+        registry.get(c);
+
+        assertTrue(registry.getIfPresent(a).isPresent());
+        assertTrue(registry.getIfPresent(b).isEmpty());
+        assertTrue(registry.getIfPresent(c).isPresent());
+        RegistryStats stats = registry.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(20, stats.weight());
+        assertEquals(2, stats.size());
+        assertEquals(0.25, stats.hitRate());
+    }
+
+    @Test
+    void shouldEvictIdleTaxonomies() {
+        TaxonomyRegistry registry = registry(1_000);
+        TenantKey a = new TenantKey("a", 1);
+        TenantKey b = new TenantKey("b", 1);
+        TaxonomyVersion first = registry.get(a);
+        registry.get(b);
+
+        clock.addAndGet(Duration.ofMinutes(4).toNanos());
+        registry.get(b);
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        registry.cleanUp();
+        assertTrue(registry.getIfPresent(a).isEmpty());
+        assertTrue(registry.getIfPresent(b).isPresent());
+
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+        assertNotSame(first, registry.get(a));
+        assertTrue(registry.getIfPresent(b).isPresent(), "only looked-up or cleaned entries are evicted");
+        assertEquals(1, registry.stats().evictions());
+        assertEquals(20, registry.stats().weight());
+    }
+
+    @Test
+    void shouldNotCacheFailedLoads() {
+        AtomicInteger attempts = new AtomicInteger();
+        TaxonomyRegistry registry = new TaxonomyRegistry(key -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new TaxonomyLoadException("Broken upload");
+            }
+            return tree(key);
+        }, 1_000, Duration.ofMinutes(5));
+        TenantKey key = new TenantKey("acme", 2);
+
+        assertThrows(TaxonomyLoadException.class, () -> registry.get(key));
+        assertEquals(0, registry.size());
+        assertEquals(2, registry.get(key).version());
+
+        RegistryStats stats = registry.stats();
+        assertEquals(1, stats.loadFailures());
+        assertEquals(1, stats.loadSuccesses());
+        assertEquals(2, stats.misses());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
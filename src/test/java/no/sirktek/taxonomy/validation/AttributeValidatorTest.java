@@ -0,0 +1,93 @@
+package no.sirktek.taxonomy.validation;
+
+import no.sirktek.taxonomy.TaxonomyService;
+import no.sirktek.taxonomy.validation.ValidationError.Code;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttributeValidatorTest {
+
+    private final TaxonomyService service = new TaxonomyService();
+    private final AttributeValidator officeChair = service.getAttributeValidator("OfficeChair").orElseThrow();
+
+    @Test
+    void shouldAcceptValidRecord() {
+        Map<String, String> record = Map.of(
+                "weight", "12.5",
+                "height", "110",
+                "productionDate", "2024-02-29",
+                "color", "Svart",
+                "emissionFromProduction", "-0.5");
+
+        assertEquals(List.of(), officeChair.validate(record));
+    }
+
+    @Test
+    void shouldReportStructuredErrors() {
+        Map<String, String> record = new LinkedHashMap<>();
+        record.put("weight", "12,5");
+        record.put("height", "-3");
+        record.put("productionDate", "2023-02-29");
+        record.put("colour", "Svart");
+        record.put("material", null);
+        record.put("color", "  ");
+
+        List<ValidationError> errors = officeChair.validate(record);
+
+        assertEquals(List.of(
+                new ValidationError(0, "weight", "12,5", Code.INVALID_DECIMAL),
+                new ValidationError(0, "height", "-3", Code.NEGATIVE_MEASUREMENT),
+                new ValidationError(0, "productionDate", "2023-02-29", Code.INVALID_DATE),
+                new ValidationError(0, "colour", "Svart", Code.UNKNOWN_PROPERTY),
+                new ValidationError(0, "material", null, Code.MISSING_VALUE),
+                new ValidationError(0, "color", "  ", Code.MISSING_VALUE)), errors);
+    }
+
+    @Test
+    void shouldCheckEachFormatLexically() {
+        assertTrue(FieldFormat.isDecimal("+.5", true));
+        assertFalse(FieldFormat.isDecimal("1.2.3", true));
+        assertFalse(FieldFormat.isDecimal("1.0", false));
+        assertTrue(FieldFormat.isDate("2000-02-29Z"));
+        assertTrue(FieldFormat.isDate("2024-12-31+01:00"));
+        assertFalse(FieldFormat.isDate("1900-02-29"));
+        assertTrue(FieldFormat.isAbsoluteUri("https://sirktek.no/epd.pdf"));
+        assertFalse(FieldFormat.isAbsoluteUri("sirktek.no/epd.pdf"));
+        assertNull(FieldFormat.BOOLEAN.check("true"));
+        assertEquals(Code.OUT_OF_SCALE, FieldFormat.SCALE_1_TO_5.check("6"));
+        assertEquals(Code.INVALID_URL, service.getAttributeValidator("Model").orElseThrow()
+                .check("productPage", "not a url"));
+    }
+
+    @Test
+    void shouldValidateBatchesInParallelKeepingRowOrder() {
+        List<Map<String, String>> records = IntStream.range(0, 100_000)
+                .mapToObj(i -> Map.of("weight", i % 1000 == 0 ? "heavy" : Integer.toString(i)))
+                .toList();
+
+        BatchValidationResult result = officeChair.validateAll(records);
+
+        assertEquals(100_000, result.rows());
+        assertEquals(100, result.invalidRows());
+        assertEquals(List.of(0, 1000, 2000), result.errors().subList(0, 3).stream().map(ValidationError::row).toList());
+    }
+
+    @Test
+    void shouldReuseCompiledValidatorsAndStreamErrors() {
+        assertSame(officeChair, service.getAttributeValidator("OfficeChair").orElseThrow());
+        assertTrue(service.getAttributeValidator("Missing").isEmpty());
+
+        List<ValidationError> errors = new ArrayList<>();
+        Map<String, String> record = new HashMap<>(Map.of("weight", "x"));
+        assertEquals(1, officeChair.validate(record, 7, errors::add));
+        assertEquals(7, errors.get(0).row());
+    }
+}